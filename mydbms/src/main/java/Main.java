@@ -1,6 +1,8 @@
 import compiler.CompilationResult;
 import compiler.SQLCompiler;
+import server.DatabaseServer;
 
+import java.io.IOException;
 import java.util.Scanner;
 
 /**
@@ -10,18 +12,32 @@ public class Main {
     private static SQLCompiler compiler = new SQLCompiler();
     private static Scanner scanner = new Scanner(System.in);
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // server [port]：以TCP服务器模式运行，不进入交互式命令行
+        if (args.length > 0 && args[0].equalsIgnoreCase("server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1])
+                    : Integer.getInteger("server.port", DatabaseServer.DEFAULT_PORT);
+            DatabaseServer server = new DatabaseServer(compiler, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            return;
+        }
+        
         System.out.println("===========================================");
         System.out.println("    CSU数据库系统");
         System.out.println("===========================================");
         System.out.println("支持的SQL语句类型：");
-        System.out.println("  - CREATE DATABASE / CREATE TABLE / CREATE USER");
+        System.out.println("  - CREATE DATABASE / CREATE TABLE / CREATE USER / CREATE INDEX");
         System.out.println("  - USE DATABASE");
         System.out.println("  - DROP DATABASE");
         System.out.println("  - SHOW DATABASES / SHOW TABLES");
         System.out.println("  - INSERT INTO");
-        System.out.println("  - SELECT");
+        System.out.println("  - SELECT（支持 JOIN ... ON、GROUP BY 与 COUNT/SUM/AVG/MIN/MAX、ORDER BY、LIMIT ... OFFSET）");
         System.out.println("  - DELETE");
+        System.out.println("  - ANALYZE TABLE");
+        System.out.println("  - EXPLAIN / EXPLAIN ANALYZE");
+        System.out.println("  - BEGIN / COMMIT / ROLLBACK");
+        System.out.println("  - SHOW PROCESSLIST / KILL / SET statement_timeout、parallelism");
         System.out.println();
         System.out.println("输入 'help' 查看帮助，输入 'quit' 退出程序");
         System.out.println("===========================================");
@@ -83,6 +99,7 @@ public class Main {
             }
         }
         
+        compiler.closeSession(compiler.getSession());
         scanner.close();
     }
     
@@ -98,7 +115,9 @@ public class Main {
         System.out.println("  set tokens on/off    - 显示/隐藏词法分析结果");
         System.out.println("  set ast on/off       - 显示/隐藏语法分析结果");
         System.out.println("  set semantic on/off  - 显示/隐藏语义分析结果");
+        System.out.println("  set verbose on/off   - 显示/隐藏编译阶段和执行计划");
         System.out.println("  set execute on/off   - 启用/禁用SQL语句执行");
+        System.out.println("  set parallelism <n>  - 设置本会话扫描和聚合的并行度（1为串行）");
         System.out.println();
         System.out.println("SQL语句示例：");
         System.out.println("  CREATE DATABASE testdb;");
@@ -110,6 +129,15 @@ public class Main {
         System.out.println("  INSERT INTO students (id, name, age) VALUES (1, 'Alice', 20);");
         System.out.println("  SELECT * FROM students;");
         System.out.println("  SELECT name, age FROM students WHERE age > 18;");
+        System.out.println("  CREATE INDEX idx_age_name ON students (age, name);");
+        System.out.println("  CREATE INDEX idx_active ON students (active) USING BITMAP;");
+        System.out.println("  CREATE INDEX idx_email ON students (email) USING BLOOM;");
+        System.out.println("  ANALYZE TABLE students;");
+        System.out.println("  SELECT * FROM students WHERE age = 20 AND name >= 'A';");
+        System.out.println("  SELECT students.name, scores.score FROM students JOIN scores ON students.id = scores.sid;");
+        System.out.println("  SELECT class, COUNT(*), AVG(age) FROM students GROUP BY class;");
+        System.out.println("  SELECT name, age FROM students ORDER BY age DESC, name LIMIT 10 OFFSET 20;");
+        System.out.println("  EXPLAIN ANALYZE SELECT * FROM students WHERE age = 20;");
         System.out.println("  DELETE FROM students WHERE id = 1;");
         System.out.println("  DROP DATABASE testdb;");
     }
@@ -118,7 +146,7 @@ public class Main {
         String[] parts = input.split("\\s+");
         
         if (parts.length != 3) {
-            System.out.println("用法: set <option> <on|off>");
+            System.out.println("用法: set <option> <on|off> 或 set parallelism <n>");
             return;
         }
         
@@ -127,6 +155,18 @@ public class Main {
         boolean enable = value.equals("on");
         
         switch (option) {
+            case "parallelism":
+                try {
+                    int parallelism = Integer.parseInt(value);
+                    if (parallelism < 1) {
+                        throw new NumberFormatException(value);
+                    }
+                    compiler.getSession().setParallelism(parallelism);
+                    System.out.println("查询并行度：" + compiler.getSession().getParallelism());
+                } catch (NumberFormatException e) {
+                    System.out.println("并行度必须是正整数：" + parts[2]);
+                }
+                break;
             case "tokens":
                 compiler.setShowTokens(enable);
                 System.out.println("词法分析结果显示：" + (enable ? "开启" : "关闭"));
@@ -139,13 +179,17 @@ public class Main {
                 compiler.setShowSemanticResult(enable);
                 System.out.println("语义分析结果显示：" + (enable ? "开启" : "关闭"));
                 break;
+            case "verbose":
+                compiler.setVerbose(enable);
+                System.out.println("编译过程和执行计划显示：" + (enable ? "开启" : "关闭"));
+                break;
             case "execute":
                 compiler.setExecuteStatements(enable);
                 System.out.println("SQL语句执行：" + (enable ? "开启" : "关闭"));
                 break;
             default:
                 System.out.println("未知选项：" + option);
-                System.out.println("可用选项：tokens, ast, semantic, execute");
+                System.out.println("可用选项：tokens, ast, semantic, verbose, execute, parallelism");
         }
     }
     
@@ -0,0 +1,208 @@
+package compiler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步执行器 - 在线程池中执行SQL语句，立即返回CompletableFuture<QueryResult>
+ * 同一会话的语句按提交顺序依次执行（会话同一时刻只执行一条语句），不同会话的语句并发执行；
+ * 已提交但未完成的语句数有上限，达到上限时按溢出策略拒绝（返回以RejectedExecutionException结束的Future）
+ * 或让提交者阻塞到有语句完成
+ *
+ * 系统属性（使用默认线程池时）：
+ *   -Dasync.threads=4           执行语句的线程数
+ *   -Dasync.queueCapacity=1024  已提交但未完成的语句数上限
+ *   -Dasync.overflow=reject     达到上限时的策略：reject 或 block
+ */
+public class AsyncExecutor implements AutoCloseable {
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * 提交的语句数达到上限时的处理方式
+     */
+    public enum OverflowPolicy {
+        REJECT, BLOCK
+    }
+
+    private final SQLCompiler compiler;
+    private final Executor executor;
+    private final ExecutorService ownedPool;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Semaphore slots;
+    // 正在执行语句的会话 -> 排在它后面的语句；没有语句执行的会话不在表中
+    private final Map<Session, Deque<Job>> running = new HashMap<>();
+    private volatile boolean closed;
+
+    public AsyncExecutor(SQLCompiler compiler) {
+        this(compiler, Integer.getInteger("async.threads", DEFAULT_THREADS),
+                Integer.getInteger("async.queueCapacity", DEFAULT_QUEUE_CAPACITY),
+                OverflowPolicy.valueOf(System.getProperty("async.overflow", "reject").toUpperCase()));
+    }
+
+    public AsyncExecutor(SQLCompiler compiler, int threads, int capacity, OverflowPolicy policy) {
+        this(compiler, createPool(Math.max(threads, 1)), capacity, policy, true);
+    }
+
+    /**
+     * 使用调用者提供的执行器；关闭异步执行器时不关闭它
+     */
+    public AsyncExecutor(SQLCompiler compiler, Executor executor, int capacity, OverflowPolicy policy) {
+        this(compiler, executor, capacity, policy, false);
+    }
+
+    private AsyncExecutor(SQLCompiler compiler, Executor executor, int capacity, OverflowPolicy policy,
+                          boolean owned) {
+        this.compiler = compiler;
+        this.executor = executor;
+        this.ownedPool = owned ? (ExecutorService) executor : null;
+        this.capacity = Math.max(capacity, 1);
+        this.policy = policy;
+        this.slots = new Semaphore(this.capacity);
+    }
+
+    private static ExecutorService createPool(int threads) {
+        AtomicInteger threadId = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "mydbms-async-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交一条语句在指定会话中执行；编译和执行错误体现在QueryResult中，
+     * 只有被拒绝（或阻塞等待时被中断）的提交以异常结束
+     */
+    public CompletableFuture<QueryResult> submit(String sql, Session session) {
+        CompletableFuture<QueryResult> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("Async executor is closed"));
+            return future;
+        }
+        if (!admit()) {
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Too many pending statements (capacity " + capacity + ")"));
+            return future;
+        }
+        Job job = new Job(sql, session, future);
+        synchronized (running) {
+            Deque<Job> queue = running.get(session);
+            if (queue != null) {
+                queue.add(job);
+                return future;
+            }
+            running.put(session, new ArrayDeque<>());
+        }
+        dispatch(job);
+        return future;
+    }
+
+    private boolean admit() {
+        if (policy == OverflowPolicy.REJECT) {
+            return slots.tryAcquire();
+        }
+        try {
+            slots.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void dispatch(Job job) {
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            finish(job);
+            job.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 一条语句结束：释放名额，调度同一会话的下一条语句
+     */
+    private void finish(Job job) {
+        slots.release();
+        Job next;
+        synchronized (running) {
+            Deque<Job> queue = running.get(job.session);
+            next = queue.poll();
+            if (next == null) {
+                running.remove(job.session);
+                return;
+            }
+        }
+        dispatch(next);
+    }
+
+    /**
+     * 已提交但未完成的语句数
+     */
+    public int getPending() {
+        return capacity - slots.availablePermits();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 不再接受新语句；已交给线程池的语句执行完毕，默认线程池关闭后同一会话中仍在排队的语句以异常结束
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownedPool != null) {
+            ownedPool.shutdown();
+        }
+    }
+
+    private final class Job implements Runnable {
+        private final String sql;
+        private final Session session;
+        private final CompletableFuture<QueryResult> future;
+
+        Job(String sql, Session session, CompletableFuture<QueryResult> future) {
+            this.sql = sql;
+            this.session = session;
+            this.future = future;
+        }
+
+        /**
+         * 先释放名额再完成Future，Future的回调中可以再次提交语句而不会等待自己占用的名额
+         */
+        @Override
+        public void run() {
+            QueryResult result = null;
+            Throwable failure = null;
+            try {
+                result = compiler.execute(sql, session);
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                finish(this);
+            }
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package compiler;
+
+import compiler.codegen.InsertPlan;
+import compiler.execution.ResultSink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一条语句的完整执行结果：编译结果、查询的结果列和结果行（空值为null），以及编译或执行中的错误
+ * 由SQLCompiler.execute和executeAsync返回，结果行全部缓存在内存中
+ */
+public class QueryResult {
+    private final String sql;
+    private final CompilationResult compilation;
+    private final List<String> columns;
+    private final List<List<String>> rows;
+    private final String error;
+
+    QueryResult(String sql, CompilationResult compilation, List<String> columns, List<List<String>> rows,
+                String error) {
+        this.sql = sql;
+        this.compilation = compilation;
+        this.columns = columns;
+        this.rows = rows;
+        this.error = error;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public CompilationResult getCompilation() {
+        return compilation;
+    }
+
+    /**
+     * 编译成功且执行中没有出错
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * 编译失败时为编译错误，执行出错时为执行错误，成功时为null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 语句是否产生了结果集
+     */
+    public boolean isQuery() {
+        return columns != null;
+    }
+
+    /**
+     * 结果列名，不是查询时为null
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 结果行，不是查询时为空列表
+     */
+    public List<List<String>> getRows() {
+        return rows;
+    }
+
+    /**
+     * INSERT影响1行；存储引擎不报告其他语句影响的行数，返回0
+     */
+    public int getUpdateCount() {
+        return isSuccess() && compilation.getExecutionPlan() instanceof InsertPlan ? 1 : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (!isSuccess()) {
+            return "失败：" + error;
+        }
+        return isQuery() ? "查询返回 " + rows.size() + " 行" : "执行成功";
+    }
+
+    /**
+     * 执行期间作为会话的结果接收者，收集结果列、结果行和第一个执行错误
+     */
+    static final class Collector implements ResultSink {
+        private List<String> columns;
+        private final List<List<String>> rows = new ArrayList<>();
+        private String error;
+
+        @Override
+        public void columns(List<String> columns) {
+            this.columns = new ArrayList<>(columns);
+        }
+
+        @Override
+        public void row(List<String> values) {
+            rows.add(values);
+        }
+
+        @Override
+        public void error(String message) {
+            if (error == null) {
+                error = message;
+            }
+        }
+
+        QueryResult finish(String sql, CompilationResult compilation) {
+            String failure = error;
+            if (!compilation.isSuccess()) {
+                failure = compilation.toString().trim();
+            }
+            return new QueryResult(sql, compilation, columns,
+                    columns != null ? Collections.unmodifiableList(rows) : Collections.emptyList(), failure);
+        }
+    }
+}
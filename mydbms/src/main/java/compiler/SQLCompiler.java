@@ -5,45 +5,142 @@ import compiler.catalog.Catalog;
 import compiler.codegen.CodeGenerator;
 import compiler.codegen.ExecutionPlan;
 import compiler.execution.PlanExecutor;
+import compiler.execution.ResultSink;
 import compiler.lexer.LexicalAnalyzer;
 import compiler.lexer.Token;
 import compiler.lexer.TokenType;
+import compiler.optimizer.QueryRewriter;
 import compiler.parser.ParseException;
 import compiler.parser.Parser;
 import compiler.semantic.SemanticAnalysisResult;
 import compiler.semantic.SemanticAnalyzer;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * SQL编译器主类 - 整合词法分析、语法分析、语义分析和代码生成
+ * 目录和执行器由所有会话共享；compile(sql)使用编译器自带的默认会话
  */
 public class SQLCompiler {
     private Catalog catalog;
     private PlanExecutor executor;
+    private Session session;
+    private AsyncExecutor asyncExecutor;
     private boolean showTokens;
     private boolean showAST;
     private boolean showSemanticResult;
     private boolean executeStatements;
+    private boolean verbose;
     
     public SQLCompiler() {
         this.catalog = new Catalog();
-        this.executor = new PlanExecutor();
+        this.executor = new PlanExecutor(catalog);
+        this.session = new Session();
         this.showTokens = false;
         this.showAST = false;
         this.showSemanticResult = false;
         this.executeStatements = true;
+        this.verbose = true;
     }
     
     /**
-     * 编译SQL语句
+     * 在默认会话中编译SQL语句
      */
     public CompilationResult compile(String sql) {
+        return compile(sql, session);
+    }
+    
+    /**
+     * 在指定会话中编译并执行SQL语句，表名在会话的当前数据库中解析
+     */
+    public CompilationResult compile(String sql, Session session) {
+        return compile(sql, session, executeStatements);
+    }
+    
+    /**
+     * 批量编译并执行：先编译全部语句，再通过执行器在一次加锁中依次执行
+     * 全部语句在执行之前编译，因此批中的USE DATABASE不影响后面语句的编译；
+     * 编译失败时不执行任何语句，执行出错时不再执行后面的语句
+     * 返回的结果列表到第一条编译失败或执行出错的语句为止
+     */
+    public List<CompilationResult> compileBatch(List<String> sqls, Session session) {
+        List<CompilationResult> results = new ArrayList<>();
+        List<ExecutionPlan> plans = new ArrayList<>();
+        for (String sql : sqls) {
+            CompilationResult result = compile(sql, session, false);
+            results.add(result);
+            if (!result.isSuccess()) {
+                return results;
+            }
+            plans.add(result.getExecutionPlan());
+        }
+        if (executeStatements) {
+            int executed = executor.executeBatch(plans, session, sqls);
+            if (executed < plans.size()) {
+                return new ArrayList<>(results.subList(0, executed + 1));
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * 在指定会话中编译并执行SQL语句，收集结果列、结果行和错误；
+     * 执行期间结果交给返回值而不是会话原有的结果接收者
+     */
+    public QueryResult execute(String sql, Session session) {
+        QueryResult.Collector collector = new QueryResult.Collector();
+        ResultSink previous = session.getResultSink();
+        session.setResultSink(collector);
+        try {
+            return collector.finish(sql, compile(sql, session));
+        } finally {
+            session.setResultSink(previous);
+        }
+    }
+    
+    /**
+     * 在默认会话中异步执行SQL语句
+     */
+    public CompletableFuture<QueryResult> executeAsync(String sql) {
+        return executeAsync(sql, session);
+    }
+    
+    /**
+     * 异步执行SQL语句：提交到异步执行器后立即返回，同一会话的语句按提交顺序执行；
+     * 未完成的语句过多时按执行器的溢出策略拒绝或阻塞调用者
+     */
+    public CompletableFuture<QueryResult> executeAsync(String sql, Session session) {
+        return getAsyncExecutor().submit(sql, session);
+    }
+    
+    /**
+     * 异步执行器，首次使用时按系统属性创建
+     */
+    public synchronized AsyncExecutor getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            asyncExecutor = new AsyncExecutor(this);
+        }
+        return asyncExecutor;
+    }
+    
+    /**
+     * 替换异步执行器（例如使用自己的线程池或队列容量）；原执行器被关闭
+     */
+    public synchronized void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+        if (this.asyncExecutor != null && this.asyncExecutor != asyncExecutor) {
+            this.asyncExecutor.close();
+        }
+        this.asyncExecutor = asyncExecutor;
+    }
+    
+    private CompilationResult compile(String sql, Session session, boolean execute) {
         CompilationResult result = new CompilationResult();
         
         try {
             // 1. 词法分析
-            System.out.println("=== 词法分析 ===");
+            stage("=== 词法分析 ===");
             LexicalAnalyzer lexer = new LexicalAnalyzer(sql);
             List<Token> tokens = lexer.analyze();
             
@@ -69,7 +166,7 @@ public class SQLCompiler {
             result.setTokens(tokens);
             
             // 2. 语法分析
-            System.out.println("=== 语法分析 ===");
+            stage("=== 语法分析 ===");
             Parser parser = new Parser(tokens);
             ASTNode ast = parser.parse();
             
@@ -81,11 +178,11 @@ public class SQLCompiler {
             result.setAst(ast);
             
             // 3. 语义分析
-            System.out.println("=== 语义分析 ===");
-            SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(catalog);
+            stage("=== 语义分析 ===");
+            SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(catalog, session.getDatabase());
             SemanticAnalysisResult semanticResult = semanticAnalyzer.analyze(ast);
             
-            if (showSemanticResult || semanticResult.hasErrors()) {
+            if (showSemanticResult || (verbose && semanticResult.hasErrors())) {
                 System.out.println(semanticResult.toString());
             }
             
@@ -95,25 +192,35 @@ public class SQLCompiler {
                 return result;
             }
             
-            // 4. 执行计划生成
-            System.out.println("=== 执行计划生成 ===");
-            CodeGenerator codeGenerator = new CodeGenerator();
-            ExecutionPlan executionPlan = codeGenerator.generatePlan(ast);
-            
-            System.out.println("执行计划（树形结构）：");
-            System.out.println(executionPlan.toTreeString());
+            // 4. 查询重写
+            stage("=== 查询重写 ===");
+            QueryRewriter rewriter = new QueryRewriter(catalog, session.getDatabase());
+            ast = rewriter.rewrite(ast);
+            if (rewriter.getRewriteCount() > 0) {
+                stage("应用重写规则 " + rewriter.getRewriteCount() + " 次：" + ast);
+            }
             
-            System.out.println("执行计划（JSON格式）：");
-            System.out.println(executionPlan.toJSON());
+            // 5. 执行计划生成
+            stage("=== 执行计划生成 ===");
+            CodeGenerator codeGenerator = new CodeGenerator(catalog, session.getDatabase());
+            ExecutionPlan executionPlan = codeGenerator.generatePlan(ast);
             
-            System.out.println("执行计划（S表达式格式）：");
-            System.out.println(executionPlan.toSExpression());
+            if (verbose) {
+                System.out.println("执行计划（树形结构）：");
+                System.out.println(executionPlan.toTreeString());
+                
+                System.out.println("执行计划（JSON格式）：");
+                System.out.println(executionPlan.toJSON());
+                
+                System.out.println("执行计划（S表达式格式）：");
+                System.out.println(executionPlan.toSExpression());
+            }
             
             result.setExecutionPlan(executionPlan);
             
-            // 5. 执行SQL语句（如果启用）
-            if (executeStatements) {
-                executor.execute(executionPlan);
+            // 6. 执行SQL语句（如果启用）
+            if (execute) {
+                executor.execute(executionPlan, session, sql);
             }
             
             result.setSuccess(true);
@@ -127,6 +234,12 @@ public class SQLCompiler {
         return result;
     }
     
+    private void stage(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+    
     /**
      * 获取目录信息
      */
@@ -135,8 +248,16 @@ public class SQLCompiler {
     }
     
     /**
-     * 设置调试选项
+     * 是否输出各编译阶段和执行计划；交互式命令行默认开启，服务器和JDBC驱动每条语句都经过这里，默认关闭
      */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    public boolean isVerbose() {
+        return verbose;
+    }
+    
     public void setShowTokens(boolean showTokens) {
         this.showTokens = showTokens;
     }
@@ -167,4 +288,25 @@ public class SQLCompiler {
     public boolean isExecuteStatements() {
         return executeStatements;
     }
+    
+    /**
+     * 请求取消会话中正在执行的语句（与在其他会话中执行KILL相同），没有正在执行的语句时返回false
+     */
+    public boolean cancel(Session session, String reason) {
+        return executor.cancel(session.getId(), reason);
+    }
+    
+    /**
+     * 结束会话：回滚会话中未提交的事务
+     */
+    public void closeSession(Session session) {
+        executor.closeSession(session);
+    }
+    
+    /**
+     * 默认会话
+     */
+    public Session getSession() {
+        return session;
+    }
 }
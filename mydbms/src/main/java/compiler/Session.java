@@ -0,0 +1,96 @@
+package compiler;
+
+import compiler.execution.ParallelScanner;
+import compiler.execution.ResultSink;
+import compiler.transaction.Transaction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话 - 一个客户端连接的状态：当前数据库、会话级设置（并行度、语句超时）、结果接收者和进行中的显式事务
+ * 同一进程中的多个会话共享SQLCompiler的目录和执行器，各自通过compile(sql, session)执行语句；
+ * 一个会话同一时刻只执行一条语句
+ */
+public class Session {
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id;
+    private volatile String database;
+    private volatile int parallelism;
+    private volatile long statementTimeout;
+    private volatile ResultSink resultSink;
+    private volatile Transaction transaction;
+
+    public Session() {
+        this.id = NEXT_ID.getAndIncrement();
+        this.parallelism = Integer.getInteger("scanParallelism", ParallelScanner.DEFAULT_PARALLELISM);
+        this.statementTimeout = Long.getLong("statementTimeout", 0);
+    }
+
+    /**
+     * 进程内唯一的会话编号
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 当前数据库，未执行USE DATABASE时为null
+     */
+    public String getDatabase() {
+        return database;
+    }
+
+    public void setDatabase(String database) {
+        this.database = database;
+    }
+
+    /**
+     * 扫描和聚合的并行度，1表示串行执行；默认值可通过 -DscanParallelism 指定
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    /**
+     * 语句的执行时间上限（毫秒），超时的语句被取消；0表示不限制，默认值可通过 -DstatementTimeout 指定
+     */
+    public long getStatementTimeout() {
+        return statementTimeout;
+    }
+
+    public void setStatementTimeout(long statementTimeout) {
+        this.statementTimeout = Math.max(statementTimeout, 0);
+    }
+
+    /**
+     * 接收查询结果和执行错误的对象，为null时结果输出到控制台
+     */
+    public ResultSink getResultSink() {
+        return resultSink;
+    }
+
+    public void setResultSink(ResultSink resultSink) {
+        this.resultSink = resultSink;
+    }
+
+    /**
+     * BEGIN开始的显式事务，不在事务中时为null
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+
+    @Override
+    public String toString() {
+        return "Session#" + id + (database != null ? " (" + database + ")" : "");
+    }
+}
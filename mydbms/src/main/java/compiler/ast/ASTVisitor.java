@@ -12,6 +12,9 @@ public interface ASTVisitor<T> {
     T visitInsertStatement(InsertStatement stmt);
     T visitSelectStatement(SelectStatement stmt);
     T visitDeleteStatement(DeleteStatement stmt);
+    T visitCreateIndexStatement(CreateIndexStatement stmt);
+    T visitAnalyzeTableStatement(AnalyzeTableStatement stmt);
+    T visitExplainStatement(ExplainStatement stmt);
     
     // 数据库级操作语句访问方法
     T visitCreateDatabaseStatement(CreateDatabaseStatement stmt);
@@ -20,6 +23,10 @@ public interface ASTVisitor<T> {
     T visitShowDatabasesStatement(ShowDatabasesStatement stmt);
     T visitShowTablesStatement(ShowTablesStatement stmt);
     T visitCreateUserStatement(CreateUserStatement stmt);
+    T visitTransactionStatement(TransactionStatement stmt);
+    T visitShowProcesslistStatement(ShowProcesslistStatement stmt);
+    T visitKillStatement(KillStatement stmt);
+    T visitSetStatement(SetStatement stmt);
     
     // 表达式访问方法
     T visitIdentifier(Identifier expr);
@@ -28,5 +35,8 @@ public interface ASTVisitor<T> {
     T visitColumnDefinition(ColumnDefinition expr);
     T visitValuesList(ValuesList expr);
     T visitWhereClause(WhereClause expr);
+    T visitJoinClause(JoinClause expr);
+    T visitAggregateExpression(AggregateExpression expr);
+    T visitOrderByItem(OrderByItem expr);
     T visitSelectList(SelectList expr);
 }
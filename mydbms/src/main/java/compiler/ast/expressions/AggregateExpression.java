@@ -0,0 +1,68 @@
+package compiler.ast.expressions;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 聚合函数调用：COUNT(*)、COUNT(列)、SUM(列)、AVG(列)、MIN(列)、MAX(列)
+ */
+public class AggregateExpression extends Expression {
+    public enum Function {
+        COUNT,
+        SUM,
+        AVG,
+        MIN,
+        MAX
+    }
+
+    private Function function;
+    private Identifier argument;
+
+    /**
+     * @param argument 聚合的列，COUNT(*)时为null
+     */
+    public AggregateExpression(int line, int column, Function function, Identifier argument) {
+        super(line, column);
+        this.function = function;
+        this.argument = argument;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public Identifier getArgument() {
+        return argument;
+    }
+
+    public boolean isCountStar() {
+        return argument == null;
+    }
+
+    @Override
+    public String getNodeType() {
+        return "AggregateExpression";
+    }
+
+    @Override
+    public List<ASTNode> getChildren() {
+        List<ASTNode> children = new ArrayList<>();
+        if (argument != null) {
+            children.add(argument);
+        }
+        return children;
+    }
+
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitAggregateExpression(this);
+    }
+
+    @Override
+    public String toString() {
+        return function + "(" + (argument != null ? argument.toString() : "*") + ")";
+    }
+}
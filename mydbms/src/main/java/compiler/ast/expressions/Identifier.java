@@ -7,20 +7,40 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * 标识符表达式
+ * 标识符表达式，列引用可以带表名限定：表名.列名
  */
 public class Identifier extends Expression {
+    private String qualifier;
     private String name;
     
     public Identifier(int line, int column, String name) {
+        this(line, column, null, name);
+    }
+    
+    public Identifier(int line, int column, String qualifier, String name) {
         super(line, column);
+        this.qualifier = qualifier;
         this.name = name;
     }
     
+    /**
+     * 不含限定的名字
+     */
     public String getName() {
         return name;
     }
     
+    /**
+     * 表名限定，未限定时为null
+     */
+    public String getQualifier() {
+        return qualifier;
+    }
+    
+    public String getQualifiedName() {
+        return qualifier != null ? qualifier + "." + name : name;
+    }
+    
     @Override
     public String getNodeType() {
         return "Identifier";
@@ -38,6 +58,6 @@ public class Identifier extends Expression {
     
     @Override
     public String toString() {
-        return name;
+        return getQualifiedName();
     }
 }
@@ -0,0 +1,56 @@
+package compiler.ast.expressions;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JOIN子句：[INNER] JOIN 表名 ON 条件
+ */
+public class JoinClause extends Expression {
+    private Identifier tableName;
+    private Expression condition;
+
+    public JoinClause(int line, int column, Identifier tableName, Expression condition) {
+        super(line, column);
+        this.tableName = tableName;
+        this.condition = condition;
+    }
+
+    public Identifier getTableName() {
+        return tableName;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    @Override
+    public String getNodeType() {
+        return "JoinClause";
+    }
+
+    @Override
+    public List<ASTNode> getChildren() {
+        List<ASTNode> children = new ArrayList<>();
+        if (tableName != null) {
+            children.add(tableName);
+        }
+        if (condition != null) {
+            children.add(condition);
+        }
+        return children;
+    }
+
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitJoinClause(this);
+    }
+
+    @Override
+    public String toString() {
+        return "JOIN " + tableName.getName() + " ON " + condition;
+    }
+}
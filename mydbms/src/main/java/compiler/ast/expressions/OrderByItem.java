@@ -0,0 +1,56 @@
+package compiler.ast.expressions;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ORDER BY中的一项：列或聚合函数，加上排序方向（默认ASC）
+ */
+public class OrderByItem extends Expression {
+    private Expression expression;
+    private boolean descending;
+
+    public OrderByItem(int line, int column, Expression expression, boolean descending) {
+        super(line, column);
+        this.expression = expression;
+        this.descending = descending;
+    }
+
+    /**
+     * 排序依据，Identifier或AggregateExpression
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    @Override
+    public String getNodeType() {
+        return "OrderByItem";
+    }
+
+    @Override
+    public List<ASTNode> getChildren() {
+        List<ASTNode> children = new ArrayList<>();
+        if (expression != null) {
+            children.add(expression);
+        }
+        return children;
+    }
+
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitOrderByItem(this);
+    }
+
+    @Override
+    public String toString() {
+        return expression + (descending ? " DESC" : "");
+    }
+}
@@ -0,0 +1,49 @@
+package compiler.ast.statements;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+import compiler.ast.expressions.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ANALYZE TABLE语句AST节点
+ * 语法：ANALYZE TABLE 表名
+ */
+public class AnalyzeTableStatement extends Statement {
+    private Identifier tableName;
+
+    public AnalyzeTableStatement(int line, int column, Identifier tableName) {
+        super(line, column);
+        this.tableName = tableName;
+    }
+
+    public Identifier getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public String getNodeType() {
+        return "AnalyzeTableStatement";
+    }
+
+    @Override
+    public List<ASTNode> getChildren() {
+        List<ASTNode> children = new ArrayList<>();
+        if (tableName != null) {
+            children.add(tableName);
+        }
+        return children;
+    }
+
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitAnalyzeTableStatement(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ANALYZE TABLE " + tableName.getName();
+    }
+}
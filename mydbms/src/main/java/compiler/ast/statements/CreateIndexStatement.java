@@ -0,0 +1,90 @@
+package compiler.ast.statements;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+import compiler.ast.expressions.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CREATE INDEX语句AST节点
+ * 语法：CREATE INDEX 索引名 ON 表名 (列1, 列2, ...) [USING BTREE | BITMAP]
+ */
+public class CreateIndexStatement extends Statement {
+    private Identifier indexName;
+    private Identifier tableName;
+    private List<Identifier> columns;
+    private Identifier indexType;
+
+    public CreateIndexStatement(int line, int column, Identifier indexName, Identifier tableName, List<Identifier> columns) {
+        this(line, column, indexName, tableName, columns, null);
+    }
+
+    public CreateIndexStatement(int line, int column, Identifier indexName, Identifier tableName,
+                                List<Identifier> columns, Identifier indexType) {
+        super(line, column);
+        this.indexName = indexName;
+        this.tableName = tableName;
+        this.columns = columns != null ? columns : new ArrayList<>();
+        this.indexType = indexType;
+    }
+
+    public Identifier getIndexName() {
+        return indexName;
+    }
+
+    public Identifier getTableName() {
+        return tableName;
+    }
+
+    public List<Identifier> getColumns() {
+        return columns;
+    }
+
+    /**
+     * USING子句中的索引类型，未指定时为null
+     */
+    public Identifier getIndexType() {
+        return indexType;
+    }
+
+    @Override
+    public String getNodeType() {
+        return "CreateIndexStatement";
+    }
+
+    @Override
+    public List<ASTNode> getChildren() {
+        List<ASTNode> children = new ArrayList<>();
+        if (indexName != null) {
+            children.add(indexName);
+        }
+        if (tableName != null) {
+            children.add(tableName);
+        }
+        children.addAll(columns);
+        return children;
+    }
+
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitCreateIndexStatement(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CREATE INDEX ").append(indexName.getName());
+        sb.append(" ON ").append(tableName.getName()).append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(columns.get(i).getName());
+        }
+        sb.append(")");
+        if (indexType != null) {
+            sb.append(" USING ").append(indexType.getName());
+        }
+        return sb.toString();
+    }
+}
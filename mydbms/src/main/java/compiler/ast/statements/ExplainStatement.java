@@ -0,0 +1,54 @@
+package compiler.ast.statements;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EXPLAIN语句AST节点
+ * 语法：EXPLAIN [ANALYZE] 语句
+ */
+public class ExplainStatement extends Statement {
+    private boolean analyze;
+    private Statement statement;
+
+    public ExplainStatement(int line, int column, boolean analyze, Statement statement) {
+        super(line, column);
+        this.analyze = analyze;
+        this.statement = statement;
+    }
+
+    public boolean isAnalyze() {
+        return analyze;
+    }
+
+    public Statement getStatement() {
+        return statement;
+    }
+
+    @Override
+    public String getNodeType() {
+        return "ExplainStatement";
+    }
+
+    @Override
+    public List<ASTNode> getChildren() {
+        List<ASTNode> children = new ArrayList<>();
+        if (statement != null) {
+            children.add(statement);
+        }
+        return children;
+    }
+
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitExplainStatement(this);
+    }
+
+    @Override
+    public String toString() {
+        return (analyze ? "EXPLAIN ANALYZE " : "EXPLAIN ") + statement;
+    }
+}
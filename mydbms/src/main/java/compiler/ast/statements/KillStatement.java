@@ -0,0 +1,38 @@
+package compiler.ast.statements;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * KILL语句的AST节点 - 取消指定会话中正在执行的语句
+ */
+public class KillStatement extends Statement {
+    
+    private final long processId;
+    
+    public KillStatement(int line, int column, long processId) {
+        super(line, column);
+        this.processId = processId;
+    }
+    
+    public long getProcessId() {
+        return processId;
+    }
+    
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitKillStatement(this);
+    }
+    
+    @Override
+    public List<ASTNode> getChildren() {
+        return new ArrayList<>();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("KillStatement{processId=%d}", processId);
+    }
+}
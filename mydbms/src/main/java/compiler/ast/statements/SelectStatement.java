@@ -2,7 +2,11 @@ package compiler.ast.statements;
 
 import compiler.ast.ASTNode;
 import compiler.ast.ASTVisitor;
+import compiler.ast.expressions.AggregateExpression;
+import compiler.ast.expressions.Expression;
 import compiler.ast.expressions.Identifier;
+import compiler.ast.expressions.JoinClause;
+import compiler.ast.expressions.OrderByItem;
 import compiler.ast.expressions.SelectList;
 import compiler.ast.expressions.WhereClause;
 
@@ -15,13 +19,37 @@ import java.util.List;
 public class SelectStatement extends Statement {
     private SelectList selectList;
     private Identifier tableName;
+    private List<JoinClause> joins;
     private WhereClause whereClause;
+    private List<Identifier> groupBy;
+    private List<OrderByItem> orderBy;
+    private Integer limit;
+    private int offset;
     
     public SelectStatement(int line, int column, SelectList selectList, Identifier tableName, WhereClause whereClause) {
+        this(line, column, selectList, tableName, null, whereClause, null, null, null, 0);
+    }
+    
+    public SelectStatement(int line, int column, SelectList selectList, Identifier tableName,
+                           List<JoinClause> joins, WhereClause whereClause, List<Identifier> groupBy,
+                           List<OrderByItem> orderBy, Integer limit, int offset) {
         super(line, column);
         this.selectList = selectList;
         this.tableName = tableName;
+        this.joins = joins != null ? joins : new ArrayList<>();
         this.whereClause = whereClause;
+        this.groupBy = groupBy != null ? groupBy : new ArrayList<>();
+        this.orderBy = orderBy != null ? orderBy : new ArrayList<>();
+        this.limit = limit;
+        this.offset = offset;
+    }
+    
+    /**
+     * 复制语句并替换WHERE子句（供查询重写使用）
+     */
+    public SelectStatement withWhereClause(WhereClause whereClause) {
+        return new SelectStatement(getLine(), getColumn(), selectList, tableName, joins, whereClause, groupBy,
+                orderBy, limit, offset);
     }
     
     public SelectList getSelectList() {
@@ -32,10 +60,62 @@ public class SelectStatement extends Statement {
         return tableName;
     }
     
+    /**
+     * FROM之后依次连接的表，没有JOIN时为空列表
+     */
+    public List<JoinClause> getJoins() {
+        return joins;
+    }
+    
     public WhereClause getWhereClause() {
         return whereClause;
     }
     
+    /**
+     * GROUP BY的列，没有GROUP BY时为空列表
+     */
+    public List<Identifier> getGroupBy() {
+        return groupBy;
+    }
+    
+    /**
+     * ORDER BY的各项，没有ORDER BY时为空列表
+     */
+    public List<OrderByItem> getOrderBy() {
+        return orderBy;
+    }
+    
+    /**
+     * LIMIT的行数，没有LIMIT时为null
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+    
+    /**
+     * OFFSET跳过的行数，没有OFFSET时为0
+     */
+    public int getOffset() {
+        return offset;
+    }
+    
+    /**
+     * 是否为聚合查询：有GROUP BY或选择列表中有聚合函数
+     */
+    public boolean isAggregate() {
+        if (!groupBy.isEmpty()) {
+            return true;
+        }
+        if (selectList != null && !selectList.isSelectAll()) {
+            for (Expression item : selectList.getItems()) {
+                if (item instanceof AggregateExpression) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
     @Override
     public String getNodeType() {
         return "SelectStatement";
@@ -50,9 +130,12 @@ public class SelectStatement extends Statement {
         if (tableName != null) {
             children.add(tableName);
         }
+        children.addAll(joins);
         if (whereClause != null) {
             children.add(whereClause);
         }
+        children.addAll(groupBy);
+        children.addAll(orderBy);
         return children;
     }
     
@@ -66,9 +149,32 @@ public class SelectStatement extends Statement {
         StringBuilder sb = new StringBuilder();
         sb.append("SELECT ").append(selectList.toString());
         sb.append(" FROM ").append(tableName.getName());
+        for (JoinClause join : joins) {
+            sb.append(" ").append(join);
+        }
         if (whereClause != null) {
             sb.append(" WHERE ").append(whereClause.toString());
         }
+        if (!groupBy.isEmpty()) {
+            sb.append(" GROUP BY ");
+            for (int i = 0; i < groupBy.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(groupBy.get(i));
+            }
+        }
+        if (!orderBy.isEmpty()) {
+            sb.append(" ORDER BY ");
+            for (int i = 0; i < orderBy.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(orderBy.get(i));
+            }
+        }
+        if (limit != null) {
+            sb.append(" LIMIT ").append(limit);
+        }
+        if (offset > 0) {
+            sb.append(" OFFSET ").append(offset);
+        }
         return sb.toString();
     }
 }
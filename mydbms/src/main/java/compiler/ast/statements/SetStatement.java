@@ -0,0 +1,44 @@
+package compiler.ast.statements;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * SET语句的AST节点 - 设置会话变量，例如 SET statement_timeout = 5000、SET parallelism = 4
+ */
+public class SetStatement extends Statement {
+    
+    private final String variable;
+    private final long value;
+    
+    public SetStatement(int line, int column, String variable, long value) {
+        super(line, column);
+        this.variable = variable;
+        this.value = value;
+    }
+    
+    public String getVariable() {
+        return variable;
+    }
+    
+    public long getValue() {
+        return value;
+    }
+    
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitSetStatement(this);
+    }
+    
+    @Override
+    public List<ASTNode> getChildren() {
+        return new ArrayList<>();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SetStatement{variable='%s', value=%d}", variable, value);
+    }
+}
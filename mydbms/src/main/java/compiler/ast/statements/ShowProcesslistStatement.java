@@ -0,0 +1,31 @@
+package compiler.ast.statements;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * SHOW PROCESSLIST语句的AST节点
+ */
+public class ShowProcesslistStatement extends Statement {
+    
+    public ShowProcesslistStatement(int line, int column) {
+        super(line, column);
+    }
+    
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitShowProcesslistStatement(this);
+    }
+    
+    @Override
+    public List<ASTNode> getChildren() {
+        return new ArrayList<>();
+    }
+    
+    @Override
+    public String toString() {
+        return "ShowProcesslistStatement{}";
+    }
+}
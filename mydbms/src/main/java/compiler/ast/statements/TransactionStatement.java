@@ -0,0 +1,42 @@
+package compiler.ast.statements;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * 事务控制语句（BEGIN、COMMIT、ROLLBACK）的AST节点
+ */
+public class TransactionStatement extends Statement {
+    
+    public enum Action {
+        BEGIN, COMMIT, ROLLBACK
+    }
+    
+    private final Action action;
+    
+    public TransactionStatement(int line, int column, Action action) {
+        super(line, column);
+        this.action = action;
+    }
+    
+    public Action getAction() {
+        return action;
+    }
+    
+    @Override
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visitTransactionStatement(this);
+    }
+    
+    @Override
+    public List<ASTNode> getChildren() {
+        return new ArrayList<>();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("TransactionStatement{action=%s}", action);
+    }
+}
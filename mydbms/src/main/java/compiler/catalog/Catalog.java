@@ -3,34 +3,121 @@ package compiler.catalog;
 import compiler.ast.expressions.ColumnDefinition;
 import compiler.ast.statements.CreateTableStatement;
 import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
 import org.dom4j.io.SAXReader;
+import org.dom4j.io.XMLWriter;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * 模式目录 - 维护数据库中所有表的模式信息
+ * 模式目录 - 维护所有数据库中表的模式信息，按（数据库，表名）索引
+ * 目录被进程内的所有会话共享，每个会话用自己的当前数据库访问；未选择数据库（dbName为null）时创建的表
+ * 只存在于内存中，不会从XML文件加载
+ * 
+ * 并发：读取者通过AtomicReference无锁地读取当前的不可变快照；DDL复制快照（以及被修改的TableSchema）后
+ * 用CAS原子地发布新版本，已发布的TableSchema不再被修改。内存中没有的表从XML文件加载，
+ * 同一张表的并发加载只解析一次配置文件，其余线程等待同一个加载任务。
  */
 public class Catalog {
-    private Map<String, TableSchema> tables;
+    /** 数据库文件根目录 */
+    public static final String DATABASE_ROOT = "./mydatabase";
+    
+    private final AtomicReference<Snapshot> current;
+    private final Map<String, FutureTask<TableSchema>> loading;
+    
+    private static final compiler.lexer.TokenType[] DATA_TYPES = {
+        compiler.lexer.TokenType.INT, compiler.lexer.TokenType.VARCHAR, compiler.lexer.TokenType.CHAR,
+        compiler.lexer.TokenType.FLOAT, compiler.lexer.TokenType.DOUBLE, compiler.lexer.TokenType.BOOLEAN
+    };
     
     public Catalog() {
-        this.tables = new HashMap<>();
+        this.current = new AtomicReference<>(new Snapshot(0, Collections.emptyMap()));
+        this.loading = new ConcurrentHashMap<>();
     }
     
     /**
-     * 创建表
+     * 目录的一个不可变版本
      */
-    public void createTable(CreateTableStatement createStmt) throws CatalogException {
-        String tableName = createStmt.getTableName().getName();
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, TableSchema> tables;
         
-        if (tables.containsKey(tableName.toUpperCase())) {
-            throw new CatalogException("Table '" + tableName + "' already exists");
+        private Snapshot(long version, Map<String, TableSchema> tables) {
+            this.version = version;
+            this.tables = tables;
         }
         
+        /**
+         * 版本号，每次发布新快照加1
+         */
+        public long getVersion() {
+            return version;
+        }
+        
+        /**
+         * 快照中的表模式，不存在时返回null（不从XML文件加载）
+         */
+        public TableSchema getTableSchema(String dbName, String tableName) {
+            return tables.get(key(dbName, tableName));
+        }
+    }
+    
+    /**
+     * 对快照中表的修改，抛出异常时不发布
+     */
+    private interface Mutation {
+        void apply(Map<String, TableSchema> tables) throws CatalogException;
+    }
+    
+    /**
+     * 快照中的键：大写的 数据库/表名，未选择数据库时数据库部分为空
+     */
+    private static String key(String dbName, String tableName) {
+        return (dbName != null ? dbName.toUpperCase() : "") + "/" + tableName.toUpperCase();
+    }
+    
+    /**
+     * 当前快照，读取者可以在一次分析中使用同一个快照
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+    
+    /**
+     * 复制当前快照、应用修改并原子地发布；期间有其他DDL发布时基于新快照重试
+     */
+    private void publish(Mutation mutation) throws CatalogException {
+        while (true) {
+            Snapshot base = current.get();
+            Map<String, TableSchema> tables = new HashMap<>(base.tables);
+            mutation.apply(tables);
+            if (current.compareAndSet(base, new Snapshot(base.version + 1, Collections.unmodifiableMap(tables)))) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * 创建表
+     */
+    public void createTable(String dbName, CreateTableStatement createStmt) throws CatalogException {
+        String tableName = createStmt.getTableName().getName();
         TableSchema schema = new TableSchema(tableName);
         
         // 添加列定义
@@ -47,86 +134,243 @@ public class Catalog {
             schema.addColumn(column);
         }
         
-        tables.put(tableName.toUpperCase(), schema);
+        String key = key(dbName, tableName);
+        publish(tables -> {
+            if (tables.putIfAbsent(key, schema) != null) {
+                throw new CatalogException("Table '" + tableName + "' already exists");
+            }
+        });
     }
     
     /**
-     * 删除表
+     * 在表上创建索引
      */
-    public void dropTable(String tableName) throws CatalogException {
-        if (!tables.containsKey(tableName.toUpperCase())) {
+    public void createIndex(String dbName, String indexName, String tableName, List<String> columns)
+            throws CatalogException {
+        createIndex(dbName, indexName, tableName, columns, IndexType.BTREE);
+    }
+    
+    /**
+     * 在表上创建指定类型的索引
+     */
+    public void createIndex(String dbName, String indexName, String tableName, List<String> columns, IndexType type)
+            throws CatalogException {
+        // 确保表已从XML文件加载
+        getTableSchema(dbName, tableName);
+        updateTable(dbName, tableName, schema -> {
+            if (schema.hasIndex(indexName)) {
+                throw new CatalogException("Index '" + indexName + "' already exists on table '" + tableName + "'");
+            }
+            schema.addIndex(new IndexInfo(indexName, schema.getTableName(), columns, type));
+        });
+    }
+    
+    /**
+     * 对表模式的修改（作用于副本）
+     */
+    private interface SchemaMutation {
+        void apply(TableSchema schema) throws CatalogException;
+    }
+    
+    /**
+     * 复制表模式、修改副本并发布
+     */
+    private void updateTable(String dbName, String tableName, SchemaMutation mutation) throws CatalogException {
+        String key = key(dbName, tableName);
+        publish(tables -> {
+            TableSchema schema = tables.get(key);
+            if (schema == null) {
+                throw new CatalogException("Table '" + tableName + "' does not exist");
+            }
+            TableSchema copy = schema.copy();
+            mutation.apply(copy);
+            tables.put(key, copy);
+        });
+    }
+    
+    /**
+     * 将表的主键和索引定义写入表目录下的 <表名>-index.xml
+     */
+    public void saveIndexes(String dbName, String tableName) throws CatalogException {
+        TableSchema schema = getTableSchema(dbName, tableName);
+        if (schema == null) {
             throw new CatalogException("Table '" + tableName + "' does not exist");
         }
         
-        tables.remove(tableName.toUpperCase());
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("indexes");
+        if (schema.getPrimaryKey() != null) {
+            root.addAttribute("primaryKey", schema.getPrimaryKey());
+        }
+        for (IndexInfo index : schema.getIndexes()) {
+            Element element = root.addElement("index");
+            element.addAttribute("name", index.getName());
+            element.addAttribute("columns", String.join(",", index.getColumns()));
+            element.addAttribute("type", index.getType().name());
+        }
+        
+        File indexFile = new File(tableDirectory(dbName, tableName), tableName + "-index.xml");
+        try (FileOutputStream out = new FileOutputStream(indexFile)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        } catch (Exception e) {
+            throw new CatalogException("Failed to save indexes of table '" + tableName + "'", e);
+        }
     }
     
     /**
-     * 获取表模式
+     * 设置表的统计信息并写入表目录下的 <表名>-stats.xml
      */
-    public TableSchema getTableSchema(String tableName) {
-        // 首先从内存中获取
-        TableSchema schema = tables.get(tableName.toUpperCase());
-        if (schema != null) {
-            return schema;
-        }
+    public void saveStatistics(String dbName, String tableName, TableStatistics statistics) throws CatalogException {
+        getTableSchema(dbName, tableName);
+        updateTable(dbName, tableName, schema -> schema.setStatistics(statistics));
         
-        // 如果内存中没有，尝试从XML文件加载
-        if (checkTableExistsInXML(tableName)) {
-            return tables.get(tableName.toUpperCase());
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("statistics");
+        root.addAttribute("rows", String.valueOf(statistics.getRowCount()));
+        root.addAttribute("pages", String.valueOf(statistics.getPageCount()));
+        for (ColumnStatistics column : statistics.getColumns()) {
+            Element element = root.addElement("column");
+            element.addAttribute("name", column.getColumnName());
+            element.addAttribute("ndv", String.valueOf(column.getDistinctCount()));
+            element.addAttribute("nullFraction", String.valueOf(column.getNullFraction()));
+            if (column.getMin() != null) {
+                element.addAttribute("min", String.valueOf(column.getMin()));
+                element.addAttribute("max", String.valueOf(column.getMax()));
+            }
+            for (Object bound : column.getHistogram()) {
+                element.addElement("bucket").addAttribute("upper", String.valueOf(bound));
+            }
         }
         
-        return null;
+        File statsFile = new File(tableDirectory(dbName, tableName), tableName + "-stats.xml");
+        try (FileOutputStream out = new FileOutputStream(statsFile)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        } catch (Exception e) {
+            throw new CatalogException("Failed to save statistics of table '" + tableName + "'", e);
+        }
     }
     
     /**
-     * 检查表是否存在
+     * 获取表的数据目录
+     */
+    public static File tableDirectory(String dbName, String tableName) {
+        return new File(DATABASE_ROOT + "/" + dbName + "/" + tableName);
+    }
+    
+    /**
+     * 数据库目录是否存在
      */
-    public boolean tableExists(String tableName) {
-        // 首先检查内存中的表
-        if (tables.containsKey(tableName.toUpperCase())) {
-            return true;
+    public static boolean databaseExists(String dbName) {
+        return new File(DATABASE_ROOT, dbName).isDirectory();
+    }
+    
+    /**
+     * 删除表
+     */
+    public void dropTable(String dbName, String tableName) throws CatalogException {
+        String key = key(dbName, tableName);
+        publish(tables -> {
+            if (tables.remove(key) == null) {
+                throw new CatalogException("Table '" + tableName + "' does not exist");
+            }
+        });
+    }
+    
+    /**
+     * 删除数据库时丢弃其中全部表的模式
+     */
+    public void dropDatabase(String dbName) {
+        String prefix = key(dbName, "");
+        try {
+            publish(tables -> tables.keySet().removeIf(key -> key.startsWith(prefix)));
+        } catch (CatalogException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 获取表模式，当前快照中没有时从XML文件加载
+     */
+    public TableSchema getTableSchema(String dbName, String tableName) {
+        // 首先从当前快照中获取（无锁）
+        TableSchema schema = current.get().getTableSchema(dbName, tableName);
+        if (schema != null) {
+            return schema;
         }
         
-        // 如果内存中没有，检查XML文件是否存在
-        return checkTableExistsInXML(tableName);
+        // 如果快照中没有，尝试从XML文件加载
+        return loadTable(dbName, tableName);
     }
     
     /**
-     * 检查XML文件中表是否存在
+     * 检查表是否存在
      */
-    private boolean checkTableExistsInXML(String tableName) {
-        try {
-            // 检查当前数据库目录
-            String currentDb = function.UseDatabase.dbName;
-            if (currentDb == null) {
-                return false;
+    public boolean tableExists(String dbName, String tableName) {
+        return getTableSchema(dbName, tableName) != null;
+    }
+    
+    /**
+     * 从XML文件加载表并发布到快照中；同一张表同时只有一个加载任务，并发的调用者等待它的结果
+     */
+    private TableSchema loadTable(String dbName, String tableName) {
+        if (dbName == null) {
+            return null;
+        }
+        
+        String key = key(dbName, tableName);
+        FutureTask<TableSchema> task = new FutureTask<>(() -> {
+            // 上一个加载任务可能刚刚发布完
+            TableSchema published = current.get().getTableSchema(dbName, tableName);
+            if (published != null) {
+                return published;
             }
-            
-            File tableDir = new File("./mydatabase/" + currentDb + "/" + tableName);
-            if (!tableDir.exists() || !tableDir.isDirectory()) {
-                return false;
+            TableSchema schema = loadTableFromXML(dbName, tableName);
+            if (schema == null) {
+                return null;
             }
-            
-            // 检查配置文件是否存在
-            File configFile = new File(tableDir, tableName + "-config.xml");
-            if (!configFile.exists()) {
-                return false;
+            // 加载期间可能已有DDL发布了同名表，以快照中的为准
+            publish(tables -> tables.putIfAbsent(key, schema));
+            return current.get().getTableSchema(dbName, tableName);
+        });
+        FutureTask<TableSchema> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
             }
-            
-            // 从XML文件加载表信息到内存
-            loadTableFromXML(tableName, configFile);
-            return true;
-            
-        } catch (Exception e) {
-            return false;
+        }
+        
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
         }
     }
     
     /**
-     * 从XML文件加载表信息
+     * 从XML文件读取表信息，表目录或配置文件不存在、读取失败时返回null
      */
-    private void loadTableFromXML(String tableName, File configFile) {
+    private TableSchema loadTableFromXML(String dbName, String tableName) {
+        File tableDir = tableDirectory(dbName, tableName);
+        if (!tableDir.isDirectory()) {
+            return null;
+        }
+        
+        // 检查配置文件是否存在
+        File configFile = new File(tableDir, tableName + "-config.xml");
+        if (!configFile.exists()) {
+            return null;
+        }
+        
         try {
             SAXReader reader = new SAXReader();
             Document document = reader.read(configFile);
@@ -142,47 +386,111 @@ public class Catalog {
                 String columnName = attribute.getName();
                 String dataTypeStr = attribute.getValue();
                 
-                // 根据数据类型字符串确定TokenType
+                // 根据数据类型字符串确定TokenType（可能带有长度，如VARCHAR(50)）
                 compiler.lexer.TokenType dataType = compiler.lexer.TokenType.INT; // 默认
-                if ("VARCHAR".equalsIgnoreCase(dataTypeStr)) {
-                    dataType = compiler.lexer.TokenType.VARCHAR;
-                } else if ("CHAR".equalsIgnoreCase(dataTypeStr)) {
-                    dataType = compiler.lexer.TokenType.CHAR;
+                String typeName = dataTypeStr.replaceAll("\\(.*", "").trim().toUpperCase();
+                for (compiler.lexer.TokenType candidate : DATA_TYPES) {
+                    if (candidate.getSymbol().equals(typeName)) {
+                        dataType = candidate;
+                    }
                 }
                 
                 ColumnInfo column = new ColumnInfo(columnName, dataType, null);
                 schema.addColumn(column);
             }
             
-            // 添加到内存中
-            tables.put(tableName.toUpperCase(), schema);
+            // 加载索引定义
+            loadIndexesFromXML(schema, new File(configFile.getParentFile(), tableName + "-index.xml"));
+            loadStatisticsFromXML(schema, new File(configFile.getParentFile(), tableName + "-stats.xml"));
+            
+            return schema;
             
         } catch (Exception e) {
             // 加载失败，忽略
             System.err.println("Failed to load table from XML: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 从 <表名>-index.xml 加载主键和索引定义
+     */
+    private void loadIndexesFromXML(TableSchema schema, File indexFile) throws Exception {
+        if (!indexFile.exists()) {
+            return;
+        }
+        
+        SAXReader reader = new SAXReader();
+        Element root = reader.read(indexFile).getRootElement();
+        if (root.attributeValue("primaryKey") != null) {
+            schema.setPrimaryKey(root.attributeValue("primaryKey"));
+        }
+        for (Element element : root.elements("index")) {
+            List<String> columns = new ArrayList<>(Arrays.asList(element.attributeValue("columns").split(",")));
+            IndexType type = IndexType.fromName(element.attributeValue("type", IndexType.BTREE.name()));
+            schema.addIndex(new IndexInfo(element.attributeValue("name"), schema.getTableName(), columns,
+                    type != null ? type : IndexType.BTREE));
+        }
+    }
+    
+    /**
+     * 从 <表名>-stats.xml 加载ANALYZE TABLE收集的统计信息
+     */
+    private void loadStatisticsFromXML(TableSchema schema, File statsFile) throws Exception {
+        if (!statsFile.exists()) {
+            return;
+        }
+        
+        SAXReader reader = new SAXReader();
+        Element root = reader.read(statsFile).getRootElement();
+        TableStatistics statistics = new TableStatistics(Long.parseLong(root.attributeValue("rows")),
+                Integer.parseInt(root.attributeValue("pages")));
+        for (Element element : root.elements("column")) {
+            ColumnInfo column = schema.getColumn(element.attributeValue("name"));
+            if (column == null) {
+                continue;
+            }
+            List<Object> histogram = new ArrayList<>();
+            for (Element bucket : element.elements("bucket")) {
+                histogram.add(column.parseValue(bucket.attributeValue("upper")));
+            }
+            statistics.addColumn(new ColumnStatistics(column.getName(),
+                    Long.parseLong(element.attributeValue("ndv")),
+                    Double.parseDouble(element.attributeValue("nullFraction")),
+                    column.parseValue(element.attributeValue("min")),
+                    column.parseValue(element.attributeValue("max")),
+                    histogram));
         }
+        schema.setStatistics(statistics);
     }
     
     /**
-     * 获取所有表名
+     * 获取数据库中已加载的所有表名
      */
-    public Set<String> getTableNames() {
-        return tables.keySet();
+    public Set<String> getTableNames(String dbName) {
+        String prefix = key(dbName, "");
+        Set<String> names = new TreeSet<>();
+        for (String key : current.get().tables.keySet()) {
+            if (key.startsWith(prefix)) {
+                names.add(key.substring(prefix.length()));
+            }
+        }
+        return names;
     }
     
     /**
      * 检查列是否存在
      */
-    public boolean columnExists(String tableName, String columnName) {
-        TableSchema schema = getTableSchema(tableName);
+    public boolean columnExists(String dbName, String tableName, String columnName) {
+        TableSchema schema = getTableSchema(dbName, tableName);
         return schema != null && schema.hasColumn(columnName);
     }
     
     /**
      * 获取列信息
      */
-    public ColumnInfo getColumnInfo(String tableName, String columnName) {
-        TableSchema schema = getTableSchema(tableName);
+    public ColumnInfo getColumnInfo(String dbName, String tableName, String columnName) {
+        TableSchema schema = getTableSchema(dbName, tableName);
         return schema != null ? schema.getColumn(columnName) : null;
     }
     
@@ -190,27 +498,36 @@ public class Catalog {
      * 清空目录
      */
     public void clear() {
-        tables.clear();
+        try {
+            publish(Map::clear);
+        } catch (CatalogException e) {
+            throw new IllegalStateException(e);
+        }
     }
     
     /**
-     * 获取表的数量
+     * 获取所有数据库中已加载的表的数量
      */
     public int getTableCount() {
-        return tables.size();
+        return current.get().tables.size();
     }
     
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("Database Catalog:\n");
+        Snapshot snapshot = current.get();
+        sb.append("Database Catalog (version ").append(snapshot.version).append("):\n");
         sb.append("================\n");
         
-        if (tables.isEmpty()) {
+        if (snapshot.tables.isEmpty()) {
             sb.append("No tables defined.\n");
         } else {
-            for (TableSchema schema : tables.values()) {
-                sb.append(schema.toString()).append("\n");
+            for (Map.Entry<String, TableSchema> entry : new TreeMap<>(snapshot.tables).entrySet()) {
+                String dbName = entry.getKey().substring(0, entry.getKey().indexOf('/'));
+                if (!dbName.isEmpty()) {
+                    sb.append("[").append(dbName).append("] ");
+                }
+                sb.append(entry.getValue().toString()).append("\n");
             }
         }
         
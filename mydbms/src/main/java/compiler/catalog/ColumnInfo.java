@@ -85,6 +85,85 @@ public class ColumnInfo {
         }
     }
     
+    /**
+     * 将存储层的字符串值解析为与列类型一致的Java对象
+     * INT -> Long, FLOAT/DOUBLE -> Double, BOOLEAN -> Boolean, 其余 -> String
+     * 空值或无法解析的值返回null
+     */
+    public Object parseValue(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String text = raw.trim();
+        if (text.length() >= 2 && text.startsWith("'") && text.endsWith("'")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        if (text.isEmpty() || "NULL".equalsIgnoreCase(text)) {
+            return dataType == TokenType.VARCHAR || dataType == TokenType.CHAR ? text : null;
+        }
+        
+        try {
+            switch (dataType) {
+                case INT:
+                    return Long.valueOf(text);
+                case FLOAT:
+                case DOUBLE:
+                    return Double.valueOf(text);
+                case BOOLEAN:
+                    return Boolean.valueOf(text);
+                default:
+                    return text;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 将字面量转换为与列类型一致的Java对象，类型不兼容时返回null
+     */
+    public Object convertLiteral(Object value) {
+        if (value == null) {
+            return null;
+        }
+        
+        switch (dataType) {
+            case INT:
+                if (value instanceof Integer || value instanceof Long) {
+                    return ((Number) value).longValue();
+                }
+                return null;
+            case FLOAT:
+            case DOUBLE:
+                if (value instanceof Number) {
+                    return ((Number) value).doubleValue();
+                }
+                return null;
+            case BOOLEAN:
+                return value instanceof Boolean ? value : null;
+            default:
+                return value instanceof String ? value : null;
+        }
+    }
+    
+    /**
+     * 比较两个由parseValue/convertLiteral得到的值
+     * 数值类型之间按double比较，其余类型要求一致
+     */
+    @SuppressWarnings("unchecked")
+    public static int compareValues(Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            return Long.compare((Long) a, (Long) b);
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,126 @@
+package compiler.catalog;
+
+import compiler.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 列统计信息 - 不同值个数（NDV）、空值比例、最小/最大值和等深直方图
+ * 直方图保存各桶的上界，每个桶包含大致相同数量的非空值
+ */
+public class ColumnStatistics {
+    /** 没有直方图时范围条件的默认选择率 */
+    public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+    private final String columnName;
+    private final long distinctCount;
+    private final double nullFraction;
+    private final Object min;
+    private final Object max;
+    private final List<Object> histogram;
+
+    public ColumnStatistics(String columnName, long distinctCount, double nullFraction,
+                            Object min, Object max, List<Object> histogram) {
+        this.columnName = columnName;
+        this.distinctCount = distinctCount;
+        this.nullFraction = nullFraction;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram != null ? new ArrayList<>(histogram) : new ArrayList<>();
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public double getNullFraction() {
+        return nullFraction;
+    }
+
+    public Object getMin() {
+        return min;
+    }
+
+    public Object getMax() {
+        return max;
+    }
+
+    /**
+     * 等深直方图各桶的上界（升序）
+     */
+    public List<Object> getHistogram() {
+        return new ArrayList<>(histogram);
+    }
+
+    /**
+     * 估计 column op value 的选择率（满足条件的行占全部行的比例）
+     */
+    public double selectivity(TokenType operator, Object value) {
+        double nonNull = 1.0 - nullFraction;
+        if (value == null || min == null) {
+            return 0.0;
+        }
+        switch (operator) {
+            case EQUALS:
+                if (ColumnInfo.compareValues(value, min) < 0 || ColumnInfo.compareValues(value, max) > 0) {
+                    return 0.0;
+                }
+                return nonNull / Math.max(distinctCount, 1);
+            case NOT_EQUALS:
+                return nonNull * (1.0 - 1.0 / Math.max(distinctCount, 1));
+            case LESS_THAN:
+            case LESS_EQUAL:
+                return nonNull * fractionBelow(value);
+            case GREATER_THAN:
+            case GREATER_EQUAL:
+                return nonNull * (1.0 - fractionBelow(value));
+            default:
+                return nonNull * DEFAULT_RANGE_SELECTIVITY;
+        }
+    }
+
+    /**
+     * 非空值中小于value的比例，落在某个桶内部时对数值做线性插值，其余类型按半个桶计
+     */
+    private double fractionBelow(Object value) {
+        if (ColumnInfo.compareValues(value, min) <= 0) {
+            return 0.0;
+        }
+        if (ColumnInfo.compareValues(value, max) > 0) {
+            return 1.0;
+        }
+        if (histogram.isEmpty()) {
+            return DEFAULT_RANGE_SELECTIVITY;
+        }
+
+        int buckets = histogram.size();
+        int below = 0;
+        while (below < buckets && ColumnInfo.compareValues(histogram.get(below), value) < 0) {
+            below++;
+        }
+        if (below == buckets) {
+            return 1.0;
+        }
+
+        Object lower = below == 0 ? min : histogram.get(below - 1);
+        Object upper = histogram.get(below);
+        double within = 0.5;
+        if (value instanceof Number && lower instanceof Number && upper instanceof Number) {
+            double lo = ((Number) lower).doubleValue();
+            double hi = ((Number) upper).doubleValue();
+            within = hi > lo ? (((Number) value).doubleValue() - lo) / (hi - lo) : 0.5;
+        }
+        return (below + within) / buckets;
+    }
+
+    @Override
+    public String toString() {
+        return columnName + ": ndv=" + distinctCount + ", null_frac=" + String.format("%.3f", nullFraction)
+                + ", min=" + min + ", max=" + max + ", buckets=" + histogram.size();
+    }
+}
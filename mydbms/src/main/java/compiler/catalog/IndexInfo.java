@@ -0,0 +1,54 @@
+package compiler.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 索引信息类 - 描述建立在一张表上的（复合）索引
+ */
+public class IndexInfo {
+    private String name;
+    private String tableName;
+    private List<String> columns;
+    private IndexType type;
+
+    public IndexInfo(String name, String tableName, List<String> columns) {
+        this(name, tableName, columns, IndexType.BTREE);
+    }
+
+    public IndexInfo(String name, String tableName, List<String> columns, IndexType type) {
+        this.name = name;
+        this.tableName = tableName;
+        this.columns = new ArrayList<>(columns);
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 索引列，按索引键中的先后顺序排列
+     */
+    public List<String> getColumns() {
+        return new ArrayList<>(columns);
+    }
+
+    public IndexType getType() {
+        return type;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public String toString() {
+        String text = name + " ON " + tableName + " (" + String.join(", ", columns) + ")";
+        return type == IndexType.BTREE ? text : text + " USING " + type;
+    }
+}
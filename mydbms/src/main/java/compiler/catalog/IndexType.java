@@ -0,0 +1,23 @@
+package compiler.catalog;
+
+/**
+ * 索引类型
+ * BLOOM只声明该列在每个段文件上维护布隆过滤器，用于等值查找时跳过段文件，不单独构建索引结构
+ */
+public enum IndexType {
+    BTREE,
+    BITMAP,
+    BLOOM;
+
+    /**
+     * 根据名称（不区分大小写）查找索引类型，未知名称返回null
+     */
+    public static IndexType fromName(String name) {
+        for (IndexType type : values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
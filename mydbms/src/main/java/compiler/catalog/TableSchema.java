@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /**
  * 表模式 - 存储表的结构信息
@@ -13,12 +14,28 @@ public class TableSchema {
     private List<ColumnInfo> columns;
     private Map<String, ColumnInfo> columnMap;
     private String primaryKey;
+    private Map<String, IndexInfo> indexes;
+    private TableStatistics statistics;
     
     public TableSchema(String tableName) {
         this.tableName = tableName;
         this.columns = new ArrayList<>();
         this.columnMap = new HashMap<>();
         this.primaryKey = null;
+        this.indexes = new LinkedHashMap<>();
+    }
+    
+    /**
+     * 复制表模式（共享列信息），目录修改已发布的模式时作用于副本
+     */
+    TableSchema copy() {
+        TableSchema copy = new TableSchema(tableName);
+        copy.columns.addAll(columns);
+        copy.columnMap.putAll(columnMap);
+        copy.primaryKey = primaryKey;
+        copy.indexes.putAll(indexes);
+        copy.statistics = statistics;
+        return copy;
     }
     
     public void addColumn(ColumnInfo column) {
@@ -50,6 +67,17 @@ public class TableSchema {
         return primaryKey;
     }
     
+    /**
+     * 标记主键列（从XML加载的列定义不含主键信息，由索引文件补充）
+     */
+    public void setPrimaryKey(String columnName) {
+        ColumnInfo column = getColumn(columnName);
+        if (column != null) {
+            column.setPrimaryKey(true);
+            this.primaryKey = column.getName();
+        }
+    }
+    
     public int getColumnCount() {
         return columns.size();
     }
@@ -63,6 +91,45 @@ public class TableSchema {
         return -1;
     }
     
+    public void addIndex(IndexInfo index) {
+        indexes.put(index.getName().toUpperCase(), index);
+    }
+    
+    public IndexInfo getIndex(String indexName) {
+        return indexes.get(indexName.toUpperCase());
+    }
+    
+    public boolean hasIndex(String indexName) {
+        return indexes.containsKey(indexName.toUpperCase());
+    }
+    
+    public List<IndexInfo> getIndexes() {
+        return new ArrayList<>(indexes.values());
+    }
+    
+    /**
+     * ANALYZE TABLE收集的统计信息，未分析过时为null
+     */
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+    
+    public void setStatistics(TableStatistics statistics) {
+        this.statistics = statistics;
+    }
+    
+    /**
+     * 查找建立在指定列上的位图索引，不存在时返回null
+     */
+    public IndexInfo getBitmapIndex(String columnName) {
+        for (IndexInfo index : indexes.values()) {
+            if (index.getType() == IndexType.BITMAP && index.getColumns().get(0).equalsIgnoreCase(columnName)) {
+                return index;
+            }
+        }
+        return null;
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -74,6 +141,9 @@ public class TableSchema {
         if (primaryKey != null) {
             sb.append("Primary Key: ").append(primaryKey).append("\n");
         }
+        for (IndexInfo index : indexes.values()) {
+            sb.append("Index: ").append(index.toString()).append("\n");
+        }
         return sb.toString();
     }
 }
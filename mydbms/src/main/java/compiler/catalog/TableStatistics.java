@@ -0,0 +1,51 @@
+package compiler.catalog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表统计信息 - 由ANALYZE TABLE收集：行数、页（段文件）数以及各列的统计信息
+ */
+public class TableStatistics {
+    private final long rowCount;
+    private final int pageCount;
+    private final Map<String, ColumnStatistics> columns;
+
+    public TableStatistics(long rowCount, int pageCount) {
+        this.rowCount = rowCount;
+        this.pageCount = pageCount;
+        this.columns = new LinkedHashMap<>();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public void addColumn(ColumnStatistics statistics) {
+        columns.put(statistics.getColumnName().toUpperCase(), statistics);
+    }
+
+    public ColumnStatistics getColumn(String columnName) {
+        return columns.get(columnName.toUpperCase());
+    }
+
+    public List<ColumnStatistics> getColumns() {
+        return new ArrayList<>(columns.values());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("rows=").append(rowCount).append(", pages=").append(pageCount);
+        for (ColumnStatistics column : columns.values()) {
+            sb.append("\n  ").append(column);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,324 @@
+package compiler.codegen;
+
+import compiler.ast.expressions.BinaryExpression;
+import compiler.ast.expressions.Expression;
+import compiler.ast.expressions.Identifier;
+import compiler.ast.expressions.Literal;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.IndexInfo;
+import compiler.catalog.IndexType;
+import compiler.catalog.TableSchema;
+import compiler.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 访问路径选择器 - 把WHERE条件中的合取项与表上的索引匹配
+ * 匹配规则：索引前导列上的等值条件，加上紧随其后一列上的一个范围条件；
+ * 之后，完全由位图索引列上的等值条件（及其AND/OR组合）构成的合取项交给位图扫描；
+ * 未被索引覆盖的合取项作为剩余条件，在取回的行上再次检查。
+ */
+public class AccessPathSelector {
+
+    /**
+     * 选择结果：B+树索引扫描、位图扫描（均可能为null，都为null表示全表扫描）和剩余条件
+     */
+    public static class AccessPath {
+        private final IndexScanPlan indexScan;
+        private final List<Expression> indexScanConjuncts;
+        private final BitmapScanPlan bitmapScan;
+        private final List<Expression> residual;
+
+        public AccessPath(IndexScanPlan indexScan, List<Expression> indexScanConjuncts,
+                          BitmapScanPlan bitmapScan, List<Expression> residual) {
+            this.indexScan = indexScan;
+            this.indexScanConjuncts = indexScanConjuncts;
+            this.bitmapScan = bitmapScan;
+            this.residual = residual;
+        }
+
+        /**
+         * 由B+树索引扫描回答的合取项
+         */
+        public List<Expression> getIndexScanConjuncts() {
+            return indexScanConjuncts;
+        }
+
+        /**
+         * 由B+树或位图索引回答的全部合取项
+         */
+        public List<Expression> getIndexed() {
+            List<Expression> indexed = new ArrayList<>(indexScanConjuncts);
+            if (bitmapScan != null) {
+                indexed.addAll(splitConjuncts(bitmapScan.getCondition()));
+            }
+            return indexed;
+        }
+
+        public IndexScanPlan getIndexScan() {
+            return indexScan;
+        }
+
+        public BitmapScanPlan getBitmapScan() {
+            return bitmapScan;
+        }
+
+        public List<Expression> getResidual() {
+            return residual;
+        }
+    }
+
+    /**
+     * 规范化后的单列比较：column op value
+     */
+    public static class ColumnPredicate {
+        final Expression source;
+        final ColumnInfo column;
+        final TokenType operator;
+        final Object value;
+
+        ColumnPredicate(Expression source, ColumnInfo column, TokenType operator, Object value) {
+            this.source = source;
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        /**
+         * 原始的比较表达式
+         */
+        public Expression getSource() {
+            return source;
+        }
+
+        public ColumnInfo getColumn() {
+            return column;
+        }
+
+        public TokenType getOperator() {
+            return operator;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 为条件选择访问路径
+     */
+    public AccessPath choose(TableSchema schema, Expression condition) {
+        List<Expression> conjuncts = splitConjuncts(condition);
+        List<ColumnPredicate> predicates = new ArrayList<>();
+        for (Expression conjunct : conjuncts) {
+            ColumnPredicate predicate = toColumnPredicate(schema, conjunct);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+
+        IndexScanPlan best = null;
+        List<Expression> bestUsed = new ArrayList<>();
+        for (IndexInfo index : schema.getIndexes()) {
+            if (index.getType() != IndexType.BTREE) {
+                continue;
+            }
+            List<Expression> used = new ArrayList<>();
+            IndexScanPlan candidate = match(schema.getTableName(), index, predicates, used);
+            if (candidate != null && isBetter(candidate, best)) {
+                best = candidate;
+                bestUsed = used;
+            }
+        }
+
+        List<Expression> bitmapConjuncts = new ArrayList<>();
+        List<Expression> residual = new ArrayList<>();
+        for (Expression conjunct : conjuncts) {
+            if (containsSame(bestUsed, conjunct)) {
+                continue;
+            }
+            if (isBitmapAnswerable(schema, conjunct)) {
+                bitmapConjuncts.add(conjunct);
+            } else {
+                residual.add(conjunct);
+            }
+        }
+        
+        BitmapScanPlan bitmapScan = bitmapConjuncts.isEmpty() ? null
+                : new BitmapScanPlan(schema.getTableName(), combineConjuncts(bitmapConjuncts));
+        return new AccessPath(best, bestUsed, bitmapScan, residual);
+    }
+
+    /**
+     * 条件能否完全由位图索引求值：位图索引列上的等值比较，或它们的AND/OR组合
+     */
+    private boolean isBitmapAnswerable(TableSchema schema, Expression expr) {
+        if (!(expr instanceof BinaryExpression)) {
+            return false;
+        }
+        BinaryExpression binary = (BinaryExpression) expr;
+        if (binary.getOperator() == TokenType.AND || binary.getOperator() == TokenType.OR) {
+            return isBitmapAnswerable(schema, binary.getLeft()) && isBitmapAnswerable(schema, binary.getRight());
+        }
+
+        ColumnPredicate predicate = toColumnPredicate(schema, expr);
+        return predicate != null && predicate.operator == TokenType.EQUALS
+                && schema.getBitmapIndex(predicate.column.getName()) != null;
+    }
+
+    private IndexScanPlan match(String tableName, IndexInfo index, List<ColumnPredicate> predicates, List<Expression> used) {
+        List<Object> equalityValues = new ArrayList<>();
+        IndexScanPlan plan = null;
+
+        for (String column : index.getColumns()) {
+            ColumnPredicate equality = find(predicates, column, used, TokenType.EQUALS);
+            if (equality != null) {
+                equalityValues.add(equality.value);
+                used.add(equality.source);
+                continue;
+            }
+
+            // 等值前缀之后最多使用一个范围列
+            ColumnPredicate lower = find(predicates, column, used, TokenType.GREATER_THAN, TokenType.GREATER_EQUAL);
+            ColumnPredicate upper = find(predicates, column, used, TokenType.LESS_THAN, TokenType.LESS_EQUAL);
+            if (lower != null || upper != null) {
+                plan = new IndexScanPlan(tableName, index, equalityValues);
+                if (lower != null) {
+                    plan.setLowerBound(lower.value, lower.operator == TokenType.GREATER_EQUAL);
+                    used.add(lower.source);
+                }
+                if (upper != null) {
+                    plan.setUpperBound(upper.value, upper.operator == TokenType.LESS_EQUAL);
+                    used.add(upper.source);
+                }
+            }
+            break;
+        }
+
+        if (plan == null && !equalityValues.isEmpty()) {
+            plan = new IndexScanPlan(tableName, index, equalityValues);
+        }
+        return plan;
+    }
+
+    private boolean isBetter(IndexScanPlan candidate, IndexScanPlan best) {
+        if (best == null) {
+            return true;
+        }
+        if (candidate.getMatchedColumnCount() != best.getMatchedColumnCount()) {
+            return candidate.getMatchedColumnCount() > best.getMatchedColumnCount();
+        }
+        if (candidate.getEqualityValues().size() != best.getEqualityValues().size()) {
+            return candidate.getEqualityValues().size() > best.getEqualityValues().size();
+        }
+        return candidate.getIndex().getColumnCount() < best.getIndex().getColumnCount();
+    }
+
+    private ColumnPredicate find(List<ColumnPredicate> predicates, String column, List<Expression> used, TokenType... operators) {
+        for (ColumnPredicate predicate : predicates) {
+            if (!predicate.column.getName().equalsIgnoreCase(column) || containsSame(used, predicate.source)) {
+                continue;
+            }
+            for (TokenType operator : operators) {
+                if (predicate.operator == operator) {
+                    return predicate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把 列 op 字面量 或 字面量 op 列 规范化为 列 op 值，值按列类型转换
+     */
+    public static ColumnPredicate toColumnPredicate(TableSchema schema, Expression expr) {
+        if (!(expr instanceof BinaryExpression)) {
+            return null;
+        }
+        BinaryExpression binary = (BinaryExpression) expr;
+        Expression left = binary.getLeft();
+        Expression right = binary.getRight();
+        TokenType operator = binary.getOperator();
+
+        if (left instanceof Literal && right instanceof Identifier) {
+            Expression tmp = left;
+            left = right;
+            right = tmp;
+            operator = flip(operator);
+        }
+        if (operator == null || !(left instanceof Identifier) || !(right instanceof Literal)) {
+            return null;
+        }
+
+        ColumnInfo column = schema.getColumn(((Identifier) left).getName());
+        if (column == null) {
+            return null;
+        }
+        Object value = column.convertLiteral(((Literal) right).getValue());
+        if (value == null) {
+            return null;
+        }
+        return new ColumnPredicate(expr, column, operator, value);
+    }
+
+    /**
+     * 交换比较运算两侧时对应的运算符，非比较运算返回null
+     */
+    public static TokenType flip(TokenType operator) {
+        switch (operator) {
+            case EQUALS:
+            case NOT_EQUALS:
+                return operator;
+            case LESS_THAN:
+                return TokenType.GREATER_THAN;
+            case GREATER_THAN:
+                return TokenType.LESS_THAN;
+            case LESS_EQUAL:
+                return TokenType.GREATER_EQUAL;
+            case GREATER_EQUAL:
+                return TokenType.LESS_EQUAL;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 把AND连接的条件拆成合取项列表
+     */
+    public static List<Expression> splitConjuncts(Expression condition) {
+        List<Expression> conjuncts = new ArrayList<>();
+        collectConjuncts(condition, conjuncts);
+        return conjuncts;
+    }
+
+    private static void collectConjuncts(Expression expr, List<Expression> out) {
+        if (expr instanceof BinaryExpression && ((BinaryExpression) expr).getOperator() == TokenType.AND) {
+            collectConjuncts(((BinaryExpression) expr).getLeft(), out);
+            collectConjuncts(((BinaryExpression) expr).getRight(), out);
+        } else if (expr != null) {
+            out.add(expr);
+        }
+    }
+
+    /**
+     * 用AND重新连接合取项，列表为空时返回null
+     */
+    public static Expression combineConjuncts(List<Expression> conjuncts) {
+        Expression result = null;
+        for (Expression conjunct : conjuncts) {
+            result = result == null ? conjunct
+                    : new BinaryExpression(result.getLine(), result.getColumn(), result, TokenType.AND, conjunct);
+        }
+        return result;
+    }
+
+    private static boolean containsSame(List<Expression> list, Expression expr) {
+        for (Expression item : list) {
+            if (item == expr) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
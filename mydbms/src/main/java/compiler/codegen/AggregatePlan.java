@@ -0,0 +1,71 @@
+package compiler.codegen;
+
+import compiler.ast.expressions.AggregateExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 哈希聚合执行计划 - 按GROUP BY列分组，对每组计算聚合函数
+ * 输出行以分组列名和聚合表达式文本（如 COUNT(*)）为列名
+ */
+public class AggregatePlan extends ExecutionPlan {
+
+    /**
+     * 一个聚合函数：函数、参数列（COUNT(*)时为null）和输出列名
+     */
+    public static class Aggregate {
+        private final AggregateExpression.Function function;
+        private final String argument;
+        private final String label;
+
+        public Aggregate(AggregateExpression.Function function, String argument, String label) {
+            this.function = function;
+            this.argument = argument;
+            this.label = label;
+        }
+
+        public AggregateExpression.Function getFunction() {
+            return function;
+        }
+
+        public String getArgument() {
+            return argument;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private List<String> groupBy;
+    private List<Aggregate> aggregates;
+
+    public AggregatePlan(List<String> groupBy) {
+        super("AGGREGATE");
+        this.groupBy = new ArrayList<>(groupBy);
+        this.aggregates = new ArrayList<>();
+    }
+
+    public void addAggregate(AggregateExpression.Function function, String argument, String label) {
+        aggregates.add(new Aggregate(function, argument, label));
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    @Override
+    protected String getDetails() {
+        return "group_by=" + groupBy + ", aggregates=" + aggregates;
+    }
+}
@@ -0,0 +1,22 @@
+package compiler.codegen;
+
+/**
+ * ANALYZE TABLE执行计划
+ */
+public class AnalyzeTablePlan extends ExecutionPlan {
+    private String tableName;
+    
+    public AnalyzeTablePlan(String tableName) {
+        super("ANALYZE");
+        this.tableName = tableName;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    @Override
+    protected String getDetails() {
+        return "table=" + tableName;
+    }
+}
@@ -0,0 +1,31 @@
+package compiler.codegen;
+
+import compiler.ast.expressions.Expression;
+
+/**
+ * 位图索引扫描执行计划
+ * 条件由位图索引列上的等值比较经AND/OR组合而成，在取行之前通过位图交/并集求出行号集合
+ */
+public class BitmapScanPlan extends ExecutionPlan {
+    private String tableName;
+    private Expression condition;
+
+    public BitmapScanPlan(String tableName, Expression condition) {
+        super("BITMAP_SCAN");
+        this.tableName = tableName;
+        this.condition = condition;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    @Override
+    protected String getDetails() {
+        return "condition=" + condition;
+    }
+}
@@ -4,14 +4,45 @@ import compiler.ast.ASTNode;
 import compiler.ast.ASTVisitor;
 import compiler.ast.expressions.*;
 import compiler.ast.statements.*;
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.ColumnStatistics;
+import compiler.catalog.IndexInfo;
+import compiler.catalog.IndexType;
+import compiler.catalog.TableSchema;
+import compiler.lexer.TokenType;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 执行计划生成器 - 将AST转换为逻辑执行计划
  */
 public class CodeGenerator implements ASTVisitor<ExecutionPlan> {
+    private Catalog catalog;
+    private String database;
+    private AccessPathSelector accessPathSelector;
+    private CostModel costModel;
+    
+    public CodeGenerator() {
+        this(null, null);
+    }
+    
+    /**
+     * 提供目录时，SELECT会根据表上的索引选择访问路径；表已分析过时由代价模型决定是否使用索引
+     * @param database 会话的当前数据库，表名在其中解析
+     */
+    public CodeGenerator(Catalog catalog, String database) {
+        this.catalog = catalog;
+        this.database = database;
+        this.accessPathSelector = new AccessPathSelector();
+        this.costModel = new CostModel();
+    }
     
     /**
      * 生成执行计划
@@ -70,6 +101,10 @@ public class CodeGenerator implements ASTVisitor<ExecutionPlan> {
     
     @Override
     public ExecutionPlan visitSelectStatement(SelectStatement stmt) {
+        if (!stmt.getJoins().isEmpty()) {
+            return generateJoinSelect(stmt);
+        }
+        
         String tableName = stmt.getTableName().getName();
         SelectList selectList = stmt.getSelectList();
         
@@ -89,15 +124,324 @@ public class CodeGenerator implements ASTVisitor<ExecutionPlan> {
         
         SelectPlan selectPlan = new SelectPlan(tableName, columns, selectAll);
         
-        // 如果有WHERE子句，添加过滤计划
-        if (stmt.getWhereClause() != null) {
-            FilterPlan filterPlan = new FilterPlan(stmt.getWhereClause().getCondition().toString());
-            selectPlan.addChild(filterPlan);
+        TableSchema schema = catalog != null ? catalog.getTableSchema(database, tableName) : null;
+        Expression where = stmt.getWhereClause() != null ? stmt.getWhereClause().getCondition() : null;
+        estimate(selectPlan, schema, where);
+        
+        // 如果有WHERE子句，选择访问路径并添加过滤计划
+        if (where != null) {
+            Expression condition = where;
+            
+            if (schema != null && !schema.getIndexes().isEmpty()) {
+                AccessPathSelector.AccessPath path = accessPathSelector.choose(schema, condition);
+                if (!path.getIndexed().isEmpty()
+                        && costModel.prefersIndex(schema, AccessPathSelector.combineConjuncts(path.getIndexed()))) {
+                    if (path.getIndexScan() != null) {
+                        estimate(path.getIndexScan(), schema,
+                                AccessPathSelector.combineConjuncts(path.getIndexScanConjuncts()));
+                        selectPlan.addChild(path.getIndexScan());
+                    }
+                    if (path.getBitmapScan() != null) {
+                        estimate(path.getBitmapScan(), schema, path.getBitmapScan().getCondition());
+                        selectPlan.addChild(path.getBitmapScan());
+                    }
+                    condition = AccessPathSelector.combineConjuncts(path.getResidual());
+                }
+            }
+            
+            if (condition != null) {
+                FilterPlan filterPlan = new FilterPlan(condition);
+                filterPlan.setEstimatedRows(selectPlan.getEstimatedRows());
+                selectPlan.addChild(filterPlan);
+            }
+        }
+        
+        if (stmt.isAggregate()) {
+            selectPlan.addChild(aggregate(stmt, Collections.singletonList(schema)));
+        }
+        orderAndLimit(selectPlan, stmt, Collections.singletonList(schema));
+        return selectPlan;
+    }
+    
+    /**
+     * 表已分析过时，按条件的选择率估计计划节点的输出行数
+     */
+    private void estimate(ExecutionPlan plan, TableSchema schema, Expression condition) {
+        if (schema != null && schema.getStatistics() != null) {
+            plan.setEstimatedRows(schema.getStatistics().getRowCount() * costModel.selectivity(schema, condition));
+        }
+    }
+    
+    /**
+     * 连接查询：FROM和各JOIN中的表构成左深连接树
+     * 所有列引用改写为限定名；WHERE中只涉及一张表的合取项以及ON中只涉及新表的合取项下推到该表的扫描；
+     * 两侧都是基表且连接键上都有B+树索引时按索引顺序扫描并归并连接，否则使用哈希连接
+     */
+    private ExecutionPlan generateJoinSelect(SelectStatement stmt) {
+        List<TableSchema> scope = new ArrayList<>();
+        scope.add(catalog.getTableSchema(database, stmt.getTableName().getName()));
+        for (JoinClause join : stmt.getJoins()) {
+            scope.add(catalog.getTableSchema(database, join.getTableName().getName()));
+        }
+        
+        SelectList selectList = stmt.getSelectList();
+        List<String> columns = null;
+        if (!selectList.isSelectAll()) {
+            columns = new ArrayList<>();
+            for (Expression expr : selectList.getItems()) {
+                columns.add(qualify(expr, scope).toString());
+            }
         }
+        SelectPlan selectPlan = new SelectPlan(stmt.getTableName().getName(), columns, selectList.isSelectAll());
         
+        Map<String, List<Expression>> pushed = new HashMap<>();
+        List<Expression> residualWhere = new ArrayList<>();
+        Expression where = stmt.getWhereClause() != null ? stmt.getWhereClause().getCondition() : null;
+        for (Expression conjunct : AccessPathSelector.splitConjuncts(qualify(where, scope))) {
+            Set<String> tables = referencedTables(conjunct);
+            if (tables.size() == 1) {
+                pushed.computeIfAbsent(tables.iterator().next(), k -> new ArrayList<>()).add(conjunct);
+            } else {
+                residualWhere.add(conjunct);
+            }
+        }
+        
+        TableScanPlan first = scan(scope.get(0), pushed);
+        ExecutionPlan input = first;
+        for (int i = 0; i < stmt.getJoins().size(); i++) {
+            TableSchema right = scope.get(i + 1);
+            String rightName = right.getTableName().toUpperCase();
+            List<String> leftKeys = new ArrayList<>();
+            List<String> rightKeys = new ArrayList<>();
+            List<Expression> residual = new ArrayList<>();
+            
+            for (Expression conjunct : AccessPathSelector.splitConjuncts(qualify(stmt.getJoins().get(i).getCondition(), scope))) {
+                Set<String> tables = referencedTables(conjunct);
+                Identifier[] pair = equiJoinPair(conjunct, rightName);
+                if (pair != null) {
+                    leftKeys.add(pair[0].getQualifiedName());
+                    rightKeys.add(pair[1].getQualifiedName());
+                } else if (tables.size() == 1 && tables.contains(rightName)) {
+                    pushed.computeIfAbsent(rightName, k -> new ArrayList<>()).add(conjunct);
+                } else {
+                    residual.add(conjunct);
+                }
+            }
+            
+            TableScanPlan rightScan = scan(right, pushed);
+            JoinPlan.Algorithm algorithm = JoinPlan.Algorithm.HASH;
+            if (input == first && leftKeys.size() == 1) {
+                IndexInfo leftIndex = orderingIndex(scope.get(0), leftKeys.get(0));
+                IndexInfo rightIndex = orderingIndex(right, rightKeys.get(0));
+                if (leftIndex != null && rightIndex != null) {
+                    first.setOrderIndex(leftIndex);
+                    rightScan.setOrderIndex(rightIndex);
+                    algorithm = JoinPlan.Algorithm.MERGE;
+                }
+            }
+            
+            JoinPlan join = new JoinPlan(input, rightScan, leftKeys, rightKeys,
+                    AccessPathSelector.combineConjuncts(residual), algorithm);
+            estimateJoin(join, scope);
+            input = join;
+        }
+        
+        selectPlan.addChild(input);
+        if (!residualWhere.isEmpty()) {
+            selectPlan.addChild(new FilterPlan(AccessPathSelector.combineConjuncts(residualWhere)));
+        } else {
+            selectPlan.setEstimatedRows(input.getEstimatedRows());
+        }
+        if (stmt.isAggregate()) {
+            selectPlan.addChild(aggregate(stmt, scope));
+        }
+        orderAndLimit(selectPlan, stmt, scope);
         return selectPlan;
     }
     
+    /**
+     * ORDER BY生成排序计划（有LIMIT时取前N），只有LIMIT/OFFSET时生成行数限制计划
+     */
+    private void orderAndLimit(SelectPlan selectPlan, SelectStatement stmt, List<TableSchema> scope) {
+        Integer limit = stmt.getLimit();
+        if (!stmt.getOrderBy().isEmpty()) {
+            SortPlan sort = new SortPlan(limit != null ? limit : SortPlan.NO_LIMIT, stmt.getOffset());
+            for (OrderByItem item : stmt.getOrderBy()) {
+                sort.addKey(outputName(item.getExpression(), scope), item.isDescending());
+            }
+            if (limit != null) {
+                sort.setEstimatedRows(limit);
+            }
+            selectPlan.addChild(sort);
+        } else if (limit != null) {
+            LimitPlan limitPlan = new LimitPlan(limit, stmt.getOffset());
+            limitPlan.setEstimatedRows(limit);
+            selectPlan.addChild(limitPlan);
+        }
+    }
+    
+    /**
+     * 列或聚合函数在执行时的行中的列名：连接查询中列为限定名，聚合函数为其文本
+     */
+    private String outputName(Expression expr, List<TableSchema> scope) {
+        boolean joined = scope.size() > 1;
+        Expression resolved = joined ? qualify(expr, scope) : expr;
+        if (resolved instanceof Identifier) {
+            Identifier identifier = (Identifier) resolved;
+            return joined ? identifier.getQualifiedName() : identifier.getName();
+        }
+        return resolved.toString();
+    }
+    
+    /**
+     * 聚合计划：分组列和聚合函数的参数列使用输入行中的列名（连接查询为限定名），
+     * 聚合函数的输出列名与选择列表中的列名一致
+     */
+    private AggregatePlan aggregate(SelectStatement stmt, List<TableSchema> scope) {
+        List<String> groupBy = new ArrayList<>();
+        for (Identifier column : stmt.getGroupBy()) {
+            groupBy.add(outputName(column, scope));
+        }
+        AggregatePlan plan = new AggregatePlan(groupBy);
+        
+        // 选择列表和ORDER BY中的聚合函数，相同的只计算一次
+        List<Expression> items = new ArrayList<>(stmt.getSelectList().getItems());
+        for (OrderByItem item : stmt.getOrderBy()) {
+            items.add(item.getExpression());
+        }
+        Set<String> labels = new HashSet<>();
+        for (Expression item : items) {
+            if (!(item instanceof AggregateExpression) || !labels.add(outputName(item, scope))) {
+                continue;
+            }
+            AggregateExpression aggregate = (AggregateExpression) item;
+            String argument = aggregate.isCountStar() ? null : outputName(aggregate.getArgument(), scope);
+            plan.addAggregate(aggregate.getFunction(), argument, outputName(item, scope));
+        }
+        if (groupBy.isEmpty()) {
+            plan.setEstimatedRows(1);
+        }
+        return plan;
+    }
+    
+    private TableScanPlan scan(TableSchema schema, Map<String, List<Expression>> pushed) {
+        TableScanPlan scan = new TableScanPlan(schema.getTableName());
+        List<Expression> conjuncts = pushed.get(schema.getTableName().toUpperCase());
+        if (conjuncts != null) {
+            scan.setCondition(AccessPathSelector.combineConjuncts(conjuncts));
+        }
+        estimate(scan, schema, scan.getCondition());
+        return scan;
+    }
+    
+    /**
+     * 等值连接的行数估计：|L| * |R| / max(两侧连接列的不同值个数)
+     */
+    private void estimateJoin(JoinPlan join, List<TableSchema> scope) {
+        double left = join.getLeft().getEstimatedRows();
+        double right = join.getRight().getEstimatedRows();
+        if (left < 0 || right < 0) {
+            return;
+        }
+        double rows = left * right;
+        for (int i = 0; i < join.getLeftKeys().size(); i++) {
+            long distinct = Math.max(distinctCount(join.getLeftKeys().get(i), scope),
+                    distinctCount(join.getRightKeys().get(i), scope));
+            rows /= Math.max(distinct, 1);
+        }
+        join.setEstimatedRows(rows);
+    }
+    
+    private long distinctCount(String qualifiedColumn, List<TableSchema> scope) {
+        int dot = qualifiedColumn.indexOf('.');
+        for (TableSchema schema : scope) {
+            if (schema.getTableName().equalsIgnoreCase(qualifiedColumn.substring(0, dot))
+                    && schema.getStatistics() != null) {
+                ColumnStatistics column = schema.getStatistics().getColumn(qualifiedColumn.substring(dot + 1));
+                return column != null ? column.getDistinctCount() : 1;
+            }
+        }
+        return 1;
+    }
+    
+    /**
+     * 首列为给定列的B+树索引，按它扫描即按该列有序
+     */
+    private IndexInfo orderingIndex(TableSchema schema, String qualifiedColumn) {
+        String column = qualifiedColumn.substring(qualifiedColumn.indexOf('.') + 1);
+        for (IndexInfo index : schema.getIndexes()) {
+            if (index.getType() == IndexType.BTREE && index.getColumns().get(0).equalsIgnoreCase(column)) {
+                return index;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 之前的表的列 = 新表的列 形式的合取项，返回 [之前的表的列, 新表的列]，否则返回null
+     */
+    private Identifier[] equiJoinPair(Expression conjunct, String rightName) {
+        if (!(conjunct instanceof BinaryExpression)) {
+            return null;
+        }
+        BinaryExpression binary = (BinaryExpression) conjunct;
+        if (binary.getOperator() != TokenType.EQUALS
+                || !(binary.getLeft() instanceof Identifier) || !(binary.getRight() instanceof Identifier)) {
+            return null;
+        }
+        Identifier left = (Identifier) binary.getLeft();
+        Identifier right = (Identifier) binary.getRight();
+        boolean leftIsNew = left.getQualifier().equalsIgnoreCase(rightName);
+        boolean rightIsNew = right.getQualifier().equalsIgnoreCase(rightName);
+        if (leftIsNew == rightIsNew) {
+            return null;
+        }
+        return leftIsNew ? new Identifier[]{right, left} : new Identifier[]{left, right};
+    }
+    
+    /**
+     * 把表达式中的列引用改写为 表名.列名（语义分析已保证每个列引用能唯一解析）
+     */
+    private Expression qualify(Expression expr, List<TableSchema> scope) {
+        if (expr instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expr;
+            return new BinaryExpression(binary.getLine(), binary.getColumn(), qualify(binary.getLeft(), scope),
+                    binary.getOperator(), qualify(binary.getRight(), scope));
+        }
+        if (expr instanceof Identifier) {
+            Identifier identifier = (Identifier) expr;
+            for (TableSchema schema : scope) {
+                boolean named = identifier.getQualifier() == null
+                        || schema.getTableName().equalsIgnoreCase(identifier.getQualifier());
+                ColumnInfo column = schema.getColumn(identifier.getName());
+                if (named && column != null) {
+                    return new Identifier(identifier.getLine(), identifier.getColumn(),
+                            schema.getTableName(), column.getName());
+                }
+            }
+        }
+        if (expr instanceof AggregateExpression && !((AggregateExpression) expr).isCountStar()) {
+            AggregateExpression aggregate = (AggregateExpression) expr;
+            return new AggregateExpression(aggregate.getLine(), aggregate.getColumn(), aggregate.getFunction(),
+                    (Identifier) qualify(aggregate.getArgument(), scope));
+        }
+        return expr;
+    }
+    
+    /**
+     * 表达式引用到的表（大写表名）
+     */
+    private Set<String> referencedTables(Expression expr) {
+        Set<String> tables = new HashSet<>();
+        if (expr instanceof BinaryExpression) {
+            tables.addAll(referencedTables(((BinaryExpression) expr).getLeft()));
+            tables.addAll(referencedTables(((BinaryExpression) expr).getRight()));
+        } else if (expr instanceof Identifier && ((Identifier) expr).getQualifier() != null) {
+            tables.add(((Identifier) expr).getQualifier().toUpperCase());
+        }
+        return tables;
+    }
+    
     @Override
     public ExecutionPlan visitDeleteStatement(DeleteStatement stmt) {
         String tableName = stmt.getTableName().getName();
@@ -105,13 +449,33 @@ public class CodeGenerator implements ASTVisitor<ExecutionPlan> {
         
         // 如果有WHERE子句，添加过滤计划
         if (stmt.getWhereClause() != null) {
-            FilterPlan filterPlan = new FilterPlan(stmt.getWhereClause().getCondition().toString());
+            FilterPlan filterPlan = new FilterPlan(stmt.getWhereClause().getCondition());
             deletePlan.addChild(filterPlan);
         }
         
         return deletePlan;
     }
     
+    @Override
+    public ExecutionPlan visitExplainStatement(ExplainStatement stmt) {
+        return new ExplainPlan(stmt.getStatement().accept(this), stmt.isAnalyze());
+    }
+    
+    @Override
+    public ExecutionPlan visitAnalyzeTableStatement(AnalyzeTableStatement stmt) {
+        return new AnalyzeTablePlan(stmt.getTableName().getName());
+    }
+    
+    @Override
+    public ExecutionPlan visitCreateIndexStatement(CreateIndexStatement stmt) {
+        List<String> columns = new ArrayList<>();
+        for (Identifier column : stmt.getColumns()) {
+            columns.add(column.getName());
+        }
+        String indexType = stmt.getIndexType() != null ? stmt.getIndexType().getName().toUpperCase() : "BTREE";
+        return new CreateIndexPlan(stmt.getIndexName().getName(), stmt.getTableName().getName(), columns, indexType);
+    }
+    
     @Override
     public ExecutionPlan visitIdentifier(Identifier expr) {
         // 标识符通常不单独生成执行计划
@@ -148,6 +512,24 @@ public class CodeGenerator implements ASTVisitor<ExecutionPlan> {
         throw new UnsupportedOperationException("WhereClause should not generate execution plan independently");
     }
     
+    @Override
+    public ExecutionPlan visitJoinClause(JoinClause expr) {
+        // JOIN子句由SELECT语句统一生成连接计划
+        throw new UnsupportedOperationException("JoinClause should not generate execution plan independently");
+    }
+    
+    @Override
+    public ExecutionPlan visitAggregateExpression(AggregateExpression expr) {
+        // 聚合函数由SELECT语句统一生成聚合计划
+        throw new UnsupportedOperationException("AggregateExpression should not generate execution plan independently");
+    }
+    
+    @Override
+    public ExecutionPlan visitOrderByItem(OrderByItem expr) {
+        // ORDER BY由SELECT语句统一生成排序计划
+        throw new UnsupportedOperationException("OrderByItem should not generate execution plan independently");
+    }
+    
     @Override
     public ExecutionPlan visitSelectList(SelectList expr) {
         // SELECT列表通常不单独生成执行计划
@@ -185,4 +567,24 @@ public class CodeGenerator implements ASTVisitor<ExecutionPlan> {
     public ExecutionPlan visitCreateUserStatement(CreateUserStatement stmt) {
         return new CreateUserPlan();
     }
+    
+    @Override
+    public ExecutionPlan visitTransactionStatement(TransactionStatement stmt) {
+        return new TransactionPlan(stmt.getAction());
+    }
+    
+    @Override
+    public ExecutionPlan visitShowProcesslistStatement(ShowProcesslistStatement stmt) {
+        return new ShowProcesslistPlan();
+    }
+    
+    @Override
+    public ExecutionPlan visitKillStatement(KillStatement stmt) {
+        return new KillPlan(stmt.getProcessId());
+    }
+    
+    @Override
+    public ExecutionPlan visitSetStatement(SetStatement stmt) {
+        return new SetPlan(stmt.getVariable(), stmt.getValue());
+    }
 }
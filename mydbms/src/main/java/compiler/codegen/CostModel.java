@@ -0,0 +1,83 @@
+package compiler.codegen;
+
+import compiler.ast.expressions.BinaryExpression;
+import compiler.ast.expressions.Expression;
+import compiler.ast.expressions.Literal;
+import compiler.catalog.ColumnStatistics;
+import compiler.catalog.TableSchema;
+import compiler.catalog.TableStatistics;
+import compiler.lexer.TokenType;
+
+/**
+ * 代价模型 - 根据ANALYZE TABLE收集的统计信息比较全表扫描和索引访问的代价
+ * 全表扫描顺序读取每个段文件；索引访问按行号回表，每个涉及的段文件都要单独打开解析，
+ * 因此选择率较高时索引访问反而比全表扫描慢。
+ */
+public class CostModel {
+    static final double SEQ_PAGE_COST = 1.0;
+    static final double RANDOM_PAGE_COST = 4.0;
+    static final double CPU_ROW_COST = 0.01;
+    static final double CPU_INDEX_ENTRY_COST = 0.005;
+
+    /** 无法估计的条件的默认选择率 */
+    static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+
+    public double fullScanCost(TableStatistics statistics) {
+        return statistics.getPageCount() * SEQ_PAGE_COST + statistics.getRowCount() * CPU_ROW_COST;
+    }
+
+    /**
+     * 通过索引取回 selectivity 比例的行的代价
+     * 涉及的段文件数按Cardenas公式估计：P * (1 - (1 - 1/P)^k)
+     */
+    public double indexAccessCost(TableStatistics statistics, double selectivity) {
+        double rows = selectivity * statistics.getRowCount();
+        int pages = Math.max(statistics.getPageCount(), 1);
+        double pagesTouched = pages * (1 - Math.pow(1 - 1.0 / pages, rows));
+        return pagesTouched * RANDOM_PAGE_COST + rows * (CPU_ROW_COST + CPU_INDEX_ENTRY_COST);
+    }
+
+    /**
+     * 估计条件的选择率：AND按独立性相乘，OR按容斥相加
+     */
+    public double selectivity(TableSchema schema, Expression condition) {
+        if (condition == null) {
+            return 1.0;
+        }
+        if (condition instanceof Literal) {
+            return Boolean.TRUE.equals(((Literal) condition).getValue()) ? 1.0 : 0.0;
+        }
+        TableStatistics statistics = schema.getStatistics();
+        if (condition instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) condition;
+            if (binary.getOperator() == TokenType.AND) {
+                return selectivity(schema, binary.getLeft()) * selectivity(schema, binary.getRight());
+            }
+            if (binary.getOperator() == TokenType.OR) {
+                double left = selectivity(schema, binary.getLeft());
+                double right = selectivity(schema, binary.getRight());
+                return left + right - left * right;
+            }
+        }
+
+        AccessPathSelector.ColumnPredicate predicate = AccessPathSelector.toColumnPredicate(schema, condition);
+        ColumnStatistics column = predicate != null && statistics != null
+                ? statistics.getColumn(predicate.getColumn().getName()) : null;
+        if (column == null) {
+            return DEFAULT_SELECTIVITY;
+        }
+        return column.selectivity(predicate.getOperator(), predicate.getValue());
+    }
+
+    /**
+     * 对已分析的表，判断所选索引访问是否比全表扫描更便宜；未分析的表总是使用索引
+     */
+    public boolean prefersIndex(TableSchema schema, Expression indexCondition) {
+        TableStatistics statistics = schema.getStatistics();
+        if (statistics == null) {
+            return true;
+        }
+        double selectivity = selectivity(schema, indexCondition);
+        return indexAccessCost(statistics, selectivity) < fullScanCost(statistics);
+    }
+}
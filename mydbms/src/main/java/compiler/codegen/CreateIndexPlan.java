@@ -0,0 +1,43 @@
+package compiler.codegen;
+
+import java.util.List;
+
+/**
+ * CREATE INDEX执行计划
+ */
+public class CreateIndexPlan extends ExecutionPlan {
+    private String indexName;
+    private String tableName;
+    private List<String> columns;
+    private String indexType;
+    
+    public CreateIndexPlan(String indexName, String tableName, List<String> columns, String indexType) {
+        super("CREATE_INDEX");
+        this.indexName = indexName;
+        this.tableName = tableName;
+        this.columns = columns;
+        this.indexType = indexType;
+    }
+    
+    public String getIndexName() {
+        return indexName;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    public List<String> getColumns() {
+        return columns;
+    }
+    
+    public String getIndexType() {
+        return indexType;
+    }
+    
+    @Override
+    protected String getDetails() {
+        return "index=" + indexName + ", table=" + tableName + ", columns=[" + String.join(", ", columns) + "]"
+                + ", type=" + indexType;
+    }
+}
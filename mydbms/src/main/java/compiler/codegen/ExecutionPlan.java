@@ -9,10 +9,14 @@ import java.util.List;
 public abstract class ExecutionPlan {
     protected String planType;
     protected List<ExecutionPlan> children;
+    protected double estimatedRows;
+    protected PlanStatistics statistics;
     
     public ExecutionPlan(String planType) {
         this.planType = planType;
         this.children = new ArrayList<>();
+        this.estimatedRows = -1;
+        this.statistics = new PlanStatistics();
     }
     
     public String getPlanType() {
@@ -27,6 +31,54 @@ public abstract class ExecutionPlan {
         children.add(child);
     }
     
+    /**
+     * 代价模型估计的输出行数，无统计信息时为-1
+     */
+    public double getEstimatedRows() {
+        return estimatedRows;
+    }
+    
+    public void setEstimatedRows(double estimatedRows) {
+        this.estimatedRows = estimatedRows;
+    }
+    
+    /**
+     * 运行时统计，执行器执行该节点时累计
+     */
+    public PlanStatistics getStatistics() {
+        return statistics;
+    }
+    
+    /**
+     * 转换为EXPLAIN输出：树形结构，附带估计行数以及（执行过时的）实际运行统计
+     */
+    public String toExplainString() {
+        return toExplainString(0);
+    }
+    
+    protected String toExplainString(int depth) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("  ".repeat(depth)).append(planType);
+        
+        String details = getDetails();
+        if (details != null && !details.isEmpty()) {
+            sb.append(" (").append(details).append(")");
+        }
+        if (estimatedRows >= 0) {
+            sb.append(" [est_rows=").append(Math.round(estimatedRows)).append("]");
+        }
+        if (statistics.getLoops() > 0) {
+            sb.append(" [actual ").append(statistics).append("]");
+        }
+        sb.append("\n");
+        
+        for (ExecutionPlan child : children) {
+            sb.append(child.toExplainString(depth + 1));
+        }
+        
+        return sb.toString();
+    }
+    
     /**
      * 转换为树形结构字符串
      */
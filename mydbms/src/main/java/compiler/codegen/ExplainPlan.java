@@ -0,0 +1,28 @@
+package compiler.codegen;
+
+/**
+ * EXPLAIN执行计划 - 子计划为被解释的语句的计划
+ * EXPLAIN只输出计划；EXPLAIN ANALYZE执行子计划后输出带运行统计的计划
+ */
+public class ExplainPlan extends ExecutionPlan {
+    private boolean analyze;
+
+    public ExplainPlan(ExecutionPlan target, boolean analyze) {
+        super(analyze ? "EXPLAIN_ANALYZE" : "EXPLAIN");
+        this.analyze = analyze;
+        addChild(target);
+    }
+
+    public boolean isAnalyze() {
+        return analyze;
+    }
+
+    public ExecutionPlan getTarget() {
+        return children.get(0);
+    }
+
+    @Override
+    protected String getDetails() {
+        return "";
+    }
+}
@@ -1,20 +1,35 @@
 package compiler.codegen;
 
+import compiler.ast.expressions.Expression;
+
 /**
  * 过滤操作执行计划（WHERE子句）
  */
 public class FilterPlan extends ExecutionPlan {
     private String condition;
+    private Expression expression;
     
     public FilterPlan(String condition) {
         super("FILTER");
         this.condition = condition;
     }
     
+    public FilterPlan(Expression expression) {
+        this(expression.toString());
+        this.expression = expression;
+    }
+    
     public String getCondition() {
         return condition;
     }
     
+    /**
+     * 条件对应的表达式树，仅由字符串构造时为null
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+    
     @Override
     protected String getDetails() {
         return "condition=" + condition;
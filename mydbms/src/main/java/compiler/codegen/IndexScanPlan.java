@@ -0,0 +1,123 @@
+package compiler.codegen;
+
+import compiler.catalog.IndexInfo;
+import compiler.index.KeyEncoder;
+import compiler.index.KeyRange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 索引范围扫描执行计划
+ * 前导列等值 + 下一列上的一个范围，映射为B+树上的一个有界区间
+ */
+public class IndexScanPlan extends ExecutionPlan {
+    private String tableName;
+    private IndexInfo index;
+    private List<Object> equalityValues;
+    private Object lowerValue;
+    private boolean lowerInclusive;
+    private Object upperValue;
+    private boolean upperInclusive;
+    
+    public IndexScanPlan(String tableName, IndexInfo index, List<Object> equalityValues) {
+        super("INDEX_SCAN");
+        this.tableName = tableName;
+        this.index = index;
+        this.equalityValues = new ArrayList<>(equalityValues);
+    }
+    
+    public void setLowerBound(Object value, boolean inclusive) {
+        this.lowerValue = value;
+        this.lowerInclusive = inclusive;
+    }
+    
+    public void setUpperBound(Object value, boolean inclusive) {
+        this.upperValue = value;
+        this.upperInclusive = inclusive;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    public IndexInfo getIndex() {
+        return index;
+    }
+    
+    public List<Object> getEqualityValues() {
+        return equalityValues;
+    }
+    
+    public boolean hasRange() {
+        return lowerValue != null || upperValue != null;
+    }
+    
+    /**
+     * 使用到的索引列数
+     */
+    public int getMatchedColumnCount() {
+        return equalityValues.size() + (hasRange() ? 1 : 0);
+    }
+    
+    /**
+     * 转换为编码后的键区间
+     */
+    public KeyRange toKeyRange() {
+        byte[] low;
+        boolean lowInclusive;
+        if (lowerValue != null) {
+            low = encodeWith(lowerValue);
+            lowInclusive = lowerInclusive;
+        } else if (upperValue != null) {
+            // 只有上界时跳过范围列为空值的条目
+            low = encodeWith(null);
+            lowInclusive = false;
+        } else {
+            low = KeyEncoder.encode(equalityValues);
+            lowInclusive = true;
+        }
+        
+        byte[] high;
+        boolean highInclusive;
+        if (upperValue != null) {
+            high = encodeWith(upperValue);
+            highInclusive = upperInclusive;
+        } else {
+            high = equalityValues.isEmpty() ? null : KeyEncoder.encode(equalityValues);
+            highInclusive = true;
+        }
+        
+        return new KeyRange(low, lowInclusive, high, highInclusive);
+    }
+    
+    private byte[] encodeWith(Object rangeValue) {
+        List<Object> values = new ArrayList<>(equalityValues);
+        values.add(rangeValue);
+        return KeyEncoder.encode(values);
+    }
+    
+    @Override
+    protected String getDetails() {
+        List<String> columns = index.getColumns();
+        StringBuilder sb = new StringBuilder();
+        sb.append("index=").append(index.getName()).append(", range=[");
+        for (int i = 0; i < equalityValues.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(columns.get(i)).append(" = ").append(equalityValues.get(i));
+        }
+        if (hasRange()) {
+            if (!equalityValues.isEmpty()) sb.append(", ");
+            String column = columns.get(equalityValues.size());
+            if (lowerValue != null) {
+                sb.append(column).append(lowerInclusive ? " >= " : " > ").append(lowerValue);
+            }
+            if (upperValue != null) {
+                if (lowerValue != null) sb.append(", ");
+                sb.append(column).append(upperInclusive ? " <= " : " < ").append(upperValue);
+            }
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
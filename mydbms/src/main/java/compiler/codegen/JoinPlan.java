@@ -0,0 +1,79 @@
+package compiler.codegen;
+
+import compiler.ast.expressions.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 等值连接执行计划 - 子计划0为左输入，子计划1为右输入
+ * HASH：在较小的输入上建哈希表，较大的输入流式探测；
+ * MERGE：两侧按连接键有序时直接归并，构建侧超出内存上限时执行器也会先外部排序再归并
+ */
+public class JoinPlan extends ExecutionPlan {
+    public enum Algorithm {
+        HASH,
+        MERGE
+    }
+
+    private List<String> leftKeys;
+    private List<String> rightKeys;
+    private Expression residual;
+    private Algorithm algorithm;
+
+    public JoinPlan(ExecutionPlan left, ExecutionPlan right, List<String> leftKeys, List<String> rightKeys,
+                    Expression residual, Algorithm algorithm) {
+        super("JOIN");
+        this.leftKeys = new ArrayList<>(leftKeys);
+        this.rightKeys = new ArrayList<>(rightKeys);
+        this.residual = residual;
+        this.algorithm = algorithm;
+        addChild(left);
+        addChild(right);
+    }
+
+    public ExecutionPlan getLeft() {
+        return children.get(0);
+    }
+
+    public ExecutionPlan getRight() {
+        return children.get(1);
+    }
+
+    /**
+     * 左输入的连接键（限定列名），与rightKeys按位置一一对应
+     */
+    public List<String> getLeftKeys() {
+        return leftKeys;
+    }
+
+    public List<String> getRightKeys() {
+        return rightKeys;
+    }
+
+    /**
+     * ON中除等值连接键以外、需要在连接后的行上检查的条件，没有时为null
+     */
+    public Expression getResidual() {
+        return residual;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    protected String getDetails() {
+        StringBuilder sb = new StringBuilder("algorithm=" + algorithm + ", on=");
+        for (int i = 0; i < leftKeys.size(); i++) {
+            if (i > 0) {
+                sb.append(" AND ");
+            }
+            sb.append(leftKeys.get(i)).append(" = ").append(rightKeys.get(i));
+        }
+        if (residual != null) {
+            sb.append(", residual=").append(residual);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package compiler.codegen;
+
+/**
+ * KILL执行计划：请求取消指定会话中正在执行的语句
+ */
+public class KillPlan extends ExecutionPlan {
+    private final long processId;
+    
+    public KillPlan(long processId) {
+        super("KILL");
+        this.processId = processId;
+    }
+    
+    public long getProcessId() {
+        return processId;
+    }
+    
+    @Override
+    protected String getDetails() {
+        return "id=" + processId;
+    }
+    
+    @Override
+    public String toString() {
+        return "KillPlan{processId=" + processId + "}";
+    }
+}
@@ -0,0 +1,29 @@
+package compiler.codegen;
+
+/**
+ * 行数限制执行计划 - 没有ORDER BY的LIMIT，跳过前offset行后输出count行，
+ * 取够后通知扫描提前结束
+ */
+public class LimitPlan extends ExecutionPlan {
+    private int count;
+    private int offset;
+
+    public LimitPlan(int count, int offset) {
+        super("LIMIT");
+        this.count = count;
+        this.offset = offset;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    protected String getDetails() {
+        return "count=" + count + (offset > 0 ? ", offset=" + offset : "");
+    }
+}
@@ -0,0 +1,69 @@
+package compiler.codegen;
+
+/**
+ * 计划节点的运行时统计 - 由执行器在执行时累计，EXPLAIN ANALYZE时输出
+ */
+public class PlanStatistics {
+    private long rows;
+    private int loops;
+    private long nanos;
+    private long pagesRead;
+    private long bufferHits;
+    private long bufferMisses;
+
+    /**
+     * 记录一次执行
+     */
+    public void addLoop(long rows, long nanos) {
+        this.loops++;
+        this.rows += rows;
+        this.nanos += nanos;
+    }
+
+    /**
+     * 输出行数和耗时在执行过程中逐行累计时单独记录，不增加执行次数
+     */
+    public void addRows(long rows) {
+        this.rows += rows;
+    }
+
+    public void addTime(long nanos) {
+        this.nanos += nanos;
+    }
+
+    public void addPages(long pagesRead, long bufferHits, long bufferMisses) {
+        this.pagesRead += pagesRead;
+        this.bufferHits += bufferHits;
+        this.bufferMisses += bufferMisses;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getLoops() {
+        return loops;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getPagesRead() {
+        return pagesRead;
+    }
+
+    public long getBufferHits() {
+        return bufferHits;
+    }
+
+    public long getBufferMisses() {
+        return bufferMisses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rows=%d loops=%d time=%.3fms pages=%d hits=%d misses=%d",
+                rows, loops, nanos / 1_000_000.0, pagesRead, bufferHits, bufferMisses);
+    }
+}
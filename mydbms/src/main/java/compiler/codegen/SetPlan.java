@@ -0,0 +1,33 @@
+package compiler.codegen;
+
+/**
+ * SET执行计划：设置当前会话的变量
+ */
+public class SetPlan extends ExecutionPlan {
+    private final String variable;
+    private final long value;
+    
+    public SetPlan(String variable, long value) {
+        super("SET");
+        this.variable = variable;
+        this.value = value;
+    }
+    
+    public String getVariable() {
+        return variable;
+    }
+    
+    public long getValue() {
+        return value;
+    }
+    
+    @Override
+    protected String getDetails() {
+        return variable + "=" + value;
+    }
+    
+    @Override
+    public String toString() {
+        return "SetPlan{variable=" + variable + ", value=" + value + "}";
+    }
+}
@@ -0,0 +1,21 @@
+package compiler.codegen;
+
+/**
+ * SHOW PROCESSLIST执行计划
+ */
+public class ShowProcesslistPlan extends ExecutionPlan {
+    
+    public ShowProcesslistPlan() {
+        super("SHOW PROCESSLIST");
+    }
+    
+    @Override
+    protected String getDetails() {
+        return "";
+    }
+    
+    @Override
+    public String toString() {
+        return "ShowProcesslistPlan{}";
+    }
+}
@@ -0,0 +1,76 @@
+package compiler.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 排序执行计划 - ORDER BY
+ * 带LIMIT时只保留前offset+limit行（堆排序取前N）并跳过前offset行，否则完整排序，超出内存预算时外部归并
+ */
+public class SortPlan extends ExecutionPlan {
+    public static final int NO_LIMIT = -1;
+
+    private List<String> keys;
+    private List<Boolean> descending;
+    private int limit;
+    private int offset;
+
+    public SortPlan(int limit, int offset) {
+        super("SORT");
+        this.keys = new ArrayList<>();
+        this.descending = new ArrayList<>();
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * @param key 输入行中的列名（连接查询为限定名，聚合结果为聚合表达式文本）
+     */
+    public void addKey(String key, boolean desc) {
+        keys.add(key);
+        descending.add(desc);
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public boolean isDescending(int i) {
+        return descending.get(i);
+    }
+
+    /**
+     * 输出的最大行数，没有LIMIT时为NO_LIMIT
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 排序后跳过的行数
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean hasLimit() {
+        return limit != NO_LIMIT;
+    }
+
+    @Override
+    protected String getDetails() {
+        StringBuilder sb = new StringBuilder("keys=[");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(keys.get(i)).append(descending.get(i) ? " DESC" : " ASC");
+        }
+        sb.append("]");
+        if (hasLimit()) {
+            sb.append(", top=").append(limit);
+        }
+        if (offset > 0) {
+            sb.append(", offset=").append(offset);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package compiler.codegen;
+
+import compiler.ast.expressions.Expression;
+import compiler.catalog.IndexInfo;
+
+/**
+ * 表扫描执行计划 - 连接查询的输入
+ * 输出行的列名带表名限定（表名.列名）；只涉及本表的条件下推到扫描时过滤；
+ * 指定有序索引时按该索引的键顺序输出，供归并连接直接使用
+ */
+public class TableScanPlan extends ExecutionPlan {
+    private String tableName;
+    private Expression condition;
+    private IndexInfo orderIndex;
+
+    public TableScanPlan(String tableName) {
+        super("SCAN");
+        this.tableName = tableName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 下推的过滤条件，没有时为null
+     */
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * 按其键顺序输出的B+树索引，为null时按行号顺序输出
+     */
+    public IndexInfo getOrderIndex() {
+        return orderIndex;
+    }
+
+    public void setOrderIndex(IndexInfo orderIndex) {
+        this.orderIndex = orderIndex;
+    }
+
+    @Override
+    protected String getDetails() {
+        StringBuilder sb = new StringBuilder("table=" + tableName);
+        if (condition != null) {
+            sb.append(", condition=").append(condition);
+        }
+        if (orderIndex != null) {
+            sb.append(", order=").append(orderIndex.getName());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package compiler.codegen;
+
+import compiler.ast.statements.TransactionStatement;
+
+/**
+ * 事务控制执行计划：开始、提交或回滚会话的显式事务
+ */
+public class TransactionPlan extends ExecutionPlan {
+    private final TransactionStatement.Action action;
+    
+    public TransactionPlan(TransactionStatement.Action action) {
+        super(action.name());
+        this.action = action;
+    }
+    
+    public TransactionStatement.Action getAction() {
+        return action;
+    }
+    
+    @Override
+    protected String getDetails() {
+        return "";
+    }
+    
+    @Override
+    public String toString() {
+        return "TransactionPlan{action=" + action + "}";
+    }
+}
@@ -0,0 +1,262 @@
+package compiler.execution;
+
+import compiler.ast.expressions.BinaryExpression;
+import compiler.ast.expressions.Expression;
+import compiler.ast.expressions.Literal;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 自适应过滤条件 - 把左深的AND/OR树展平为多路节点，按代价和观测到的通过率决定子条件的求值顺序：
+ * AND中先求值代价低且最可能不通过的条件，OR中先求值代价低且最可能通过的条件，短路求值
+ * 初始顺序只看代价（整数比较低于小数比较低于字符串比较），每个节点每求值REORDER_INTERVAL次
+ * 按计数重新排序，并把计数减半，使顺序能跟随数据分布的变化
+ * 比较本身仍由ExpressionEvaluator完成，因此结果与按原顺序求值相同
+ * 多个扫描线程可以共用一个实例：计数不加锁（只影响排序的依据），子条件数组整体替换
+ */
+public class AdaptiveFilter implements Predicate<Row> {
+    static final int REORDER_INTERVAL = 1024;
+
+    private final AtomicInteger reorders = new AtomicInteger();
+    private final Node root;
+
+    private AdaptiveFilter(ExpressionEvaluator evaluator, Expression condition) {
+        this.root = build(evaluator, condition);
+    }
+
+    /**
+     * 编译过滤条件，condition为null时返回null（不过滤）
+     */
+    public static AdaptiveFilter compile(TableSchema schema, Expression condition) {
+        if (condition == null) {
+            return null;
+        }
+        return new AdaptiveFilter(new ExpressionEvaluator(schema), condition);
+    }
+
+    @Override
+    public boolean test(Row row) {
+        return root.test(row);
+    }
+
+    /**
+     * 条件中是否有可以调整顺序的AND/OR
+     */
+    public boolean isReorderable() {
+        return root instanceof Junction;
+    }
+
+    /**
+     * 执行期间调整求值顺序的次数（顺序实际发生变化才计数）
+     */
+    public int getReorders() {
+        return reorders.get();
+    }
+
+    /**
+     * 当前的求值顺序
+     */
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    private Node build(ExpressionEvaluator evaluator, Expression expr) {
+        if (expr instanceof BinaryExpression) {
+            TokenType operator = ((BinaryExpression) expr).getOperator();
+            if (operator == TokenType.AND || operator == TokenType.OR) {
+                List<Node> children = new ArrayList<>();
+                flatten(evaluator, expr, operator, children);
+                return new Junction(operator == TokenType.AND, children.toArray(new Node[0]));
+            }
+        }
+        return new Comparison(evaluator, expr, costOf(evaluator, expr));
+    }
+
+    private void flatten(ExpressionEvaluator evaluator, Expression expr, TokenType operator, List<Node> out) {
+        if (expr instanceof BinaryExpression && ((BinaryExpression) expr).getOperator() == operator) {
+            flatten(evaluator, ((BinaryExpression) expr).getLeft(), operator, out);
+            flatten(evaluator, ((BinaryExpression) expr).getRight(), operator, out);
+        } else {
+            out.add(build(evaluator, expr));
+        }
+    }
+
+    /**
+     * 比较的静态代价：常量为0，按列类型递增，两侧都是列时加倍
+     */
+    private static double costOf(ExpressionEvaluator evaluator, Expression expr) {
+        if (expr instanceof Literal || !(expr instanceof BinaryExpression)) {
+            return 0;
+        }
+        BinaryExpression comparison = (BinaryExpression) expr;
+        ColumnInfo left = evaluator.columnOf(comparison.getLeft());
+        ColumnInfo right = evaluator.columnOf(comparison.getRight());
+        double cost = Math.max(typeCost(left), typeCost(right));
+        return left != null && right != null ? cost * 2 : cost;
+    }
+
+    private static double typeCost(ColumnInfo column) {
+        if (column == null) {
+            return 1;
+        }
+        switch (column.getDataType()) {
+            case INT:
+            case BOOLEAN:
+                return 1;
+            case FLOAT:
+            case DOUBLE:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    private abstract static class Node {
+        // 本节点被求值和通过的次数，由父节点读取
+        long evaluated;
+        long passed;
+
+        abstract boolean test(Row row);
+
+        abstract double cost();
+
+        boolean record(boolean result) {
+            evaluated++;
+            if (result) {
+                passed++;
+            }
+            return result;
+        }
+
+        /**
+         * 平滑后的通过率，没有观测时为1/2
+         */
+        double passRate() {
+            return (passed + 0.5) / (evaluated + 1.0);
+        }
+    }
+
+    private static final class Comparison extends Node {
+        private final ExpressionEvaluator evaluator;
+        private final Expression expr;
+        private final double cost;
+
+        Comparison(ExpressionEvaluator evaluator, Expression expr, double cost) {
+            this.evaluator = evaluator;
+            this.expr = expr;
+            this.cost = cost;
+        }
+
+        @Override
+        boolean test(Row row) {
+            return record(evaluator.matches(expr, row));
+        }
+
+        @Override
+        double cost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return expr.toString();
+        }
+    }
+
+    private final class Junction extends Node {
+        private final boolean and;
+        private final double cost;
+        private volatile Node[] children;
+        private int untilReorder = REORDER_INTERVAL;
+
+        Junction(boolean and, Node[] children) {
+            this.and = and;
+            double total = 0;
+            for (Node child : children) {
+                total += child.cost();
+            }
+            this.cost = total;
+            this.children = sorted(children);
+        }
+
+        @Override
+        boolean test(Row row) {
+            Node[] current = children;
+            boolean result = and;
+            for (Node child : current) {
+                if (child.test(row) != and) {
+                    result = !and;
+                    break;
+                }
+            }
+            if (--untilReorder <= 0) {
+                untilReorder = REORDER_INTERVAL;
+                reorder(current);
+            }
+            return record(result);
+        }
+
+        @Override
+        double cost() {
+            return cost;
+        }
+
+        /**
+         * 排序依据：代价除以短路概率（AND为不通过率，OR为通过率），越小越先求值
+         */
+        private double rank(Node node) {
+            double shortCircuit = and ? 1 - node.passRate() : node.passRate();
+            return (node.cost() + 0.1) / Math.max(shortCircuit, 1e-3);
+        }
+
+        private Node[] sorted(Node[] nodes) {
+            double[] ranks = new double[nodes.length];
+            Integer[] order = new Integer[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                ranks[i] = rank(nodes[i]);
+                order[i] = i;
+            }
+            // 稳定排序，代价和通过率相同的条件保持原来的顺序
+            Arrays.sort(order, Comparator.comparingDouble(i -> ranks[i]));
+            Node[] result = new Node[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                result[i] = nodes[order[i]];
+            }
+            return result;
+        }
+
+        private void reorder(Node[] current) {
+            Node[] next = sorted(current);
+            for (Node child : current) {
+                child.evaluated /= 2;
+                child.passed /= 2;
+            }
+            if (!Arrays.equals(next, current)) {
+                children = next;
+                reorders.incrementAndGet();
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("(");
+            Node[] current = children;
+            for (int i = 0; i < current.length; i++) {
+                if (i > 0) {
+                    sb.append(and ? " AND " : " OR ");
+                }
+                sb.append(current[i]);
+            }
+            return sb.append(")").toString();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package compiler.execution;
+
+import compiler.ast.expressions.BinaryExpression;
+import compiler.ast.expressions.Expression;
+import compiler.ast.expressions.Identifier;
+import compiler.ast.expressions.Literal;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.lexer.TokenType;
+
+/**
+ * 表达式求值器 - 在数据行上计算WHERE条件
+ * 比较时按列的数据类型解析两侧的值；任一侧为空值时比较结果为假
+ */
+public class ExpressionEvaluator {
+    private final TableSchema schema;
+
+    public ExpressionEvaluator(TableSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * 判断行是否满足条件
+     */
+    public boolean matches(Expression condition, Row row) {
+        if (condition == null) {
+            return true;
+        }
+
+        if (condition instanceof Literal) {
+            return Boolean.TRUE.equals(((Literal) condition).getValue());
+        }
+
+        if (!(condition instanceof BinaryExpression)) {
+            throw new IllegalArgumentException("Unsupported condition: " + condition);
+        }
+
+        BinaryExpression expr = (BinaryExpression) condition;
+        switch (expr.getOperator()) {
+            case AND:
+                return matches(expr.getLeft(), row) && matches(expr.getRight(), row);
+            case OR:
+                return matches(expr.getLeft(), row) || matches(expr.getRight(), row);
+            default:
+                return compare(expr, row);
+        }
+    }
+
+    private boolean compare(BinaryExpression expr, Row row) {
+        ColumnInfo column = columnOf(expr.getLeft());
+        if (column == null) {
+            column = columnOf(expr.getRight());
+        }
+
+        Object left = valueOf(expr.getLeft(), row, column);
+        Object right = valueOf(expr.getRight(), row, column);
+        if (left == null || right == null) {
+            return false;
+        }
+
+        return test(expr.getOperator(), ColumnInfo.compareValues(left, right));
+    }
+
+    /**
+     * 根据比较结果判断比较运算是否成立
+     */
+    public static boolean test(TokenType operator, int cmp) {
+        switch (operator) {
+            case EQUALS:
+                return cmp == 0;
+            case NOT_EQUALS:
+                return cmp != 0;
+            case LESS_THAN:
+                return cmp < 0;
+            case GREATER_THAN:
+                return cmp > 0;
+            case LESS_EQUAL:
+                return cmp <= 0;
+            case GREATER_EQUAL:
+                return cmp >= 0;
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+    }
+
+    /**
+     * 表达式是列引用时返回对应的列，否则返回null
+     */
+    ColumnInfo columnOf(Expression expr) {
+        if (expr instanceof Identifier) {
+            return lookup((Identifier) expr);
+        }
+        return null;
+    }
+
+    /**
+     * 先按限定名查找（连接结果的列名形如 表名.列名），单表时退回到不含限定的列名
+     */
+    private ColumnInfo lookup(Identifier identifier) {
+        ColumnInfo column = schema.getColumn(identifier.getQualifiedName());
+        return column != null ? column : schema.getColumn(identifier.getName());
+    }
+
+    private Object valueOf(Expression expr, Row row, ColumnInfo column) {
+        if (expr instanceof Identifier) {
+            ColumnInfo own = lookup((Identifier) expr);
+            return own != null ? own.parseValue(row.get(own.getName())) : null;
+        }
+        if (expr instanceof Literal) {
+            Object value = ((Literal) expr).getValue();
+            if (column == null) {
+                return value instanceof Integer ? Long.valueOf((Integer) value) : value;
+            }
+            Object converted = column.convertLiteral(value);
+            // 整数列与小数字面量比较时保留小数
+            if (converted == null && value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return converted;
+        }
+        throw new IllegalArgumentException("Unsupported operand: " + expr);
+    }
+}
@@ -0,0 +1,233 @@
+package compiler.execution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * 外部排序器 - 内存中最多保留maxRowsInMemory行，超出行数或查询的内存预算时把排好序的一批行写入临时文件（一个有序段），
+ * 读取时对所有有序段和内存中剩余的行做多路归并
+ * 用法：多次add，然后调用一次sortedIterator，用完后close删除临时文件
+ */
+public class ExternalSorter implements AutoCloseable {
+    public static final int DEFAULT_MAX_ROWS_IN_MEMORY = 100_000;
+
+    private final Comparator<Row> comparator;
+    private final int maxRowsInMemory;
+    private final MemoryBudget memory;
+    private final List<Row> buffer;
+    private final List<File> runs;
+    private final List<DataInputStream> openInputs;
+    private long rowCount;
+    private long bufferedBytes;
+
+    public ExternalSorter(Comparator<Row> comparator) {
+        this(comparator, DEFAULT_MAX_ROWS_IN_MEMORY);
+    }
+
+    public ExternalSorter(Comparator<Row> comparator, int maxRowsInMemory) {
+        this(comparator, maxRowsInMemory, MemoryBudget.unlimited());
+    }
+
+    public ExternalSorter(Comparator<Row> comparator, int maxRowsInMemory, MemoryBudget memory) {
+        this.comparator = comparator;
+        this.maxRowsInMemory = Math.max(maxRowsInMemory, 1);
+        this.memory = memory;
+        this.buffer = new ArrayList<>();
+        this.runs = new ArrayList<>();
+        this.openInputs = new ArrayList<>();
+    }
+
+    public void add(Row row) throws IOException {
+        long size = row.estimateSize();
+        if (!memory.tryReserve(size)) {
+            if (!buffer.isEmpty()) {
+                spill();
+            }
+            memory.reserve(size, "sort buffer");
+        }
+        buffer.add(row);
+        bufferedBytes += size;
+        rowCount++;
+        if (buffer.size() >= maxRowsInMemory) {
+            spill();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 已写入临时文件的有序段个数，0表示完全在内存中排序
+     */
+    public int getSpilledRuns() {
+        return runs.size();
+    }
+
+    /**
+     * 按比较器顺序返回全部行
+     */
+    public Iterator<Row> sortedIterator() throws IOException {
+        buffer.sort(comparator);
+        if (runs.isEmpty()) {
+            return buffer.iterator();
+        }
+
+        List<Iterator<Row>> sources = new ArrayList<>();
+        for (File run : runs) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+            openInputs.add(in);
+            sources.add(new RunIterator(in));
+        }
+        sources.add(buffer.iterator());
+        return new MergeIterator(sources);
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(comparator);
+        File run = File.createTempFile("mydbms-sort", ".run");
+        run.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            out.writeInt(buffer.size());
+            for (Row row : buffer) {
+                writeRow(out, row);
+            }
+        }
+        runs.add(run);
+        buffer.clear();
+        memory.release(bufferedBytes);
+        bufferedBytes = 0;
+    }
+
+    private static void writeRow(DataOutputStream out, Row row) throws IOException {
+        out.writeInt(row.getRowId());
+        out.writeInt(row.getValues().size());
+        for (Map.Entry<String, String> entry : row.getValues().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeBoolean(entry.getValue() != null);
+            if (entry.getValue() != null) {
+                out.writeUTF(entry.getValue());
+            }
+        }
+    }
+
+    private static Row readRow(DataInputStream in) throws IOException {
+        int rowId = in.readInt();
+        int columns = in.readInt();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < columns; i++) {
+            String key = in.readUTF();
+            values.put(key, in.readBoolean() ? in.readUTF() : null);
+        }
+        return new Row(rowId, values);
+    }
+
+    @Override
+    public void close() {
+        for (DataInputStream in : openInputs) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // 临时文件随后删除，关闭失败无影响
+            }
+        }
+        for (File run : runs) {
+            run.delete();
+        }
+        openInputs.clear();
+        runs.clear();
+        buffer.clear();
+        memory.release(bufferedBytes);
+        bufferedBytes = 0;
+    }
+
+    /**
+     * 顺序读取一个有序段
+     */
+    private static final class RunIterator implements Iterator<Row> {
+        private final DataInputStream in;
+        private int remaining;
+
+        RunIterator(DataInputStream in) throws IOException {
+            this.in = in;
+            this.remaining = in.readInt();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Row next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            try {
+                return readRow(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * 多路归并：小顶堆中保存每个有序段的当前行
+     */
+    private final class MergeIterator implements Iterator<Row> {
+        private final PriorityQueue<Head> heap;
+
+        MergeIterator(List<Iterator<Row>> sources) {
+            this.heap = new PriorityQueue<>((a, b) -> comparator.compare(a.row, b.row));
+            for (Iterator<Row> source : sources) {
+                if (source.hasNext()) {
+                    heap.add(new Head(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Row next() {
+            Head head = heap.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            Row row = head.row;
+            if (head.source.hasNext()) {
+                heap.add(new Head(head.source.next(), head.source));
+            }
+            return row;
+        }
+    }
+
+    private static final class Head {
+        final Row row;
+        final Iterator<Row> source;
+
+        Head(Row row, Iterator<Row> source) {
+            this.row = row;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package compiler.execution;
+
+import compiler.ast.expressions.AggregateExpression;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.AggregatePlan;
+import compiler.index.KeyEncoder;
+import compiler.lexer.TokenType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 哈希聚合器 - 开放定址哈希表（线性探测）把分组键映射到组号，
+ * 每个聚合函数的累加值按组号保存在long/double数组中，不为每组创建对象
+ * 分组数达到maxGroups或查询的内存预算用尽后，不属于已有分组的行按键的哈希值写入磁盘分区，
+ * 内存中的分组输出后再逐个分区递归聚合（每层使用哈希值的不同位，最多MAX_DEPTH层）
+ * 分区中保存的是分组的部分状态（计数和累加值），因此并行聚合时各线程的部分聚合器
+ * （包括它们写出的分区）可以逐组合并到最终的聚合器中
+ */
+public class HashAggregator implements AutoCloseable {
+    public static final int DEFAULT_MAX_GROUPS = 100_000;
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+    private static final int MAX_DEPTH = 32 / PARTITION_BITS - 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private enum Kind {
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    private final TableSchema schema;
+    private final AggregatePlan plan;
+    private final int maxGroups;
+    private final MemoryBudget memory;
+    private final int depth;
+    // 内存中的分组从查询预算中预留的字节数
+    private long reservedBytes;
+
+    private final ColumnInfo[] groupColumns;
+    private final AggregateExpression.Function[] functions;
+    private final ColumnInfo[] argumentColumns;
+    private final Kind[] kinds;
+
+    // 开放定址表：槽中保存组号+1，0表示空槽
+    private int[] slots;
+    private int groupCount;
+    private int[] groupHashes;
+    private byte[][] groupKeys;
+    private String[][] groupKeyValues;
+
+    // 每个聚合函数一组数组，下标为组号
+    private long[][] counts;
+    private long[][] longValues;
+    private double[][] doubleValues;
+    private String[][] stringValues;
+
+    private DataOutputStream[] partitionOutputs;
+    private List<List<File>> partitionFiles;
+    private int spilledPartitions;
+
+    public HashAggregator(TableSchema schema, AggregatePlan plan, int maxGroups) {
+        this(schema, plan, maxGroups, MemoryBudget.unlimited());
+    }
+
+    public HashAggregator(TableSchema schema, AggregatePlan plan, int maxGroups, MemoryBudget memory) {
+        this(schema, plan, maxGroups, memory, 0);
+    }
+
+    private HashAggregator(TableSchema schema, AggregatePlan plan, int maxGroups, MemoryBudget memory, int depth) {
+        this.schema = schema;
+        this.plan = plan;
+        this.maxGroups = Math.max(maxGroups, 1);
+        this.memory = memory;
+        this.depth = depth;
+
+        List<String> groupBy = plan.getGroupBy();
+        this.groupColumns = new ColumnInfo[groupBy.size()];
+        for (int i = 0; i < groupColumns.length; i++) {
+            groupColumns[i] = schema.getColumn(groupBy.get(i));
+        }
+
+        List<AggregatePlan.Aggregate> aggregates = plan.getAggregates();
+        int n = aggregates.size();
+        this.functions = new AggregateExpression.Function[n];
+        this.argumentColumns = new ColumnInfo[n];
+        this.kinds = new Kind[n];
+        for (int i = 0; i < n; i++) {
+            AggregatePlan.Aggregate aggregate = aggregates.get(i);
+            functions[i] = aggregate.getFunction();
+            argumentColumns[i] = aggregate.getArgument() != null ? schema.getColumn(aggregate.getArgument()) : null;
+            kinds[i] = kindOf(argumentColumns[i]);
+        }
+
+        this.slots = new int[INITIAL_CAPACITY * 2];
+        this.groupHashes = new int[INITIAL_CAPACITY];
+        this.groupKeys = new byte[INITIAL_CAPACITY][];
+        this.groupKeyValues = new String[INITIAL_CAPACITY][];
+        this.counts = new long[n][INITIAL_CAPACITY];
+        this.longValues = new long[n][];
+        this.doubleValues = new double[n][];
+        this.stringValues = new String[n][];
+        for (int i = 0; i < n; i++) {
+            if (kinds[i] == Kind.LONG) {
+                longValues[i] = new long[INITIAL_CAPACITY];
+            } else if (kinds[i] == Kind.DOUBLE) {
+                doubleValues[i] = new double[INITIAL_CAPACITY];
+            } else if (functions[i] == AggregateExpression.Function.MIN || functions[i] == AggregateExpression.Function.MAX) {
+                stringValues[i] = new String[INITIAL_CAPACITY];
+            }
+        }
+    }
+
+    private static Kind kindOf(ColumnInfo column) {
+        if (column == null || column.getDataType() == TokenType.INT) {
+            return Kind.LONG;
+        }
+        if (column.getDataType() == TokenType.FLOAT || column.getDataType() == TokenType.DOUBLE) {
+            return Kind.DOUBLE;
+        }
+        return Kind.STRING;
+    }
+
+    /**
+     * 一个分组的部分状态：每个聚合函数的计数和累加值，用于写出分区和合并
+     */
+    private static final class State {
+        final long[] counts;
+        final long[] longValues;
+        final double[] doubleValues;
+        final String[] stringValues;
+
+        State(int n) {
+            counts = new long[n];
+            longValues = new long[n];
+            doubleValues = new double[n];
+            stringValues = new String[n];
+        }
+    }
+
+    /**
+     * 聚合一行，始终返回true（可直接用作行访问回调）
+     */
+    public boolean add(Row row) {
+        String[] keyValues = new String[groupColumns.length];
+        for (int i = 0; i < groupColumns.length; i++) {
+            keyValues[i] = row.get(groupColumns[i].getName());
+        }
+        String[] arguments = new String[functions.length];
+        for (int i = 0; i < functions.length; i++) {
+            arguments[i] = argumentColumns[i] != null ? row.get(argumentColumns[i].getName()) : null;
+        }
+
+        byte[] key = encodeKey(keyValues);
+        int hash = mix(Arrays.hashCode(key));
+        int group = find(key, hash);
+        if (group < 0) {
+            if (!admitGroup(key, keyValues)) {
+                spill(hash, keyValues, rowState(arguments));
+                return true;
+            }
+            group = insert(key, hash, keyValues);
+        }
+        for (int i = 0; i < functions.length; i++) {
+            if (argumentColumns[i] == null) {
+                counts[i][group]++;
+                continue;
+            }
+            Object value = argumentColumns[i].parseValue(arguments[i]);
+            if (value != null) {
+                combine(group, i, 1, longOf(value), doubleOf(value), kinds[i] == Kind.STRING ? value.toString() : null);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把另一个聚合器（同一聚合计划的部分聚合器）的全部分组合并进来，
+     * 对方写出的分区逐条并入（分组可能已在本聚合器的内存中），读完后删除
+     */
+    public void merge(HashAggregator other) throws IOException {
+        State state = new State(functions.length);
+        for (int group = 0; group < other.groupCount; group++) {
+            for (int i = 0; i < functions.length; i++) {
+                state.counts[i] = other.counts[i][group];
+                state.longValues[i] = other.longValues[i] != null ? other.longValues[i][group] : 0;
+                state.doubleValues[i] = other.doubleValues[i] != null ? other.doubleValues[i][group] : 0;
+                state.stringValues[i] = other.stringValues[i] != null ? other.stringValues[i][group] : null;
+            }
+            addState(other.groupKeys[group], other.groupHashes[group], other.groupKeyValues[group], state);
+        }
+
+        if (other.partitionFiles != null) {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                other.closePartition(partition);
+                for (File file : other.partitionFiles.get(partition)) {
+                    readPartition(file, this);
+                }
+                other.partitionFiles.get(partition).clear();
+            }
+            spilledPartitions += other.spilledPartitions;
+            other.spilledPartitions = 0;
+        }
+    }
+
+    private void addState(byte[] key, int hash, String[] keyValues, State state) throws IOException {
+        int group = find(key, hash);
+        if (group < 0) {
+            if (!admitGroup(key, keyValues)) {
+                spill(hash, keyValues, state);
+                return;
+            }
+            group = insert(key, hash, keyValues);
+        }
+        for (int i = 0; i < functions.length; i++) {
+            combine(group, i, state.counts[i], state.longValues[i], state.doubleValues[i], state.stringValues[i]);
+        }
+    }
+
+    /**
+     * 新分组能否放在内存中：分组数未达上限且能从查询预算中预留；不能时由调用者写入分区
+     * 已到最大递归深度时不再写出分区，超出预算则失败
+     */
+    private boolean admitGroup(byte[] key, String[] keyValues) {
+        long size = 64 + key.length + functions.length * 24L;
+        for (String value : keyValues) {
+            size += value != null ? 40 + 2L * value.length() : 0;
+        }
+        if (depth >= MAX_DEPTH) {
+            memory.reserve(size, "hash aggregation");
+        } else if (groupCount >= maxGroups || !memory.tryReserve(size)) {
+            return false;
+        }
+        reservedBytes += size;
+        return true;
+    }
+
+    private byte[] encodeKey(String[] keyValues) {
+        List<Object> parsed = new ArrayList<>(groupColumns.length);
+        for (int i = 0; i < groupColumns.length; i++) {
+            parsed.add(groupColumns[i].parseValue(keyValues[i]));
+        }
+        return KeyEncoder.encode(parsed);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private int find(byte[] key, int hash) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int group = slots[slot] - 1;
+            if (groupHashes[group] == hash && Arrays.equals(groupKeys[group], key)) {
+                return group;
+            }
+        }
+        return -1;
+    }
+
+    private int insert(byte[] key, int hash, String[] keyValues) {
+        if (groupCount == groupHashes.length) {
+            growGroups();
+        }
+        // 装载因子不超过1/2
+        if ((groupCount + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        int group = groupCount++;
+        groupHashes[group] = hash;
+        groupKeys[group] = key;
+        groupKeyValues[group] = keyValues;
+        placeInSlot(group, hash);
+        return group;
+    }
+
+    private void placeInSlot(int group, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = group + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int group = 0; group < groupCount; group++) {
+            placeInSlot(group, groupHashes[group]);
+        }
+    }
+
+    private void growGroups() {
+        int capacity = groupHashes.length * 2;
+        groupHashes = Arrays.copyOf(groupHashes, capacity);
+        groupKeys = Arrays.copyOf(groupKeys, capacity);
+        groupKeyValues = Arrays.copyOf(groupKeyValues, capacity);
+        for (int i = 0; i < functions.length; i++) {
+            counts[i] = Arrays.copyOf(counts[i], capacity);
+            if (longValues[i] != null) {
+                longValues[i] = Arrays.copyOf(longValues[i], capacity);
+            }
+            if (doubleValues[i] != null) {
+                doubleValues[i] = Arrays.copyOf(doubleValues[i], capacity);
+            }
+            if (stringValues[i] != null) {
+                stringValues[i] = Arrays.copyOf(stringValues[i], capacity);
+            }
+        }
+    }
+
+    private static long longOf(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static double doubleOf(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    /**
+     * 把count个非空值的部分结果并入分组：计数相加，SUM/AVG累加值相加，MIN/MAX取较小/较大者
+     */
+    private void combine(int group, int i, long count, long longValue, double doubleValue, String stringValue) {
+        if (count == 0) {
+            return;
+        }
+        boolean first = counts[i][group] == 0;
+        counts[i][group] += count;
+        if (functions[i] == AggregateExpression.Function.COUNT) {
+            return;
+        }
+        switch (kinds[i]) {
+            case LONG:
+                longValues[i][group] = combine(functions[i], first, longValues[i][group], longValue);
+                break;
+            case DOUBLE:
+                doubleValues[i][group] = combine(functions[i], first, doubleValues[i][group], doubleValue);
+                break;
+            default:
+                String current = stringValues[i][group];
+                if (first || (functions[i] == AggregateExpression.Function.MIN
+                        ? stringValue.compareTo(current) < 0 : stringValue.compareTo(current) > 0)) {
+                    stringValues[i][group] = stringValue;
+                }
+                break;
+        }
+    }
+
+    private static long combine(AggregateExpression.Function function, boolean first, long current, long value) {
+        switch (function) {
+            case MIN:
+                return first ? value : Math.min(current, value);
+            case MAX:
+                return first ? value : Math.max(current, value);
+            default:
+                return current + value;
+        }
+    }
+
+    private static double combine(AggregateExpression.Function function, boolean first, double current, double value) {
+        switch (function) {
+            case MIN:
+                return first ? value : Math.min(current, value);
+            case MAX:
+                return first ? value : Math.max(current, value);
+            default:
+                return current + value;
+        }
+    }
+
+    // ========== 磁盘分区 ==========
+
+    /**
+     * 一行数据对应的部分状态
+     */
+    private State rowState(String[] arguments) {
+        State state = new State(functions.length);
+        for (int i = 0; i < functions.length; i++) {
+            if (argumentColumns[i] == null) {
+                state.counts[i] = 1;
+                continue;
+            }
+            Object value = argumentColumns[i].parseValue(arguments[i]);
+            if (value != null) {
+                state.counts[i] = 1;
+                state.longValues[i] = longOf(value);
+                state.doubleValues[i] = doubleOf(value);
+                state.stringValues[i] = value.toString();
+            }
+        }
+        return state;
+    }
+
+    private List<File> partitionFiles(int partition) {
+        if (partitionFiles == null) {
+            partitionFiles = new ArrayList<>();
+            for (int i = 0; i < PARTITIONS; i++) {
+                partitionFiles.add(new ArrayList<>());
+            }
+            partitionOutputs = new DataOutputStream[PARTITIONS];
+        }
+        return partitionFiles.get(partition);
+    }
+
+    private void spill(int hash, String[] keyValues, State state) {
+        int partition = (hash >>> (32 - PARTITION_BITS * (depth + 1))) & (PARTITIONS - 1);
+        try {
+            List<File> files = partitionFiles(partition);
+            if (partitionOutputs[partition] == null) {
+                File file = File.createTempFile("mydbms-agg", ".part");
+                file.deleteOnExit();
+                files.add(file);
+                partitionOutputs[partition] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                spilledPartitions++;
+            }
+            DataOutputStream out = partitionOutputs[partition];
+            writeValues(out, keyValues);
+            for (int i = 0; i < functions.length; i++) {
+                out.writeLong(state.counts[i]);
+                out.writeLong(state.longValues[i]);
+                out.writeDouble(state.doubleValues[i]);
+                out.writeBoolean(state.stringValues[i] != null);
+                if (state.stringValues[i] != null) {
+                    out.writeUTF(state.stringValues[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeValues(DataOutputStream out, String[] values) throws IOException {
+        for (String value : values) {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+    }
+
+    private static String[] readValues(DataInputStream in, int count) throws IOException {
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readBoolean() ? in.readUTF() : null;
+        }
+        return values;
+    }
+
+    private void readState(DataInputStream in, State state) throws IOException {
+        for (int i = 0; i < functions.length; i++) {
+            state.counts[i] = in.readLong();
+            state.longValues[i] = in.readLong();
+            state.doubleValues[i] = in.readDouble();
+            state.stringValues[i] = in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+
+    private void closePartition(int partition) throws IOException {
+        if (partitionOutputs[partition] != null) {
+            partitionOutputs[partition].close();
+            partitionOutputs[partition] = null;
+        }
+    }
+
+    /**
+     * 把一个分区文件中的部分状态逐条并入target，然后删除文件
+     */
+    private void readPartition(File file, HashAggregator target) throws IOException {
+        State state = new State(functions.length);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                String[] keyValues;
+                try {
+                    keyValues = readValues(in, groupColumns.length);
+                } catch (EOFException e) {
+                    break;
+                }
+                readState(in, state);
+                byte[] key = target.encodeKey(keyValues);
+                target.addState(key, mix(Arrays.hashCode(key)), keyValues, state);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * 写入磁盘的分区文件个数（包括递归聚合时再次写出的分区）
+     */
+    public int getSpilledPartitions() {
+        return spilledPartitions;
+    }
+
+    /**
+     * 内存中的分组数
+     */
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    // ========== 输出 ==========
+
+    /**
+     * 输出全部分组：先输出内存中的分组，再逐个聚合磁盘分区
+     */
+    public List<Row> finish() throws IOException {
+        // 没有GROUP BY时，即使没有输入行也输出一行
+        if (groupColumns.length == 0 && groupCount == 0 && partitionFiles == null) {
+            byte[] key = encodeKey(new String[0]);
+            insert(key, mix(Arrays.hashCode(key)), new String[0]);
+        }
+
+        List<Row> rows = new ArrayList<>(groupCount);
+        for (int group = 0; group < groupCount; group++) {
+            rows.add(output(group));
+        }
+        // 输出的分组行由下游的排序计入预算（没有排序时逐行输出），归还内存中分组的预留，供分区的递归聚合使用
+        memory.release(reservedBytes);
+        reservedBytes = 0;
+
+        if (partitionFiles != null) {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                closePartition(partition);
+                List<File> files = partitionFiles.get(partition);
+                if (files.isEmpty()) {
+                    continue;
+                }
+                try (HashAggregator child = new HashAggregator(schema, plan, maxGroups, memory, depth + 1)) {
+                    for (File file : files) {
+                        readPartition(file, child);
+                    }
+                    files.clear();
+                    rows.addAll(child.finish());
+                    spilledPartitions += child.getSpilledPartitions();
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Row output(int group) {
+        Row row = new Row(group);
+        for (int i = 0; i < groupColumns.length; i++) {
+            row.put(plan.getGroupBy().get(i), groupKeyValues[group][i]);
+        }
+        List<AggregatePlan.Aggregate> aggregates = plan.getAggregates();
+        for (int i = 0; i < functions.length; i++) {
+            row.put(aggregates.get(i).getLabel(), result(i, group));
+        }
+        return row;
+    }
+
+    private String result(int i, int group) {
+        long count = counts[i][group];
+        if (functions[i] == AggregateExpression.Function.COUNT) {
+            return String.valueOf(count);
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (functions[i] == AggregateExpression.Function.AVG) {
+            double sum = kinds[i] == Kind.LONG ? longValues[i][group] : doubleValues[i][group];
+            return String.valueOf(sum / count);
+        }
+        switch (kinds[i]) {
+            case LONG:
+                return String.valueOf(longValues[i][group]);
+            case DOUBLE:
+                return String.valueOf(doubleValues[i][group]);
+            default:
+                return stringValues[i][group];
+        }
+    }
+
+    @Override
+    public void close() {
+        memory.release(reservedBytes);
+        reservedBytes = 0;
+        if (partitionFiles == null) {
+            return;
+        }
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            if (partitionOutputs[partition] != null) {
+                try {
+                    partitionOutputs[partition].close();
+                } catch (IOException ignored) {
+                    // 临时文件随后删除，关闭失败无影响
+                }
+                partitionOutputs[partition] = null;
+            }
+            for (File file : partitionFiles.get(partition)) {
+                file.delete();
+            }
+            partitionFiles.get(partition).clear();
+        }
+    }
+}
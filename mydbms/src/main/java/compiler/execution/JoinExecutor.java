@@ -0,0 +1,463 @@
+package compiler.execution;
+
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.ExecutionPlan;
+import compiler.codegen.JoinPlan;
+import compiler.codegen.TableScanPlan;
+import compiler.index.IndexManager;
+import compiler.index.KeyRange;
+import compiler.index.TableIndexes;
+import compiler.transaction.TableView;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * 连接执行器 - 以推送方式执行由TableScanPlan和JoinPlan构成的连接树
+ * 哈希连接在较小的输入（按段文件字节数估计）上建哈希表，较大的输入流式探测；
+ * 构建侧超过内存上限或查询剩余的内存预算时改为排序归并：两侧分别外部排序后归并。
+ * 有序索引扫描的输入已按连接键有序，归并时不再排序。
+ * 连接键上为空值的行不参与连接。
+ * 各表按语句快照中的视图读取：跳过被删除的行并补充版本行；视图与段文件不一致的表不使用有序索引扫描。
+ * 各表扫描的行计入语句的处理行数，并按间隔检查语句是否被取消。
+ */
+public class JoinExecutor {
+    public static final long DEFAULT_HASH_MEMORY_BYTES = 16L * 1024 * 1024;
+    private static final int FETCH_BATCH = 256;
+
+    private final Catalog catalog;
+    private final XmlTableReader reader;
+    private final IndexManager indexManager;
+    private final String dbName;
+    private final long hashMemoryBytes;
+    private final int sortMemoryRows;
+    private final Function<String, TableView> views;
+    private final MemoryBudget memory;
+    private final RunningStatement statement;
+
+    public JoinExecutor(Catalog catalog, XmlTableReader reader, IndexManager indexManager, String dbName,
+                        long hashMemoryBytes, int sortMemoryRows, Function<String, TableView> views,
+                        MemoryBudget memory, RunningStatement statement) {
+        this.catalog = catalog;
+        this.reader = reader;
+        this.indexManager = indexManager;
+        this.dbName = dbName;
+        this.hashMemoryBytes = hashMemoryBytes;
+        this.sortMemoryRows = sortMemoryRows;
+        this.views = views;
+        this.memory = memory;
+        this.statement = statement;
+    }
+
+    /**
+     * 连接输出的表结构：各表的列按连接顺序排列，列名为 表名.列名
+     */
+    public TableSchema outputSchema(ExecutionPlan input) {
+        TableSchema output = new TableSchema(describe(input));
+        addColumns(input, output);
+        return output;
+    }
+
+    private void addColumns(ExecutionPlan input, TableSchema output) {
+        if (input instanceof TableScanPlan) {
+            TableSchema schema = catalog.getTableSchema(dbName, ((TableScanPlan) input).getTableName());
+            for (ColumnInfo column : schema.getColumns()) {
+                ColumnInfo qualified = new ColumnInfo(schema.getTableName() + "." + column.getName(),
+                        column.getDataType(), column.getSize());
+                qualified.setNotNull(column.isNotNull());
+                output.addColumn(qualified);
+            }
+        } else if (input instanceof JoinPlan) {
+            addColumns(((JoinPlan) input).getLeft(), output);
+            addColumns(((JoinPlan) input).getRight(), output);
+        }
+    }
+
+    private String describe(ExecutionPlan input) {
+        if (input instanceof JoinPlan) {
+            return describe(((JoinPlan) input).getLeft()) + " JOIN " + describe(((JoinPlan) input).getRight());
+        }
+        return ((TableScanPlan) input).getTableName();
+    }
+
+    /**
+     * 执行输入计划，把输出行依次交给visitor
+     * @return visitor要求提前结束时返回false
+     */
+    public boolean produce(ExecutionPlan input, XmlTableReader.RowVisitor visitor) throws Exception {
+        long start = System.nanoTime();
+        long[] rows = {0};
+        XmlTableReader.RowVisitor counting = row -> {
+            rows[0]++;
+            return visitor.visit(row);
+        };
+
+        boolean completed;
+        if (input instanceof TableScanPlan) {
+            completed = scan((TableScanPlan) input, counting);
+        } else if (input instanceof JoinPlan) {
+            completed = join((JoinPlan) input, counting);
+        } else {
+            throw new IllegalArgumentException("Unsupported join input: " + input.getPlanType());
+        }
+        input.getStatistics().addLoop(rows[0], System.nanoTime() - start);
+        return completed;
+    }
+
+    // ========== 表扫描 ==========
+
+    private boolean scan(TableScanPlan scan, XmlTableReader.RowVisitor visitor) throws Exception {
+        if (isOrdered(scan)) {
+            Iterator<Row> rows = orderedScan(scan);
+            while (rows.hasNext()) {
+                if (!visitor.visit(rows.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        TableSchema schema = catalog.getTableSchema(dbName, scan.getTableName());
+        AdaptiveFilter condition = AdaptiveFilter.compile(schema, scan.getCondition());
+        TableView view = views.apply(scan.getTableName());
+        boolean[] completed = {true};
+        reader.scan(dbName, scan.getTableName(), row -> {
+            statement.onRow();
+            if (view.isHidden(row.getRowId()) || (condition != null && !condition.test(row))) {
+                return true;
+            }
+            completed[0] = visitor.visit(qualify(schema.getTableName(), row));
+            return completed[0];
+        });
+        for (Row row : view.getRows()) {
+            if (!completed[0]) {
+                break;
+            }
+            statement.onRow();
+            if (condition == null || condition.test(row)) {
+                completed[0] = visitor.visit(qualify(schema.getTableName(), row));
+            }
+        }
+        return completed[0];
+    }
+
+    /**
+     * 有序索引扫描只覆盖段文件中的行，快照中有删除或版本行时改为普通扫描
+     */
+    private boolean isOrdered(TableScanPlan scan) {
+        return scan.getOrderIndex() != null && views.apply(scan.getTableName()).isEmpty();
+    }
+
+    /**
+     * 按B+树索引的键顺序逐批取回行
+     */
+    private Iterator<Row> orderedScan(TableScanPlan scan) throws Exception {
+        TableSchema schema = catalog.getTableSchema(dbName, scan.getTableName());
+        TableIndexes indexes = indexManager.getTableIndexes(dbName, schema);
+        List<Integer> rowIds = new ArrayList<>();
+        indexes.getTree(scan.getOrderIndex().getName()).rangeScan(new KeyRange(null, true, null, true), rowIds::add);
+        AdaptiveFilter condition = AdaptiveFilter.compile(schema, scan.getCondition());
+
+        return new Iterator<Row>() {
+            private int position;
+            private final List<Row> batch = new ArrayList<>();
+            private int batchPosition;
+
+            @Override
+            public boolean hasNext() {
+                while (batchPosition >= batch.size()) {
+                    if (position >= rowIds.size()) {
+                        return false;
+                    }
+                    fill();
+                }
+                return true;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.get(batchPosition++);
+            }
+
+            private void fill() {
+                List<Integer> chunk = rowIds.subList(position, Math.min(position + FETCH_BATCH, rowIds.size()));
+                position += chunk.size();
+                statement.onRows(chunk.size());
+                batch.clear();
+                batchPosition = 0;
+                try {
+                    Map<Integer, Row> byId = new HashMap<>();
+                    for (Row row : indexes.fetch(chunk)) {
+                        byId.put(row.getRowId(), row);
+                    }
+                    for (int rowId : chunk) {
+                        Row row = byId.get(rowId);
+                        if (row != null && (condition == null || condition.test(row))) {
+                            batch.add(qualify(schema.getTableName(), row));
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to fetch rows from " + scan.getTableName(), e);
+                }
+            }
+        };
+    }
+
+    private static Row qualify(String tableName, Row row) {
+        Map<String, String> values = new LinkedHashMap<>();
+        String prefix = tableName.toUpperCase() + ".";
+        for (Map.Entry<String, String> entry : row.getValues().entrySet()) {
+            values.put(prefix + entry.getKey(), entry.getValue());
+        }
+        return new Row(row.getRowId(), values);
+    }
+
+    private static Row combine(Row left, Row right) {
+        Map<String, String> values = new LinkedHashMap<>(left.getValues());
+        values.putAll(right.getValues());
+        return new Row(left.getRowId(), values);
+    }
+
+    // ========== 连接 ==========
+
+    private boolean join(JoinPlan join, XmlTableReader.RowVisitor visitor) throws Exception {
+        TableSchema schema = outputSchema(join);
+        KeyExtractor leftKey = new KeyExtractor(schema, join.getLeftKeys());
+        KeyExtractor rightKey = new KeyExtractor(schema, join.getRightKeys());
+        AdaptiveFilter residual = AdaptiveFilter.compile(schema, join.getResidual());
+        XmlTableReader.RowVisitor emit = row -> (residual != null && !residual.test(row)) || visitor.visit(row);
+
+        if (join.getAlgorithm() == JoinPlan.Algorithm.MERGE) {
+            return mergeJoin(join, leftKey, rightKey, emit);
+        }
+
+        long leftBytes = inputBytes(join.getLeft());
+        long rightBytes = inputBytes(join.getRight());
+        boolean buildLeft = leftBytes < rightBytes;
+        long buildBytes = Math.min(leftBytes, rightBytes);
+        if (buildBytes > hashMemoryBytes) {
+            System.out.println("哈希连接：构建侧约 " + buildBytes + " 字节，超出内存上限 " + hashMemoryBytes
+                    + " 字节，改用排序归并连接");
+            return mergeJoin(join, leftKey, rightKey, emit);
+        }
+        if (!memory.tryReserve(buildBytes)) {
+            System.out.println("哈希连接：构建侧约 " + buildBytes + " 字节，超出查询剩余的内存预算 "
+                    + (memory.getLimit() - memory.getUsed()) + " 字节，改用排序归并连接");
+            return mergeJoin(join, leftKey, rightKey, emit);
+        }
+        try {
+            return hashJoin(join, buildLeft, leftKey, rightKey, emit);
+        } finally {
+            memory.release(buildBytes);
+        }
+    }
+
+    private boolean hashJoin(JoinPlan join, boolean buildLeft, KeyExtractor leftKey, KeyExtractor rightKey,
+                             XmlTableReader.RowVisitor emit) throws Exception {
+        ExecutionPlan build = buildLeft ? join.getLeft() : join.getRight();
+        ExecutionPlan probe = buildLeft ? join.getRight() : join.getLeft();
+        KeyExtractor buildKey = buildLeft ? leftKey : rightKey;
+        KeyExtractor probeKey = buildLeft ? rightKey : leftKey;
+
+        Map<List<Object>, List<Row>> table = new HashMap<>();
+        produce(build, row -> {
+            List<Object> key = buildKey.keyOf(row);
+            if (key != null) {
+                table.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            }
+            return true;
+        });
+
+        return produce(probe, row -> {
+            List<Object> key = probeKey.keyOf(row);
+            List<Row> matches = key != null ? table.get(key) : null;
+            if (matches == null) {
+                return true;
+            }
+            for (Row match : matches) {
+                Row combined = buildLeft ? combine(match, row) : combine(row, match);
+                if (!emit.visit(combined)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private boolean mergeJoin(JoinPlan join, KeyExtractor leftKey, KeyExtractor rightKey,
+                              XmlTableReader.RowVisitor emit) throws Exception {
+        try (ExternalSorter leftSorter = new ExternalSorter(leftKey.comparator(), sortMemoryRows, memory);
+             ExternalSorter rightSorter = new ExternalSorter(rightKey.comparator(), sortMemoryRows, memory)) {
+            Iterator<Row> left = sortedInput(join.getLeft(), leftSorter);
+            Iterator<Row> right = sortedInput(join.getRight(), rightSorter);
+            if (leftSorter.getSpilledRuns() + rightSorter.getSpilledRuns() > 0) {
+                System.out.println("排序归并连接：外部排序写出有序段 "
+                        + (leftSorter.getSpilledRuns() + rightSorter.getSpilledRuns()) + " 个");
+            }
+
+            Row l = left.hasNext() ? left.next() : null;
+            Row r = right.hasNext() ? right.next() : null;
+            while (l != null && r != null) {
+                List<Object> lk = leftKey.keyOf(l);
+                List<Object> rk = rightKey.keyOf(r);
+                if (lk == null) {
+                    l = left.hasNext() ? left.next() : null;
+                    continue;
+                }
+                if (rk == null) {
+                    r = right.hasNext() ? right.next() : null;
+                    continue;
+                }
+                int cmp = compareKeys(lk, rk);
+                if (cmp < 0) {
+                    l = left.hasNext() ? left.next() : null;
+                } else if (cmp > 0) {
+                    r = right.hasNext() ? right.next() : null;
+                } else {
+                    // 右侧键相同的一组行缓存在内存中，与左侧同键的每一行配对
+                    List<Row> group = new ArrayList<>();
+                    while (r != null && sameKey(rightKey.keyOf(r), lk)) {
+                        group.add(r);
+                        r = right.hasNext() ? right.next() : null;
+                    }
+                    while (l != null && sameKey(leftKey.keyOf(l), lk)) {
+                        for (Row match : group) {
+                            if (!emit.visit(combine(l, match))) {
+                                return false;
+                            }
+                        }
+                        l = left.hasNext() ? left.next() : null;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 有序索引扫描直接返回；其他输入送入外部排序器
+     */
+    private Iterator<Row> sortedInput(ExecutionPlan input, ExternalSorter sorter) throws Exception {
+        if (input instanceof TableScanPlan && isOrdered((TableScanPlan) input)) {
+            long start = System.nanoTime();
+            Iterator<Row> ordered = orderedScan((TableScanPlan) input);
+            input.getStatistics().addLoop(0, System.nanoTime() - start);
+            return new Iterator<Row>() {
+                @Override
+                public boolean hasNext() {
+                    return ordered.hasNext();
+                }
+
+                @Override
+                public Row next() {
+                    input.getStatistics().addRows(1);
+                    return ordered.next();
+                }
+            };
+        }
+        produce(input, row -> {
+            try {
+                sorter.add(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        });
+        return sorter.sortedIterator();
+    }
+
+    private static boolean sameKey(List<Object> key, List<Object> other) {
+        return key != null && compareKeys(key, other) == 0;
+    }
+
+    private static int compareKeys(List<Object> a, List<Object> b) {
+        for (int i = 0; i < a.size(); i++) {
+            int cmp = ColumnInfo.compareValues(a.get(i), b.get(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 输入大小的估计：基表为段文件总字节数，连接结果视为无穷大（总是作为探测侧）
+     */
+    private long inputBytes(ExecutionPlan input) {
+        if (!(input instanceof TableScanPlan)) {
+            return Long.MAX_VALUE;
+        }
+        long bytes = 0;
+        for (XmlTableReader.Segment segment : reader.listSegments(dbName, ((TableScanPlan) input).getTableName())) {
+            bytes += segment.getFile().length();
+        }
+        return bytes;
+    }
+
+    /**
+     * 从行中取出连接键；数值统一规范化，使INT列与DOUBLE列上相等的值得到相同的键
+     */
+    private static final class KeyExtractor {
+        private final List<ColumnInfo> columns;
+
+        KeyExtractor(TableSchema schema, List<String> keys) {
+            this.columns = new ArrayList<>();
+            for (String key : keys) {
+                columns.add(schema.getColumn(key));
+            }
+        }
+
+        /**
+         * @return 任一键列为空值时返回null
+         */
+        List<Object> keyOf(Row row) {
+            List<Object> key = new ArrayList<>(columns.size());
+            for (ColumnInfo column : columns) {
+                Object value = column.parseValue(row.get(column.getName()));
+                if (value == null) {
+                    return null;
+                }
+                key.add(normalize(value));
+            }
+            return key;
+        }
+
+        /**
+         * 空键排在最前
+         */
+        Comparator<Row> comparator() {
+            return (a, b) -> {
+                List<Object> ka = keyOf(a);
+                List<Object> kb = keyOf(b);
+                if (ka == null || kb == null) {
+                    return ka == null ? (kb == null ? 0 : -1) : 1;
+                }
+                return compareKeys(ka, kb);
+            };
+        }
+
+        private static Object normalize(Object value) {
+            if (value instanceof Double) {
+                double d = (Double) value;
+                if (d == Math.rint(d) && Math.abs(d) <= (1L << 53)) {
+                    return (long) d;
+                }
+            }
+            return value;
+        }
+    }
+}
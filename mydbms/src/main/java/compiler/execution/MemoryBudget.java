@@ -0,0 +1,92 @@
+package compiler.execution;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一条查询的内存预算 - 哈希表和排序缓冲在内存中保存行之前按估计的字节数预留，不再需要时归还；
+ * tryReserve失败时调用者应溢写到磁盘，无法溢写的用reserve，超出预算时抛出MemoryLimitException
+ * 预留同时计入内存管理器的总量，总量用尽时即使未超出本查询的预算也预留失败
+ * 并行聚合的各工作线程共用查询的预算
+ */
+public class MemoryBudget {
+    private static final MemoryBudget UNLIMITED = new MemoryBudget(null, Long.MAX_VALUE);
+
+    private final MemoryManager manager;
+    private final long limit;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong peak = new AtomicLong();
+
+    MemoryBudget(MemoryManager manager, long limit) {
+        this.manager = manager;
+        this.limit = limit;
+    }
+
+    /**
+     * 不限制内存的预算，用于不经过准入控制的语句
+     */
+    public static MemoryBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * 预留bytes字节，超出预算时不预留并返回false
+     */
+    public boolean tryReserve(long bytes) {
+        while (true) {
+            long current = used.get();
+            if (current + bytes > limit) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + bytes)) {
+                break;
+            }
+        }
+        if (manager != null && !manager.tryReserve(bytes)) {
+            used.addAndGet(-bytes);
+            return false;
+        }
+        peak.accumulateAndGet(used.get(), Math::max);
+        return true;
+    }
+
+    /**
+     * 预留bytes字节，超出预算时抛出MemoryLimitException
+     */
+    public void reserve(long bytes, String purpose) {
+        if (!tryReserve(bytes)) {
+            throw new MemoryLimitException("Query exceeded its memory budget of " + limit + " bytes, or the memory"
+                    + " shared by all queries is exhausted (" + purpose + ")");
+        }
+    }
+
+    public void release(long bytes) {
+        used.addAndGet(-bytes);
+        if (manager != null) {
+            manager.release(bytes);
+        }
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * 执行期间同时预留的最大字节数
+     */
+    public long getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * 查询结束，把预算归还给内存管理器
+     */
+    void close() {
+        if (manager != null) {
+            manager.release(this);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package compiler.execution;
+
+/**
+ * 查询内存不足：超出查询的内存预算且无法溢写到磁盘，或在准入队列中等待预算超时
+ */
+public class MemoryLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public MemoryLimitException(String message) {
+        super(message);
+    }
+}
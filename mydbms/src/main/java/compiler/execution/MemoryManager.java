@@ -0,0 +1,149 @@
+package compiler.execution;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 查询内存管理 - 查询在预算之内用tryReserve/reserve预留内存，预留同时计入总量，所有查询实际预留之和不超过总量；
+ * 每条查询的预留不超过perQuery，超出时（或总量用尽时）溢写或失败，不会耗尽整个堆
+ * 准入按实际预留判断：未预留的内存不少于perQuery的1/4时新查询直接执行，不按固定的名额限制并发数；
+ * 否则新查询按到达顺序排队，等其他查询归还内存，等待超时则查询失败
+ *
+ * 系统属性：
+ *   -DqueryMemory.total=...               所有查询的预算总量（字节），默认为最大堆的一半
+ *   -DqueryMemory.perQuery=...            每条查询最多预留的内存（字节），默认为总量的1/4
+ *   -DqueryMemory.admissionTimeout=60000  在准入队列中等待的最长时间（毫秒）
+ */
+public class MemoryManager {
+    public static final long DEFAULT_ADMISSION_TIMEOUT_MILLIS = 60_000;
+
+    private final long total;
+    private final long perQuery;
+    private final long admissionFree;
+    private final long admissionTimeoutMillis;
+    // 所有查询实际预留的字节数
+    private final AtomicLong reserved = new AtomicLong();
+    // 排队的查询，队首的查询在有足够空闲内存时先被准入
+    private final Deque<Object> waiting = new ArrayDeque<>();
+    private volatile int queued;
+    private int running;
+
+    public MemoryManager() {
+        this(Long.getLong("queryMemory.total", Runtime.getRuntime().maxMemory() / 2));
+    }
+
+    private MemoryManager(long total) {
+        this(total, Long.getLong("queryMemory.perQuery", total / 4),
+                Long.getLong("queryMemory.admissionTimeout", DEFAULT_ADMISSION_TIMEOUT_MILLIS));
+    }
+
+    public MemoryManager(long total, long perQuery, long admissionTimeoutMillis) {
+        this.total = Math.max(total, 1);
+        this.perQuery = Math.max(Math.min(perQuery, this.total), 1);
+        this.admissionFree = Math.max(this.perQuery / 4, 1);
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+    }
+
+    /**
+     * 准入一条查询；空闲内存不足时排队等待，超时或被中断时抛出MemoryLimitException
+     */
+    public synchronized MemoryBudget admit() {
+        Object ticket = new Object();
+        waiting.add(ticket);
+        queued++;
+        long start = System.currentTimeMillis();
+        long deadline = start + admissionTimeoutMillis;
+        boolean blocked = false;
+        try {
+            while (waiting.peek() != ticket || reserved.get() + admissionFree > total) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new MemoryLimitException("Timed out after " + admissionTimeoutMillis
+                            + " ms waiting for query memory (" + running + " queries running, "
+                            + reserved.get() + " bytes reserved)");
+                }
+                blocked = true;
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MemoryLimitException("Interrupted while waiting for query memory");
+        } finally {
+            waiting.remove(ticket);
+            queued--;
+            // 队首变化，后面的查询可能可以准入
+            notifyAll();
+        }
+        running++;
+        if (blocked) {
+            System.out.println("准入控制：等待 " + (System.currentTimeMillis() - start) + " ms 后取得查询内存");
+        }
+        return new MemoryBudget(this, perQuery);
+    }
+
+    /**
+     * 在总量中预留bytes字节，总量不足时不预留并返回false
+     */
+    boolean tryReserve(long bytes) {
+        while (true) {
+            long current = reserved.get();
+            if (current + bytes > total) {
+                return false;
+            }
+            if (reserved.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long bytes) {
+        reserved.addAndGet(-bytes);
+        // 先减少预留再检查排队数，与admit中先排队再检查预留配合，不会错过唤醒
+        if (queued > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 查询结束，归还它仍未释放的内存
+     */
+    void release(MemoryBudget budget) {
+        long used = budget.getUsed();
+        synchronized (this) {
+            running--;
+        }
+        release(used);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getPerQuery() {
+        return perQuery;
+    }
+
+    /**
+     * 所有查询实际预留的字节数
+     */
+    public long getReserved() {
+        return reserved.get();
+    }
+
+    /**
+     * 正在执行的查询数
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * 在准入队列中等待的查询数
+     */
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+}
@@ -0,0 +1,338 @@
+package compiler.execution;
+
+import org.dom4j.DocumentException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 并行表扫描 - 以段文件为单位（morsel），在共享的ForkJoinPool上并行读取段文件并求值过滤条件；
+ * 同时在途的段不超过并行度，因此共享线程池中一个查询最多占用并行度个线程，也限制了尚未消费的结果占用的内存
+ * 需要保持顺序时按段号顺序交付（行号与串行扫描相同），否则按完成顺序交付（行号为段内行号）；
+ * 段过滤器和行访问回调只在调用线程上执行，回调返回false时取消尚未完成的段
+ * 聚合查询使用aggregate：每个工作线程把处理的段聚合到线程自己的部分聚合器中，最后由调用线程合并
+ * 工作线程读完一个段后把行数计入语句的处理行数并检查语句是否被取消，取消时扫描以QueryCancelledException结束
+ */
+public class ParallelScanner {
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    // 所有查询共享的扫描线程池，线程数通过 -DscanThreads 指定
+    private static final ForkJoinPool POOL = new ForkJoinPool(Integer.getInteger("scanThreads", DEFAULT_PARALLELISM));
+
+    private final XmlTableReader reader;
+    private final int parallelism;
+    private final RunningStatement statement;
+    private volatile boolean cancelled;
+    private long filterNanos;
+    private long matchedRows;
+    private long aggregateNanos;
+    private int segmentsRead;
+
+    public ParallelScanner(XmlTableReader reader, int parallelism) {
+        this(reader, parallelism, null);
+    }
+
+    /**
+     * @param statement 计数和检查取消的语句，为null时不检查
+     */
+    public ParallelScanner(XmlTableReader reader, int parallelism, RunningStatement statement) {
+        this.reader = reader;
+        this.parallelism = Math.max(parallelism, 1);
+        this.statement = statement;
+    }
+
+    /**
+     * 扫描使用的共享线程池
+     */
+    public static ForkJoinPool pool() {
+        return POOL;
+    }
+
+    /**
+     * 一个段在工作线程中的处理结果：通过过滤的行（已聚合时为空）、通过过滤的行数、段的总行数和各阶段耗时
+     */
+    private static final class Morsel {
+        final List<Row> rows;
+        final int matched;
+        final int rowCount;
+        final long filterNanos;
+        final long aggregateNanos;
+
+        Morsel(List<Row> rows, int rowCount, long filterNanos) {
+            this(rows, rows.size(), rowCount, filterNanos, 0);
+        }
+
+        Morsel(List<Row> rows, int matched, int rowCount, long filterNanos, long aggregateNanos) {
+            this.rows = rows;
+            this.matched = matched;
+            this.rowCount = rowCount;
+            this.filterNanos = filterNanos;
+            this.aggregateNanos = aggregateNanos;
+        }
+    }
+
+    /**
+     * 顺序模式下窗口中的一项：被跳过的段（记录行数）或已提交的段
+     */
+    private static final class Pending {
+        final int skippedRows;
+        final Future<Morsel> task;
+
+        Pending(int skippedRows, Future<Morsel> task) {
+            this.skippedRows = skippedRows;
+            this.task = task;
+        }
+    }
+
+    /**
+     * @param segments 按编号升序的段文件
+     * @param filter 段过滤器，为null时读取全部段
+     * @param predicate 在工作线程中求值的过滤条件（必须线程安全），为null时保留全部行
+     * @param ordered 是否按段号顺序交付
+     * @param visitor 在调用线程中接收通过过滤的行
+     */
+    public void scan(List<XmlTableReader.Segment> segments, XmlTableReader.SegmentFilter filter,
+                     Predicate<Row> predicate, boolean ordered, XmlTableReader.RowVisitor visitor)
+            throws DocumentException {
+        if (ordered) {
+            scanOrdered(segments, filter, predicate, visitor);
+        } else {
+            scanUnordered(segments, filter, predicate, visitor);
+        }
+    }
+
+    private void scanOrdered(List<XmlTableReader.Segment> segments, XmlTableReader.SegmentFilter filter,
+                             Predicate<Row> predicate, XmlTableReader.RowVisitor visitor) throws DocumentException {
+        Deque<Pending> window = new ArrayDeque<>();
+        int next = 0;
+        int inFlight = 0;
+        int rowId = 0;
+        try {
+            while (next < segments.size() || !window.isEmpty()) {
+                while (inFlight < parallelism && next < segments.size()) {
+                    XmlTableReader.Segment segment = segments.get(next++);
+                    int skipped = filter != null ? filter.skippableRows(segment) : -1;
+                    if (skipped >= 0) {
+                        window.add(new Pending(skipped, null));
+                    } else {
+                        window.add(new Pending(-1, POOL.submit(() -> process(segment, predicate))));
+                        inFlight++;
+                    }
+                }
+
+                Pending head = window.poll();
+                if (head.task == null) {
+                    rowId += head.skippedRows;
+                    continue;
+                }
+                inFlight--;
+                Morsel morsel = await(head.task);
+                for (Row row : morsel.rows) {
+                    if (!visitor.visit(new Row(rowId + row.getRowId(), row.getValues()))) {
+                        return;
+                    }
+                }
+                rowId += morsel.rowCount;
+            }
+        } finally {
+            cancel(window);
+        }
+    }
+
+    private void scanUnordered(List<XmlTableReader.Segment> segments, XmlTableReader.SegmentFilter filter,
+                               Predicate<Row> predicate, XmlTableReader.RowVisitor visitor) throws DocumentException {
+        CompletionService<Morsel> completion = new ExecutorCompletionService<>(POOL);
+        List<Future<Morsel>> submitted = new ArrayList<>();
+        int next = 0;
+        int inFlight = 0;
+        try {
+            while (next < segments.size() || inFlight > 0) {
+                while (inFlight < parallelism && next < segments.size()) {
+                    XmlTableReader.Segment segment = segments.get(next++);
+                    if (filter == null || filter.skippableRows(segment) < 0) {
+                        submitted.add(completion.submit(() -> process(segment, predicate)));
+                        inFlight++;
+                    }
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+
+                Morsel morsel = await(take(completion));
+                inFlight--;
+                for (Row row : morsel.rows) {
+                    if (!visitor.visit(row)) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            cancelled = true;
+            for (Future<Morsel> task : submitted) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 并行部分聚合：全部段处理完后返回各工作线程的部分聚合器，由调用线程合并
+     * 每个部分聚合器只被它所属的线程访问，因此不需要加锁
+     * @param partials 创建部分聚合器（在工作线程中调用）
+     */
+    public List<HashAggregator> aggregate(List<XmlTableReader.Segment> segments, XmlTableReader.SegmentFilter filter,
+                                          Predicate<Row> predicate, Supplier<HashAggregator> partials)
+            throws DocumentException {
+        Map<Thread, HashAggregator> byThread = new ConcurrentHashMap<>();
+        CompletionService<Morsel> completion = new ExecutorCompletionService<>(POOL);
+        List<Future<Morsel>> tasks = new ArrayList<>();
+        int next = 0;
+        int inFlight = 0;
+        try {
+            while (next < segments.size() || inFlight > 0) {
+                while (inFlight < parallelism && next < segments.size()) {
+                    XmlTableReader.Segment segment = segments.get(next++);
+                    if (filter != null && filter.skippableRows(segment) >= 0) {
+                        continue;
+                    }
+                    inFlight++;
+                    tasks.add(completion.submit(() -> {
+                        Morsel morsel = process(segment, predicate);
+                        long start = System.nanoTime();
+                        HashAggregator partial = byThread.computeIfAbsent(Thread.currentThread(), t -> partials.get());
+                        for (Row row : morsel.rows) {
+                            partial.add(row);
+                        }
+                        return new Morsel(new ArrayList<>(), morsel.matched, morsel.rowCount, morsel.filterNanos,
+                                System.nanoTime() - start);
+                    }));
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                await(take(completion));
+                inFlight--;
+            }
+        } catch (DocumentException | RuntimeException e) {
+            cancelled = true;
+            for (Future<Morsel> task : tasks) {
+                task.cancel(false);
+            }
+            for (HashAggregator partial : byThread.values()) {
+                partial.close();
+            }
+            throw e;
+        }
+        return new ArrayList<>(byThread.values());
+    }
+
+    /**
+     * 工作线程中的处理：读取段文件（行号从0开始）并过滤
+     */
+    private Morsel process(XmlTableReader.Segment segment, Predicate<Row> predicate) throws DocumentException {
+        if (cancelled) {
+            return new Morsel(new ArrayList<>(), 0, 0);
+        }
+        List<Row> rows = reader.readSegment(segment.getFile(), 0);
+        if (statement != null) {
+            statement.onRows(rows.size());
+        }
+        if (predicate == null) {
+            return new Morsel(rows, rows.size(), 0);
+        }
+        long start = System.nanoTime();
+        List<Row> matched = new ArrayList<>();
+        for (Row row : rows) {
+            if (predicate.test(row)) {
+                matched.add(row);
+            }
+        }
+        return new Morsel(matched, rows.size(), System.nanoTime() - start);
+    }
+
+    private Future<Morsel> take(CompletionService<Morsel> completion) {
+        try {
+            return completion.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel scan interrupted", e);
+        }
+    }
+
+    /**
+     * 等待一个段的结果，并在调用线程上累计统计；工作线程中的异常原样抛出
+     */
+    private Morsel await(Future<Morsel> task) throws DocumentException {
+        Morsel morsel;
+        try {
+            morsel = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel scan interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // ForkJoinPool把Callable抛出的受检异常包装在RuntimeException中，跨线程时还会再包装一层
+            for (Throwable t = cause; t != null; t = t.getCause()) {
+                if (t instanceof DocumentException) {
+                    throw (DocumentException) t;
+                }
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Parallel scan failed: " + cause, cause);
+        }
+        segmentsRead++;
+        filterNanos += morsel.filterNanos;
+        aggregateNanos += morsel.aggregateNanos;
+        matchedRows += morsel.matched;
+        return morsel;
+    }
+
+    private void cancel(Deque<Pending> window) {
+        cancelled = true;
+        for (Pending pending : window) {
+            if (pending.task != null) {
+                pending.task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 各工作线程求值过滤条件的总耗时
+     */
+    public long getFilterNanos() {
+        return filterNanos;
+    }
+
+    /**
+     * 交付给调用线程的段中通过过滤的行数
+     */
+    public long getMatchedRows() {
+        return matchedRows;
+    }
+
+    /**
+     * 各工作线程做部分聚合的总耗时
+     */
+    public long getAggregateNanos() {
+        return aggregateNanos;
+    }
+
+    /**
+     * 实际读取的段文件个数
+     */
+    public int getSegmentsRead() {
+        return segmentsRead;
+    }
+}
@@ -1,14 +1,55 @@
- package compiler.execution;
+package compiler.execution;
 
+import compiler.Session;
+import compiler.ast.expressions.Expression;
+import compiler.ast.statements.TransactionStatement;
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.IndexInfo;
+import compiler.catalog.IndexType;
+import compiler.catalog.TableSchema;
+import compiler.catalog.TableStatistics;
 import compiler.codegen.*;
+import compiler.index.BPlusTree;
+import compiler.index.BitmapEvaluator;
+import compiler.index.IndexManager;
+import compiler.index.KeyRange;
+import compiler.index.RoaringBitmap;
+import compiler.index.TableIndexes;
+import compiler.index.ZoneMap;
+import compiler.index.ZoneMapManager;
+import compiler.optimizer.QueryRewriter;
+import compiler.transaction.LockManager;
+import compiler.transaction.RedoLog;
+import compiler.transaction.RowVersion;
+import compiler.transaction.Snapshot;
+import compiler.transaction.TableView;
+import compiler.transaction.Transaction;
+import compiler.transaction.TransactionManager;
+import compiler.transaction.VersionStore;
 import function.*;
 import storage.api.StorageEngine;
 import storage.buffer.BufferManager;
 import storage.xml.XmlStorageEngine;
 import storage.paged.PagedStorageEngine;
+import org.dom4j.DocumentException;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 /**
  * 执行计划执行器 - 将执行计划转换为实际的数据库操作
@@ -16,215 +57,1324 @@ import java.util.List;
 public class PlanExecutor {
 
 	private final StorageEngine storage;
+	private final Catalog catalog;
+	private final XmlTableReader tableReader;
+	private final XmlTableWriter tableWriter;
+	private final IndexManager indexManager;
+	private final ZoneMapManager zoneMapManager;
+	// 哈希连接构建侧的内存上限（字节）和外部排序在内存中保留的行数，可通过系统属性调整
+	private final long hashJoinMemoryBytes = Long.getLong("hashJoinMemory", JoinExecutor.DEFAULT_HASH_MEMORY_BYTES);
+	private final int sortMemoryRows = Integer.getInteger("sortMemoryRows", ExternalSorter.DEFAULT_MAX_ROWS_IN_MEMORY);
+	private final int aggregateMemoryGroups = Integer.getInteger("aggregateMemoryGroups", HashAggregator.DEFAULT_MAX_GROUPS);
+	// 语句级读写锁：查询和多版本的INSERT、DELETE共享执行，修改目录的语句和检查点独占执行
+	private final ReadWriteLock statementLock = new ReentrantReadWriteLock(true);
+	// 独占语句在语句锁队列中每次排队的时间（毫秒）
+	private static final long STATEMENT_LOCK_WAIT_MILLIS = 50;
+	private final TransactionManager transactions;
+	// 查询的准入控制和内存预算
+	private final MemoryManager memoryManager = new MemoryManager();
+	// 正在执行的语句，SHOW PROCESSLIST和KILL使用
+	private final ProcessList processes = new ProcessList();
 
 	public PlanExecutor() {
+		this(new Catalog());
+	}
+
+	public PlanExecutor(Catalog catalog) {
+		this(createDefaultStorage(), catalog);
+	}
+
+	public PlanExecutor(StorageEngine storage) {
+		this(storage, new Catalog());
+	}
+
+	public PlanExecutor(StorageEngine storage, Catalog catalog) {
+		this.storage = storage;
+		this.catalog = catalog;
+		this.tableReader = new XmlTableReader();
+		this.tableWriter = new XmlTableWriter(tableReader);
+		this.indexManager = new IndexManager(tableReader);
+		this.zoneMapManager = new ZoneMapManager(tableReader);
+		this.transactions = openTransactions();
+		maybeCheckpoint();
+	}
+
+	private static StorageEngine createDefaultStorage() {
 		// 通过 -Dengine=paged 可切换到页式引擎；默认XML
 		String engine = System.getProperty("engine", "xml");
 		if ("paged".equalsIgnoreCase(engine)) {
-			this.storage = new PagedStorageEngine(new File("./mydatabase"), new BufferManager(128));
 			System.out.println("[Engine] Using PagedStorageEngine");
-		} else {
-			this.storage = new XmlStorageEngine(new BufferManager(64));
-			System.out.println("[Engine] Using XmlStorageEngine");
+			return new PagedStorageEngine(new File(Catalog.DATABASE_ROOT), new BufferManager(128));
 		}
+		System.out.println("[Engine] Using XmlStorageEngine");
+		return new XmlStorageEngine(new BufferManager(64));
 	}
 
-	public PlanExecutor(StorageEngine storage) {
-		this.storage = storage;
+	/**
+	 * XML引擎的事务管理器带重做日志：打开日志并恢复上次退出时没有写入存储引擎的已提交修改
+	 * 日志无法打开或恢复时，已提交的修改在检查点之前只保存在内存中
+	 */
+	private TransactionManager openTransactions() {
+		if (!supportsRowAccess()) {
+			return new TransactionManager();
+		}
+		try {
+			TransactionManager manager = new TransactionManager(new RedoLog(new File(Catalog.DATABASE_ROOT, "redo.log")));
+			int tables = manager.recover(catalog, new TransactionManager.StoredRows() {
+				@Override
+				public int segmentRows(String dbName, String tableName, int segment) throws IOException {
+					try {
+						return tableReader.countRows(dbName, tableName, segment);
+					} catch (DocumentException e) {
+						throw new IOException(e.getMessage(), e);
+					}
+				}
+
+				@Override
+				public int tableRows(String dbName, String tableName) throws IOException {
+					try {
+						return tableReader.countRows(dbName, tableName);
+					} catch (DocumentException e) {
+						throw new IOException(e.getMessage(), e);
+					}
+				}
+			});
+			if (tables > 0) {
+				System.out.println("[Engine] 从重做日志恢复了 " + tables + " 张表的已提交修改");
+			}
+			return manager;
+		} catch (IOException e) {
+			System.out.println("[Engine] 无法使用重做日志：" + e.getMessage());
+			return new TransactionManager();
+		}
+	}
+
+	/**
+	 * 行级访问（索引扫描、WHERE过滤）直接读取XML段文件，仅XML引擎支持
+	 */
+	private boolean supportsRowAccess() {
+		return storage instanceof XmlStorageEngine;
 	}
     
     /**
-     * 执行给定的执行计划
+     * 一条语句的执行状态：所属会话、是否处于EXPLAIN ANALYZE中（只统计结果行数，不输出行）、是否报告过错误，
+     * 以及语句所在的事务、读取使用的快照、已取得的表视图、查询的内存预算和进程列表中的登记项
+     * 执行器被多个会话共享，语句级的状态不能放在执行器的字段中
      */
-    public void execute(ExecutionPlan plan) {
+    private static final class Context {
+        final Session session;
+        boolean analyzing;
+        boolean failed;
+        Transaction transaction;
+        Snapshot snapshot;
+        final Map<String, TableView> views = new HashMap<>();
+        final MemoryBudget memory;
+        final RunningStatement statement;
+
+        Context(Session session, MemoryBudget memory, RunningStatement statement) {
+            this.session = session;
+            this.memory = memory;
+            this.statement = statement;
+        }
+
+        String database() {
+            return session.getDatabase();
+        }
+
+        /**
+         * 输出错误信息，并通知会话的结果接收者
+         */
+        void error(String message) {
+            failed = true;
+            System.out.println(message);
+            if (session.getResultSink() != null) {
+                session.getResultSink().error(message);
+            }
+        }
+    }
+    
+    /**
+     * 在会话中执行给定的执行计划
+     */
+    public void execute(ExecutionPlan plan, Session session) {
+        execute(plan, session, plan != null ? plan.getPlanType() : null);
+    }
+    
+    /**
+     * 在会话中执行给定的执行计划，执行期间以sql登记在进程列表中
+     */
+    public void execute(ExecutionPlan plan, Session session, String sql) {
         if (plan == null) {
             return;
         }
         
+        RunningStatement statement = processes.register(session.getId(), sql, session.getStatementTimeout());
+        try {
+            if (isSessionControl(plan)) {
+                // 事务控制只访问事务管理器，不加语句锁，持有行锁的事务总能结束；
+                // 会话管理语句不访问表，KILL不会排在要取消的语句后面
+                executeLocked(plan, session, MemoryBudget.unlimited(), statement);
+            } else {
+                executeStatement(plan, session, statement);
+            }
+        } finally {
+            processes.unregister(statement);
+        }
+        maybeCheckpoint();
+    }
+    
+    private void executeStatement(ExecutionPlan plan, Session session, RunningStatement statement) {
+        statement.setOperator("等待准入");
+        MemoryBudget memory = admit(Collections.singletonList(plan), session, statement);
+        if (memory == null) {
+            return;
+        }
+        boolean shared = isShared(plan);
+        statement.setOperator("等待语句锁");
+        Lock lock = lockStatement(shared);
+        try {
+            // 独占执行的语句直接读写段文件，先写入可以写回的版本；写入失败时不执行
+            if (shared || checkpointBefore(plan, session, statement)) {
+                executeLocked(plan, session, memory, statement);
+            }
+        } finally {
+            lock.unlock();
+            memory.close();
+        }
+    }
+    
+    /**
+     * 独占语句之前的检查点，写入失败时向语句报告错误并返回false；
+     * DROP DATABASE会丢弃数据库中没有写入的版本，写入失败时仍然执行
+     */
+    private boolean checkpointBefore(ExecutionPlan plan, Session session, RunningStatement statement) {
+        String failure = checkpoint();
+        if (failure == null || plan instanceof DropDatabasePlan) {
+            return true;
+        }
+        new Context(session, MemoryBudget.unlimited(), statement).error("执行失败：已提交的修改" + failure);
+        return false;
+    }
+    
+    private static boolean isSessionControl(ExecutionPlan plan) {
+        return plan instanceof TransactionPlan || plan instanceof KillPlan || plan instanceof SetPlan
+                || plan instanceof ShowProcesslistPlan;
+    }
+    
+    /**
+     * 准入控制：查询在加语句锁之前取得内存预算，空闲内存不足时在这里排队；其他语句不需要预算
+     * 等待超时时报告错误并返回null
+     */
+    private MemoryBudget admit(List<ExecutionPlan> plans, Session session, RunningStatement statement) {
+        for (ExecutionPlan plan : plans) {
+            ExecutionPlan target = plan instanceof ExplainPlan ? ((ExplainPlan) plan).getTarget() : plan;
+            if (target instanceof SelectPlan) {
+                try {
+                    return memoryManager.admit();
+                } catch (MemoryLimitException e) {
+                    new Context(session, MemoryBudget.unlimited(), statement).error("执行失败：" + e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return MemoryBudget.unlimited();
+    }
+    
+    /**
+     * 取得语句锁。锁是公平的：独占语句排队时，之后到达的语句排在它后面，持续到达的查询不会让它一直等下去；
+     * 但独占语句每次只排队STATEMENT_LOCK_WAIT_MILLIS毫秒，超时后让出位置再重新排队——
+     * 持有共享锁的语句可能在等行锁，它等待的事务还要再执行一条语句（例如COMMIT）才能结束
+     */
+    private Lock lockStatement(boolean shared) {
+        if (shared) {
+            statementLock.readLock().lock();
+            return statementLock.readLock();
+        }
+        Lock lock = statementLock.writeLock();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (lock.tryLock(STATEMENT_LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return lock;
+    }
+    
+    /**
+     * 在会话中依次执行一批执行计划，整批只加一次锁，执行期间其他会话的语句不会插入其中
+     * 某条语句出错时不再执行后面的语句，返回出错之前成功执行的语句数
+     */
+    public int executeBatch(List<ExecutionPlan> plans, Session session) {
+        return executeBatch(plans, session, null);
+    }
+    
+    /**
+     * 批量执行，sqls为与计划一一对应的语句文本，执行到哪一条就以哪一条登记在进程列表中（超时也按每条语句计算）
+     */
+    public int executeBatch(List<ExecutionPlan> plans, Session session, List<String> sqls) {
+        if (plans.isEmpty()) {
+            return 0;
+        }
+        RunningStatement statement = processes.register(session.getId(), sqlOf(plans, sqls, 0),
+                session.getStatementTimeout());
+        try {
+            statement.setOperator("等待准入");
+            MemoryBudget memory = admit(plans, session, statement);
+            if (memory == null) {
+                return 0;
+            }
+            boolean shared = true;
+            for (ExecutionPlan plan : plans) {
+                shared &= isShared(plan);
+            }
+            statement.setOperator("等待语句锁");
+            Lock lock = lockStatement(shared);
+            try {
+                if (!shared && !checkpointBefore(plans.get(0), session, statement)) {
+                    return 0;
+                }
+                for (int i = 0; i < plans.size(); i++) {
+                    if (i > 0) {
+                        statement = processes.register(session.getId(), sqlOf(plans, sqls, i),
+                                session.getStatementTimeout());
+                    }
+                    if (!executeLocked(plans.get(i), session, memory, statement)) {
+                        return i;
+                    }
+                }
+                return plans.size();
+            } finally {
+                lock.unlock();
+                memory.close();
+            }
+        } finally {
+            processes.unregister(statement);
+            maybeCheckpoint();
+        }
+    }
+    
+    private static String sqlOf(List<ExecutionPlan> plans, List<String> sqls, int i) {
+        return sqls != null ? sqls.get(i) : plans.get(i).getPlanType();
+    }
+    
+    /**
+     * 请求取消会话中正在执行的语句（与KILL相同），没有正在执行的语句时返回false
+     */
+    public boolean cancel(long sessionId, String reason) {
+        RunningStatement statement = processes.get(sessionId);
+        if (statement == null) {
+            return false;
+        }
+        statement.cancel(reason);
+        return true;
+    }
+    
+    public ProcessList getProcessList() {
+        return processes;
+    }
+    
+    /**
+     * 会话结束：回滚未提交的显式事务
+     */
+    public void closeSession(Session session) {
+        Transaction transaction = session.getTransaction();
+        if (transaction != null) {
+            session.setTransaction(null);
+            transactions.rollback(transaction);
+            System.out.println("会话结束，事务 " + transaction.getId() + " 已回滚");
+        }
+        maybeCheckpoint();
+    }
+    
+    /**
+     * 执行一条语句（调用者已持有需要的语句锁），返回执行中是否没有报告错误
+     */
+    private boolean executeLocked(ExecutionPlan plan, Session session, MemoryBudget memory,
+                                  RunningStatement statement) {
         System.out.println("\n=== 执行SQL语句 ===");
         
+        Context context = new Context(session, memory, statement);
+        context.transaction = session.getTransaction();
+        boolean implicit = false;
+        if (context.transaction == null && writesRows(plan) && supportsRowAccess()) {
+            // 不在显式事务中的INSERT和DELETE自动提交
+            context.transaction = transactions.begin();
+            implicit = true;
+        }
+        context.snapshot = context.transaction != null ? context.transaction.getSnapshot() : transactions.snapshot();
         try {
-            executeInternal(plan);
+            // 等待准入或语句锁期间被取消或已超时
+            statement.check();
+            executeInternal(context, plan);
+        } catch (QueryCancelledException e) {
+            context.error("执行失败：" + e.getMessage());
         } catch (Exception e) {
-            System.out.println("执行失败：" + e.getMessage());
+            context.error("执行失败：" + e.getMessage());
             e.printStackTrace();
         }
+        
+        if (implicit) {
+            if (context.failed) {
+                transactions.rollback(context.transaction);
+            } else {
+                commit(context);
+            }
+        } else if (context.failed && context.transaction != null && writesRows(plan)) {
+            // 修改出错时语句可能只执行了一部分，整个显式事务回滚
+            session.setTransaction(null);
+            transactions.rollback(context.transaction);
+            System.out.println("事务 " + context.transaction.getId() + " 已回滚");
+        }
+        return !context.failed;
     }
     
-    private void executeInternal(ExecutionPlan plan) {
+    /**
+     * 提交语句所在的事务：修改先写入重做日志；写日志失败时事务已回滚，向语句报告错误
+     */
+    private boolean commit(Context context) {
+        try {
+            transactions.commit(context.transaction);
+            return true;
+        } catch (IOException e) {
+            context.error("错误：写入重做日志失败，事务 " + context.transaction.getId() + " 已回滚：" + e.getMessage());
+            return false;
+        }
+    }
+    
+    private static boolean writesRows(ExecutionPlan plan) {
+        if (plan instanceof ExplainPlan) {
+            return writesRows(((ExplainPlan) plan).getTarget());
+        }
+        return plan instanceof InsertPlan || plan instanceof DeletePlan;
+    }
+    
+    /**
+     * 可以共享语句锁的语句：不修改数据和目录的语句、事务控制语句，以及只写版本存储的INSERT和DELETE
+     */
+    private boolean isShared(ExecutionPlan plan) {
+        if (plan instanceof ExplainPlan) {
+            return isShared(((ExplainPlan) plan).getTarget());
+        }
+        if (writesRows(plan)) {
+            return supportsRowAccess();
+        }
+        return plan instanceof SelectPlan || plan instanceof ShowDatabasesPlan
+                || plan instanceof ShowTablesPlan || plan instanceof UseDatabasePlan
+                || plan instanceof TransactionPlan;
+    }
+    
+    /**
+     * 没有语句在执行时把已提交的版本写入存储引擎；有语句在执行时跳过，由之后结束的语句再尝试
+     */
+    private void maybeCheckpoint() {
+        if (!transactions.hasPendingChanges()) {
+            return;
+        }
+        Lock lock = statementLock.writeLock();
+        if (lock.tryLock()) {
+            try {
+                checkpoint();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * 检查点（调用者持有写锁）：按行号删除已提交的DELETE标记的行，再写入存活的行版本，维护方式与直接执行INSERT、DELETE相同
+     * 写入成功的部分才从版本存储中移除；出错的表保留没有写入的修改，读者仍能看到它们，之后的检查点再重试
+     * @return 第一个写入错误，全部写入成功时返回null
+     */
+    private String checkpoint() {
+        String failure = null;
+        for (VersionStore store : transactions.checkpointable()) {
+            try {
+                writeBack(store);
+            } catch (Exception e) {
+                String message = "写入表 " + store.getTableName() + " 失败：" + e.getMessage();
+                System.out.println(message);
+                if (failure == null) {
+                    failure = message;
+                }
+            }
+        }
+        return failure;
+    }
+    
+    /**
+     * 把一张表已提交的修改写入存储引擎，进度随写随记入重做日志：
+     * 每个段文件替换前后各记一次，写入行版本之前记下表的行数，全部写入后再记一次
+     */
+    private void writeBack(VersionStore store) throws Exception {
+        String dbName = store.getDatabaseName();
+        String tableName = store.getTableName();
+        NavigableSet<Integer> deletedRows = store.getDeletedRows();
+        if (!deletedRows.isEmpty()) {
+            try {
+                tableWriter.deleteRows(dbName, tableName, deletedRows, new XmlTableWriter.RewriteListener() {
+                    @Override
+                    public void rewriting(int segment, int rowsAfter, Collection<Integer> rowIds) throws IOException {
+                        transactions.rewriting(store, segment, rowsAfter, rowIds);
+                    }
+
+                    @Override
+                    public void rewritten(Collection<Integer> rowIds) throws IOException {
+                        transactions.applied(store, rowIds, Collections.emptyList());
+                    }
+                });
+            } finally {
+                tableReader.invalidate(dbName, tableName);
+                indexManager.invalidate(dbName, tableName);
+                zoneMapManager.invalidate(dbName, tableName);
+            }
+        }
+        store.removeDeadVersions();
+        List<RowVersion> live = store.getLiveVersions();
+        if (live.isEmpty()) {
+            return;
+        }
+        transactions.inserting(store, tableReader.countRows(dbName, tableName), live);
+        TableSchema schema = catalog.getTableSchema(dbName, tableName);
+        List<RowVersion> written = new ArrayList<>();
+        try {
+            for (RowVersion version : live) {
+                storage.insert(dbName, tableName, version.getColumns(), version.getLiterals());
+                written.add(version);
+                tableReader.invalidate(dbName, tableName);
+                indexManager.onInsert(dbName, tableName);
+                if (schema != null) {
+                    zoneMapManager.onInsert(dbName, schema, version.getColumns(), version.getLiterals());
+                }
+            }
+        } catch (Exception e) {
+            // 已写入的部分仍然要从版本存储中移除，记日志失败不能掩盖原来的错误
+            try {
+                transactions.applied(store, Collections.emptyList(), written);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        transactions.applied(store, Collections.emptyList(), written);
+    }
+    
+    /**
+     * 语句的快照中看到的表，同一语句中多次访问同一张表时看到相同的内容
+     */
+    private TableView view(Context context, String tableName) {
+        if (!supportsRowAccess()) {
+            return TableView.EMPTY;
+        }
+        return context.views.computeIfAbsent(tableName.toLowerCase(),
+                name -> transactions.view(context.database(), tableName, context.snapshot));
+    }
+    
+    private void executeInternal(Context context, ExecutionPlan plan) {
+        if (plan instanceof ExplainPlan) {
+            executeExplain(context, (ExplainPlan) plan);
+            return;
+        }
+        
+        long start = System.nanoTime();
+        long hits = tableReader.getCacheHits();
+        long misses = tableReader.getCacheMisses();
+        
         // 根据执行计划类型分发到具体的执行方法
+        context.statement.setOperator(plan.getPlanType());
         if (plan instanceof CreateDatabasePlan) {
-            executeCreateDatabase((CreateDatabasePlan) plan);
+            executeCreateDatabase(context, (CreateDatabasePlan) plan);
         } else if (plan instanceof UseDatabasePlan) {
-            executeUseDatabase((UseDatabasePlan) plan);
+            executeUseDatabase(context, (UseDatabasePlan) plan);
         } else if (plan instanceof DropDatabasePlan) {
-            executeDropDatabase((DropDatabasePlan) plan);
+            executeDropDatabase(context, (DropDatabasePlan) plan);
         } else if (plan instanceof ShowDatabasesPlan) {
-            executeShowDatabases((ShowDatabasesPlan) plan);
+            executeShowDatabases(context, (ShowDatabasesPlan) plan);
         } else if (plan instanceof ShowTablesPlan) {
-            executeShowTables((ShowTablesPlan) plan);
+            executeShowTables(context, (ShowTablesPlan) plan);
+        } else if (plan instanceof AnalyzeTablePlan) {
+            executeAnalyzeTable(context, (AnalyzeTablePlan) plan);
         } else if (plan instanceof CreateUserPlan) {
-            executeCreateUser((CreateUserPlan) plan);
+            executeCreateUser(context, (CreateUserPlan) plan);
         } else if (plan instanceof CreateTablePlan) {
-            executeCreateTable((CreateTablePlan) plan);
+            executeCreateTable(context, (CreateTablePlan) plan);
         } else if (plan instanceof InsertPlan) {
-            executeInsert((InsertPlan) plan);
+            executeInsert(context, (InsertPlan) plan);
         } else if (plan instanceof SelectPlan) {
-            executeSelect((SelectPlan) plan);
+            executeSelect(context, (SelectPlan) plan);
         } else if (plan instanceof DeletePlan) {
-            executeDelete((DeletePlan) plan);
+            executeDelete(context, (DeletePlan) plan);
+        } else if (plan instanceof CreateIndexPlan) {
+            executeCreateIndex(context, (CreateIndexPlan) plan);
+        } else if (plan instanceof TransactionPlan) {
+            executeTransaction(context, (TransactionPlan) plan);
+        } else if (plan instanceof ShowProcesslistPlan) {
+            executeShowProcesslist(context);
+        } else if (plan instanceof KillPlan) {
+            executeKill(context, (KillPlan) plan);
+        } else if (plan instanceof SetPlan) {
+            executeSet(context, (SetPlan) plan);
         } else {
             System.out.println("未知的执行计划类型：" + plan.getClass().getSimpleName());
         }
         
-        // 递归执行子计划（跳过FilterPlan，它们由父计划处理）
+        // 段文件读取：缓存未命中时才真正读盘
+        long missDelta = tableReader.getCacheMisses() - misses;
+        plan.getStatistics().addLoop(0, System.nanoTime() - start);
+        plan.getStatistics().addPages(missDelta, tableReader.getCacheHits() - hits, missDelta);
+        
+        // 递归执行子计划（跳过FilterPlan和索引扫描计划，它们由父计划处理）
         for (ExecutionPlan child : plan.getChildren()) {
-            if (!(child instanceof FilterPlan)) {
-                executeInternal(child);
+            if (!(child instanceof FilterPlan) && !(child instanceof IndexScanPlan)
+                    && !(child instanceof BitmapScanPlan) && !(child instanceof JoinPlan)
+                    && !ResultCollector.isResultStage(child)) {
+                executeInternal(context, child);
             }
         }
     }
     
-    private void executeCreateDatabase(CreateDatabasePlan plan) {
+    /**
+     * EXPLAIN只输出计划；EXPLAIN ANALYZE先执行（不输出结果行），再输出带运行统计的计划
+     */
+    private void executeExplain(Context context, ExplainPlan plan) {
+        ExecutionPlan target = plan.getTarget();
+        if (plan.isAnalyze()) {
+            context.analyzing = true;
+            try {
+                executeInternal(context, target);
+            } finally {
+                context.analyzing = false;
+            }
+        }
+        System.out.println("执行计划：");
+        System.out.print(target.toExplainString());
+    }
+    
+    private void executeCreateDatabase(Context context, CreateDatabasePlan plan) {
         System.out.println("执行：创建数据库 " + plan.getDatabaseName());
         try {
             storage.createDatabase(plan.getDatabaseName());
         } catch (Exception e) {
-            System.out.println("创建数据库失败：" + e.getMessage());
+            context.error("创建数据库失败：" + e.getMessage());
         }
     }
     
-    private void executeUseDatabase(UseDatabasePlan plan) {
+    private void executeUseDatabase(Context context, UseDatabasePlan plan) {
         System.out.println("执行：使用数据库 " + plan.getDatabaseName());
-        UseDatabase.dbName = plan.getDatabaseName();
         
-        // 检查数据库是否存在
-        if (!IsLegal.isDatabase()) {
-            System.out.println("错误：数据库 " + plan.getDatabaseName() + " 不存在");
-            UseDatabase.dbName = null;
+        // 检查数据库是否存在；只切换本会话的当前数据库
+        if (!Catalog.databaseExists(plan.getDatabaseName())) {
+            context.error("错误：数据库 " + plan.getDatabaseName() + " 不存在");
+            context.session.setDatabase(null);
         } else {
+            context.session.setDatabase(plan.getDatabaseName());
             System.out.println("已切换到数据库：" + plan.getDatabaseName());
         }
     }
     
-    private void executeDropDatabase(DropDatabasePlan plan) {
+    private void executeDropDatabase(Context context, DropDatabasePlan plan) {
         System.out.println("执行：删除数据库 " + plan.getDatabaseName());
         try {
             DropDatabase.deleteDB(plan.getDatabaseName());
+            catalog.dropDatabase(plan.getDatabaseName());
+            transactions.dropDatabase(plan.getDatabaseName());
+            if (plan.getDatabaseName().equalsIgnoreCase(context.database())) {
+                context.session.setDatabase(null);
+            }
+            tableReader.invalidateDatabase(plan.getDatabaseName());
+            indexManager.invalidateDatabase(plan.getDatabaseName());
+            zoneMapManager.invalidateDatabase(plan.getDatabaseName());
         } catch (Exception e) {
-            System.out.println("删除数据库失败：" + e.getMessage());
+            context.error("删除数据库失败：" + e.getMessage());
         }
     }
     
-    private void executeShowDatabases(ShowDatabasesPlan plan) {
+    private void executeShowDatabases(Context context, ShowDatabasesPlan plan) {
         System.out.println("执行：显示所有数据库");
         System.out.println("数据库列表：");
         ShowDatabases.showDatabase();
     }
     
-    private void executeShowTables(ShowTablesPlan plan) {
+    private void executeShowTables(Context context, ShowTablesPlan plan) {
         System.out.println("执行：显示所有表");
-        if (UseDatabase.dbName == null) {
-            System.out.println("错误：请先使用 USE DATABASE 选择数据库");
+        if (context.database() == null) {
+            context.error("错误：请先使用 USE DATABASE 选择数据库");
             return;
         }
-        System.out.println("数据库 " + UseDatabase.dbName + " 中的表：");
+        System.out.println("数据库 " + context.database() + " 中的表：");
         try {
-            for (String t : storage.listTables(UseDatabase.dbName)) {
+            for (String t : storage.listTables(context.database())) {
                 System.out.println(t);
             }
         } catch (Exception e) {
-            System.out.println("显示表失败：" + e.getMessage());
+            context.error("显示表失败：" + e.getMessage());
         }
     }
     
-    private void executeCreateUser(CreateUserPlan plan) {
+    private void executeCreateUser(Context context, CreateUserPlan plan) {
         System.out.println("执行：创建用户");
         try {
             CreateUser.createUser();
         } catch (Exception e) {
-            System.out.println("创建用户失败：" + e.getMessage());
+            context.error("创建用户失败：" + e.getMessage());
         }
     }
     
-    private void executeCreateTable(CreateTablePlan plan) {
+    private void executeCreateTable(Context context, CreateTablePlan plan) {
         System.out.println("执行：创建表 " + plan.getTableName());
         
         // 检查是否已选择数据库
-        if (UseDatabase.dbName == null) {
-            System.out.println("错误：请先使用 USE DATABASE 选择数据库");
+        if (context.database() == null) {
+            context.error("错误：请先使用 USE DATABASE 选择数据库");
             return;
         }
         
         try {
-            storage.createTable(UseDatabase.dbName, plan.getTableName(), plan.getColumnDefinitions());
+            storage.createTable(context.database(), plan.getTableName(), plan.getColumnDefinitions());
+            TableSchema schema = catalog.getTableSchema(context.database(), plan.getTableName());
+            if (schema != null && schema.getPrimaryKey() != null && supportsRowAccess()) {
+                // 存储引擎的配置文件不记录主键，保存到索引文件中供布隆过滤器使用
+                catalog.saveIndexes(context.database(), plan.getTableName());
+            }
         } catch (Exception e) {
-            System.out.println("创建表失败：" + e.getMessage());
+            context.error("创建表失败：" + e.getMessage());
         }
     }
     
-    private void executeInsert(InsertPlan plan) {
+    private void executeInsert(Context context, InsertPlan plan) {
         System.out.println("执行：插入数据到表 " + plan.getTableName());
         
         // 检查是否已选择数据库
-        if (UseDatabase.dbName == null) {
-            System.out.println("错误：请先使用 USE DATABASE 选择数据库");
+        if (context.database() == null) {
+            context.error("错误：请先使用 USE DATABASE 选择数据库");
             return;
         }
         
         try {
             List<String> columns = plan.getColumns();
             List<String> values = plan.getValues();
-            storage.insert(UseDatabase.dbName, plan.getTableName(), columns, values);
+            if (context.transaction != null) {
+                // 新行先作为所属事务的版本保存，提交且对所有快照可见后由检查点写入存储引擎
+                TableSchema schema = catalog.getTableSchema(context.database(), plan.getTableName());
+                if (schema == null) {
+                    context.error("错误：表 " + plan.getTableName() + " 不存在");
+                    return;
+                }
+                String invalid = validateInsert(schema, columns, values);
+                if (invalid != null) {
+                    context.error("插入数据失败：" + invalid);
+                    return;
+                }
+                transactions.getLockManager().lock(context.transaction,
+                        LockManager.table(context.database(), plan.getTableName()), LockManager.Mode.IX);
+                VersionStore store = transactions.store(context.database(), plan.getTableName());
+                store.insert(new RowVersion(schema, columns, values, context.transaction.getId()));
+                context.transaction.touch(store);
+                return;
+            }
+            storage.insert(context.database(), plan.getTableName(), columns, values);
         } catch (Exception e) {
-            System.out.println("插入数据失败：" + e.getMessage());
+            context.error("插入数据失败：" + e.getMessage());
         }
     }
     
-    private void executeSelect(SelectPlan plan) {
+    /**
+     * 在语句执行时按当前的表结构检查要插入的行：列存在、值的个数、类型和长度、NOT NULL列都有值。
+     * 版本要到检查点才交给存储引擎，不合法的行要在这里拒绝，不能等到提交之后
+     * @return 不合法的原因，合法时返回null
+     */
+    private static String validateInsert(TableSchema schema, List<String> columns, List<String> values) {
+        List<ColumnInfo> targets = new ArrayList<>();
+        if (columns == null || columns.isEmpty()) {
+            targets.addAll(schema.getColumns());
+        } else {
+            for (String name : columns) {
+                ColumnInfo column = schema.getColumn(name);
+                if (column == null) {
+                    return "Column '" + name + "' does not exist";
+                }
+                targets.add(column);
+            }
+            for (ColumnInfo column : schema.getColumns()) {
+                if (column.isNotNull() && !targets.contains(column)) {
+                    return "NOT NULL column '" + column.getName() + "' requires a value";
+                }
+            }
+        }
+        if (targets.size() != values.size()) {
+            return "Expected " + targets.size() + " values, but got " + values.size();
+        }
+        for (int i = 0; i < values.size(); i++) {
+            ColumnInfo column = targets.get(i);
+            String literal = values.get(i);
+            boolean quoted = literal.length() >= 2 && literal.startsWith("'") && literal.endsWith("'");
+            boolean compatible;
+            switch (column.getDataType()) {
+                case VARCHAR:
+                case CHAR:
+                    compatible = quoted;
+                    if (quoted && column.getSize() != null && literal.length() - 2 > column.getSize()) {
+                        return "Value " + literal + " is too long for column '" + column.getName() + "'";
+                    }
+                    break;
+                case BOOLEAN:
+                    compatible = "TRUE".equalsIgnoreCase(literal) || "FALSE".equalsIgnoreCase(literal);
+                    break;
+                default:
+                    compatible = !quoted && column.parseValue(literal) != null;
+                    break;
+            }
+            if (!compatible) {
+                return "Value " + literal + " does not match the type of column '" + column.getName() + "'";
+            }
+        }
+        return null;
+    }
+    
+    private void executeSelect(Context context, SelectPlan plan) {
         System.out.println("执行：查询数据从表 " + plan.getTableName());
         
         // 检查是否已选择数据库
-        if (UseDatabase.dbName == null) {
-            System.out.println("错误：请先使用 USE DATABASE 选择数据库");
+        if (context.database() == null) {
+            context.error("错误：请先使用 USE DATABASE 选择数据库");
             return;
         }
         
         try {
+            IndexScanPlan indexScan = null;
+            BitmapScanPlan bitmapScan = null;
+            FilterPlan filter = null;
+            JoinPlan join = null;
+            for (ExecutionPlan child : plan.getChildren()) {
+                if (child instanceof JoinPlan) {
+                    join = (JoinPlan) child;
+                } else if (child instanceof IndexScanPlan) {
+                    indexScan = (IndexScanPlan) child;
+                } else if (child instanceof BitmapScanPlan) {
+                    bitmapScan = (BitmapScanPlan) child;
+                } else if (child instanceof FilterPlan) {
+                    filter = (FilterPlan) child;
+                }
+            }
+            
+            // 条件被重写为恒假时不访问存储
+            if (filter != null && QueryRewriter.isFalse(filter.getExpression())) {
+                System.out.println("WHERE条件恒为假，跳过扫描");
+                TableSchema schema = join != null ? newJoinExecutor(context).outputSchema(join)
+                        : catalog.getTableSchema(context.database(), plan.getTableName());
+                try (ResultCollector output = newCollector(context, schema, plan)) {
+                    finishRows(context, output);
+                }
+                return;
+            }
+            
+            if (join != null) {
+                if (!supportsRowAccess()) {
+                    context.error("错误：当前存储引擎不支持连接查询");
+                    return;
+                }
+                selectJoinedRows(context, plan, join, filter);
+                return;
+            }
+            
+            boolean resultStages = ResultCollector.needed(plan);
+            if (resultStages && !supportsRowAccess()) {
+                context.error("错误：当前存储引擎不支持聚合、ORDER BY和LIMIT");
+                return;
+            }
+            
+            // 有索引扫描、WHERE条件、聚合、排序或LIMIT，结果要交给接收者，或快照与段文件不一致时按行读取并过滤
+            if (supportsRowAccess() && (indexScan != null || bitmapScan != null || resultStages
+                    || (filter != null && filter.getExpression() != null)
+                    || context.session.getResultSink() != null
+                    || !view(context, plan.getTableName()).isEmpty())) {
+                selectRows(context, plan, indexScan, bitmapScan, filter);
+                return;
+            }
+            
             // 准备查询参数
             List<String> columns = null;
             if (!plan.isSelectAll()) {
                 columns = plan.getSelectColumns();
             }
             
-            storage.select(UseDatabase.dbName, plan.getTableName(), columns);
+            storage.select(context.database(), plan.getTableName(), columns);
         } catch (Exception e) {
-            System.out.println("查询数据失败：" + e.getMessage());
+            context.error("查询数据失败：" + e.getMessage());
         }
     }
     
-    private void executeDelete(DeletePlan plan) {
+    private void executeDelete(Context context, DeletePlan plan) {
         System.out.println("执行：删除数据从表 " + plan.getTableName());
         
         // 检查是否已选择数据库
-        if (UseDatabase.dbName == null) {
-            System.out.println("错误：请先使用 USE DATABASE 选择数据库");
+        if (context.database() == null) {
+            context.error("错误：请先使用 USE DATABASE 选择数据库");
             return;
         }
         
         try {
             // 获取WHERE条件（如果有子计划）
+            FilterPlan filter = null;
             String whereCondition = null;
             for (ExecutionPlan child : plan.getChildren()) {
                 if (child instanceof FilterPlan) {
-                    whereCondition = ((FilterPlan) child).getCondition();
+                    if (QueryRewriter.isFalse(((FilterPlan) child).getExpression())) {
+                        System.out.println("WHERE条件恒为假，未删除任何行");
+                        return;
+                    }
+                    filter = (FilterPlan) child;
+                    whereCondition = filter.getCondition();
                     break;
                 }
             }
             
-            storage.delete(UseDatabase.dbName, plan.getTableName(), whereCondition);
+            if (context.transaction != null) {
+                deleteVersions(context, plan, filter);
+                return;
+            }
+            storage.delete(context.database(), plan.getTableName(), whereCondition);
+            tableReader.invalidate(context.database(), plan.getTableName());
+            indexManager.invalidate(context.database(), plan.getTableName());
+            zoneMapManager.invalidate(context.database(), plan.getTableName());
         } catch (Exception e) {
-            System.out.println("删除数据失败：" + e.getMessage());
+            context.error("删除数据失败：" + e.getMessage());
         }
     }
+    
+    /**
+     * 多版本删除：在事务的快照中求值WHERE条件，对满足条件的行加排他锁后标记为被本事务删除；
+     * 没有WHERE条件时改为对整张表加排他锁。等到的行已被其他事务删除时出错，由调用者回滚事务
+     */
+    private void deleteVersions(Context context, DeletePlan plan, FilterPlan filter) throws Exception {
+        TableSchema schema = catalog.getTableSchema(context.database(), plan.getTableName());
+        if (schema == null) {
+            context.error("错误：表 " + plan.getTableName() + " 不存在");
+            return;
+        }
+        AdaptiveFilter predicate = AdaptiveFilter.compile(schema, filter != null ? filter.getExpression() : null);
+        long id = context.transaction.getId();
+        String dbName = context.database();
+        String tableName = plan.getTableName();
+        LockManager locks = transactions.getLockManager();
+        boolean tableLock = filter == null;
+        locks.lock(context.transaction, LockManager.table(dbName, tableName),
+                tableLock ? LockManager.Mode.X : LockManager.Mode.IX);
+        VersionStore store = transactions.store(dbName, tableName);
+        context.transaction.touch(store);
+        TableView view = store.view(context.snapshot);
+        
+        int[] deleted = {0};
+        boolean[] conflict = {false};
+        context.statement.setOperator("扫描 " + tableName);
+        tableReader.scan(dbName, tableName, context.statement.track(row -> {
+            if (view.isHidden(row.getRowId()) || !matches(filter, predicate, row)) {
+                return true;
+            }
+            if (!tableLock) {
+                locks.lock(context.transaction, LockManager.row(dbName, tableName, row.getRowId()), LockManager.Mode.X);
+            }
+            if (!store.deleteRow(row.getRowId(), id)) {
+                conflict[0] = true;
+                return false;
+            }
+            deleted[0]++;
+            return true;
+        }));
+        List<Row> rows = view.getRows();
+        for (int i = 0; i < rows.size() && !conflict[0]; i++) {
+            context.statement.onRow();
+            if (matches(filter, predicate, rows.get(i))) {
+                RowVersion version = view.getVersions().get(i);
+                if (!tableLock) {
+                    locks.lock(context.transaction, LockManager.row(dbName, tableName, -version.getId()),
+                            LockManager.Mode.X);
+                }
+                if (!store.deleteVersion(version, id)) {
+                    conflict[0] = true;
+                } else {
+                    deleted[0]++;
+                }
+            }
+        }
+        if (conflict[0]) {
+            context.error("错误：要删除的行已被并发事务删除");
+            return;
+        }
+        System.out.println("删除 " + deleted[0] + " 行");
+    }
+    
+    /**
+     * BEGIN、COMMIT、ROLLBACK：显式事务保存在会话中，事务中的查询都读取BEGIN时的快照
+     */
+    private void executeTransaction(Context context, TransactionPlan plan) {
+        if (!supportsRowAccess()) {
+            context.error("错误：当前存储引擎不支持事务");
+            return;
+        }
+        Transaction transaction = context.session.getTransaction();
+        switch (plan.getAction()) {
+            case BEGIN:
+                if (transaction != null) {
+                    context.error("错误：事务 " + transaction.getId() + " 尚未结束");
+                    return;
+                }
+                transaction = transactions.begin();
+                context.session.setTransaction(transaction);
+                System.out.println("事务 " + transaction.getId() + " 已开始");
+                break;
+            case COMMIT:
+            case ROLLBACK:
+                if (transaction == null) {
+                    context.error("错误：没有进行中的事务");
+                    return;
+                }
+                context.session.setTransaction(null);
+                if (plan.getAction() == TransactionStatement.Action.COMMIT) {
+                    context.transaction = transaction;
+                    if (commit(context)) {
+                        System.out.println("事务 " + transaction.getId() + " 已提交");
+                    }
+                } else {
+                    transactions.rollback(transaction);
+                    System.out.println("事务 " + transaction.getId() + " 已回滚");
+                }
+                break;
+        }
+    }
+    
+    /**
+     * SHOW PROCESSLIST：各会话正在执行的语句、已执行的时间、当前阶段和处理的行数
+     */
+    private void executeShowProcesslist(Context context) {
+        System.out.println("执行：显示正在执行的语句");
+        List<String> columns = Arrays.asList("Id", "Time", "State", "Rows", "Info");
+        List<List<String>> rows = new ArrayList<>();
+        for (RunningStatement statement : processes.list()) {
+            rows.add(Arrays.asList(String.valueOf(statement.getId()), String.valueOf(statement.getElapsedMillis()),
+                    statement.isCancelled() ? "正在取消" : statement.getOperator(),
+                    String.valueOf(statement.getRows()), statement.getSql()));
+        }
+        ResultSink sink = context.session.getResultSink();
+        if (sink != null) {
+            sink.columns(columns);
+            rows.forEach(sink::row);
+        } else {
+            System.out.println(String.join("\t", columns));
+            for (List<String> row : rows) {
+                System.out.println(String.join("\t", row));
+            }
+        }
+        System.out.println("共 " + rows.size() + " 行");
+    }
+    
+    /**
+     * KILL：请求取消会话中正在执行的语句，语句在下一次检查时以错误结束
+     */
+    private void executeKill(Context context, KillPlan plan) {
+        RunningStatement target = processes.get(plan.getProcessId());
+        if (target == null || target == context.statement) {
+            context.error("错误：会话 " + plan.getProcessId() + " 没有正在执行的语句");
+            return;
+        }
+        target.cancel("Statement cancelled by KILL from session " + context.session.getId());
+        System.out.println("已请求取消会话 " + plan.getProcessId() + " 的语句：" + target.getSql());
+    }
+    
+    private void executeSet(Context context, SetPlan plan) {
+        // 语法分析只接受STATEMENT_TIMEOUT和PARALLELISM，并行度已检查在int范围内
+        if (plan.getVariable().equals("PARALLELISM")) {
+            context.session.setParallelism((int) plan.getValue());
+            System.out.println("查询并行度：" + context.session.getParallelism());
+            return;
+        }
+        context.session.setStatementTimeout(plan.getValue());
+        System.out.println("语句超时：" + (plan.getValue() > 0 ? plan.getValue() + " ms" : "不限制"));
+    }
+    
+    private void executeAnalyzeTable(Context context, AnalyzeTablePlan plan) {
+        System.out.println("执行：分析表 " + plan.getTableName());
+        
+        // 检查是否已选择数据库
+        if (context.database() == null) {
+            context.error("错误：请先使用 USE DATABASE 选择数据库");
+            return;
+        }
+        if (!supportsRowAccess()) {
+            context.error("错误：当前存储引擎不支持 ANALYZE TABLE");
+            return;
+        }
+        
+        try {
+            TableSchema schema = catalog.getTableSchema(context.database(), plan.getTableName());
+            TableStatistics statistics = new StatisticsCollector(tableReader).collect(context.database(), schema);
+            catalog.saveStatistics(context.database(), plan.getTableName(), statistics);
+            System.out.println("统计信息：" + statistics);
+        } catch (Exception e) {
+            context.error("分析表失败：" + e.getMessage());
+        }
+    }
+    
+    private void executeCreateIndex(Context context, CreateIndexPlan plan) {
+        System.out.println("执行：创建索引 " + plan.getIndexName() + " 于表 " + plan.getTableName());
+        
+        // 检查是否已选择数据库
+        if (context.database() == null) {
+            context.error("错误：请先使用 USE DATABASE 选择数据库");
+            return;
+        }
+        
+        try {
+            TableSchema schema = catalog.getTableSchema(context.database(), plan.getTableName());
+            IndexInfo index = schema.getIndex(plan.getIndexName());
+            catalog.saveIndexes(context.database(), plan.getTableName());
+            if (supportsRowAccess()) {
+                indexManager.onIndexCreated(context.database(), schema, index);
+                if (index.getType() == IndexType.BLOOM) {
+                    zoneMapManager.invalidate(context.database(), plan.getTableName());
+                }
+            }
+            System.out.println("已创建索引：" + index);
+        } catch (Exception e) {
+            context.error("创建索引失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 行级查询：索引范围扫描和/或位图扫描（两者都有时取行号交集）或全表扫描，再用剩余条件过滤，
+     * 通过过滤的行交给聚合、排序和LIMIT
+     */
+    private void selectRows(Context context, SelectPlan plan, IndexScanPlan indexScan, BitmapScanPlan bitmapScan,
+                            FilterPlan filter) throws Exception {
+        TableSchema schema = catalog.getTableSchema(context.database(), plan.getTableName());
+        if (schema == null) {
+            context.error("错误：表 " + plan.getTableName() + " 不存在");
+            return;
+        }
+        
+        Expression condition = filter != null ? filter.getExpression() : null;
+        AdaptiveFilter predicate = AdaptiveFilter.compile(schema, condition);
+        
+        try (ResultCollector output = newCollector(context, schema, plan)) {
+            if (!output.isSatisfied()) {
+                selectRows(context, plan, schema, indexScan, bitmapScan, filter, condition, predicate, output);
+            }
+            if (filter != null) {
+                filter.getStatistics().addLoop(0, 0);
+                reportFilterOrder(predicate);
+            }
+            finishRows(context, output);
+        }
+    }
+    
+    private void selectRows(Context context, SelectPlan plan, TableSchema schema, IndexScanPlan indexScan,
+                            BitmapScanPlan bitmapScan, FilterPlan filter, Expression condition, AdaptiveFilter predicate,
+                            ResultCollector output) throws Exception {
+        // 段文件中被快照可见的事务删除的行跳过，段文件之外的可见版本在最后补充
+        TableView view = view(context, plan.getTableName());
+        if (indexScan != null || bitmapScan != null) {
+            TableIndexes indexes = indexManager.getTableIndexes(context.database(), schema);
+            List<Integer> rowIds = new ArrayList<>();
+            context.statement.setOperator(indexScan != null ? "索引扫描 " + indexScan.getIndex().getName()
+                    : "位图扫描 " + plan.getTableName());
+            if (indexScan != null) {
+                long start = System.nanoTime();
+                BPlusTree tree = indexes.getTree(indexScan.getIndex().getName());
+                int leafPages = tree.rangeScan(indexScan.toKeyRange(), rowIds::add);
+                // 索引页常驻内存，访问的叶子页都算缓冲命中
+                indexScan.getStatistics().addLoop(rowIds.size(), System.nanoTime() - start);
+                indexScan.getStatistics().addPages(leafPages, leafPages, 0);
+                System.out.println("索引扫描：" + indexScan.getIndex().getName() + "，访问叶子页 " + leafPages
+                        + " 个，命中 " + rowIds.size() + " 行");
+            }
+            if (bitmapScan != null) {
+                long start = System.nanoTime();
+                RoaringBitmap bitmap = new BitmapEvaluator(indexes).evaluate(bitmapScan.getCondition());
+                bitmapScan.getStatistics().addLoop(bitmap.getCardinality(), System.nanoTime() - start);
+                System.out.println("位图扫描：" + bitmapScan.getCondition() + "，命中 " + bitmap.getCardinality() + " 行");
+                if (indexScan != null) {
+                    RoaringBitmap treeRows = new RoaringBitmap();
+                    for (int rowId : rowIds) {
+                        treeRows.add(rowId);
+                    }
+                    bitmap = bitmap.and(treeRows);
+                }
+                rowIds = bitmap.toList();
+            }
+            
+            indexes.fetch(rowIds, context.statement.track(row -> view.isHidden(row.getRowId())
+                    || !matches(filter, predicate, row) || addUnchecked(output, row)));
+            System.out.println("取回 " + rowIds.size() + " 行");
+            
+            // 版本行不在索引中，逐行检查索引条件
+            KeyRange range = indexScan != null ? indexScan.toKeyRange() : null;
+            AdaptiveFilter bitmapCondition = bitmapScan != null
+                    ? AdaptiveFilter.compile(schema, bitmapScan.getCondition()) : null;
+            addVersions(context, view, output, row -> (range == null
+                    || range.contains(indexes.encodeKey(indexScan.getIndex(), row)))
+                    && (bitmapCondition == null || bitmapCondition.test(row)) && matches(filter, predicate, row));
+        } else {
+            XmlTableReader.SegmentFilter segmentFilter = null;
+            int[] skipped = {0};
+            List<AccessPathSelector.ColumnPredicate> predicates = new ArrayList<>();
+            for (Expression conjunct : AccessPathSelector.splitConjuncts(condition)) {
+                AccessPathSelector.ColumnPredicate columnPredicate = AccessPathSelector.toColumnPredicate(schema, conjunct);
+                if (columnPredicate != null && ZoneMap.isSummarized(columnPredicate.getColumn())) {
+                    predicates.add(columnPredicate);
+                }
+            }
+            if (!predicates.isEmpty()) {
+                ZoneMap zoneMap = zoneMapManager.getZoneMap(context.database(), schema);
+                segmentFilter = segment -> {
+                    for (AccessPathSelector.ColumnPredicate columnPredicate : predicates) {
+                        if (!zoneMap.mayMatch(segment.getNumber(), columnPredicate.getColumn().getName(),
+                                columnPredicate.getOperator(), columnPredicate.getValue())) {
+                            skipped[0]++;
+                            return zoneMap.getRowCount(segment.getNumber());
+                        }
+                    }
+                    return -1;
+                };
+            }
+            
+            List<XmlTableReader.Segment> segments = tableReader.listSegments(context.database(), plan.getTableName());
+            int parallelism = context.session.getParallelism();
+            if (parallelism > 1 && segments.size() > 1 && view.isEmpty()) {
+                // 各段在工作线程中读取和过滤，聚合和排序不依赖输入顺序时按完成顺序交付
+                context.statement.setOperator("并行扫描 " + plan.getTableName());
+                ParallelScanner scanner = new ParallelScanner(tableReader, parallelism, context.statement);
+                if (output.isAggregating()) {
+                    // 各工作线程先做部分聚合，再在本线程合并
+                    List<HashAggregator> partials = scanner.aggregate(segments, segmentFilter, predicate,
+                            output::newPartialAggregator);
+                    long workerNanos = scanner.getAggregateNanos();
+                    for (HashAggregator partial : partials) {
+                        output.mergePartial(partial, workerNanos);
+                        workerNanos = 0;
+                    }
+                    System.out.println("并行聚合：合并部分聚合结果 " + partials.size() + " 份");
+                } else {
+                    scanner.scan(segments, segmentFilter, predicate, output.isOrderSensitive(),
+                            row -> addUnchecked(output, row));
+                }
+                if (filter != null) {
+                    filter.getStatistics().addTime(scanner.getFilterNanos());
+                    filter.getStatistics().addRows(scanner.getMatchedRows());
+                }
+                System.out.println("并行扫描：读取段文件 " + scanner.getSegmentsRead() + " 个，并行度 " + parallelism
+                        + (output.isOrderSensitive() ? "，按段顺序合并" : "，按完成顺序合并"));
+            } else {
+                context.statement.setOperator("全表扫描 " + plan.getTableName());
+                tableReader.scan(context.database(), plan.getTableName(), segmentFilter,
+                        context.statement.track(row -> view.isHidden(row.getRowId())
+                                || !matches(filter, predicate, row) || addUnchecked(output, row)));
+                addVersions(context, view, output, row -> matches(filter, predicate, row));
+            }
+            if (segmentFilter != null) {
+                System.out.println("区域映射：跳过段文件 " + skipped[0] + " 个");
+            }
+        }
+    }
+    
+    /**
+     * 把快照中可见、满足条件的版本行交给结果收集器
+     */
+    private static void addVersions(Context context, TableView view, ResultCollector output,
+                                    Predicate<Row> condition) {
+        for (Row row : view.getRows()) {
+            if (output.isSatisfied()) {
+                return;
+            }
+            context.statement.onRow();
+            if (condition.test(row) && !addUnchecked(output, row)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * 连接查询：执行连接树，再用跨表的WHERE条件过滤
+     */
+    private void selectJoinedRows(Context context, SelectPlan plan, JoinPlan join, FilterPlan filter) throws Exception {
+        JoinExecutor joinExecutor = newJoinExecutor(context);
+        TableSchema schema = joinExecutor.outputSchema(join);
+        AdaptiveFilter predicate = AdaptiveFilter.compile(schema, filter != null ? filter.getExpression() : null);
+        
+        try (ResultCollector output = newCollector(context, schema, plan)) {
+            if (!output.isSatisfied()) {
+                context.statement.setOperator("连接 " + schema.getTableName());
+                joinExecutor.produce(join, row -> !matches(filter, predicate, row) || addUnchecked(output, row));
+            }
+            if (filter != null) {
+                filter.getStatistics().addLoop(0, 0);
+                reportFilterOrder(predicate);
+            }
+            finishRows(context, output);
+        }
+    }
+    
+    private JoinExecutor newJoinExecutor(Context context) {
+        return new JoinExecutor(catalog, tableReader, indexManager, context.database(),
+                hashJoinMemoryBytes, sortMemoryRows, table -> view(context, table), context.memory,
+                context.statement);
+    }
+    
+    private ResultCollector newCollector(Context context, TableSchema schema, SelectPlan plan) {
+        ResultPrinter printer = new ResultPrinter(schema, plan, context.session.getResultSink(), context.statement,
+                context.analyzing);
+        return new ResultCollector(schema, plan, aggregateMemoryGroups, sortMemoryRows, context.memory, printer);
+    }
+    
+    /**
+     * 在行访问回调中收集结果行，返回false时扫描提前结束；排序溢写的IO异常包装为UncheckedIOException
+     */
+    private static boolean addUnchecked(ResultCollector output, Row row) {
+        try {
+            return output.add(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * 求值过滤条件，并把通过的行数和求值耗时计入过滤节点
+     */
+    private boolean matches(FilterPlan filter, AdaptiveFilter predicate, Row row) {
+        if (predicate == null) {
+            return true;
+        }
+        if (filter == null) {
+            return predicate.test(row);
+        }
+        long start = System.nanoTime();
+        boolean matched = predicate.test(row);
+        filter.getStatistics().addTime(System.nanoTime() - start);
+        if (matched) {
+            filter.getStatistics().addRows(1);
+        }
+        return matched;
+    }
+    
+    /**
+     * 输出包含AND/OR的过滤条件最终的求值顺序
+     */
+    private void reportFilterOrder(AdaptiveFilter predicate) {
+        if (predicate != null && predicate.isReorderable()) {
+            System.out.println("自适应过滤：求值顺序 " + predicate + "，执行中调整 " + predicate.getReorders() + " 次");
+        }
+    }
+    
+    /**
+     * 输出聚合和排序的结果（直接输出的行已在扫描时输出）以及总行数
+     */
+    private static void finishRows(Context context, ResultCollector output) throws IOException {
+        context.statement.setOperator("输出结果");
+        output.finish();
+    }
 }
@@ -0,0 +1,40 @@
+package compiler.execution;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 正在执行的语句的登记表，按会话编号索引（一个会话同一时刻只执行一条语句）
+ */
+public class ProcessList {
+    private final Map<Long, RunningStatement> statements = new ConcurrentHashMap<>();
+
+    RunningStatement register(long sessionId, String sql, long timeoutMillis) {
+        RunningStatement statement = new RunningStatement(sessionId, sql, timeoutMillis);
+        statements.put(sessionId, statement);
+        return statement;
+    }
+
+    void unregister(RunningStatement statement) {
+        statements.remove(statement.getId(), statement);
+    }
+
+    /**
+     * 会话中正在执行的语句，没有时为null
+     */
+    public RunningStatement get(long sessionId) {
+        return statements.get(sessionId);
+    }
+
+    /**
+     * 按会话编号排序的全部语句
+     */
+    public List<RunningStatement> list() {
+        List<RunningStatement> list = new ArrayList<>(statements.values());
+        list.sort(Comparator.comparingLong(RunningStatement::getId));
+        return list;
+    }
+}
@@ -0,0 +1,12 @@
+package compiler.execution;
+
+/**
+ * 语句被取消：被KILL，或执行时间超过会话的statement_timeout
+ */
+public class QueryCancelledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public QueryCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,191 @@
+package compiler.execution;
+
+import compiler.catalog.TableSchema;
+import compiler.codegen.AggregatePlan;
+import compiler.codegen.ExecutionPlan;
+import compiler.codegen.LimitPlan;
+import compiler.codegen.SelectPlan;
+import compiler.codegen.SortPlan;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 查询结果的收集 - 通过过滤的行依次经过SELECT计划下的聚合、排序（或LIMIT），
+ * 各阶段的耗时和输出行数计入对应的计划节点；只有LIMIT时取够行数后add返回false，通知上游扫描提前结束
+ * 聚合和排序超出查询的内存预算时溢写到磁盘；没有聚合和排序时结果行在扫描的同时交给输出，不在内存中缓存
+ * 用法：多次add，然后调用一次finish输出剩余的结果，用完后close删除临时文件
+ */
+class ResultCollector implements AutoCloseable {
+    private final TableSchema schema;
+    private final AggregatePlan aggregatePlan;
+    private final SortPlan sortPlan;
+    private final LimitPlan limitPlan;
+    private final HashAggregator aggregator;
+    private final ResultSorter sorter;
+    private final int aggregateMemoryGroups;
+    private final MemoryBudget memory;
+    private final ResultPrinter printer;
+    private int emitted;
+    private int skipped;
+    private boolean stopped;
+
+    ResultCollector(TableSchema schema, SelectPlan plan, int aggregateMemoryGroups, int sortMemoryRows,
+                    MemoryBudget memory, ResultPrinter printer) {
+        AggregatePlan aggregate = null;
+        SortPlan sort = null;
+        LimitPlan limit = null;
+        for (ExecutionPlan child : plan.getChildren()) {
+            if (child instanceof AggregatePlan) {
+                aggregate = (AggregatePlan) child;
+            } else if (child instanceof SortPlan) {
+                sort = (SortPlan) child;
+            } else if (child instanceof LimitPlan) {
+                limit = (LimitPlan) child;
+            }
+        }
+        this.schema = schema;
+        this.aggregatePlan = aggregate;
+        this.sortPlan = sort;
+        this.limitPlan = limit;
+        this.aggregateMemoryGroups = aggregateMemoryGroups;
+        this.memory = memory;
+        this.aggregator = aggregate != null ? new HashAggregator(schema, aggregate, aggregateMemoryGroups, memory) : null;
+        this.sorter = sort != null ? new ResultSorter(schema, sort, sortMemoryRows, memory) : null;
+        this.printer = printer;
+    }
+
+    /**
+     * SELECT计划下是否有需要逐行处理的聚合、排序或LIMIT
+     */
+    static boolean needed(SelectPlan plan) {
+        for (ExecutionPlan child : plan.getChildren()) {
+            if (child instanceof AggregatePlan || child instanceof SortPlan || child instanceof LimitPlan) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isResultStage(ExecutionPlan plan) {
+        return plan instanceof AggregatePlan || plan instanceof SortPlan || plan instanceof LimitPlan;
+    }
+
+    boolean isAggregating() {
+        return aggregator != null;
+    }
+
+    /**
+     * 创建与最终聚合器使用同一计划和内存预算的部分聚合器（并行聚合时每个工作线程一个）
+     */
+    HashAggregator newPartialAggregator() {
+        return new HashAggregator(schema, aggregatePlan, aggregateMemoryGroups, memory);
+    }
+
+    /**
+     * 合并一个部分聚合器，workerNanos为工作线程中做部分聚合的耗时
+     */
+    void mergePartial(HashAggregator partial, long workerNanos) throws IOException {
+        long start = System.nanoTime();
+        try {
+            aggregator.merge(partial);
+        } finally {
+            partial.close();
+        }
+        aggregatePlan.getStatistics().addTime(workerNanos + System.nanoTime() - start);
+    }
+
+    /**
+     * 输出是否依赖输入行的顺序：聚合和排序不依赖，只有LIMIT或直接输出时依赖
+     */
+    boolean isOrderSensitive() {
+        return aggregator == null && sorter == null;
+    }
+
+    /**
+     * 不读任何行就已满足（LIMIT 0），扫描可以直接跳过
+     */
+    boolean isSatisfied() {
+        return aggregator == null && sorter == null && limitPlan != null && limitPlan.getCount() == 0;
+    }
+
+    /**
+     * @return false表示LIMIT已取够，不再需要更多的行
+     */
+    boolean add(Row row) throws IOException {
+        if (aggregator != null) {
+            long start = System.nanoTime();
+            aggregator.add(row);
+            aggregatePlan.getStatistics().addTime(System.nanoTime() - start);
+            return true;
+        }
+        return sortOrLimit(row);
+    }
+
+    private boolean sortOrLimit(Row row) throws IOException {
+        if (sorter != null) {
+            long start = System.nanoTime();
+            sorter.add(row);
+            sortPlan.getStatistics().addTime(System.nanoTime() - start);
+            return true;
+        }
+        if (limitPlan == null) {
+            printer.print(row);
+            return true;
+        }
+        if (skipped < limitPlan.getOffset()) {
+            skipped++;
+        } else if (emitted < limitPlan.getCount()) {
+            printer.print(row);
+            emitted++;
+        }
+        stopped = emitted >= limitPlan.getCount();
+        return !stopped;
+    }
+
+    /**
+     * 结束输入，按顺序输出聚合和排序的结果
+     */
+    void finish() throws IOException {
+        if (aggregator != null) {
+            long start = System.nanoTime();
+            List<Row> groups = aggregator.finish();
+            aggregatePlan.getStatistics().addLoop(groups.size(), System.nanoTime() - start);
+            if (aggregator.getSpilledPartitions() > 0) {
+                System.out.println("哈希聚合：分组数超过 " + aggregateMemoryGroups + "，溢出分区 "
+                        + aggregator.getSpilledPartitions() + " 个");
+            }
+            for (Row group : groups) {
+                sortOrLimit(group);
+            }
+        }
+        if (sorter != null) {
+            long start = System.nanoTime();
+            Iterator<Row> sorted = sorter.sortedIterator();
+            sortPlan.getStatistics().addLoop(sorter.getOutputRows(), System.nanoTime() - start);
+            if (sorter.getSpilledRuns() > 0) {
+                System.out.println("排序：外部排序写出有序段 " + sorter.getSpilledRuns() + " 个");
+            }
+            while (sorted.hasNext()) {
+                printer.print(sorted.next());
+            }
+        } else if (limitPlan != null) {
+            limitPlan.getStatistics().addLoop(emitted, 0);
+            if (stopped && aggregator == null) {
+                System.out.println("LIMIT：已取够 " + emitted + " 行，提前结束扫描");
+            }
+        }
+        printer.finish();
+    }
+
+    @Override
+    public void close() {
+        if (aggregator != null) {
+            aggregator.close();
+        }
+        if (sorter != null) {
+            sorter.close();
+        }
+    }
+}
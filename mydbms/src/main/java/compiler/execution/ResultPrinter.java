@@ -0,0 +1,90 @@
+package compiler.execution;
+
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.SelectPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 查询结果的输出 - 把结果行逐行交给会话的结果接收者，没有接收者时打印到控制台
+ * 没有聚合和排序时结果行在扫描的同时输出，不在内存中缓存；列名在第一行之前（或结束时）输出
+ * EXPLAIN ANALYZE只统计行数，不输出结果
+ */
+class ResultPrinter {
+    private final SelectPlan plan;
+    private final ResultSink sink;
+    private final RunningStatement statement;
+    private final boolean analyzing;
+    private final List<String> columns = new ArrayList<>();
+    private boolean started;
+    private int count;
+
+    ResultPrinter(TableSchema schema, SelectPlan plan, ResultSink sink, RunningStatement statement, boolean analyzing) {
+        this.plan = plan;
+        this.sink = sink;
+        this.statement = statement;
+        this.analyzing = analyzing;
+        if (plan.isSelectAll()) {
+            for (ColumnInfo column : schema.getColumns()) {
+                columns.add(column.getName());
+            }
+        } else {
+            columns.addAll(plan.getSelectColumns());
+        }
+    }
+
+    void print(Row row) {
+        start();
+        if (++count % RunningStatement.CHECK_INTERVAL == 0) {
+            // 结果交给接收者时可能等待客户端读取，输出期间也响应取消
+            statement.check();
+        }
+        if (analyzing) {
+            return;
+        }
+        List<String> values = new ArrayList<>();
+        for (String column : columns) {
+            values.add(row.get(column));
+        }
+        if (sink != null) {
+            sink.row(values);
+            return;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == null) {
+                values.set(i, "NULL");
+            }
+        }
+        System.out.println(String.join("\t", values));
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * 所有结果行输出完毕
+     */
+    void finish() {
+        start();
+        plan.getStatistics().addRows(count);
+        System.out.println("共 " + count + " 行");
+    }
+
+    private void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (analyzing) {
+            return;
+        }
+        if (sink != null) {
+            sink.columns(columns);
+        } else {
+            System.out.println(String.join("\t", columns));
+        }
+    }
+}
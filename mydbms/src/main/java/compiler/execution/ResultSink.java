@@ -0,0 +1,24 @@
+package compiler.execution;
+
+import java.util.List;
+
+/**
+ * 结果接收者 - 会话设置了接收者时，查询结果和执行错误交给它而不是只输出到控制台（例如服务器模式下发送给客户端）
+ * 一条SELECT依次调用一次columns和若干次row；接收者在执行语句的线程中被调用
+ */
+public interface ResultSink {
+    /**
+     * 结果列名
+     */
+    void columns(List<String> columns);
+
+    /**
+     * 一行结果，与列名一一对应，空值为null
+     */
+    void row(List<String> values);
+
+    /**
+     * 语句执行失败的原因（控制台上仍会输出）
+     */
+    void error(String message);
+}
@@ -0,0 +1,162 @@
+package compiler.execution;
+
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.SortPlan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * ORDER BY的执行 - 带LIMIT n OFFSET m且n+m不超过内存预算时，用大小为n+m的大顶堆保留当前最小的n+m行，
+ * 每行只与堆顶比较一次，不对全部输入排序；否则交给ExternalSorter完整排序（超出预算时外部归并）
+ * 输出时跳过前m行；堆中的行按估计的字节数计入查询的内存预算
+ */
+public class ResultSorter implements AutoCloseable {
+    private final Comparator<Row> comparator;
+    private final int limit;
+    private final int offset;
+    private final int keep;
+    private final PriorityQueue<Row> heap;
+    private final ExternalSorter sorter;
+    private final MemoryBudget memory;
+    private long heapBytes;
+
+    public ResultSorter(TableSchema schema, SortPlan plan, int maxRowsInMemory) {
+        this(schema, plan, maxRowsInMemory, MemoryBudget.unlimited());
+    }
+
+    public ResultSorter(TableSchema schema, SortPlan plan, int maxRowsInMemory, MemoryBudget memory) {
+        this.comparator = comparator(schema, plan);
+        this.memory = memory;
+        this.limit = plan.getLimit();
+        this.offset = plan.getOffset();
+        this.keep = plan.hasLimit() ? (int) Math.min((long) limit + offset, Integer.MAX_VALUE) : -1;
+        if (plan.hasLimit() && keep <= maxRowsInMemory) {
+            this.heap = new PriorityQueue<>(Math.max(keep, 1), comparator.reversed());
+            this.sorter = null;
+        } else {
+            this.heap = null;
+            this.sorter = new ExternalSorter(comparator, maxRowsInMemory, memory);
+        }
+    }
+
+    public void add(Row row) throws IOException {
+        if (sorter != null) {
+            sorter.add(row);
+        } else if (heap.size() < keep) {
+            reserve(row);
+            heap.add(row);
+        } else if (keep > 0 && comparator.compare(row, heap.peek()) < 0) {
+            Row evicted = heap.poll();
+            memory.release(evicted.estimateSize());
+            heapBytes -= evicted.estimateSize();
+            reserve(row);
+            heap.add(row);
+        }
+    }
+
+    private void reserve(Row row) {
+        long size = row.estimateSize();
+        memory.reserve(size, "top-N sort");
+        heapBytes += size;
+    }
+
+    /**
+     * 按顺序返回跳过前offset行后的结果，有LIMIT时最多limit行
+     */
+    public Iterator<Row> sortedIterator() throws IOException {
+        if (sorter == null) {
+            List<Row> rows = new ArrayList<>(heap);
+            rows.sort(comparator);
+            return rows.subList(Math.min(offset, rows.size()), rows.size()).iterator();
+        }
+        Iterator<Row> sorted = sorter.sortedIterator();
+        for (int i = 0; i < offset && sorted.hasNext(); i++) {
+            sorted.next();
+        }
+        if (limit == SortPlan.NO_LIMIT) {
+            return sorted;
+        }
+        List<Row> rows = new ArrayList<>();
+        while (rows.size() < limit && sorted.hasNext()) {
+            rows.add(sorted.next());
+        }
+        return rows.iterator();
+    }
+
+    /**
+     * 输出的行数
+     */
+    public long getOutputRows() {
+        long rows = heap != null ? heap.size() : sorter.getRowCount();
+        rows = Math.max(rows - offset, 0);
+        return limit == SortPlan.NO_LIMIT ? rows : Math.min(rows, limit);
+    }
+
+    /**
+     * 是否使用了前N堆
+     */
+    public boolean isTopN() {
+        return heap != null;
+    }
+
+    public int getSpilledRuns() {
+        return sorter != null ? sorter.getSpilledRuns() : 0;
+    }
+
+    @Override
+    public void close() {
+        if (sorter != null) {
+            sorter.close();
+        }
+        memory.release(heapBytes);
+        heapBytes = 0;
+    }
+
+    /**
+     * 按排序键依次比较；键是表中的列时按列类型比较，否则（聚合结果）能解析为数值时按数值比较
+     * NULL排在最前（DESC时最后）
+     */
+    static Comparator<Row> comparator(TableSchema schema, SortPlan plan) {
+        List<String> keys = plan.getKeys();
+        ColumnInfo[] columns = new ColumnInfo[keys.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = schema != null ? schema.getColumn(keys.get(i)) : null;
+        }
+        return (a, b) -> {
+            for (int i = 0; i < columns.length; i++) {
+                Object left = value(columns[i], a.get(keys.get(i)));
+                Object right = value(columns[i], b.get(keys.get(i)));
+                int cmp;
+                if (left == null || right == null) {
+                    cmp = left == null ? (right == null ? 0 : -1) : 1;
+                } else {
+                    cmp = ColumnInfo.compareValues(left, right);
+                }
+                if (cmp != 0) {
+                    return plan.isDescending(i) ? -cmp : cmp;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static Object value(ColumnInfo column, String raw) {
+        if (column != null) {
+            return column.parseValue(raw);
+        }
+        if (raw == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(raw);
+        } catch (NumberFormatException e) {
+            return raw;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package compiler.execution;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 数据行 - 行号加上按列名（大写）索引的原始字符串值
+ * 行号是该行在全表扫描顺序（段文件编号、段内位置）中的序号
+ */
+public class Row {
+    private final int rowId;
+    private final Map<String, String> values;
+
+    public Row(int rowId) {
+        this.rowId = rowId;
+        this.values = new LinkedHashMap<>();
+    }
+
+    /**
+     * 使用给定的列值（不复制），XmlTableReader用它在多次读取之间共享缓存的列值
+     */
+    public Row(int rowId, Map<String, String> values) {
+        this.rowId = rowId;
+        this.values = values;
+    }
+
+    public int getRowId() {
+        return rowId;
+    }
+
+    public void put(String column, String value) {
+        values.put(column.toUpperCase(), value);
+    }
+
+    public String get(String column) {
+        return values.get(column.toUpperCase());
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    /**
+     * 估计这一行占用的堆内存字节数（行对象、映射项和值字符串，列名字符串在行之间共享不计入），用于查询内存预算
+     */
+    public long estimateSize() {
+        long size = 64;
+        for (String value : values.values()) {
+            size += 32 + (value != null ? 40 + 2L * value.length() : 0);
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "Row" + rowId + values;
+    }
+}
@@ -0,0 +1,128 @@
+package compiler.execution;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 正在执行的语句 - SHOW PROCESSLIST中的一项，编号为所在会话的编号
+ * 取消是协作式的：KILL设置取消标记，超时由截止时间判断；扫描循环每处理CHECK_INTERVAL行检查一次，
+ * 发现被取消时抛出QueryCancelledException，语句按执行失败处理（所在的事务回滚）
+ * 等待行锁或准入时不检查，直到取得锁或预算后的第一次检查
+ */
+public class RunningStatement {
+    public static final int CHECK_INTERVAL = 1024;
+
+    private final long id;
+    private final long startMillis;
+    private final long startNanos;
+    private final long timeoutMillis;
+    private final AtomicLong rows = new AtomicLong();
+    private volatile String sql;
+    private volatile String operator;
+    private volatile String cancelReason;
+
+    /**
+     * @param timeoutMillis 执行时间上限，0表示不限制
+     */
+    public RunningStatement(long id, String sql, long timeoutMillis) {
+        this.id = id;
+        this.sql = sql;
+        this.timeoutMillis = timeoutMillis;
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.operator = "开始";
+    }
+
+    /**
+     * 处理了一行；每CHECK_INTERVAL行检查一次是否被取消
+     */
+    public void onRow() {
+        onRows(1);
+    }
+
+    /**
+     * 处理了count行（例如并行扫描读完一个段）
+     */
+    public void onRows(long count) {
+        long before = rows.getAndAdd(count);
+        if (before % CHECK_INTERVAL + count >= CHECK_INTERVAL) {
+            check();
+        }
+    }
+
+    /**
+     * 包装行访问回调：每访问一行计数一次，并按间隔检查是否被取消
+     */
+    public XmlTableReader.RowVisitor track(XmlTableReader.RowVisitor visitor) {
+        return row -> {
+            onRow();
+            return visitor.visit(row);
+        };
+    }
+
+    /**
+     * 被取消或已超时时抛出QueryCancelledException
+     */
+    public void check() {
+        String reason = cancelReason;
+        if (reason == null && timeoutMillis > 0
+                && System.nanoTime() - startNanos > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+            reason = "Statement exceeded statement_timeout of " + timeoutMillis + " ms";
+            cancelReason = reason;
+        }
+        if (reason != null) {
+            throw new QueryCancelledException(reason);
+        }
+    }
+
+    /**
+     * 请求取消，语句在下一次检查时结束
+     */
+    public void cancel(String reason) {
+        if (cancelReason == null) {
+            cancelReason = reason;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelReason != null;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * 当前所处的阶段或正在执行的算子
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    void setOperator(String operator) {
+        this.operator = operator;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 已处理（扫描）的行数
+     */
+    public long getRows() {
+        return rows.get();
+    }
+}
@@ -0,0 +1,75 @@
+package compiler.execution;
+
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.ColumnStatistics;
+import compiler.catalog.TableSchema;
+import compiler.catalog.TableStatistics;
+import org.dom4j.DocumentException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 统计信息收集器 - 为ANALYZE TABLE扫描全表，计算行数、段文件数和各列的统计信息
+ */
+public class StatisticsCollector {
+    public static final int HISTOGRAM_BUCKETS = 16;
+
+    private final XmlTableReader reader;
+
+    public StatisticsCollector(XmlTableReader reader) {
+        this.reader = reader;
+    }
+
+    public TableStatistics collect(String dbName, TableSchema schema) throws DocumentException {
+        Map<String, List<Object>> values = new LinkedHashMap<>();
+        for (ColumnInfo column : schema.getColumns()) {
+            values.put(column.getName(), new ArrayList<>());
+        }
+
+        long[] rowCount = {0};
+        reader.scan(dbName, schema.getTableName(), row -> {
+            rowCount[0]++;
+            for (ColumnInfo column : schema.getColumns()) {
+                Object value = column.parseValue(row.get(column.getName()));
+                if (value != null) {
+                    values.get(column.getName()).add(value);
+                }
+            }
+            return true;
+        });
+
+        int pageCount = reader.listSegments(dbName, schema.getTableName()).size();
+        TableStatistics statistics = new TableStatistics(rowCount[0], pageCount);
+        for (Map.Entry<String, List<Object>> entry : values.entrySet()) {
+            statistics.addColumn(summarize(entry.getKey(), entry.getValue(), rowCount[0]));
+        }
+        return statistics;
+    }
+
+    private static ColumnStatistics summarize(String columnName, List<Object> values, long rowCount) {
+        double nullFraction = rowCount == 0 ? 0.0 : (double) (rowCount - values.size()) / rowCount;
+        if (values.isEmpty()) {
+            return new ColumnStatistics(columnName, 0, nullFraction, null, null, null);
+        }
+
+        values.sort(ColumnInfo::compareValues);
+        long distinct = 1;
+        for (int i = 1; i < values.size(); i++) {
+            if (ColumnInfo.compareValues(values.get(i - 1), values.get(i)) != 0) {
+                distinct++;
+            }
+        }
+
+        // 等深直方图：第b个桶的上界是排序后第 b*n/B 个值
+        List<Object> histogram = new ArrayList<>();
+        int buckets = Math.min(HISTOGRAM_BUCKETS, values.size());
+        for (int b = 1; b <= buckets; b++) {
+            histogram.add(values.get((int) ((long) b * values.size() / buckets) - 1));
+        }
+        return new ColumnStatistics(columnName, distinct, nullFraction,
+                values.get(0), values.get(values.size() - 1), histogram);
+    }
+}
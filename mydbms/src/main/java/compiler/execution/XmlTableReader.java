@@ -0,0 +1,252 @@
+package compiler.execution;
+
+import compiler.catalog.Catalog;
+import org.dom4j.Attribute;
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * XML表读取器 - 按行读取XML存储引擎写出的段文件
+ * 表目录下的数据按编号分段保存（<表名>0.xml, <表名>1.xml, ...，编号规则同 IsLegal.lastFileName），
+ * 每个段文件的根元素下，每个子元素是一行，属性名为列名、属性值为列值。
+ * 解析过的段文件按LRU缓存，文件的修改时间或长度变化、或被显式失效时重新解析；
+ * 命中与未命中次数供EXPLAIN ANALYZE统计缓冲命中情况。
+ * 缓存可被并行扫描的多个线程同时访问：查找和更新在缓存的锁内进行，解析段文件在锁外进行。
+ */
+public class XmlTableReader {
+    public static final int DEFAULT_CACHE_SEGMENTS = 128;
+
+    private final Map<String, CachedSegment> cache;
+    private long cacheHits;
+    private long cacheMisses;
+
+    public XmlTableReader() {
+        this(DEFAULT_CACHE_SEGMENTS);
+    }
+
+    public XmlTableReader(int cacheSegments) {
+        this.cache = new LinkedHashMap<String, CachedSegment>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSegment> eldest) {
+                return size() > cacheSegments;
+            }
+        };
+    }
+
+    /**
+     * 缓存的段文件：解析时文件的修改时间、长度和各行的列值（只读）
+     */
+    private static final class CachedSegment {
+        final long lastModified;
+        final long length;
+        final List<Map<String, String>> rows;
+
+        CachedSegment(long lastModified, long length, List<Map<String, String>> rows) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * 行访问回调，返回false时停止扫描
+     */
+    public interface RowVisitor {
+        boolean visit(Row row);
+    }
+
+    /**
+     * 段过滤器：决定扫描时能否跳过某个段文件
+     */
+    public interface SegmentFilter {
+        /**
+         * @return 可以跳过时返回该段的行数（用于保持后续行号连续），必须读取时返回-1
+         */
+        int skippableRows(Segment segment);
+    }
+
+    /**
+     * 段文件：编号和对应的文件
+     */
+    public static class Segment {
+        private final int number;
+        private final File file;
+
+        public Segment(int number, File file) {
+            this.number = number;
+            this.file = file;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public File getFile() {
+            return file;
+        }
+    }
+
+    /**
+     * 列出表的全部段文件，按编号升序
+     */
+    public List<Segment> listSegments(String dbName, String tableName) {
+        List<Segment> segments = new ArrayList<>();
+        File tableDir = Catalog.tableDirectory(dbName, tableName);
+        File[] files = tableDir.listFiles();
+        if (files == null) {
+            return segments;
+        }
+
+        Pattern pattern = Pattern.compile(Pattern.quote(tableName) + "_?(\\d+)\\.xml", Pattern.CASE_INSENSITIVE);
+        for (File file : files) {
+            Matcher matcher = pattern.matcher(file.getName());
+            if (file.isFile() && matcher.matches()) {
+                segments.add(new Segment(Integer.parseInt(matcher.group(1)), file));
+            }
+        }
+        segments.sort(Comparator.comparingInt(Segment::getNumber));
+        return segments;
+    }
+
+    /**
+     * 读取一个段文件中的全部行，行号从firstRowId开始连续编号
+     */
+    public List<Row> readSegment(File file, int firstRowId) throws DocumentException {
+        String key = file.getAbsolutePath();
+        CachedSegment cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+            if (cached != null && cached.lastModified == file.lastModified() && cached.length == file.length()) {
+                cacheHits++;
+            } else {
+                cacheMisses++;
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            cached = parse(file);
+            synchronized (cache) {
+                cache.put(key, cached);
+            }
+        }
+
+        List<Row> rows = new ArrayList<>(cached.rows.size());
+        int rowId = firstRowId;
+        for (Map<String, String> values : cached.rows) {
+            rows.add(new Row(rowId++, values));
+        }
+        return rows;
+    }
+
+    /**
+     * 表的总行数
+     */
+    public int countRows(String dbName, String tableName) throws DocumentException {
+        int rows = 0;
+        for (Segment segment : listSegments(dbName, tableName)) {
+            rows += readSegment(segment.getFile(), 0).size();
+        }
+        return rows;
+    }
+
+    /**
+     * 段文件的行数，段文件不存在时返回0
+     */
+    public int countRows(String dbName, String tableName, int segmentNumber) throws DocumentException {
+        for (Segment segment : listSegments(dbName, tableName)) {
+            if (segment.getNumber() == segmentNumber) {
+                return readSegment(segment.getFile(), 0).size();
+            }
+        }
+        return 0;
+    }
+
+    private static CachedSegment parse(File file) throws DocumentException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        SAXReader reader = new SAXReader();
+        Document document = reader.read(file);
+
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (Element element : document.getRootElement().elements()) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (Attribute attribute : element.attributes()) {
+                values.put(attribute.getName().toUpperCase(), attribute.getValue());
+            }
+            rows.add(Collections.unmodifiableMap(values));
+        }
+        return new CachedSegment(lastModified, length, rows);
+    }
+
+    /**
+     * 使表的段文件缓存失效（插入、删除之后调用）
+     */
+    public void invalidate(String dbName, String tableName) {
+        String prefix = Catalog.tableDirectory(dbName, tableName).getAbsolutePath() + File.separator;
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    /**
+     * 使整个数据库的段文件缓存失效
+     */
+    public void invalidateDatabase(String dbName) {
+        String prefix = new File(Catalog.DATABASE_ROOT, dbName).getAbsolutePath() + File.separator;
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    public long getCacheHits() {
+        synchronized (cache) {
+            return cacheHits;
+        }
+    }
+
+    public long getCacheMisses() {
+        synchronized (cache) {
+            return cacheMisses;
+        }
+    }
+
+    /**
+     * 全表扫描
+     */
+    public void scan(String dbName, String tableName, RowVisitor visitor) throws DocumentException {
+        scan(dbName, tableName, null, visitor);
+    }
+
+    /**
+     * 全表扫描，跳过过滤器判定为不可能匹配的段文件
+     */
+    public void scan(String dbName, String tableName, SegmentFilter filter, RowVisitor visitor) throws DocumentException {
+        int nextRowId = 0;
+        for (Segment segment : listSegments(dbName, tableName)) {
+            int skipped = filter != null ? filter.skippableRows(segment) : -1;
+            if (skipped >= 0) {
+                nextRowId += skipped;
+                continue;
+            }
+            List<Row> rows = readSegment(segment.getFile(), nextRowId);
+            nextRowId += rows.size();
+            for (Row row : rows) {
+                if (!visitor.visit(row)) {
+                    return;
+                }
+            }
+        }
+    }
+}
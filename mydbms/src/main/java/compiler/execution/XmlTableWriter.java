@@ -0,0 +1,95 @@
+package compiler.execution;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.SAXReader;
+import org.dom4j.io.XMLWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+
+/**
+ * XML表写入器 - 按行号从段文件中删除行，行号与XmlTableReader扫描时的编号相同
+ * 检查点用它删除事务在快照中标记的行，不经过存储引擎按WHERE条件重新求值。
+ * 段文件从后往前处理，删除后面段中的行不改变前面段的行号；每个段先写入临时文件再替换。
+ * 替换每个段文件的前后通知监听器，检查点借此把进度记入重做日志。
+ */
+public class XmlTableWriter {
+    private final XmlTableReader reader;
+
+    public XmlTableWriter(XmlTableReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 段文件替换的监听器
+     */
+    public interface RewriteListener {
+        /**
+         * 替换段文件之前调用：段号、删除后的行数和要删除的行号
+         */
+        void rewriting(int segment, int rowsAfter, Collection<Integer> rowIds) throws IOException;
+
+        /**
+         * 段文件替换之后调用
+         */
+        void rewritten(Collection<Integer> rowIds) throws IOException;
+    }
+
+    /**
+     * 删除给定行号的行（调用者持有独占的语句锁），删除成功的行号从rowIds中移除；
+     * 出错时rowIds中剩下的行号仍然指向段文件中原来的行
+     */
+    public void deleteRows(String dbName, String tableName, NavigableSet<Integer> rowIds, RewriteListener listener)
+            throws DocumentException, IOException {
+        if (rowIds.isEmpty()) {
+            return;
+        }
+        List<XmlTableReader.Segment> segments = reader.listSegments(dbName, tableName);
+        int[] firstRowIds = new int[segments.size() + 1];
+        for (int i = 0; i < segments.size(); i++) {
+            firstRowIds[i + 1] = firstRowIds[i] + reader.readSegment(segments.get(i).getFile(), firstRowIds[i]).size();
+        }
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            NavigableSet<Integer> targets = rowIds.subSet(firstRowIds[i], true, firstRowIds[i + 1], false);
+            if (targets.isEmpty()) {
+                continue;
+            }
+            File file = segments.get(i).getFile();
+            Document document = new SAXReader().read(file);
+            Element root = document.getRootElement();
+            List<Element> rows = new ArrayList<>(root.elements());
+            for (int rowId : targets) {
+                root.remove(rows.get(rowId - firstRowIds[i]));
+            }
+            List<Integer> deleted = new ArrayList<>(targets);
+            listener.rewriting(segments.get(i).getNumber(), rows.size() - deleted.size(), deleted);
+            write(document, file);
+            targets.clear();
+            listener.rewritten(deleted);
+        }
+        if (!rowIds.isEmpty()) {
+            throw new IOException("Rows " + rowIds + " of table '" + tableName + "' no longer exist");
+        }
+    }
+
+    private static void write(Document document, File file) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,415 @@
+package compiler.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * B+树索引 - 键为KeyEncoder编码后的字节串，值为行号
+ * 允许重复键：条目按（键，行号）整体排序；叶子页按链表相连以支持范围扫描
+ * 页内键采用前缀压缩：页中所有键的公共前缀只保存一份，各条目只保存后缀，页内仍可二分查找；
+ * 叶子页分裂时上推的分隔键做后缀截断，只保留足以区分左右两页的最短前缀。
+ * 页的容量同时受条目数和压缩后的字节数限制，键越短（压缩后）扇出越大。
+ */
+public class BPlusTree {
+    public static final int DEFAULT_PAGE_CAPACITY = 256;
+    public static final int DEFAULT_PAGE_BYTES = 4096;
+
+    /** 每个条目除键后缀外的开销：行号4字节、槽位2字节（内部页另有子页指针，一并计入） */
+    private static final int ENTRY_OVERHEAD = 6;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int pageCapacity;
+    private final int pageBytes;
+    private Node root;
+    private int size;
+    private int height;
+
+    public BPlusTree() {
+        this(DEFAULT_PAGE_CAPACITY, DEFAULT_PAGE_BYTES);
+    }
+
+    public BPlusTree(int pageCapacity) {
+        this(pageCapacity, DEFAULT_PAGE_BYTES);
+    }
+
+    public BPlusTree(int pageCapacity, int pageBytes) {
+        if (pageCapacity < 4) {
+            throw new IllegalArgumentException("Page capacity must be at least 4");
+        }
+        this.pageCapacity = pageCapacity;
+        this.pageBytes = pageBytes;
+        this.root = new LeafNode(this);
+        this.size = 0;
+        this.height = 1;
+    }
+
+    /**
+     * 插入一个条目
+     */
+    public void insert(byte[] key, int rowId) {
+        Split split = root.insert(key, rowId);
+        if (split != null) {
+            InnerNode newRoot = new InnerNode(this);
+            newRoot.children[0] = root;
+            newRoot.children[1] = split.right;
+            newRoot.load(new byte[][] {split.key}, new int[] {split.rowId}, 0, 1);
+            root = newRoot;
+            height++;
+        }
+        size++;
+    }
+
+    /**
+     * 范围扫描：按键序把区间内的行号交给consumer
+     * @return 访问的叶子页数
+     */
+    public int rangeScan(KeyRange range, IntConsumer consumer) {
+        // 下降到第一个可能满足下界的叶子页
+        Node node = root;
+        while (node instanceof InnerNode) {
+            InnerNode inner = (InnerNode) node;
+            int i = 0;
+            while (i < inner.count && !range.aboveLow(inner.key(i))) {
+                i++;
+            }
+            node = inner.children[i];
+        }
+
+        LeafNode leaf = (LeafNode) node;
+        int pages = 0;
+        int position = leaf.firstAbove(range);
+        while (leaf != null) {
+            pages++;
+            for (int i = position; i < leaf.count; i++) {
+                if (!range.belowHigh(leaf.key(i))) {
+                    return pages;
+                }
+                consumer.accept(leaf.rowIds[i]);
+            }
+            leaf = leaf.next;
+            position = 0;
+        }
+        return pages;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 全部页压缩后占用的字节数之和
+     */
+    public long getTotalBytes() {
+        return root.totalBytes();
+    }
+
+    /**
+     * 叶子页分裂时的分隔键：right的最短前缀，使 left < 分隔键 <= right
+     * 两键相同（重复键）时无法截断，返回null
+     */
+    static byte[] shortestSeparator(byte[] left, byte[] right) {
+        int length = Math.min(left.length, right.length);
+        int i = 0;
+        while (i < length && left[i] == right[i]) {
+            i++;
+        }
+        if (i == right.length) {
+            return null;
+        }
+        return Arrays.copyOf(right, i + 1);
+    }
+
+    private static int commonPrefix(byte[] a, int aLength, byte[] b) {
+        int length = Math.min(aLength, b.length);
+        int i = 0;
+        while (i < length && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 节点分裂结果：上推的分隔条目和新的右兄弟
+     */
+    private static final class Split {
+        final byte[] key;
+        final int rowId;
+        final Node right;
+
+        Split(byte[] key, int rowId, Node right) {
+            this.key = key;
+            this.rowId = rowId;
+            this.right = right;
+        }
+    }
+
+    private abstract static class Node {
+        final BPlusTree tree;
+        byte[] prefix;
+        final byte[][] suffixes;
+        final int[] rowIds;
+        int count;
+        int suffixBytes;
+
+        Node(BPlusTree tree) {
+            this.tree = tree;
+            this.prefix = EMPTY;
+            this.suffixes = new byte[tree.pageCapacity][];
+            this.rowIds = new int[tree.pageCapacity];
+        }
+
+        abstract Split insert(byte[] key, int rowId);
+
+        abstract long totalBytes();
+
+        /**
+         * 还原第i个完整的键
+         */
+        byte[] key(int i) {
+            byte[] suffix = suffixes[i];
+            byte[] key = Arrays.copyOf(prefix, prefix.length + suffix.length);
+            System.arraycopy(suffix, 0, key, prefix.length, suffix.length);
+            return key;
+        }
+
+        int bytes() {
+            return prefix.length + suffixBytes + count * ENTRY_OVERHEAD;
+        }
+
+        /**
+         * 放入key后页是否超出容量（至少保留3个条目，保证分裂后两侧都不为空）
+         */
+        boolean wouldOverflow(byte[] key) {
+            if (count >= suffixes.length) {
+                return true;
+            }
+            if (count < 3) {
+                return false;
+            }
+            int shared = commonPrefix(prefix, prefix.length, key);
+            int projected = shared + suffixBytes + count * (prefix.length - shared)
+                    + (key.length - shared) + (count + 1) * ENTRY_OVERHEAD;
+            return projected > tree.pageBytes;
+        }
+
+        /**
+         * 第一个大于（键，行号）的位置
+         * 先与页前缀比较一次，页前缀相同时二分查找只比较后缀
+         */
+        int upperBound(byte[] key, int rowId) {
+            int shared = commonPrefix(prefix, prefix.length, key);
+            if (shared < prefix.length) {
+                if (shared == key.length || (key[shared] & 0xFF) < (prefix[shared] & 0xFF)) {
+                    return 0;
+                }
+                return count;
+            }
+
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compareSuffix(suffixes[mid], key, prefix.length);
+                if (cmp == 0) {
+                    cmp = Integer.compare(rowIds[mid], rowId);
+                }
+                if (cmp <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void insertAt(int position, byte[] key, int rowId) {
+            if (count == 0) {
+                prefix = key;
+            }
+            int shared = commonPrefix(prefix, prefix.length, key);
+            if (shared < prefix.length) {
+                shrinkPrefix(shared);
+            }
+            byte[] suffix = Arrays.copyOfRange(key, prefix.length, key.length);
+            System.arraycopy(suffixes, position, suffixes, position + 1, count - position);
+            System.arraycopy(rowIds, position, rowIds, position + 1, count - position);
+            suffixes[position] = suffix;
+            rowIds[position] = rowId;
+            suffixBytes += suffix.length;
+            count++;
+        }
+
+        /**
+         * 用排好序的完整键重新装载本页，页前缀取首尾两键的公共前缀
+         */
+        void load(byte[][] keys, int[] ids, int from, int to) {
+            Arrays.fill(suffixes, null);
+            count = to - from;
+            suffixBytes = 0;
+            prefix = count == 0 ? EMPTY
+                    : Arrays.copyOf(keys[from], commonPrefix(keys[from], keys[from].length, keys[to - 1]));
+            for (int i = 0; i < count; i++) {
+                byte[] key = keys[from + i];
+                suffixes[i] = Arrays.copyOfRange(key, prefix.length, key.length);
+                rowIds[i] = ids[from + i];
+                suffixBytes += suffixes[i].length;
+            }
+        }
+
+        private void shrinkPrefix(int length) {
+            byte[] removed = Arrays.copyOfRange(prefix, length, prefix.length);
+            for (int i = 0; i < count; i++) {
+                byte[] suffix = new byte[removed.length + suffixes[i].length];
+                System.arraycopy(removed, 0, suffix, 0, removed.length);
+                System.arraycopy(suffixes[i], 0, suffix, removed.length, suffixes[i].length);
+                suffixes[i] = suffix;
+            }
+            suffixBytes += count * removed.length;
+            prefix = Arrays.copyOf(prefix, length);
+        }
+
+        private static int compareSuffix(byte[] suffix, byte[] key, int offset) {
+            int length = Math.min(suffix.length, key.length - offset);
+            for (int i = 0; i < length; i++) {
+                int cmp = (suffix[i] & 0xFF) - (key[offset + i] & 0xFF);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return suffix.length - (key.length - offset);
+        }
+    }
+
+    private static final class LeafNode extends Node {
+        LeafNode next;
+
+        LeafNode(BPlusTree tree) {
+            super(tree);
+        }
+
+        /**
+         * 页内第一个满足下界的位置（二分查找）
+         */
+        int firstAbove(KeyRange range) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (range.aboveLow(key(mid))) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+
+        @Override
+        long totalBytes() {
+            return bytes();
+        }
+
+        @Override
+        Split insert(byte[] key, int rowId) {
+            int position = upperBound(key, rowId);
+            if (!wouldOverflow(key)) {
+                insertAt(position, key, rowId);
+                return null;
+            }
+
+            // 页已满：连同新条目对半分裂，右半部分进入新页
+            byte[][] allKeys = new byte[count + 1][];
+            int[] allRowIds = new int[count + 1];
+            for (int i = 0, j = 0; i <= count; i++) {
+                if (i == position) {
+                    allKeys[i] = key;
+                    allRowIds[i] = rowId;
+                } else {
+                    allKeys[i] = key(j);
+                    allRowIds[i] = rowIds[j];
+                    j++;
+                }
+            }
+
+            int half = allKeys.length / 2;
+            LeafNode right = new LeafNode(tree);
+            right.load(allKeys, allRowIds, half, allKeys.length);
+            load(allKeys, allRowIds, 0, half);
+            right.next = next;
+            next = right;
+
+            byte[] separator = shortestSeparator(allKeys[half - 1], allKeys[half]);
+            if (separator == null) {
+                return new Split(allKeys[half], allRowIds[half], right);
+            }
+            return new Split(separator, Integer.MIN_VALUE, right);
+        }
+    }
+
+    private static final class InnerNode extends Node {
+        final Node[] children;
+
+        InnerNode(BPlusTree tree) {
+            super(tree);
+            this.children = new Node[tree.pageCapacity + 1];
+        }
+
+        @Override
+        long totalBytes() {
+            long total = bytes();
+            for (int i = 0; i <= count; i++) {
+                total += children[i].totalBytes();
+            }
+            return total;
+        }
+
+        @Override
+        Split insert(byte[] key, int rowId) {
+            int childIndex = upperBound(key, rowId);
+            Split childSplit = children[childIndex].insert(key, rowId);
+            if (childSplit == null) {
+                return null;
+            }
+
+            if (!wouldOverflow(childSplit.key)) {
+                System.arraycopy(children, childIndex + 1, children, childIndex + 2, count - childIndex);
+                children[childIndex + 1] = childSplit.right;
+                insertAt(childIndex, childSplit.key, childSplit.rowId);
+                return null;
+            }
+
+            // 内部页已满：中间的分隔条目上推，右半部分进入新页
+            byte[][] allKeys = new byte[count + 1][];
+            int[] allRowIds = new int[count + 1];
+            Node[] allChildren = new Node[count + 2];
+            for (int i = 0, j = 0; i <= count; i++) {
+                if (i == childIndex) {
+                    allKeys[i] = childSplit.key;
+                    allRowIds[i] = childSplit.rowId;
+                } else {
+                    allKeys[i] = key(j);
+                    allRowIds[i] = rowIds[j];
+                    j++;
+                }
+            }
+            System.arraycopy(children, 0, allChildren, 0, childIndex + 1);
+            allChildren[childIndex + 1] = childSplit.right;
+            System.arraycopy(children, childIndex + 1, allChildren, childIndex + 2, count - childIndex);
+
+            int middle = allKeys.length / 2;
+            InnerNode right = new InnerNode(tree);
+            right.load(allKeys, allRowIds, middle + 1, allKeys.length);
+            System.arraycopy(allChildren, middle + 1, right.children, 0, right.count + 1);
+
+            Arrays.fill(children, null);
+            load(allKeys, allRowIds, 0, middle);
+            System.arraycopy(allChildren, 0, children, 0, middle + 1);
+
+            return new Split(allKeys[middle], allRowIds[middle], right);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package compiler.index;
+
+import compiler.ast.expressions.BinaryExpression;
+import compiler.ast.expressions.Expression;
+import compiler.ast.expressions.Identifier;
+import compiler.ast.expressions.Literal;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.IndexInfo;
+import compiler.catalog.TableSchema;
+import compiler.lexer.TokenType;
+
+/**
+ * 位图条件求值器 - 把位图索引列上的等值条件及其AND/OR组合求值为行号位图
+ * 条件的形状由访问路径选择器保证，这里遇到无法回答的子表达式时抛出异常
+ */
+public class BitmapEvaluator {
+    private final TableSchema schema;
+    private final TableIndexes indexes;
+
+    public BitmapEvaluator(TableIndexes indexes) {
+        this.schema = indexes.getSchema();
+        this.indexes = indexes;
+    }
+
+    public RoaringBitmap evaluate(Expression expr) {
+        if (!(expr instanceof BinaryExpression)) {
+            throw new IllegalArgumentException("Unsupported bitmap condition: " + expr);
+        }
+        BinaryExpression binary = (BinaryExpression) expr;
+        if (binary.getOperator() == TokenType.AND) {
+            RoaringBitmap left = evaluate(binary.getLeft());
+            return left.isEmpty() ? left : left.and(evaluate(binary.getRight()));
+        }
+        if (binary.getOperator() == TokenType.OR) {
+            return evaluate(binary.getLeft()).or(evaluate(binary.getRight()));
+        }
+        if (binary.getOperator() != TokenType.EQUALS) {
+            throw new IllegalArgumentException("Unsupported bitmap condition: " + expr);
+        }
+
+        Expression left = binary.getLeft();
+        Expression right = binary.getRight();
+        if (left instanceof Literal && right instanceof Identifier) {
+            Expression tmp = left;
+            left = right;
+            right = tmp;
+        }
+        if (!(left instanceof Identifier) || !(right instanceof Literal)) {
+            throw new IllegalArgumentException("Unsupported bitmap condition: " + expr);
+        }
+
+        String columnName = ((Identifier) left).getName();
+        ColumnInfo column = schema.getColumn(columnName);
+        IndexInfo index = schema.getBitmapIndex(columnName);
+        if (column == null || index == null) {
+            throw new IllegalArgumentException("No bitmap index on column: " + columnName);
+        }
+        Object value = column.convertLiteral(((Literal) right).getValue());
+        return indexes.getBitmap(index.getName()).get(value);
+    }
+}
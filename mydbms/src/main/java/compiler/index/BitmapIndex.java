@@ -0,0 +1,37 @@
+package compiler.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 位图索引 - 列的每个不同取值对应一个行号位图，适合BOOLEAN、短CHAR等低基数列
+ * 空值不进入任何位图，与比较运算中空值不满足任何条件的语义一致
+ */
+public class BitmapIndex {
+    private final Map<Object, RoaringBitmap> bitmaps;
+
+    public BitmapIndex() {
+        this.bitmaps = new HashMap<>();
+    }
+
+    public void add(Object value, int rowId) {
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, v -> new RoaringBitmap()).add(rowId);
+        }
+    }
+
+    /**
+     * 取值等于value的行号位图（不存在时返回空位图）
+     */
+    public RoaringBitmap get(Object value) {
+        RoaringBitmap bitmap = bitmaps.get(value);
+        return bitmap != null ? bitmap : new RoaringBitmap();
+    }
+
+    /**
+     * 不同取值的个数
+     */
+    public int getDistinctCount() {
+        return bitmaps.size();
+    }
+}
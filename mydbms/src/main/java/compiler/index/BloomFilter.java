@@ -0,0 +1,91 @@
+package compiler.index;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * 布隆过滤器 - 判断一个键"一定不存在"或"可能存在"
+ * 键使用KeyEncoder编码后的字节串，k个位置由两个64位哈希值按双重哈希法导出。
+ */
+public class BloomFilter {
+    /** 每个段默认按这么多个键分配空间，超出后误判率上升但结果仍然正确 */
+    public static final int DEFAULT_EXPECTED_ENTRIES = 1024;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final long[] words;
+    private final int numHashes;
+
+    public BloomFilter(int expectedEntries) {
+        int entries = Math.max(expectedEntries, 1);
+        long bits = (long) Math.ceil(-entries * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+        this.words = new long[(int) Math.max(1, (bits + 63) / 64)];
+        this.numHashes = Math.max(1, (int) Math.round((double) words.length * 64 / entries * Math.log(2)));
+    }
+
+    private BloomFilter(long[] words, int numHashes) {
+        this.words = words;
+        this.numHashes = numHashes;
+    }
+
+    public void add(byte[] key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        long bitCount = (long) words.length * 64;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(byte[] key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        long bitCount = (long) words.length * 64;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * 位数组的Base64文本，用于持久化
+     */
+    public String toBase64() {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * 8);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    public static BloomFilter fromBase64(String text, int numHashes) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(text));
+        long[] words = new long[buffer.remaining() / 8];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new BloomFilter(words, numHashes);
+    }
+
+    private static long hash(byte[] key, long seed) {
+        long h = seed ^ key.length;
+        for (byte b : key) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        // 末尾混合，使低位也充分依赖每个输入字节
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
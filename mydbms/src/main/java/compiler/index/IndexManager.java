@@ -0,0 +1,80 @@
+package compiler.index;
+
+import compiler.catalog.IndexInfo;
+import compiler.catalog.TableSchema;
+import compiler.execution.XmlTableReader;
+import org.dom4j.DocumentException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 索引管理器 - 按（数据库，表）缓存已构建的索引
+ * 索引定义保存在目录中，索引数据在首次使用时由表数据构建，插入后增量维护，删除后失效重建
+ * 多个会话共用一个实例，公共方法加锁
+ */
+public class IndexManager {
+    private final XmlTableReader reader;
+    private final Map<String, TableIndexes> tables;
+
+    public IndexManager(XmlTableReader reader) {
+        this.reader = reader;
+        this.tables = new HashMap<>();
+    }
+
+    /**
+     * 获取表的索引，必要时先构建
+     */
+    public synchronized TableIndexes getTableIndexes(String dbName, TableSchema schema) throws DocumentException {
+        String key = key(dbName, schema.getTableName());
+        TableIndexes indexes = tables.get(key);
+        if (indexes == null || indexes.getSchema() != schema) {
+            indexes = new TableIndexes(dbName, schema, reader);
+            indexes.build();
+            tables.put(key, indexes);
+        }
+        return indexes;
+    }
+
+    /**
+     * 新建索引：若表的索引已构建，只补建新索引
+     */
+    public synchronized void onIndexCreated(String dbName, TableSchema schema, IndexInfo index) throws DocumentException {
+        TableIndexes indexes = tables.get(key(dbName, schema.getTableName()));
+        if (indexes != null && indexes.getSchema() == schema) {
+            indexes.buildIndex(index);
+        } else {
+            getTableIndexes(dbName, schema);
+        }
+    }
+
+    /**
+     * 插入后维护索引
+     */
+    public synchronized void onInsert(String dbName, String tableName) throws DocumentException {
+        String key = key(dbName, tableName);
+        TableIndexes indexes = tables.get(key);
+        if (indexes != null && !indexes.refreshTail()) {
+            tables.remove(key);
+        }
+    }
+
+    /**
+     * 使表的索引失效（DELETE等会改变行号的操作之后调用）
+     */
+    public synchronized void invalidate(String dbName, String tableName) {
+        tables.remove(key(dbName, tableName));
+    }
+
+    /**
+     * 使整个数据库的索引失效
+     */
+    public synchronized void invalidateDatabase(String dbName) {
+        String prefix = dbName.toUpperCase() + ".";
+        tables.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static String key(String dbName, String tableName) {
+        return (dbName + "." + tableName).toUpperCase();
+    }
+}
@@ -0,0 +1,93 @@
+package compiler.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 索引键编码器 - 把（复合）键编码为保序字节串
+ * 编码后的字节串按无符号字典序比较的结果与原值的比较结果一致，
+ * 且前几列的编码恰好是完整键编码的前缀，因此“前导列等值”可直接当作前缀匹配。
+ */
+public final class KeyEncoder {
+    private static final int TAG_NULL = 0x00;
+    private static final int TAG_LONG = 0x10;
+    private static final int TAG_DOUBLE = 0x20;
+    private static final int TAG_BOOLEAN = 0x30;
+    private static final int TAG_STRING = 0x40;
+
+    private KeyEncoder() {
+    }
+
+    /**
+     * 编码一组键值（Long、Double、Boolean、String或null）
+     */
+    public static byte[] encode(List<Object> values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object value : values) {
+            encodeValue(out, value);
+        }
+        return out.toByteArray();
+    }
+
+    private static void encodeValue(ByteArrayOutputStream out, Object value) {
+        if (value == null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof Long || value instanceof Integer) {
+            out.write(TAG_LONG);
+            writeLong(out, ((Number) value).longValue() ^ Long.MIN_VALUE);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(TAG_DOUBLE);
+            long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+            writeLong(out, bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+        } else if (value instanceof Boolean) {
+            out.write(TAG_BOOLEAN);
+            out.write((Boolean) value ? 1 : 0);
+        } else {
+            out.write(TAG_STRING);
+            // 0x00 转义为 0x00 0xFF，以 0x00 0x01 结尾，保证短串排在以它为前缀的长串之前
+            for (byte b : value.toString().getBytes(StandardCharsets.UTF_8)) {
+                out.write(b);
+                if (b == 0) {
+                    out.write(0xFF);
+                }
+            }
+            out.write(0x00);
+            out.write(0x01);
+        }
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xFF);
+        }
+    }
+
+    /**
+     * 按无符号字典序比较两个编码后的键
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * 把key截断到bound的长度后再与bound比较，用于前缀范围判断
+     */
+    public static int comparePrefix(byte[] key, byte[] bound) {
+        int length = Math.min(key.length, bound.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = (key[i] & 0xFF) - (bound[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return key.length < bound.length ? -1 : 0;
+    }
+}
@@ -0,0 +1,45 @@
+package compiler.index;
+
+/**
+ * 索引扫描区间 - 上下界均为编码后的键前缀，null表示无界
+ * 例如 tenant = 5 AND ts >= 1000 对应下界 (5, 1000] 闭、上界 (5) 闭
+ */
+public class KeyRange {
+    private final byte[] low;
+    private final boolean lowInclusive;
+    private final byte[] high;
+    private final boolean highInclusive;
+
+    public KeyRange(byte[] low, boolean lowInclusive, byte[] high, boolean highInclusive) {
+        this.low = low;
+        this.lowInclusive = lowInclusive;
+        this.high = high;
+        this.highInclusive = highInclusive;
+    }
+
+    /**
+     * 键是否满足下界
+     */
+    public boolean aboveLow(byte[] key) {
+        if (low == null) {
+            return true;
+        }
+        int cmp = KeyEncoder.comparePrefix(key, low);
+        return lowInclusive ? cmp >= 0 : cmp > 0;
+    }
+
+    /**
+     * 键是否满足上界
+     */
+    public boolean belowHigh(byte[] key) {
+        if (high == null) {
+            return true;
+        }
+        int cmp = KeyEncoder.comparePrefix(key, high);
+        return highInclusive ? cmp <= 0 : cmp < 0;
+    }
+
+    public boolean contains(byte[] key) {
+        return aboveLow(key) && belowHigh(key);
+    }
+}
@@ -0,0 +1,361 @@
+package compiler.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * 压缩位图（Roaring风格）- 按行号高16位分桶，每个桶是一个容器：
+ * 元素不超过4096个时用有序数组容器，否则用65536位的位图容器。
+ * 支持交集、并集运算，用于位图索引上的AND/OR求值。
+ */
+public class RoaringBitmap {
+    private static final int ARRAY_CONTAINER_MAX = 4096;
+
+    private int[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RoaringBitmap() {
+        this.keys = new int[4];
+        this.containers = new Container[4];
+        this.size = 0;
+    }
+
+    /**
+     * 加入一个非负整数
+     */
+    public void add(int value) {
+        int high = value >>> 16;
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) value);
+        } else {
+            index = -index - 1;
+            Container container = new ArrayContainer();
+            insertContainer(index, high, container.add((char) value));
+        }
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, value >>> 16);
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 交集
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.appendContainer(keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 并集
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendContainer(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.appendContainer(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按升序遍历全部元素
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    public List<Integer> toList() {
+        List<Integer> values = new ArrayList<>(getCardinality());
+        forEach(values::add);
+        return values;
+    }
+
+    private void insertContainer(int index, int high, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    private void appendContainer(int high, Container container) {
+        insertContainer(size, high, container);
+    }
+
+    /**
+     * 容器：保存同一高16位下的低16位
+     */
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int base, IntConsumer consumer);
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values;
+        int count;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, count, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (count >= ARRAY_CONTAINER_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(count * 2, 4), ARRAY_CONTAINER_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, count - index);
+            values[index] = value;
+            count++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, count, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[count];
+            int n = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < count && j < array.count) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[n++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    if (other.contains(values[i])) {
+                        result[n++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[count + array.count];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < count || j < array.count) {
+                if (j >= array.count || (i < count && values[i] < array.values[j])) {
+                    result[n++] = values[i++];
+                } else if (i >= count || values[i] > array.values[j]) {
+                    result[n++] = array.values[j++];
+                } else {
+                    result[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            ArrayContainer merged = new ArrayContainer(result, n);
+            return n > ARRAY_CONTAINER_MAX ? merged.toBitmap() : merged;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(count, 1)), count);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(base | values[i]);
+            }
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < count; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words;
+        int cardinality;
+
+        BitmapContainer() {
+            this.words = new long[1024];
+            this.cardinality = 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long mask = 1L << value;
+            int index = value >>> 6;
+            if ((words[index] & mask) == 0) {
+                words[index] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] & bitmap.words[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            return result.cardinality <= ARRAY_CONTAINER_MAX ? result.toArray() : result;
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.count; i++) {
+                    result.add(array.values[i]);
+                }
+            } else {
+                BitmapContainer bitmap = (BitmapContainer) other;
+                result.cardinality = 0;
+                for (int i = 0; i < words.length; i++) {
+                    result.words[i] |= bitmap.words[i];
+                    result.cardinality += Long.bitCount(result.words[i]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer result = new BitmapContainer();
+            System.arraycopy(words, 0, result.words, 0, words.length);
+            result.cardinality = cardinality;
+            return result;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int[] n = {0};
+            forEach(0, value -> values[n[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package compiler.index;
+
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.IndexInfo;
+import compiler.catalog.IndexType;
+import compiler.catalog.TableSchema;
+import compiler.execution.Row;
+import compiler.execution.XmlTableReader;
+import org.dom4j.DocumentException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一张表上已构建的全部索引，以及行号到段文件位置的映射
+ */
+public class TableIndexes {
+    private final String dbName;
+    private final TableSchema schema;
+    private final XmlTableReader reader;
+    private final Map<String, BPlusTree> trees;
+    private final Map<String, BitmapIndex> bitmaps;
+    private final List<SegmentRange> segments;
+    private int rowCount;
+
+    /**
+     * 段文件覆盖的行号区间 [firstRowId, firstRowId + rowCount)
+     */
+    private static final class SegmentRange {
+        final XmlTableReader.Segment segment;
+        final int firstRowId;
+        int rowCount;
+
+        SegmentRange(XmlTableReader.Segment segment, int firstRowId, int rowCount) {
+            this.segment = segment;
+            this.firstRowId = firstRowId;
+            this.rowCount = rowCount;
+        }
+    }
+
+    TableIndexes(String dbName, TableSchema schema, XmlTableReader reader) {
+        this.dbName = dbName;
+        this.schema = schema;
+        this.reader = reader;
+        this.trees = new HashMap<>();
+        this.bitmaps = new HashMap<>();
+        this.segments = new ArrayList<>();
+        this.rowCount = 0;
+    }
+
+    public TableSchema getSchema() {
+        return schema;
+    }
+
+    public BPlusTree getTree(String indexName) {
+        return trees.get(indexName.toUpperCase());
+    }
+
+    public BitmapIndex getBitmap(String indexName) {
+        return bitmaps.get(indexName.toUpperCase());
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 扫描全表，为目录中登记的每个索引构建B+树或位图
+     */
+    void build() throws DocumentException {
+        trees.clear();
+        bitmaps.clear();
+        segments.clear();
+        rowCount = 0;
+        for (IndexInfo index : schema.getIndexes()) {
+            createStructure(index);
+        }
+
+        for (XmlTableReader.Segment segment : reader.listSegments(dbName, schema.getTableName())) {
+            List<Row> rows = reader.readSegment(segment.getFile(), rowCount);
+            segments.add(new SegmentRange(segment, rowCount, rows.size()));
+            addRows(rows);
+        }
+    }
+
+    /**
+     * 新建索引后只为该索引补建数据
+     */
+    void buildIndex(IndexInfo index) throws DocumentException {
+        createStructure(index);
+        for (SegmentRange range : segments) {
+            for (Row row : reader.readSegment(range.segment.getFile(), range.firstRowId)) {
+                addRow(index, row);
+            }
+        }
+    }
+
+    private void createStructure(IndexInfo index) {
+        if (index.getType() == IndexType.BITMAP) {
+            bitmaps.put(index.getName().toUpperCase(), new BitmapIndex());
+        } else if (index.getType() == IndexType.BTREE) {
+            trees.put(index.getName().toUpperCase(), new BPlusTree());
+        }
+    }
+
+    /**
+     * 插入后增量维护：重新读取最后一个段文件及新增的段文件，把新行加入索引
+     * @return 若发现已有段文件的行数变少（数据被其他途径修改），返回false，需要整体重建
+     */
+    boolean refreshTail() throws DocumentException {
+        List<XmlTableReader.Segment> current = reader.listSegments(dbName, schema.getTableName());
+        int start = segments.isEmpty() ? 0 : segments.size() - 1;
+        if (current.size() < segments.size()) {
+            return false;
+        }
+
+        for (int i = start; i < current.size(); i++) {
+            XmlTableReader.Segment segment = current.get(i);
+            if (i < segments.size()) {
+                SegmentRange known = segments.get(i);
+                List<Row> rows = reader.readSegment(segment.getFile(), known.firstRowId);
+                if (rows.size() < known.rowCount) {
+                    return false;
+                }
+                addRows(rows.subList(known.rowCount, rows.size()));
+                known.rowCount = rows.size();
+            } else {
+                List<Row> rows = reader.readSegment(segment.getFile(), rowCount);
+                segments.add(new SegmentRange(segment, rowCount, rows.size()));
+                addRows(rows);
+            }
+        }
+        return true;
+    }
+
+    private void addRows(List<Row> rows) {
+        for (Row row : rows) {
+            for (IndexInfo index : schema.getIndexes()) {
+                addRow(index, row);
+            }
+        }
+        rowCount += rows.size();
+    }
+
+    private void addRow(IndexInfo index, Row row) {
+        String name = index.getName().toUpperCase();
+        BPlusTree tree = trees.get(name);
+        if (tree != null) {
+            tree.insert(encodeKey(index, row), row.getRowId());
+        }
+        BitmapIndex bitmap = bitmaps.get(name);
+        if (bitmap != null) {
+            ColumnInfo column = schema.getColumn(index.getColumns().get(0));
+            bitmap.add(column.parseValue(row.get(column.getName())), row.getRowId());
+        }
+    }
+
+    /**
+     * 按行号取回数据行，每个涉及的段文件只解析一次
+     * @param rowIds 行号（任意顺序）
+     * @return 按行号升序排列的数据行
+     */
+    public List<Row> fetch(List<Integer> rowIds) throws DocumentException {
+        List<Row> result = new ArrayList<>();
+        fetch(rowIds, row -> {
+            result.add(row);
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * 按行号顺序逐行取回，访问者返回false时停止，之后的段文件不再读取
+     */
+    public void fetch(List<Integer> rowIds, XmlTableReader.RowVisitor visitor) throws DocumentException {
+        List<Integer> sorted = new ArrayList<>(rowIds);
+        sorted.sort(null);
+
+        int segmentIndex = 0;
+        List<Row> segmentRows = null;
+        for (int rowId : sorted) {
+            while (segmentIndex < segments.size()
+                    && rowId >= segments.get(segmentIndex).firstRowId + segments.get(segmentIndex).rowCount) {
+                segmentIndex++;
+                segmentRows = null;
+            }
+            if (segmentIndex >= segments.size()) {
+                break;
+            }
+
+            SegmentRange range = segments.get(segmentIndex);
+            if (segmentRows == null) {
+                segmentRows = reader.readSegment(range.segment.getFile(), range.firstRowId);
+            }
+            int offset = rowId - range.firstRowId;
+            if (offset < segmentRows.size() && !visitor.visit(segmentRows.get(offset))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把一行在索引列上的值编码为索引键
+     */
+    public byte[] encodeKey(IndexInfo index, Row row) {
+        List<Object> values = new ArrayList<>();
+        for (String columnName : index.getColumns()) {
+            ColumnInfo column = schema.getColumn(columnName);
+            values.add(column != null ? column.parseValue(row.get(columnName)) : null);
+        }
+        return KeyEncoder.encode(values);
+    }
+}
@@ -0,0 +1,177 @@
+package compiler.index;
+
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.IndexInfo;
+import compiler.catalog.IndexType;
+import compiler.catalog.TableSchema;
+import compiler.execution.Row;
+import compiler.lexer.TokenType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 区域映射（zone map）- 记录每个段文件中各INT/DOUBLE/CHAR/VARCHAR列的最小值和最大值，
+ * 并为主键列和声明了BLOOM索引的列维护每段一个的布隆过滤器。
+ * 扫描时若某段的取值范围不可能满足范围或等值条件，或布隆过滤器表明等值键不在段中，就整段跳过，不必解析该段文件。
+ * 未被记录的段总是需要读取。
+ */
+public class ZoneMap {
+    private final TableSchema schema;
+    private final Set<String> bloomColumns;
+    private final Map<Integer, Zone> zones;
+
+    /**
+     * 一个段文件的摘要：行数、各列的取值范围和布隆过滤器
+     */
+    static final class Zone {
+        int rowCount;
+        final Map<String, Object[]> bounds = new HashMap<>();
+        final Map<String, BloomFilter> filters = new HashMap<>();
+    }
+
+    public ZoneMap(TableSchema schema) {
+        this.schema = schema;
+        this.bloomColumns = new LinkedHashSet<>();
+        this.zones = new TreeMap<>();
+
+        if (schema.getPrimaryKey() != null) {
+            bloomColumns.add(schema.getPrimaryKey().toUpperCase());
+        }
+        for (IndexInfo index : schema.getIndexes()) {
+            if (index.getType() == IndexType.BLOOM) {
+                bloomColumns.add(index.getColumns().get(0).toUpperCase());
+            }
+        }
+    }
+
+    /**
+     * 维护布隆过滤器的列（大写）
+     */
+    public Set<String> getBloomColumns() {
+        return bloomColumns;
+    }
+
+    public TableSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * 是否为该列记录取值范围
+     */
+    public static boolean isSummarized(ColumnInfo column) {
+        switch (column.getDataType()) {
+            case INT:
+            case DOUBLE:
+            case FLOAT:
+            case CHAR:
+            case VARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 把一行并入所在段的摘要
+     */
+    public void addRow(int segmentNumber, Row row) {
+        Zone zone = zone(segmentNumber);
+        zone.rowCount++;
+        for (ColumnInfo column : schema.getColumns()) {
+            Object value = column.parseValue(row.get(column.getName()));
+            if (isSummarized(column)) {
+                widen(zone, column.getName(), value);
+            }
+            if (value != null && bloomColumns.contains(column.getName().toUpperCase())) {
+                zone.filters.computeIfAbsent(column.getName().toUpperCase(),
+                        c -> new BloomFilter(BloomFilter.DEFAULT_EXPECTED_ENTRIES)).add(bloomKey(value));
+            }
+        }
+    }
+
+    /**
+     * 段文件的行数，未记录的段返回-1
+     */
+    public int getRowCount(int segmentNumber) {
+        Zone zone = zones.get(segmentNumber);
+        return zone != null ? zone.rowCount : -1;
+    }
+
+    public int getSegmentCount() {
+        return zones.size();
+    }
+
+    /**
+     * 段中是否可能存在满足 column op value 的行
+     */
+    public boolean mayMatch(int segmentNumber, String column, TokenType operator, Object value) {
+        Zone zone = zones.get(segmentNumber);
+        if (zone == null || value == null) {
+            return true;
+        }
+        if (operator == TokenType.EQUALS && bloomColumns.contains(column.toUpperCase())) {
+            // 段中该列没有任何非空值时不会建立过滤器，等值条件不可能成立
+            BloomFilter filter = zone.filters.get(column.toUpperCase());
+            if (filter == null || !filter.mightContain(bloomKey(value))) {
+                return false;
+            }
+        }
+        Object[] range = zone.bounds.get(column.toUpperCase());
+        if (range == null) {
+            return true;
+        }
+
+        int vsMin = ColumnInfo.compareValues(value, range[0]);
+        int vsMax = ColumnInfo.compareValues(value, range[1]);
+        switch (operator) {
+            case EQUALS:
+                return vsMin >= 0 && vsMax <= 0;
+            case NOT_EQUALS:
+                return !(vsMin == 0 && vsMax == 0);
+            case LESS_THAN:
+                return vsMin > 0;
+            case LESS_EQUAL:
+                return vsMin >= 0;
+            case GREATER_THAN:
+                return vsMax < 0;
+            case GREATER_EQUAL:
+                return vsMax <= 0;
+            default:
+                return true;
+        }
+    }
+
+    Map<Integer, Zone> getZones() {
+        return zones;
+    }
+
+    Zone zone(int segmentNumber) {
+        return zones.computeIfAbsent(segmentNumber, n -> new Zone());
+    }
+
+    static byte[] bloomKey(Object value) {
+        return KeyEncoder.encode(Collections.singletonList(value));
+    }
+
+    static void widen(Zone zone, String column, Object value) {
+        if (value == null) {
+            return;
+        }
+        Object[] range = zone.bounds.get(column.toUpperCase());
+        if (range == null) {
+            zone.bounds.put(column.toUpperCase(), new Object[] {value, value});
+            return;
+        }
+        if (ColumnInfo.compareValues(value, range[0]) < 0) {
+            range[0] = value;
+        }
+        if (ColumnInfo.compareValues(value, range[1]) > 0) {
+            range[1] = value;
+        }
+    }
+}
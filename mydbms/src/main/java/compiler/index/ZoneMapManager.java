@@ -0,0 +1,262 @@
+package compiler.index;
+
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.execution.Row;
+import compiler.execution.XmlTableReader;
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.SAXReader;
+import org.dom4j.io.XMLWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 区域映射管理器 - 按（数据库，表）缓存区域映射，取值范围保存在表目录下的 <表名>-zonemap.xml 中，
+ * 布隆过滤器保存在 <表名>-bloom.xml 中（与 <表名>-config.xml 同一目录）。
+ * 首次使用时若没有这些文件则扫描全表生成；插入时只把新行的值并入最后一个段的摘要；
+ * DELETE或新建BLOOM索引之后文件失效，下次使用时重建。
+ * 文件中记录保存时各段文件的长度，加载时段文件的长度不同（段文件写入后、摘要保存前崩溃）或文件无法解析时重建；
+ * 文件先写入临时文件再替换，不会留下只写了一半的摘要。
+ * 多个会话共用一个实例，公共方法加锁。
+ */
+public class ZoneMapManager {
+    private final XmlTableReader reader;
+    private final Map<String, ZoneMap> maps;
+
+    public ZoneMapManager(XmlTableReader reader) {
+        this.reader = reader;
+        this.maps = new HashMap<>();
+    }
+
+    /**
+     * 获取表的区域映射，必要时从文件加载或重建
+     */
+    public synchronized ZoneMap getZoneMap(String dbName, TableSchema schema) throws DocumentException, IOException {
+        String key = key(dbName, schema.getTableName());
+        ZoneMap zoneMap = maps.get(key);
+        if (zoneMap == null || zoneMap.getSchema() != schema) {
+            zoneMap = new ZoneMap(schema);
+            if (!load(zoneMap, dbName)) {
+                zoneMap = build(dbName, schema);
+                save(zoneMap, dbName);
+            }
+            maps.put(key, zoneMap);
+        }
+        return zoneMap;
+    }
+
+    /**
+     * 插入后把新行并入最后一个段的摘要
+     * 表还没有区域映射文件时什么也不做，首次扫描时会连同这一行一起生成
+     */
+    public synchronized void onInsert(String dbName, TableSchema schema, List<String> columns, List<String> values)
+            throws DocumentException, IOException {
+        File file = sidecarFile(dbName, schema.getTableName());
+        if (!file.exists()) {
+            return;
+        }
+        List<XmlTableReader.Segment> segments = reader.listSegments(dbName, schema.getTableName());
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        ZoneMap zoneMap = getZoneMap(dbName, schema);
+        int last = segments.get(segments.size() - 1).getNumber();
+        if (zoneMap.getRowCount(last) < 0 && segments.size() != zoneMap.getSegmentCount() + 1) {
+            // 有未记录的段文件（数据被其他途径修改），摘要已不可信
+            invalidate(dbName, schema.getTableName());
+            return;
+        }
+
+        Row row = new Row(-1);
+        for (int i = 0; i < values.size(); i++) {
+            String column = columns != null && !columns.isEmpty()
+                    ? columns.get(i) : schema.getColumns().get(i).getName();
+            row.put(column, values.get(i));
+        }
+        zoneMap.addRow(last, row);
+        save(zoneMap, dbName);
+    }
+
+    /**
+     * 使表的区域映射失效
+     */
+    public synchronized void invalidate(String dbName, String tableName) {
+        maps.remove(key(dbName, tableName));
+        for (File file : new File[] {sidecarFile(dbName, tableName), bloomFile(dbName, tableName)}) {
+            if (file.exists()) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * 使整个数据库的区域映射失效（数据库目录随之删除，这里只清理缓存）
+     */
+    public synchronized void invalidateDatabase(String dbName) {
+        String prefix = dbName.toUpperCase() + ".";
+        maps.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private ZoneMap build(String dbName, TableSchema schema) throws DocumentException {
+        ZoneMap zoneMap = new ZoneMap(schema);
+        for (XmlTableReader.Segment segment : reader.listSegments(dbName, schema.getTableName())) {
+            zoneMap.zone(segment.getNumber());
+            for (Row row : reader.readSegment(segment.getFile(), 0)) {
+                zoneMap.addRow(segment.getNumber(), row);
+            }
+        }
+        return zoneMap;
+    }
+
+    /**
+     * 从文件加载；文件不存在或无法解析、记录的段文件长度与当前不同、布隆过滤器的列与当前定义不一致时返回false
+     */
+    private boolean load(ZoneMap zoneMap, String dbName) {
+        TableSchema schema = zoneMap.getSchema();
+        File file = sidecarFile(dbName, schema.getTableName());
+        File bloomFile = bloomFile(dbName, schema.getTableName());
+        if (!file.exists() || (!zoneMap.getBloomColumns().isEmpty() && !bloomFile.exists())) {
+            return false;
+        }
+        try {
+            return read(zoneMap, file, bloomFile, segmentLengths(dbName, schema.getTableName()));
+        } catch (DocumentException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean read(ZoneMap zoneMap, File file, File bloomFile, Map<Integer, Long> lengths)
+            throws DocumentException {
+        TableSchema schema = zoneMap.getSchema();
+        Element root = new SAXReader().read(file).getRootElement();
+        for (Element segment : root.elements("segment")) {
+            if (!matchesLength(segment, lengths)) {
+                return false;
+            }
+            ZoneMap.Zone zone = zoneMap.zone(Integer.parseInt(segment.attributeValue("number")));
+            zone.rowCount = Integer.parseInt(segment.attributeValue("rows"));
+            for (Element element : segment.elements("column")) {
+                ColumnInfo column = schema.getColumn(element.attributeValue("name"));
+                if (column != null) {
+                    ZoneMap.widen(zone, column.getName(), column.parseValue(element.attributeValue("min")));
+                    ZoneMap.widen(zone, column.getName(), column.parseValue(element.attributeValue("max")));
+                }
+            }
+        }
+
+        if (zoneMap.getBloomColumns().isEmpty()) {
+            return true;
+        }
+        Element bloomRoot = new SAXReader().read(bloomFile).getRootElement();
+        if (!String.join(",", zoneMap.getBloomColumns()).equals(bloomRoot.attributeValue("columns"))) {
+            return false;
+        }
+        for (Element segment : bloomRoot.elements("segment")) {
+            if (!matchesLength(segment, lengths)) {
+                return false;
+            }
+            ZoneMap.Zone zone = zoneMap.zone(Integer.parseInt(segment.attributeValue("number")));
+            for (Element element : segment.elements("filter")) {
+                zone.filters.put(element.attributeValue("column"), BloomFilter.fromBase64(
+                        element.getText(), Integer.parseInt(element.attributeValue("hashes"))));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 摘要记录的段文件长度与当前长度相同；段文件已不存在时不同
+     */
+    private static boolean matchesLength(Element segment, Map<Integer, Long> lengths) {
+        Long length = lengths.get(Integer.parseInt(segment.attributeValue("number")));
+        return length != null && length == Long.parseLong(segment.attributeValue("length"));
+    }
+
+    /**
+     * 表的各段文件当前的长度，按段号
+     */
+    private Map<Integer, Long> segmentLengths(String dbName, String tableName) {
+        Map<Integer, Long> lengths = new HashMap<>();
+        for (XmlTableReader.Segment segment : reader.listSegments(dbName, tableName)) {
+            lengths.put(segment.getNumber(), segment.getFile().length());
+        }
+        return lengths;
+    }
+
+    private void save(ZoneMap zoneMap, String dbName) throws IOException {
+        String tableName = zoneMap.getSchema().getTableName();
+        Map<Integer, Long> lengths = segmentLengths(dbName, tableName);
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("zonemap");
+        for (Map.Entry<Integer, ZoneMap.Zone> entry : zoneMap.getZones().entrySet()) {
+            Element segment = root.addElement("segment");
+            segment.addAttribute("number", String.valueOf(entry.getKey()));
+            segment.addAttribute("length", String.valueOf(lengths.getOrDefault(entry.getKey(), -1L)));
+            segment.addAttribute("rows", String.valueOf(entry.getValue().rowCount));
+            for (Map.Entry<String, Object[]> bounds : entry.getValue().bounds.entrySet()) {
+                Element column = segment.addElement("column");
+                column.addAttribute("name", bounds.getKey());
+                column.addAttribute("min", String.valueOf(bounds.getValue()[0]));
+                column.addAttribute("max", String.valueOf(bounds.getValue()[1]));
+            }
+        }
+        write(document, sidecarFile(dbName, tableName));
+
+        if (zoneMap.getBloomColumns().isEmpty()) {
+            return;
+        }
+        Document bloomDocument = DocumentHelper.createDocument();
+        Element bloomRoot = bloomDocument.addElement("bloom");
+        bloomRoot.addAttribute("columns", String.join(",", zoneMap.getBloomColumns()));
+        for (Map.Entry<Integer, ZoneMap.Zone> entry : zoneMap.getZones().entrySet()) {
+            Element segment = bloomRoot.addElement("segment");
+            segment.addAttribute("number", String.valueOf(entry.getKey()));
+            segment.addAttribute("length", String.valueOf(lengths.getOrDefault(entry.getKey(), -1L)));
+            for (Map.Entry<String, BloomFilter> filter : entry.getValue().filters.entrySet()) {
+                Element element = segment.addElement("filter");
+                element.addAttribute("column", filter.getKey());
+                element.addAttribute("hashes", String.valueOf(filter.getValue().getNumHashes()));
+                element.setText(filter.getValue().toBase64());
+            }
+        }
+        write(bloomDocument, bloomFile(dbName, tableName));
+    }
+
+    /**
+     * 写入临时文件后替换，崩溃时文件要么是旧的要么是新的
+     */
+    private static void write(Document document, File file) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static File bloomFile(String dbName, String tableName) {
+        return new File(Catalog.tableDirectory(dbName, tableName), tableName + "-bloom.xml");
+    }
+
+    private static File sidecarFile(String dbName, String tableName) {
+        return new File(Catalog.tableDirectory(dbName, tableName), tableName + "-zonemap.xml");
+    }
+
+    private static String key(String dbName, String tableName) {
+        return (dbName + "." + tableName).toUpperCase();
+    }
+}
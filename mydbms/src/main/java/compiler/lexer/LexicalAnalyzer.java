@@ -38,11 +38,28 @@ public class LexicalAnalyzer {
         KEYWORDS.put("SET", TokenType.SET);
         KEYWORDS.put("INDEX", TokenType.INDEX);
         KEYWORDS.put("ON", TokenType.ON);
+        KEYWORDS.put("USING", TokenType.USING);
+        KEYWORDS.put("ANALYZE", TokenType.ANALYZE);
+        KEYWORDS.put("EXPLAIN", TokenType.EXPLAIN);
+        KEYWORDS.put("JOIN", TokenType.JOIN);
+        KEYWORDS.put("INNER", TokenType.INNER);
+        KEYWORDS.put("GROUP", TokenType.GROUP);
+        KEYWORDS.put("BY", TokenType.BY);
+        KEYWORDS.put("ORDER", TokenType.ORDER);
+        KEYWORDS.put("ASC", TokenType.ASC);
+        KEYWORDS.put("DESC", TokenType.DESC);
+        KEYWORDS.put("LIMIT", TokenType.LIMIT);
+        KEYWORDS.put("OFFSET", TokenType.OFFSET);
         KEYWORDS.put("AND", TokenType.AND);
         KEYWORDS.put("OR", TokenType.OR);
         KEYWORDS.put("NOT", TokenType.NOT);
         KEYWORDS.put("NULL", TokenType.NULL);
         KEYWORDS.put("QUIT", TokenType.QUIT);
+        KEYWORDS.put("BEGIN", TokenType.BEGIN);
+        KEYWORDS.put("COMMIT", TokenType.COMMIT);
+        KEYWORDS.put("ROLLBACK", TokenType.ROLLBACK);
+        KEYWORDS.put("PROCESSLIST", TokenType.PROCESSLIST);
+        KEYWORDS.put("KILL", TokenType.KILL);
         
         // 数据类型关键字
         KEYWORDS.put("INT", TokenType.INT);
@@ -25,11 +25,28 @@ public enum TokenType {
     SET("SET"),
     INDEX("INDEX"),
     ON("ON"),
+    USING("USING"),
+    ANALYZE("ANALYZE"),
+    EXPLAIN("EXPLAIN"),
+    JOIN("JOIN"),
+    INNER("INNER"),
+    GROUP("GROUP"),
+    BY("BY"),
+    ORDER("ORDER"),
+    ASC("ASC"),
+    DESC("DESC"),
+    LIMIT("LIMIT"),
+    OFFSET("OFFSET"),
     AND("AND"),
     OR("OR"),
     NOT("NOT"),
     NULL("NULL"),
     QUIT("QUIT"),
+    BEGIN("BEGIN"),
+    COMMIT("COMMIT"),
+    ROLLBACK("ROLLBACK"),
+    PROCESSLIST("PROCESSLIST"),
+    KILL("KILL"),
     
     // 数据类型关键字
     INT("INT"),
@@ -0,0 +1,570 @@
+package compiler.optimizer;
+
+import compiler.ast.ASTNode;
+import compiler.ast.ASTVisitor;
+import compiler.ast.expressions.*;
+import compiler.ast.statements.*;
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.AccessPathSelector;
+import compiler.execution.ExpressionEvaluator;
+import compiler.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 查询重写器 - 在语义分析之后、生成执行计划之前对WHERE条件做基于规则的等价改写
+ * 规则：
+ * 1. 常量折叠：字面量之间的比较直接求值为TRUE/FALSE，并按AND/OR的短路规则消去
+ * 2. 同一列与自身比较：x < x、x > x、x != x 恒假；非空列上的 x = x、x <= x、x >= x 恒真
+ * 3. 规范化：字面量 op 列 改写为 列 op' 字面量
+ * 4. 展平嵌套的AND/OR并去除重复项
+ * 5. 合并同一列上的范围条件：去掉被更严格条件蕴含的项，区间为空时整个合取折叠为FALSE
+ * WHERE恒真时删除WHERE子句；恒假时保留字面量FALSE，执行器据此不访问存储直接返回空结果。
+ */
+public class QueryRewriter implements ASTVisitor<ASTNode> {
+    private final Catalog catalog;
+    private final String database;
+    private TableSchema schema;
+    private boolean joined;
+    private int rewriteCount;
+
+    public QueryRewriter(Catalog catalog, String database) {
+        this.catalog = catalog;
+        this.database = database;
+    }
+
+    /**
+     * 改写语句，返回改写后的AST（未改写的部分与原AST共享节点）
+     */
+    public ASTNode rewrite(ASTNode ast) {
+        rewriteCount = 0;
+        return ast != null ? ast.accept(this) : null;
+    }
+
+    /**
+     * 上一次rewrite应用的规则次数
+     */
+    public int getRewriteCount() {
+        return rewriteCount;
+    }
+
+    public static boolean isTrue(Expression expr) {
+        return expr instanceof Literal && Boolean.TRUE.equals(((Literal) expr).getValue());
+    }
+
+    public static boolean isFalse(Expression expr) {
+        return expr instanceof Literal && Boolean.FALSE.equals(((Literal) expr).getValue());
+    }
+
+    // ========== 语句 ==========
+
+    @Override
+    public ASTNode visitSelectStatement(SelectStatement stmt) {
+        // 连接查询中未限定的列名可能属于任何一张表，不做依赖表结构的改写
+        joined = !stmt.getJoins().isEmpty();
+        WhereClause where = rewriteWhere(stmt.getTableName(), stmt.getWhereClause());
+        if (where == stmt.getWhereClause()) {
+            return stmt;
+        }
+        return stmt.withWhereClause(where);
+    }
+
+    @Override
+    public ASTNode visitDeleteStatement(DeleteStatement stmt) {
+        joined = false;
+        WhereClause where = rewriteWhere(stmt.getTableName(), stmt.getWhereClause());
+        if (where == stmt.getWhereClause()) {
+            return stmt;
+        }
+        return new DeleteStatement(stmt.getLine(), stmt.getColumn(), stmt.getTableName(), where);
+    }
+
+    @Override
+    public ASTNode visitExplainStatement(ExplainStatement stmt) {
+        Statement inner = (Statement) stmt.getStatement().accept(this);
+        if (inner == stmt.getStatement()) {
+            return stmt;
+        }
+        return new ExplainStatement(stmt.getLine(), stmt.getColumn(), stmt.isAnalyze(), inner);
+    }
+
+    @Override
+    public ASTNode visitCreateTableStatement(CreateTableStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitInsertStatement(InsertStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitCreateIndexStatement(CreateIndexStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitAnalyzeTableStatement(AnalyzeTableStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitCreateDatabaseStatement(CreateDatabaseStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitUseDatabaseStatement(UseDatabaseStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitDropDatabaseStatement(DropDatabaseStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitShowDatabasesStatement(ShowDatabasesStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitShowTablesStatement(ShowTablesStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitCreateUserStatement(CreateUserStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitTransactionStatement(TransactionStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitShowProcesslistStatement(ShowProcesslistStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitKillStatement(KillStatement stmt) {
+        return stmt;
+    }
+
+    @Override
+    public ASTNode visitSetStatement(SetStatement stmt) {
+        return stmt;
+    }
+
+    // ========== 表达式 ==========
+
+    @Override
+    public ASTNode visitIdentifier(Identifier expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitLiteral(Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitBinaryExpression(BinaryExpression expr) {
+        return rewriteExpression(expr);
+    }
+
+    @Override
+    public ASTNode visitColumnDefinition(ColumnDefinition expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitValuesList(ValuesList expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitWhereClause(WhereClause expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitJoinClause(JoinClause expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitAggregateExpression(AggregateExpression expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitOrderByItem(OrderByItem expr) {
+        return expr;
+    }
+
+    @Override
+    public ASTNode visitSelectList(SelectList expr) {
+        return expr;
+    }
+
+    /**
+     * 改写WHERE子句：条件未变时返回原对象，恒真时返回null
+     */
+    private WhereClause rewriteWhere(Identifier tableName, WhereClause where) {
+        if (where == null || where.getCondition() == null) {
+            return where;
+        }
+        schema = catalog != null && !joined ? catalog.getTableSchema(database, tableName.getName()) : null;
+        Expression condition = rewriteExpression(where.getCondition());
+        if (condition.toString().equals(where.getCondition().toString())) {
+            return where;
+        }
+        if (isTrue(condition)) {
+            return null;
+        }
+        return new WhereClause(where.getLine(), where.getColumn(), condition);
+    }
+
+    private Expression rewriteExpression(Expression expr) {
+        if (!(expr instanceof BinaryExpression)) {
+            return expr;
+        }
+        BinaryExpression binary = (BinaryExpression) expr;
+        if (binary.getOperator() == TokenType.AND || binary.getOperator() == TokenType.OR) {
+            return rewriteJunction(binary);
+        }
+        return rewriteComparison(binary);
+    }
+
+    /**
+     * 展平同一运算符的嵌套AND/OR，逐项改写后消去常量与重复项
+     */
+    private Expression rewriteJunction(BinaryExpression expr) {
+        TokenType operator = expr.getOperator();
+        List<Expression> operands = new ArrayList<>();
+        flatten(expr, operator, operands);
+
+        // AND中TRUE、OR中FALSE是单位元；AND中FALSE、OR中TRUE使整体确定
+        boolean isAnd = operator == TokenType.AND;
+        List<Expression> kept = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Expression operand : operands) {
+            if (isAnd ? isTrue(operand) : isFalse(operand)) {
+                rewriteCount++;
+                continue;
+            }
+            if (isAnd ? isFalse(operand) : isTrue(operand)) {
+                rewriteCount++;
+                return operand;
+            }
+            if (!seen.add(operand.toString())) {
+                rewriteCount++;
+                continue;
+            }
+            kept.add(operand);
+        }
+
+        if (isAnd && schema != null) {
+            kept = mergeRanges(kept);
+        }
+        if (kept.isEmpty()) {
+            return bool(expr, isAnd);
+        }
+        if (kept.size() == 1) {
+            return kept.get(0);
+        }
+        Expression result = kept.get(0);
+        for (int i = 1; i < kept.size(); i++) {
+            result = new BinaryExpression(result.getLine(), result.getColumn(), result, operator, kept.get(i));
+        }
+        return result;
+    }
+
+    private void flatten(Expression expr, TokenType operator, List<Expression> out) {
+        if (expr instanceof BinaryExpression && ((BinaryExpression) expr).getOperator() == operator) {
+            flatten(((BinaryExpression) expr).getLeft(), operator, out);
+            flatten(((BinaryExpression) expr).getRight(), operator, out);
+            return;
+        }
+        Expression rewritten = rewriteExpression(expr);
+        if (rewritten != expr && rewritten instanceof BinaryExpression
+                && ((BinaryExpression) rewritten).getOperator() == operator) {
+            flatten(rewritten, operator, out);
+        } else {
+            out.add(rewritten);
+        }
+    }
+
+    private Expression rewriteComparison(BinaryExpression expr) {
+        Expression left = expr.getLeft();
+        Expression right = expr.getRight();
+        TokenType operator = expr.getOperator();
+
+        if (left instanceof Literal && right instanceof Literal) {
+            Boolean folded = fold(operator, (Literal) left, (Literal) right);
+            if (folded != null) {
+                rewriteCount++;
+                return bool(expr, folded);
+            }
+            return expr;
+        }
+
+        if (left instanceof Identifier && right instanceof Identifier && sameColumn((Identifier) left, (Identifier) right)) {
+            return rewriteSelfComparison(expr, (Identifier) left);
+        }
+
+        if (left instanceof Literal && right instanceof Identifier) {
+            TokenType flipped = AccessPathSelector.flip(operator);
+            if (flipped != null) {
+                rewriteCount++;
+                return new BinaryExpression(expr.getLine(), expr.getColumn(), right, flipped, left);
+            }
+        }
+        return expr;
+    }
+
+    /**
+     * 单表查询中忽略限定名；连接查询中只有限定名完全相同才是同一列
+     */
+    private boolean sameColumn(Identifier left, Identifier right) {
+        if (joined) {
+            return left.getQualifier() != null && right.getQualifier() != null
+                    && left.getQualifiedName().equalsIgnoreCase(right.getQualifiedName());
+        }
+        return left.getName().equalsIgnoreCase(right.getName());
+    }
+
+    /**
+     * 列与自身比较：空值使所有比较为假，因此只有非空列上的 =、<=、>= 可以化简为TRUE
+     */
+    private Expression rewriteSelfComparison(BinaryExpression expr, Identifier column) {
+        switch (expr.getOperator()) {
+            case NOT_EQUALS:
+            case LESS_THAN:
+            case GREATER_THAN:
+                rewriteCount++;
+                return bool(expr, false);
+            case EQUALS:
+            case LESS_EQUAL:
+            case GREATER_EQUAL:
+                ColumnInfo info = schema != null ? schema.getColumn(column.getName()) : null;
+                if (info != null && (info.isNotNull() || info.isPrimaryKey())) {
+                    rewriteCount++;
+                    return bool(expr, true);
+                }
+                return expr;
+            default:
+                return expr;
+        }
+    }
+
+    /**
+     * 两个字面量的比较，类型不可比时返回null（保持原样，交给执行期处理）
+     */
+    private Boolean fold(TokenType operator, Literal left, Literal right) {
+        Object a = left.getValue();
+        Object b = right.getValue();
+        boolean comparable = (a instanceof Number && b instanceof Number)
+                || (a != null && b != null && a.getClass() == b.getClass());
+        if (!comparable) {
+            return null;
+        }
+        try {
+            return ExpressionEvaluator.test(operator, ColumnInfo.compareValues(a, b));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 同一列上的范围条件
+     */
+    private static final class ColumnRange {
+        AccessPathSelector.ColumnPredicate equality;
+        AccessPathSelector.ColumnPredicate lower;
+        AccessPathSelector.ColumnPredicate upper;
+        final List<AccessPathSelector.ColumnPredicate> notEquals = new ArrayList<>();
+        boolean empty;
+        boolean emitted;
+    }
+
+    /**
+     * 合并合取项中同一列上的比较：保留最严格的上下界，等值条件蕴含其他条件；
+     * 任一列的取值区间为空时返回只含FALSE的列表
+     */
+    private List<Expression> mergeRanges(List<Expression> conjuncts) {
+        Map<String, ColumnRange> ranges = new LinkedHashMap<>();
+        Map<Expression, String> columnOf = new LinkedHashMap<>();
+        for (Expression conjunct : conjuncts) {
+            AccessPathSelector.ColumnPredicate predicate = AccessPathSelector.toColumnPredicate(schema, conjunct);
+            if (predicate == null || !(((BinaryExpression) conjunct).getLeft() instanceof Identifier)) {
+                continue;
+            }
+            String column = predicate.getColumn().getName().toUpperCase();
+            ColumnRange range = ranges.computeIfAbsent(column, k -> new ColumnRange());
+            columnOf.put(conjunct, column);
+            add(range, predicate);
+        }
+        if (ranges.isEmpty()) {
+            return conjuncts;
+        }
+
+        for (ColumnRange range : ranges.values()) {
+            resolve(range);
+            if (range.empty) {
+                rewriteCount++;
+                List<Expression> result = new ArrayList<>();
+                result.add(bool(conjuncts.get(0), false));
+                return result;
+            }
+        }
+
+        // 按原顺序输出：每列在它第一次出现的位置输出合并后的条件
+        List<Expression> result = new ArrayList<>();
+        for (Expression conjunct : conjuncts) {
+            String column = columnOf.get(conjunct);
+            if (column == null) {
+                result.add(conjunct);
+                continue;
+            }
+            ColumnRange range = ranges.get(column);
+            if (!range.emitted) {
+                range.emitted = true;
+                result.addAll(survivors(range));
+            }
+        }
+        rewriteCount += conjuncts.size() - result.size();
+        return result;
+    }
+
+    private void add(ColumnRange range, AccessPathSelector.ColumnPredicate predicate) {
+        switch (predicate.getOperator()) {
+            case EQUALS:
+                if (range.equality != null && compare(range.equality, predicate) != 0) {
+                    range.empty = true;
+                }
+                range.equality = predicate;
+                break;
+            case NOT_EQUALS:
+                range.notEquals.add(predicate);
+                break;
+            case GREATER_THAN:
+            case GREATER_EQUAL:
+                if (range.lower == null || tighterLower(predicate, range.lower)) {
+                    range.lower = predicate;
+                }
+                break;
+            case LESS_THAN:
+            case LESS_EQUAL:
+                if (range.upper == null || tighterUpper(predicate, range.upper)) {
+                    range.upper = predicate;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void resolve(ColumnRange range) {
+        if (range.empty) {
+            return;
+        }
+        if (range.equality != null) {
+            if (!inRange(range, range.equality)) {
+                range.empty = true;
+            }
+            for (AccessPathSelector.ColumnPredicate ne : range.notEquals) {
+                if (compare(range.equality, ne) == 0) {
+                    range.empty = true;
+                }
+            }
+            return;
+        }
+        if (range.lower != null && range.upper != null) {
+            int cmp = compare(range.lower, range.upper);
+            boolean closed = range.lower.getOperator() == TokenType.GREATER_EQUAL
+                    && range.upper.getOperator() == TokenType.LESS_EQUAL;
+            if (cmp > 0 || (cmp == 0 && !closed)) {
+                range.empty = true;
+            } else if (cmp == 0) {
+                for (AccessPathSelector.ColumnPredicate ne : range.notEquals) {
+                    if (compare(range.lower, ne) == 0) {
+                        range.empty = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Expression> survivors(ColumnRange range) {
+        List<Expression> result = new ArrayList<>();
+        if (range.equality != null) {
+            result.add(range.equality.getSource());
+            return result;
+        }
+        // 闭区间上下界相等时等价于等值条件
+        if (range.lower != null && range.upper != null && compare(range.lower, range.upper) == 0) {
+            BinaryExpression lower = (BinaryExpression) range.lower.getSource();
+            result.add(new BinaryExpression(lower.getLine(), lower.getColumn(), lower.getLeft(),
+                    TokenType.EQUALS, lower.getRight()));
+            return result;
+        }
+        if (range.lower != null) {
+            result.add(range.lower.getSource());
+        }
+        if (range.upper != null) {
+            result.add(range.upper.getSource());
+        }
+        for (AccessPathSelector.ColumnPredicate ne : range.notEquals) {
+            // 区间之外的 != 条件已被上下界蕴含
+            if (inRange(range, ne)) {
+                result.add(ne.getSource());
+            }
+        }
+        return result;
+    }
+
+    private boolean inRange(ColumnRange range, AccessPathSelector.ColumnPredicate point) {
+        if (range.lower != null) {
+            int cmp = compare(point, range.lower);
+            if (cmp < 0 || (cmp == 0 && range.lower.getOperator() == TokenType.GREATER_THAN)) {
+                return false;
+            }
+        }
+        if (range.upper != null) {
+            int cmp = compare(point, range.upper);
+            if (cmp > 0 || (cmp == 0 && range.upper.getOperator() == TokenType.LESS_THAN)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tighterLower(AccessPathSelector.ColumnPredicate candidate, AccessPathSelector.ColumnPredicate current) {
+        int cmp = compare(candidate, current);
+        return cmp > 0 || (cmp == 0 && candidate.getOperator() == TokenType.GREATER_THAN);
+    }
+
+    private boolean tighterUpper(AccessPathSelector.ColumnPredicate candidate, AccessPathSelector.ColumnPredicate current) {
+        int cmp = compare(candidate, current);
+        return cmp < 0 || (cmp == 0 && candidate.getOperator() == TokenType.LESS_THAN);
+    }
+
+    private static int compare(AccessPathSelector.ColumnPredicate a, AccessPathSelector.ColumnPredicate b) {
+        return ColumnInfo.compareValues(a.getValue(), b.getValue());
+    }
+
+    private static Literal bool(Expression at, boolean value) {
+        return new Literal(at.getLine(), at.getColumn(), value, TokenType.BOOLEAN_LITERAL);
+    }
+}
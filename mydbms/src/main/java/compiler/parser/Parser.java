@@ -53,12 +53,26 @@ public class Parser {
                 return parseDropStatement();
             case SHOW:
                 return parseShowStatement();
+            case ANALYZE:
+                return parseAnalyzeStatement();
+            case EXPLAIN:
+                return parseExplainStatement();
+            case BEGIN:
+                return parseTransactionStatement(TransactionStatement.Action.BEGIN);
+            case COMMIT:
+                return parseTransactionStatement(TransactionStatement.Action.COMMIT);
+            case ROLLBACK:
+                return parseTransactionStatement(TransactionStatement.Action.ROLLBACK);
+            case KILL:
+                return parseKillStatement();
+            case SET:
+                return parseSetStatement();
             case QUIT:
                 return parseQuitStatement();
             default:
                 throw new ParseException("Unexpected token: " + token.getValue(), 
                                        token.getLine(), token.getColumn(), 
-                                       "CREATE, INSERT, SELECT, DELETE, USE, DROP, SHOW, or QUIT");
+                                       "CREATE, INSERT, SELECT, DELETE, USE, DROP, SHOW, ANALYZE, EXPLAIN, BEGIN, COMMIT, ROLLBACK, KILL, SET, or QUIT");
         }
     }
     
@@ -76,10 +90,12 @@ public class Parser {
                 return parseCreateDatabaseStatement(createToken);
             case USER:
                 return parseCreateUserStatement(createToken);
+            case INDEX:
+                return parseCreateIndexStatement(createToken);
             default:
-                throw new ParseException("Expected TABLE, DATABASE, or USER after CREATE", 
+                throw new ParseException("Expected TABLE, DATABASE, USER, or INDEX after CREATE", 
                                        nextToken.getLine(), nextToken.getColumn(), 
-                                       "TABLE, DATABASE, or USER");
+                                       "TABLE, DATABASE, USER, or INDEX");
         }
     }
     
@@ -103,6 +119,36 @@ public class Parser {
         return new CreateTableStatement(createToken.getLine(), createToken.getColumn(), tableName, columns);
     }
     
+    /**
+     * 解析CREATE INDEX语句
+     * CREATE INDEX 索引名 ON 表名 (列1, 列2, ...) [USING 索引类型]
+     */
+    private CreateIndexStatement parseCreateIndexStatement(Token createToken) throws ParseException {
+        consume(TokenType.INDEX, "INDEX");
+        Identifier indexName = parseIdentifier();
+        
+        consume(TokenType.ON, "ON");
+        Identifier tableName = parseIdentifier();
+        
+        consume(TokenType.LEFT_PAREN, "(");
+        List<Identifier> columns = parseIdentifierList();
+        consume(TokenType.RIGHT_PAREN, ")");
+        
+        // 可选的索引类型
+        Identifier indexType = null;
+        if (match(TokenType.USING)) {
+            advance();
+            indexType = parseIdentifier();
+        }
+        
+        // 可选的分号
+        if (match(TokenType.SEMICOLON)) {
+            advance();
+        }
+        
+        return new CreateIndexStatement(createToken.getLine(), createToken.getColumn(), indexName, tableName, columns, indexType);
+    }
+    
     /**
      * 解析列定义列表
      */
@@ -228,18 +274,82 @@ public class Parser {
         consume(TokenType.FROM, "FROM");
         Identifier tableName = parseIdentifier();
         
+        // [INNER] JOIN 表名 ON 条件，可以连续多个
+        List<JoinClause> joins = new ArrayList<>();
+        while (match(TokenType.JOIN, TokenType.INNER)) {
+            Token joinToken = advance();
+            if (joinToken.getType() == TokenType.INNER) {
+                consume(TokenType.JOIN, "JOIN");
+            }
+            Identifier joinTable = parseIdentifier();
+            consume(TokenType.ON, "ON");
+            Expression condition = parseLogicalExpression();
+            joins.add(new JoinClause(joinToken.getLine(), joinToken.getColumn(), joinTable, condition));
+        }
+        
         WhereClause whereClause = null;
         if (match(TokenType.WHERE)) {
             advance();
             whereClause = parseWhereClause();
         }
         
+        List<Identifier> groupBy = new ArrayList<>();
+        if (match(TokenType.GROUP)) {
+            advance();
+            consume(TokenType.BY, "BY");
+            do {
+                groupBy.add(parseColumnReference());
+            } while (match(TokenType.COMMA) && advance() != null);
+        }
+        
+        // ORDER BY 列或聚合函数 [ASC|DESC], ...
+        List<OrderByItem> orderBy = new ArrayList<>();
+        if (match(TokenType.ORDER)) {
+            advance();
+            consume(TokenType.BY, "BY");
+            do {
+                Token token = peek();
+                Expression expression = parseExpression();
+                boolean descending = false;
+                if (match(TokenType.ASC, TokenType.DESC)) {
+                    descending = advance().getType() == TokenType.DESC;
+                }
+                orderBy.add(new OrderByItem(token.getLine(), token.getColumn(), expression, descending));
+            } while (match(TokenType.COMMA) && advance() != null);
+        }
+        
+        // LIMIT 行数 [OFFSET 跳过的行数]
+        Integer limit = null;
+        int offset = 0;
+        if (match(TokenType.LIMIT)) {
+            advance();
+            limit = parseRowCount();
+            if (match(TokenType.OFFSET)) {
+                advance();
+                offset = parseRowCount();
+            }
+        }
+        
         // 可选的分号
         if (match(TokenType.SEMICOLON)) {
             advance();
         }
         
-        return new SelectStatement(selectToken.getLine(), selectToken.getColumn(), selectList, tableName, whereClause);
+        return new SelectStatement(selectToken.getLine(), selectToken.getColumn(), selectList, tableName,
+                joins, whereClause, groupBy, orderBy, limit, offset);
+    }
+    
+    /**
+     * 解析LIMIT/OFFSET后的行数（非负整数）
+     */
+    private int parseRowCount() throws ParseException {
+        Token token = consume(TokenType.INTEGER_LITERAL, "row count");
+        try {
+            return Integer.parseInt(token.getValue());
+        } catch (NumberFormatException e) {
+            throw new ParseException("Row count out of range: " + token.getValue(), token.getLine(),
+                    token.getColumn(), "row count");
+        }
     }
     
     /**
@@ -332,7 +442,10 @@ public class Parser {
         
         switch (token.getType()) {
             case IDENTIFIER:
-                return parseIdentifier();
+                if (checkNext(TokenType.LEFT_PAREN)) {
+                    return parseAggregate();
+                }
+                return parseColumnReference();
             case INTEGER_LITERAL:
             case STRING_LITERAL:
             case FLOAT_LITERAL:
@@ -352,6 +465,43 @@ public class Parser {
         return new Identifier(token.getLine(), token.getColumn(), token.getValue());
     }
     
+    /**
+     * 解析聚合函数调用：函数名(*) 或 函数名(列)，只有COUNT接受*
+     * 函数名不是保留字，因此仍可用作列名
+     */
+    private AggregateExpression parseAggregate() throws ParseException {
+        Token name = consume(TokenType.IDENTIFIER, "function name");
+        AggregateExpression.Function function;
+        try {
+            function = AggregateExpression.Function.valueOf(name.getValue().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Unknown function '" + name.getValue() + "'", name.getLine(), name.getColumn(),
+                    "COUNT, SUM, AVG, MIN or MAX");
+        }
+        consume(TokenType.LEFT_PAREN, "(");
+        Identifier argument = null;
+        if (match(TokenType.MULTIPLY) && function == AggregateExpression.Function.COUNT) {
+            advance();
+        } else {
+            argument = parseColumnReference();
+        }
+        consume(TokenType.RIGHT_PAREN, ")");
+        return new AggregateExpression(name.getLine(), name.getColumn(), function, argument);
+    }
+    
+    /**
+     * 解析列引用：列名 或 表名.列名
+     */
+    private Identifier parseColumnReference() throws ParseException {
+        Token token = consume(TokenType.IDENTIFIER, "identifier");
+        if (match(TokenType.DOT)) {
+            advance();
+            Token column = consume(TokenType.IDENTIFIER, "column name");
+            return new Identifier(token.getLine(), token.getColumn(), token.getValue(), column.getValue());
+        }
+        return new Identifier(token.getLine(), token.getColumn(), token.getValue());
+    }
+    
     /**
      * 解析字面量
      */
@@ -407,6 +557,10 @@ public class Parser {
         return false;
     }
     
+    private boolean checkNext(TokenType type) {
+        return current + 1 < tokens.size() && tokens.get(current + 1).getType() == type;
+    }
+    
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
         return peek().getType() == type;
@@ -522,7 +676,7 @@ public class Parser {
     }
     
     /**
-     * 解析SHOW语句 - 支持SHOW DATABASES和SHOW TABLES
+     * 解析SHOW语句 - 支持SHOW DATABASES、SHOW TABLES和SHOW PROCESSLIST
      */
     private Statement parseShowStatement() throws ParseException {
         Token showToken = consume(TokenType.SHOW, "SHOW");
@@ -533,10 +687,12 @@ public class Parser {
                 return parseShowDatabasesStatement(showToken);
             case TABLES:
                 return parseShowTablesStatement(showToken);
+            case PROCESSLIST:
+                return parseShowProcesslistStatement(showToken);
             default:
-                throw new ParseException("Expected DATABASES or TABLES after SHOW", 
+                throw new ParseException("Expected DATABASES, TABLES or PROCESSLIST after SHOW", 
                                        nextToken.getLine(), nextToken.getColumn(), 
-                                       "DATABASES or TABLES");
+                                       "DATABASES, TABLES or PROCESSLIST");
         }
     }
     
@@ -568,6 +724,128 @@ public class Parser {
         return new ShowTablesStatement(showToken.getLine(), showToken.getColumn());
     }
     
+    /**
+     * 解析SHOW PROCESSLIST语句
+     */
+    private ShowProcesslistStatement parseShowProcesslistStatement(Token showToken) throws ParseException {
+        consume(TokenType.PROCESSLIST, "PROCESSLIST");
+        
+        // 可选的分号
+        if (match(TokenType.SEMICOLON)) {
+            advance();
+        }
+        
+        return new ShowProcesslistStatement(showToken.getLine(), showToken.getColumn());
+    }
+    
+    /**
+     * 解析ANALYZE TABLE语句
+     */
+    private AnalyzeTableStatement parseAnalyzeStatement() throws ParseException {
+        Token analyzeToken = consume(TokenType.ANALYZE, "ANALYZE");
+        consume(TokenType.TABLE, "TABLE");
+        Identifier tableName = parseIdentifier();
+        
+        // 可选的分号
+        if (match(TokenType.SEMICOLON)) {
+            advance();
+        }
+        
+        return new AnalyzeTableStatement(analyzeToken.getLine(), analyzeToken.getColumn(), tableName);
+    }
+    
+    /**
+     * 解析EXPLAIN [ANALYZE] 语句
+     * EXPLAIN ANALYZE TABLE t 解释的是ANALYZE TABLE语句本身
+     */
+    private ExplainStatement parseExplainStatement() throws ParseException {
+        Token explainToken = consume(TokenType.EXPLAIN, "EXPLAIN");
+        boolean analyze = false;
+        if (match(TokenType.ANALYZE) && tokens.get(current + 1).getType() != TokenType.TABLE) {
+            advance();
+            analyze = true;
+        }
+        
+        Statement statement = parseStatement();
+        if (statement == null || statement instanceof ExplainStatement || statement instanceof TransactionStatement
+                || statement instanceof KillStatement || statement instanceof SetStatement) {
+            throw new ParseException("EXPLAIN requires a statement to explain",
+                                   explainToken.getLine(), explainToken.getColumn(),
+                                   "CREATE, INSERT, SELECT, DELETE, USE, DROP, SHOW or ANALYZE");
+        }
+        return new ExplainStatement(explainToken.getLine(), explainToken.getColumn(), analyze, statement);
+    }
+    
+    /**
+     * 解析BEGIN、COMMIT、ROLLBACK语句
+     */
+    private TransactionStatement parseTransactionStatement(TransactionStatement.Action action) throws ParseException {
+        Token token = advance();
+        
+        // 可选的分号
+        if (match(TokenType.SEMICOLON)) {
+            advance();
+        }
+        
+        return new TransactionStatement(token.getLine(), token.getColumn(), action);
+    }
+    
+    /**
+     * 解析KILL语句：KILL 会话编号
+     */
+    private KillStatement parseKillStatement() throws ParseException {
+        Token killToken = consume(TokenType.KILL, "KILL");
+        Token idToken = consume(TokenType.INTEGER_LITERAL, "process id");
+        long processId;
+        try {
+            processId = Long.parseLong(idToken.getValue());
+        } catch (NumberFormatException e) {
+            throw new ParseException("Process id out of range: " + idToken.getValue(), idToken.getLine(),
+                    idToken.getColumn(), "process id");
+        }
+        
+        // 可选的分号
+        if (match(TokenType.SEMICOLON)) {
+            advance();
+        }
+        
+        return new KillStatement(killToken.getLine(), killToken.getColumn(), processId);
+    }
+    
+    /**
+     * 解析SET语句：SET 变量名 = 非负整数，支持statement_timeout（毫秒，0表示不限制）
+     * 和parallelism（扫描和聚合的并行度，至少为1）
+     */
+    private SetStatement parseSetStatement() throws ParseException {
+        Token setToken = consume(TokenType.SET, "SET");
+        Token name = consume(TokenType.IDENTIFIER, "variable name");
+        String variable = name.getValue().toUpperCase();
+        if (!variable.equals("STATEMENT_TIMEOUT") && !variable.equals("PARALLELISM")) {
+            throw new ParseException("Unknown variable '" + name.getValue() + "'", name.getLine(), name.getColumn(),
+                    "STATEMENT_TIMEOUT or PARALLELISM");
+        }
+        consume(TokenType.EQUALS, "=");
+        Token valueToken = consume(TokenType.INTEGER_LITERAL, "value");
+        long value;
+        try {
+            value = Long.parseLong(valueToken.getValue());
+        } catch (NumberFormatException e) {
+            throw new ParseException("Value out of range: " + valueToken.getValue(), valueToken.getLine(),
+                    valueToken.getColumn(), "value");
+        }
+        if (variable.equals("PARALLELISM") && (value < 1 || value > Integer.MAX_VALUE)) {
+            throw new ParseException("Parallelism must be a positive integer: " + valueToken.getValue(),
+                    valueToken.getLine(), valueToken.getColumn(), "value");
+        }
+        
+        // 可选的分号
+        if (match(TokenType.SEMICOLON)) {
+            advance();
+        }
+        
+        return new SetStatement(setToken.getLine(), setToken.getColumn(), variable, value);
+    }
+    
     /**
      * 解析QUIT语句
      */
@@ -7,6 +7,7 @@ import compiler.ast.statements.*;
 import compiler.catalog.Catalog;
 import compiler.catalog.CatalogException;
 import compiler.catalog.ColumnInfo;
+import compiler.catalog.IndexType;
 import compiler.catalog.TableSchema;
 import compiler.lexer.TokenType;
 
@@ -18,10 +19,15 @@ import java.util.*;
  */
 public class SemanticAnalyzer implements ASTVisitor<Void> {
     private Catalog catalog;
+    private String database;
     private List<SemanticError> errors;
     
-    public SemanticAnalyzer(Catalog catalog) {
+    /**
+     * @param database 会话的当前数据库，表名在其中解析；未选择数据库时为null
+     */
+    public SemanticAnalyzer(Catalog catalog, String database) {
         this.catalog = catalog;
+        this.database = database;
         this.errors = new ArrayList<>();
     }
     
@@ -40,7 +46,7 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
         String tableName = stmt.getTableName().getName();
         
         // 检查表是否已存在
-        if (catalog.tableExists(tableName)) {
+        if (catalog.tableExists(database, tableName)) {
             addError(SemanticError.ErrorType.TABLE_ALREADY_EXISTS,
                     stmt.getLine(), stmt.getColumn(),
                     "Table '" + tableName + "' already exists");
@@ -92,7 +98,7 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
         // 如果没有错误，更新目录
         if (errors.isEmpty()) {
             try {
-                catalog.createTable(stmt);
+                catalog.createTable(database, stmt);
             } catch (CatalogException e) {
                 addError(SemanticError.ErrorType.TABLE_ALREADY_EXISTS,
                         stmt.getLine(), stmt.getColumn(), e.getMessage());
@@ -107,14 +113,14 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
         String tableName = stmt.getTableName().getName();
         
         // 检查表是否存在
-        if (!catalog.tableExists(tableName)) {
+        if (!catalog.tableExists(database, tableName)) {
             addError(SemanticError.ErrorType.TABLE_NOT_EXISTS,
                     stmt.getTableName().getLine(), stmt.getTableName().getColumn(),
                     "Table '" + tableName + "' does not exist");
             return null;
         }
         
-        TableSchema schema = catalog.getTableSchema(tableName);
+        TableSchema schema = catalog.getTableSchema(database, tableName);
         List<Identifier> columns = stmt.getColumns();
         ValuesList values = stmt.getValues();
         
@@ -199,54 +205,251 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
     
     @Override
     public Void visitSelectStatement(SelectStatement stmt) {
-        String tableName = stmt.getTableName().getName();
-        
-        // 检查表是否存在
-        if (!catalog.tableExists(tableName)) {
-            addError(SemanticError.ErrorType.TABLE_NOT_EXISTS,
-                    stmt.getTableName().getLine(), stmt.getTableName().getColumn(),
-                    "Table '" + tableName + "' does not exist");
+        // FROM及JOIN中的表构成列名解析的作用域
+        List<TableSchema> scope = new ArrayList<>();
+        if (!addToScope(stmt.getTableName(), scope)) {
             return null;
         }
+        for (JoinClause join : stmt.getJoins()) {
+            if (!addToScope(join.getTableName(), scope)) {
+                return null;
+            }
+            checkConditionExpression(join.getCondition(), scope);
+            checkJoinCondition(join, scope);
+        }
         
-        TableSchema schema = catalog.getTableSchema(tableName);
         SelectList selectList = stmt.getSelectList();
         
         // 检查选择列表
         if (!selectList.isSelectAll()) {
             for (Expression expr : selectList.getItems()) {
                 if (expr instanceof Identifier) {
-                    Identifier column = (Identifier) expr;
-                    if (!schema.hasColumn(column.getName())) {
-                        addError(SemanticError.ErrorType.COLUMN_NOT_EXISTS,
-                                column.getLine(), column.getColumn(),
-                                "Column '" + column.getName() + "' does not exist in table '" + tableName + "'");
-                    }
+                    resolveColumn((Identifier) expr, scope);
+                } else if (expr instanceof AggregateExpression) {
+                    checkAggregate((AggregateExpression) expr, scope);
                 }
             }
         }
         
         // 检查WHERE子句
         if (stmt.getWhereClause() != null) {
-            checkWhereClause(stmt.getWhereClause(), schema);
+            checkConditionExpression(stmt.getWhereClause().getCondition(), scope);
+        }
+        
+        // 检查ORDER BY：只能按列或（聚合查询中）按聚合函数排序
+        for (OrderByItem item : stmt.getOrderBy()) {
+            Expression expr = item.getExpression();
+            if (expr instanceof Identifier) {
+                resolveColumn((Identifier) expr, scope);
+            } else if (expr instanceof AggregateExpression && stmt.isAggregate()) {
+                checkAggregate((AggregateExpression) expr, scope);
+            } else if (expr instanceof AggregateExpression) {
+                addError(SemanticError.ErrorType.INVALID_AGGREGATE, expr.getLine(), expr.getColumn(),
+                        "Aggregate function " + expr + " in ORDER BY requires GROUP BY or an aggregate select list");
+            } else {
+                addError(SemanticError.ErrorType.INVALID_VALUE, expr.getLine(), expr.getColumn(),
+                        "ORDER BY expects a column or an aggregate function, but got " + expr);
+            }
+        }
+        
+        if (stmt.isAggregate()) {
+            checkGrouping(stmt, scope);
         }
         
         return null;
     }
     
+    /**
+     * 聚合函数的参数列必须存在，SUM和AVG只能用于数值列
+     */
+    private void checkAggregate(AggregateExpression aggregate, List<TableSchema> scope) {
+        if (aggregate.isCountStar()) {
+            return;
+        }
+        Identifier argument = aggregate.getArgument();
+        TableSchema owner = resolveColumn(argument, scope);
+        if (owner == null) {
+            return;
+        }
+        ColumnInfo column = owner.getColumn(argument.getName());
+        boolean numeric = column.getDataType() == TokenType.INT || column.getDataType() == TokenType.FLOAT
+                || column.getDataType() == TokenType.DOUBLE;
+        if ((aggregate.getFunction() == AggregateExpression.Function.SUM
+                || aggregate.getFunction() == AggregateExpression.Function.AVG) && !numeric) {
+            addError(SemanticError.ErrorType.TYPE_MISMATCH, aggregate.getLine(), aggregate.getColumn(),
+                    aggregate.getFunction() + " requires a numeric column, but '" + argument + "' is "
+                            + column.getDataType().getSymbol());
+        }
+    }
+    
+    /**
+     * 聚合查询中，选择列表和ORDER BY里不在聚合函数内的列必须出现在GROUP BY中
+     */
+    private void checkGrouping(SelectStatement stmt, List<TableSchema> scope) {
+        SelectList selectList = stmt.getSelectList();
+        if (selectList.isSelectAll()) {
+            addError(SemanticError.ErrorType.INVALID_AGGREGATE, selectList.getLine(), selectList.getColumn(),
+                    "SELECT * cannot be used with GROUP BY or aggregate functions");
+            return;
+        }
+        
+        List<String> grouped = new ArrayList<>();
+        for (Identifier column : stmt.getGroupBy()) {
+            TableSchema owner = resolveColumn(column, scope);
+            if (owner != null) {
+                grouped.add(owner.getTableName().toUpperCase() + "." + column.getName().toUpperCase());
+            }
+        }
+        
+        List<Expression> items = new ArrayList<>(selectList.getItems());
+        for (OrderByItem item : stmt.getOrderBy()) {
+            items.add(item.getExpression());
+        }
+        for (Expression expr : items) {
+            if (!(expr instanceof Identifier)) {
+                continue;
+            }
+            Identifier column = (Identifier) expr;
+            TableSchema owner = ownerOf(column, scope);
+            if (owner != null && !grouped.contains(owner.getTableName().toUpperCase() + "." + column.getName().toUpperCase())) {
+                addError(SemanticError.ErrorType.INVALID_AGGREGATE, column.getLine(), column.getColumn(),
+                        "Column '" + column + "' must appear in GROUP BY or be used in an aggregate function");
+            }
+        }
+    }
+    
+    /**
+     * 把FROM/JOIN中的表加入作用域，表不存在或重复出现时报错
+     */
+    private boolean addToScope(Identifier table, List<TableSchema> scope) {
+        String tableName = table.getName();
+        
+        // 检查表是否存在
+        if (!catalog.tableExists(database, tableName)) {
+            addError(SemanticError.ErrorType.TABLE_NOT_EXISTS,
+                    table.getLine(), table.getColumn(),
+                    "Table '" + tableName + "' does not exist");
+            return false;
+        }
+        for (TableSchema schema : scope) {
+            if (schema.getTableName().equalsIgnoreCase(tableName)) {
+                addError(SemanticError.ErrorType.INVALID_JOIN, table.getLine(), table.getColumn(),
+                        "Table '" + tableName + "' appears more than once in FROM; table aliases are not supported");
+                return false;
+            }
+        }
+        scope.add(catalog.getTableSchema(database, tableName));
+        return true;
+    }
+    
+    /**
+     * 在作用域中解析列引用：限定名必须指向作用域中的表，未限定的列名必须恰好属于一张表
+     * @return 列所属的表，解析失败时返回null
+     */
+    private TableSchema resolveColumn(Identifier column, List<TableSchema> scope) {
+        if (column.getQualifier() != null) {
+            for (TableSchema schema : scope) {
+                if (schema.getTableName().equalsIgnoreCase(column.getQualifier())) {
+                    if (schema.hasColumn(column.getName())) {
+                        return schema;
+                    }
+                    addError(SemanticError.ErrorType.COLUMN_NOT_EXISTS, column.getLine(), column.getColumn(),
+                            "Column '" + column.getName() + "' does not exist in table '" + schema.getTableName() + "'");
+                    return null;
+                }
+            }
+            addError(SemanticError.ErrorType.TABLE_NOT_EXISTS, column.getLine(), column.getColumn(),
+                    "Table '" + column.getQualifier() + "' is not in the FROM clause");
+            return null;
+        }
+        
+        TableSchema owner = null;
+        for (TableSchema schema : scope) {
+            if (schema.hasColumn(column.getName())) {
+                if (owner != null) {
+                    addError(SemanticError.ErrorType.AMBIGUOUS_COLUMN, column.getLine(), column.getColumn(),
+                            "Column '" + column.getName() + "' is ambiguous; qualify it with a table name");
+                    return null;
+                }
+                owner = schema;
+            }
+        }
+        if (owner == null) {
+            String where = scope.size() == 1 ? " in table '" + scope.get(0).getTableName() + "'" : "";
+            addError(SemanticError.ErrorType.COLUMN_NOT_EXISTS, column.getLine(), column.getColumn(),
+                    "Column '" + column.getName() + "' does not exist" + where);
+        }
+        return owner;
+    }
+    
+    /**
+     * JOIN条件中至少要有一个 新表的列 = 之前的表的列 的等值条件
+     */
+    private void checkJoinCondition(JoinClause join, List<TableSchema> scope) {
+        TableSchema joined = scope.get(scope.size() - 1);
+        List<TableSchema> preceding = scope.subList(0, scope.size() - 1);
+        List<Expression> conjuncts = new ArrayList<>();
+        collectConjuncts(join.getCondition(), conjuncts);
+        
+        for (Expression conjunct : conjuncts) {
+            if (!(conjunct instanceof BinaryExpression)) {
+                continue;
+            }
+            BinaryExpression binExpr = (BinaryExpression) conjunct;
+            if (binExpr.getOperator() != TokenType.EQUALS
+                    || !(binExpr.getLeft() instanceof Identifier) || !(binExpr.getRight() instanceof Identifier)) {
+                continue;
+            }
+            TableSchema left = ownerOf((Identifier) binExpr.getLeft(), scope);
+            TableSchema right = ownerOf((Identifier) binExpr.getRight(), scope);
+            if ((left == joined && preceding.contains(right)) || (right == joined && preceding.contains(left))) {
+                return;
+            }
+        }
+        addError(SemanticError.ErrorType.INVALID_JOIN, join.getLine(), join.getColumn(),
+                "JOIN condition must contain an equality between a column of '" + joined.getTableName()
+                        + "' and a column of a preceding table");
+    }
+    
+    /**
+     * 不报错地查找列所属的表
+     */
+    private TableSchema ownerOf(Identifier column, List<TableSchema> scope) {
+        TableSchema owner = null;
+        for (TableSchema schema : scope) {
+            boolean named = column.getQualifier() == null || schema.getTableName().equalsIgnoreCase(column.getQualifier());
+            if (named && schema.hasColumn(column.getName())) {
+                if (owner != null) {
+                    return null;
+                }
+                owner = schema;
+            }
+        }
+        return owner;
+    }
+    
+    private void collectConjuncts(Expression expr, List<Expression> out) {
+        if (expr instanceof BinaryExpression && ((BinaryExpression) expr).getOperator() == TokenType.AND) {
+            collectConjuncts(((BinaryExpression) expr).getLeft(), out);
+            collectConjuncts(((BinaryExpression) expr).getRight(), out);
+        } else {
+            out.add(expr);
+        }
+    }
+    
     @Override
     public Void visitDeleteStatement(DeleteStatement stmt) {
         String tableName = stmt.getTableName().getName();
         
         // 检查表是否存在
-        if (!catalog.tableExists(tableName)) {
+        if (!catalog.tableExists(database, tableName)) {
             addError(SemanticError.ErrorType.TABLE_NOT_EXISTS,
                     stmt.getTableName().getLine(), stmt.getTableName().getColumn(),
                     "Table '" + tableName + "' does not exist");
             return null;
         }
         
-        TableSchema schema = catalog.getTableSchema(tableName);
+        TableSchema schema = catalog.getTableSchema(database, tableName);
         
         // 检查WHERE子句
         if (stmt.getWhereClause() != null) {
@@ -256,6 +459,96 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
         return null;
     }
     
+    @Override
+    public Void visitExplainStatement(ExplainStatement stmt) {
+        stmt.getStatement().accept(this);
+        return null;
+    }
+    
+    @Override
+    public Void visitAnalyzeTableStatement(AnalyzeTableStatement stmt) {
+        String tableName = stmt.getTableName().getName();
+        
+        // 检查表是否存在
+        if (!catalog.tableExists(database, tableName)) {
+            addError(SemanticError.ErrorType.TABLE_NOT_EXISTS,
+                    stmt.getTableName().getLine(), stmt.getTableName().getColumn(),
+                    "Table '" + tableName + "' does not exist");
+        }
+        return null;
+    }
+    
+    @Override
+    public Void visitCreateIndexStatement(CreateIndexStatement stmt) {
+        String tableName = stmt.getTableName().getName();
+        String indexName = stmt.getIndexName().getName();
+        
+        // 检查表是否存在
+        if (!catalog.tableExists(database, tableName)) {
+            addError(SemanticError.ErrorType.TABLE_NOT_EXISTS,
+                    stmt.getTableName().getLine(), stmt.getTableName().getColumn(),
+                    "Table '" + tableName + "' does not exist");
+            return null;
+        }
+        
+        TableSchema schema = catalog.getTableSchema(database, tableName);
+        
+        // 检查索引类型
+        IndexType indexType = IndexType.BTREE;
+        if (stmt.getIndexType() != null) {
+            indexType = IndexType.fromName(stmt.getIndexType().getName());
+            if (indexType == null) {
+                addError(SemanticError.ErrorType.INVALID_VALUE,
+                        stmt.getIndexType().getLine(), stmt.getIndexType().getColumn(),
+                        "Unknown index type '" + stmt.getIndexType().getName() + "'");
+                return null;
+            }
+        }
+        if (indexType != IndexType.BTREE && stmt.getColumns().size() != 1) {
+            addError(SemanticError.ErrorType.INVALID_VALUE,
+                    stmt.getLine(), stmt.getColumn(),
+                    indexType + " index '" + indexName + "' must be defined on exactly one column");
+            return null;
+        }
+        
+        // 检查索引是否已存在
+        if (schema.hasIndex(indexName)) {
+            addError(SemanticError.ErrorType.INDEX_ALREADY_EXISTS,
+                    stmt.getIndexName().getLine(), stmt.getIndexName().getColumn(),
+                    "Index '" + indexName + "' already exists on table '" + tableName + "'");
+            return null;
+        }
+        
+        // 检查索引列是否存在且不重复
+        Set<String> columnNames = new HashSet<>();
+        List<String> columns = new ArrayList<>();
+        for (Identifier column : stmt.getColumns()) {
+            if (!schema.hasColumn(column.getName())) {
+                addError(SemanticError.ErrorType.COLUMN_NOT_EXISTS,
+                        column.getLine(), column.getColumn(),
+                        "Column '" + column.getName() + "' does not exist in table '" + tableName + "'");
+            } else if (!columnNames.add(column.getName().toUpperCase())) {
+                addError(SemanticError.ErrorType.DUPLICATE_COLUMN,
+                        column.getLine(), column.getColumn(),
+                        "Duplicate column '" + column.getName() + "' in index '" + indexName + "'");
+            } else {
+                columns.add(schema.getColumn(column.getName()).getName());
+            }
+        }
+        
+        // 如果没有错误，更新目录
+        if (errors.isEmpty()) {
+            try {
+                catalog.createIndex(database, indexName, tableName, columns, indexType);
+            } catch (CatalogException e) {
+                addError(SemanticError.ErrorType.INDEX_ALREADY_EXISTS,
+                        stmt.getLine(), stmt.getColumn(), e.getMessage());
+            }
+        }
+        
+        return null;
+    }
+    
     @Override
     public Void visitIdentifier(Identifier expr) {
         return null;
@@ -292,6 +585,22 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
         return null;
     }
     
+    @Override
+    public Void visitJoinClause(JoinClause expr) {
+        expr.getCondition().accept(this);
+        return null;
+    }
+    
+    @Override
+    public Void visitAggregateExpression(AggregateExpression expr) {
+        return null;
+    }
+    
+    @Override
+    public Void visitOrderByItem(OrderByItem expr) {
+        return null;
+    }
+    
     @Override
     public Void visitSelectList(SelectList expr) {
         for (Expression item : expr.getItems()) {
@@ -305,61 +614,27 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
      */
     private void checkWhereClause(WhereClause whereClause, TableSchema schema) {
         Expression condition = whereClause.getCondition();
-        checkConditionExpression(condition, schema);
+        List<TableSchema> scope = new ArrayList<>();
+        scope.add(schema);
+        checkConditionExpression(condition, scope);
     }
     
     /**
-     * 检查条件表达式
+     * 检查条件表达式：其中的列引用都要能在作用域中解析
      */
-    private void checkConditionExpression(Expression expr, TableSchema schema) {
+    private void checkConditionExpression(Expression expr, List<TableSchema> scope) {
         if (expr instanceof BinaryExpression) {
             BinaryExpression binExpr = (BinaryExpression) expr;
-            checkConditionExpression(binExpr.getLeft(), schema);
-            checkConditionExpression(binExpr.getRight(), schema);
-            
-            // 检查比较操作的类型兼容性
-            if (isComparisonOperator(binExpr.getOperator())) {
-                // 简化的类型检查：确保至少一边是标识符且存在于表中
-                Expression left = binExpr.getLeft();
-                Expression right = binExpr.getRight();
-                
-                if (left instanceof Identifier) {
-                    Identifier column = (Identifier) left;
-                    if (!schema.hasColumn(column.getName())) {
-                        addError(SemanticError.ErrorType.COLUMN_NOT_EXISTS,
-                                column.getLine(), column.getColumn(),
-                                "Column '" + column.getName() + "' does not exist");
-                    }
-                }
-                
-                if (right instanceof Identifier) {
-                    Identifier column = (Identifier) right;
-                    if (!schema.hasColumn(column.getName())) {
-                        addError(SemanticError.ErrorType.COLUMN_NOT_EXISTS,
-                                column.getLine(), column.getColumn(),
-                                "Column '" + column.getName() + "' does not exist");
-                    }
-                }
-            }
+            checkConditionExpression(binExpr.getLeft(), scope);
+            checkConditionExpression(binExpr.getRight(), scope);
         } else if (expr instanceof Identifier) {
-            Identifier column = (Identifier) expr;
-            if (!schema.hasColumn(column.getName())) {
-                addError(SemanticError.ErrorType.COLUMN_NOT_EXISTS,
-                        column.getLine(), column.getColumn(),
-                        "Column '" + column.getName() + "' does not exist");
-            }
+            resolveColumn((Identifier) expr, scope);
+        } else if (expr instanceof AggregateExpression) {
+            addError(SemanticError.ErrorType.INVALID_AGGREGATE, expr.getLine(), expr.getColumn(),
+                    "Aggregate function " + expr + " is not allowed in a condition");
         }
     }
     
-    /**
-     * 检查是否为比较操作符
-     */
-    private boolean isComparisonOperator(TokenType operator) {
-        return operator == TokenType.EQUALS || operator == TokenType.NOT_EQUALS ||
-               operator == TokenType.LESS_THAN || operator == TokenType.GREATER_THAN ||
-               operator == TokenType.LESS_EQUAL || operator == TokenType.GREATER_EQUAL;
-    }
-    
     /**
      * 检查数据类型是否有效
      */
@@ -416,4 +691,28 @@ public class SemanticAnalyzer implements ASTVisitor<Void> {
         // CREATE USER语句无需语义检查
         return null;
     }
+    
+    @Override
+    public Void visitTransactionStatement(TransactionStatement stmt) {
+        // 事务状态在执行时检查
+        return null;
+    }
+    
+    @Override
+    public Void visitShowProcesslistStatement(ShowProcesslistStatement stmt) {
+        // SHOW PROCESSLIST语句无需语义检查
+        return null;
+    }
+    
+    @Override
+    public Void visitKillStatement(KillStatement stmt) {
+        // 要取消的语句是否存在在执行时检查
+        return null;
+    }
+    
+    @Override
+    public Void visitSetStatement(SetStatement stmt) {
+        // 变量名和取值在语法分析时检查
+        return null;
+    }
 }
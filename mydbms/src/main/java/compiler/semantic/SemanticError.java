@@ -15,6 +15,10 @@ public class SemanticError {
         PRIMARY_KEY_VIOLATION("主键冲突"),
         NOT_NULL_VIOLATION("非空约束违反"),
         DUPLICATE_COLUMN("重复列名"),
+        INDEX_ALREADY_EXISTS("索引已存在"),
+        AMBIGUOUS_COLUMN("列名不明确"),
+        INVALID_JOIN("连接条件无效"),
+        INVALID_AGGREGATE("聚合使用错误"),
         INVALID_VALUE("无效值");
         
         private final String description;
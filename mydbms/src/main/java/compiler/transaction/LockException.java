@@ -0,0 +1,12 @@
+package compiler.transaction;
+
+/**
+ * 加锁失败：被选为死锁的牺牲者、等待超时或等待被中断，所在事务需要回滚
+ */
+public class LockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LockException(String message) {
+        super(message);
+    }
+}
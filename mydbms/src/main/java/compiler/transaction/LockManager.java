@@ -0,0 +1,354 @@
+package compiler.transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁管理器 - 表上的意向锁（IS、IX）、表和行上的共享锁（S）与排他锁（X），事务结束时释放全部锁
+ * 锁表按锁对象的哈希值分区，每个分区有自己的监视器，无竞争的加锁只进入一个分区；
+ * 等待的事务记入等待图，后台线程定期检测环路，选择环中最年轻（编号最大）的事务作为牺牲者
+ */
+public class LockManager {
+    public static final int DEFAULT_PARTITIONS = 16;
+    public static final long DEFAULT_DETECT_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_WAIT_TIMEOUT_MILLIS = 50_000;
+    // 表级锁的行号
+    private static final long TABLE = Long.MIN_VALUE;
+
+    /**
+     * 锁模式
+     */
+    public enum Mode {
+        IS, IX, S, X;
+
+        boolean isCompatible(Mode other) {
+            switch (this) {
+                case IS:
+                    return other != X;
+                case IX:
+                    return other == IS || other == IX;
+                case S:
+                    return other == IS || other == S;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * 已持有this时再申请other，需要持有的模式（同时覆盖两者的最弱模式）
+         */
+        Mode combine(Mode other) {
+            if (this == other || other == IS) {
+                return this;
+            }
+            if (this == IS) {
+                return other;
+            }
+            // IX与S的组合没有单独的SIX模式，升级为X
+            return X;
+        }
+    }
+
+    /**
+     * 锁对象：一张表或表中的一行
+     */
+    public static final class Key {
+        private final String table;
+        private final long row;
+
+        private Key(String table, long row) {
+            this.table = table;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return row == other.row && table.equals(other.table);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(table, row);
+        }
+
+        @Override
+        public String toString() {
+            return row == TABLE ? table : table + "#" + row;
+        }
+    }
+
+    public static Key table(String dbName, String tableName) {
+        return new Key((dbName + "/" + tableName).toLowerCase(), TABLE);
+    }
+
+    /**
+     * 行锁：段文件中的行用行号，版本行用负的版本编号
+     */
+    public static Key row(String dbName, String tableName, long row) {
+        return new Key((dbName + "/" + tableName).toLowerCase(), row);
+    }
+
+    private static final class Entry {
+        final Map<Long, Mode> holders = new HashMap<>();
+        int waiters;
+    }
+
+    private static final class Partition {
+        final Map<Key, Entry> entries = new HashMap<>();
+    }
+
+    /**
+     * 一个事务正在等待的锁：所在分区、锁对象的条目和申请的模式
+     */
+    private static final class Wait {
+        final Partition partition;
+        final Entry entry;
+        final Mode mode;
+
+        Wait(Partition partition, Entry entry, Mode mode) {
+            this.partition = partition;
+            this.entry = entry;
+            this.mode = mode;
+        }
+    }
+
+    private final Partition[] partitions;
+    private final long detectIntervalMillis;
+    private final long waitTimeoutMillis;
+    // 等待图：等待的事务 -> 阻塞它的事务
+    private final Map<Long, Set<Long>> waitsFor = new ConcurrentHashMap<>();
+    private final Map<Long, Wait> waiting = new ConcurrentHashMap<>();
+    private final Set<Long> victims = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService detector;
+    private volatile long deadlocks;
+
+    public LockManager() {
+        this(DEFAULT_PARTITIONS, Long.getLong("deadlockCheckInterval", DEFAULT_DETECT_INTERVAL_MILLIS),
+                Long.getLong("lockWaitTimeout", DEFAULT_WAIT_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * @param partitions 分区数，取整到2的幂
+     * @param detectIntervalMillis 死锁检测的间隔
+     * @param waitTimeoutMillis 单次加锁最长等待时间
+     */
+    public LockManager(int partitions, long detectIntervalMillis, long waitTimeoutMillis) {
+        int size = Integer.highestOneBit(Math.max(partitions, 1) * 2 - 1);
+        this.partitions = new Partition[size];
+        for (int i = 0; i < size; i++) {
+            this.partitions[i] = new Partition();
+        }
+        this.detectIntervalMillis = Math.max(detectIntervalMillis, 1);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    private Partition partition(Key key) {
+        int h = key.hashCode();
+        return partitions[(h ^ (h >>> 16)) & (partitions.length - 1)];
+    }
+
+    /**
+     * 为事务加锁，与其他事务持有的锁冲突时等待
+     * @throws LockException 被选为死锁的牺牲者、等待超时或被中断
+     */
+    public void lock(Transaction transaction, Key key, Mode mode) {
+        long id = transaction.getId();
+        Partition partition = partition(key);
+        synchronized (partition) {
+            Entry entry = partition.entries.computeIfAbsent(key, k -> new Entry());
+            Mode held = entry.holders.get(id);
+            Mode wanted = held == null ? mode : held.combine(mode);
+            if (held == wanted) {
+                return;
+            }
+
+            long deadline = 0;
+            Set<Long> blockers;
+            while (!(blockers = blockers(entry, id, wanted)).isEmpty()) {
+                String failure = null;
+                long now = System.currentTimeMillis();
+                if (deadline == 0) {
+                    deadline = now + waitTimeoutMillis;
+                }
+                if (victims.remove(id)) {
+                    failure = "Deadlock detected; transaction " + id + " was chosen as the victim";
+                } else if (now >= deadline) {
+                    failure = "Lock wait timeout exceeded for " + key + " (held by transactions " + blockers + ")";
+                }
+                if (failure == null) {
+                    waitsFor.put(id, blockers);
+                    waiting.put(id, new Wait(partition, entry, wanted));
+                    startDetector();
+                    entry.waiters++;
+                    try {
+                        partition.wait(Math.min(deadline - now, detectIntervalMillis));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failure = "Interrupted while waiting for lock on " + key;
+                    } finally {
+                        entry.waiters--;
+                    }
+                }
+                if (failure != null) {
+                    stopWaiting(id);
+                    if (entry.holders.isEmpty() && entry.waiters == 0) {
+                        partition.entries.remove(key);
+                    }
+                    throw new LockException(failure);
+                }
+            }
+            stopWaiting(id);
+            entry.holders.put(id, wanted);
+        }
+        transaction.addLock(key);
+    }
+
+    private static Set<Long> blockers(Entry entry, long id, Mode mode) {
+        Set<Long> blockers = new HashSet<>();
+        for (Map.Entry<Long, Mode> holder : entry.holders.entrySet()) {
+            if (holder.getKey() != id && !mode.isCompatible(holder.getValue())) {
+                blockers.add(holder.getKey());
+            }
+        }
+        return blockers;
+    }
+
+    private void stopWaiting(long id) {
+        waitsFor.remove(id);
+        waiting.remove(id);
+        victims.remove(id);
+    }
+
+    /**
+     * 释放事务持有的全部锁，唤醒同一分区中等待的事务
+     */
+    public void releaseAll(Transaction transaction) {
+        long id = transaction.getId();
+        for (Key key : transaction.takeLocks()) {
+            Partition partition = partition(key);
+            synchronized (partition) {
+                Entry entry = partition.entries.get(key);
+                if (entry == null) {
+                    continue;
+                }
+                entry.holders.remove(id);
+                if (entry.holders.isEmpty() && entry.waiters == 0) {
+                    partition.entries.remove(key);
+                }
+                partition.notifyAll();
+            }
+        }
+        stopWaiting(id);
+    }
+
+    /**
+     * 检测到的死锁次数
+     */
+    public long getDeadlocks() {
+        return deadlocks;
+    }
+
+    private synchronized void startDetector() {
+        if (detector != null) {
+            return;
+        }
+        detector = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "mydbms-deadlock-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        detector.scheduleWithFixedDelay(this::detect, detectIntervalMillis, detectIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在等待图中查找环路，每个环选择编号最大的事务作为牺牲者并唤醒它
+     * 等待图是检测开始时的快照，标记牺牲者之前在它等待的分区中确认它仍被环中的下一个事务阻塞
+     */
+    void detect() {
+        if (waitsFor.isEmpty()) {
+            return;
+        }
+        Map<Long, Set<Long>> graph = new HashMap<>(waitsFor);
+        Set<Long> done = new HashSet<>();
+        for (Long start : new ArrayList<>(graph.keySet())) {
+            List<Long> cycle = findCycle(graph, start, new ArrayList<>(), done);
+            while (cycle != null) {
+                int index = 0;
+                for (int i = 1; i < cycle.size(); i++) {
+                    if (cycle.get(i) > cycle.get(index)) {
+                        index = i;
+                    }
+                }
+                long victim = cycle.get(index);
+                // 环中每个事务等待它后面的事务，最后一个等待第一个
+                long blocker = cycle.get((index + 1) % cycle.size());
+                graph.remove(victim);
+                if (markVictim(victim, blocker)) {
+                    deadlocks++;
+                    System.out.println("[Lock] 检测到死锁：事务 " + cycle + " 循环等待，回滚事务 " + victim);
+                }
+                done.clear();
+                cycle = graph.containsKey(start) ? findCycle(graph, start, new ArrayList<>(), done) : null;
+            }
+        }
+    }
+
+    /**
+     * 在分区的监视器中确认victim仍在等待、且blocker持有的锁仍与它申请的模式冲突，然后标记并唤醒它；
+     * 快照之后它已经取得锁或不再等待时返回false
+     */
+    private boolean markVictim(long victim, long blocker) {
+        Wait wait = waiting.get(victim);
+        if (wait == null) {
+            return false;
+        }
+        synchronized (wait.partition) {
+            // 等待的事务每次醒来都重新登记，在监视器中重新读取
+            Wait current = waiting.get(victim);
+            if (current == null || current.partition != wait.partition
+                    || !blockers(current.entry, victim, current.mode).contains(blocker)) {
+                return false;
+            }
+            victims.add(victim);
+            wait.partition.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * 从node出发深度优先搜索，返回遇到的第一个环；done中的节点已确认不在环上
+     */
+    private static List<Long> findCycle(Map<Long, Set<Long>> graph, long node, List<Long> path, Set<Long> done) {
+        int index = path.indexOf(node);
+        if (index >= 0) {
+            return new ArrayList<>(path.subList(index, path.size()));
+        }
+        Set<Long> next = graph.get(node);
+        if (next == null || done.contains(node)) {
+            return null;
+        }
+        path.add(node);
+        for (long successor : next) {
+            List<Long> cycle = findCycle(graph, successor, path, done);
+            if (cycle != null) {
+                return cycle;
+            }
+        }
+        path.remove(path.size() - 1);
+        done.add(node);
+        return null;
+    }
+}
@@ -0,0 +1,597 @@
+package compiler.transaction;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * 重做日志 - 已提交但还没有被检查点写入存储引擎的修改
+ * 事务提交时把插入的行和删除的段文件行号作为一条COMMIT记录追加到日志并刷到磁盘，之后修改才对其他事务可见；
+ * 检查点写入存储引擎的部分追加APPLIED记录，日志中的修改全部写入后截断日志。启动时重放日志恢复没有写入的修改。
+ * 检查点替换一个段文件之前追加REWRITE记录（段号和删除后的行数），写入一批行版本之前追加INSERTING记录（写入前的表行数），
+ * 崩溃时最后一个段文件或这批行版本写到哪里，恢复时按段文件的实际行数判断，不会按已经移动的行号重复删除或重复插入。
+ * 每条记录为 int 载荷长度 + 载荷 + long CRC32，崩溃时只写了一部分的记录在重放时丢弃。
+ * 行版本编号只在进程内有效，恢复时用新的版本重写日志
+ */
+public class RedoLog {
+    private static final byte COMMIT = 'C';
+    private static final byte APPLIED = 'A';
+    private static final byte DROP = 'D';
+    private static final byte REWRITE = 'W';
+    private static final byte INSERTING = 'I';
+    // 还有没写入的修改、日志却超过这个大小时，只保留没写入的修改重写日志
+    private static final long COMPACT_BYTES = 16L * 1024 * 1024;
+
+    private final File file;
+    // 日志中还没有写入存储引擎的修改，与日志文件的内容一致
+    private final Map<String, TableChanges> pending = new LinkedHashMap<>();
+    private FileOutputStream out;
+
+    /**
+     * 日志中一张表没有写入存储引擎的修改：插入的行（按版本编号）和删除的段文件行号
+     */
+    public static final class TableChanges {
+        private final String dbName;
+        private final String tableName;
+        private final Map<Long, Insert> inserts = new LinkedHashMap<>();
+        private final NavigableSet<Integer> deletedRows = new TreeSet<>();
+        // 检查点正在进行、还没有APPLIED记录的段文件替换和行版本写入
+        private Rewrite rewrite;
+        private InsertBatch batch;
+
+        TableChanges(String dbName, String tableName) {
+            this.dbName = dbName;
+            this.tableName = tableName;
+        }
+
+        public String getDatabaseName() {
+            return dbName;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public Collection<Insert> getInserts() {
+            return Collections.unmodifiableCollection(inserts.values());
+        }
+
+        public NavigableSet<Integer> getDeletedRows() {
+            return Collections.unmodifiableNavigableSet(deletedRows);
+        }
+
+        /**
+         * 没有写入的插入，按版本编号
+         */
+        Map<Long, Insert> getInsertsById() {
+            return Collections.unmodifiableMap(inserts);
+        }
+
+        /**
+         * 崩溃时可能已经替换的段文件，没有时为null
+         */
+        public Rewrite getRewrite() {
+            return rewrite;
+        }
+
+        /**
+         * 崩溃时可能已经写入一部分的行版本，没有时为null
+         */
+        public InsertBatch getInsertBatch() {
+            return batch;
+        }
+
+        boolean isEmpty() {
+            return inserts.isEmpty() && deletedRows.isEmpty();
+        }
+    }
+
+    /**
+     * 检查点替换一个段文件：段号、删除后的行数和删除的行号；段文件的行数等于rowsAfter时替换已经完成
+     */
+    public static final class Rewrite {
+        private final int segment;
+        private final int rowsAfter;
+        private final List<Integer> rows;
+
+        Rewrite(int segment, int rowsAfter, List<Integer> rows) {
+            this.segment = segment;
+            this.rowsAfter = rowsAfter;
+            this.rows = rows;
+        }
+
+        public int getSegment() {
+            return segment;
+        }
+
+        public int getRowsAfter() {
+            return rowsAfter;
+        }
+
+        public List<Integer> getRows() {
+            return rows;
+        }
+    }
+
+    /**
+     * 检查点按顺序写入的一批行版本：写入前表的行数和版本编号；表多出的行数就是已经写入的版本个数
+     */
+    public static final class InsertBatch {
+        private final int rowsBefore;
+        private final List<Long> ids;
+
+        InsertBatch(int rowsBefore, List<Long> ids) {
+            this.rowsBefore = rowsBefore;
+            this.ids = ids;
+        }
+
+        public int getRowsBefore() {
+            return rowsBefore;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+    }
+
+    /**
+     * 插入的一行：INSERT的列名（未指定时为null）和原始字面量
+     */
+    public static final class Insert {
+        private final List<String> columns;
+        private final List<String> literals;
+
+        Insert(List<String> columns, List<String> literals) {
+            this.columns = columns;
+            this.literals = literals;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public List<String> getLiterals() {
+            return literals;
+        }
+    }
+
+    /**
+     * 打开日志并读取其中没有写入的修改，丢弃末尾不完整的记录
+     */
+    public RedoLog(File file) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        long valid = file.exists() ? read() : 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(valid);
+        }
+        out = new FileOutputStream(file, true);
+    }
+
+    /**
+     * 日志中没有写入存储引擎的修改
+     */
+    public synchronized List<TableChanges> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * 记录事务在给定版本存储中的修改并刷到磁盘；没有修改时不写日志
+     */
+    public synchronized void commit(long transactionId, Collection<VersionStore> stores) throws IOException {
+        byte[] payload = commitRecord(transactionId, stores);
+        if (payload != null) {
+            append(payload);
+        }
+    }
+
+    /**
+     * 检查点替换段文件之前记录段号、删除后的行数和要删除的行号
+     */
+    public synchronized void rewriting(String dbName, String tableName, int segment, int rowsAfter,
+                                       Collection<Integer> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        writeRewrite(payload, dbName, tableName, new Rewrite(segment, rowsAfter, new ArrayList<>(rows)));
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * 检查点按顺序写入行版本之前记录表的行数和这些版本的编号
+     */
+    public synchronized void inserting(String dbName, String tableName, int rowsBefore,
+                                       Collection<RowVersion> versions) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (RowVersion version : versions) {
+            ids.add(version.getId());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        writeInsertBatch(payload, dbName, tableName, new InsertBatch(rowsBefore, ids));
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * 记录检查点已写入存储引擎的行版本和已从段文件删除的行，同时结束这张表正在进行的段文件替换或行版本写入
+     */
+    public synchronized void applied(String dbName, String tableName, Collection<Integer> rows,
+                                     Collection<RowVersion> versions) throws IOException {
+        TableChanges table = pending.get(key(dbName, tableName));
+        if (rows.isEmpty() && versions.isEmpty() && (table == null || (table.rewrite == null && table.batch == null))) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(APPLIED);
+        writeString(payload, dbName);
+        writeString(payload, tableName);
+        List<Long> ids = new ArrayList<>();
+        for (RowVersion version : versions) {
+            ids.add(version.getId());
+        }
+        writeLongs(payload, ids);
+        writeInts(payload, rows);
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * 删除数据库时丢弃其中各表没有写入的修改
+     */
+    public synchronized void dropDatabase(String dbName) throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(DROP);
+        writeString(payload, dbName);
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * 恢复：用恢复事务在版本存储中的修改（新的版本编号）替换整个日志
+     */
+    synchronized void replace(long transactionId, Collection<VersionStore> stores) throws IOException {
+        byte[] payload = commitRecord(transactionId, stores);
+        pending.clear();
+        rewrite(() -> {
+            if (payload != null) {
+                writeRecord(payload);
+                apply(payload);
+            }
+        });
+    }
+
+    private byte[] commitRecord(long transactionId, Collection<VersionStore> stores) throws IOException {
+        List<VersionStore> changed = new ArrayList<>();
+        for (VersionStore store : stores) {
+            if (store.hasChangesOf(transactionId)) {
+                changed.add(store);
+            }
+        }
+        if (changed.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(COMMIT);
+        payload.writeInt(changed.size());
+        for (VersionStore store : changed) {
+            writeString(payload, store.getDatabaseName());
+            writeString(payload, store.getTableName());
+            List<RowVersion> inserted = store.insertedBy(transactionId);
+            payload.writeInt(inserted.size());
+            for (RowVersion version : inserted) {
+                payload.writeLong(version.getId());
+                writeStrings(payload, version.getColumns());
+                writeStrings(payload, version.getLiterals());
+            }
+            writeLongs(payload, store.versionsDeletedBy(transactionId));
+            writeInts(payload, store.rowsDeletedBy(transactionId));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeRewrite(DataOutputStream payload, String dbName, String tableName, Rewrite rewrite)
+            throws IOException {
+        payload.writeByte(REWRITE);
+        writeString(payload, dbName);
+        writeString(payload, tableName);
+        payload.writeInt(rewrite.segment);
+        payload.writeInt(rewrite.rowsAfter);
+        writeInts(payload, rewrite.rows);
+    }
+
+    private static void writeInsertBatch(DataOutputStream payload, String dbName, String tableName, InsertBatch batch)
+            throws IOException {
+        payload.writeByte(INSERTING);
+        writeString(payload, dbName);
+        writeString(payload, tableName);
+        payload.writeInt(batch.rowsBefore);
+        writeLongs(payload, batch.ids);
+    }
+
+    /**
+     * 压缩时把一张表没有写入的修改写成一条COMMIT记录（版本编号不变），正在进行的段文件替换和行版本写入各跟一条记录
+     */
+    private static List<byte[]> changesRecords(TableChanges table) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(COMMIT);
+        payload.writeInt(1);
+        writeString(payload, table.dbName);
+        writeString(payload, table.tableName);
+        payload.writeInt(table.inserts.size());
+        for (Map.Entry<Long, Insert> entry : table.inserts.entrySet()) {
+            payload.writeLong(entry.getKey());
+            writeStrings(payload, entry.getValue().columns);
+            writeStrings(payload, entry.getValue().literals);
+        }
+        writeLongs(payload, Collections.emptyList());
+        writeInts(payload, table.deletedRows);
+        List<byte[]> records = new ArrayList<>();
+        records.add(bytes.toByteArray());
+        if (table.rewrite != null) {
+            bytes = new ByteArrayOutputStream();
+            writeRewrite(new DataOutputStream(bytes), table.dbName, table.tableName, table.rewrite);
+            records.add(bytes.toByteArray());
+        }
+        if (table.batch != null) {
+            bytes = new ByteArrayOutputStream();
+            writeInsertBatch(new DataOutputStream(bytes), table.dbName, table.tableName, table.batch);
+            records.add(bytes.toByteArray());
+        }
+        return records;
+    }
+
+    private interface Writer {
+        void write() throws IOException;
+    }
+
+    /**
+     * 把writer写出的记录写入临时文件，刷到磁盘后替换日志
+     */
+    private void rewrite(Writer writer) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        out.close();
+        out = new FileOutputStream(temp);
+        try {
+            writer.write();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        out = new FileOutputStream(file, true);
+    }
+
+    /**
+     * 追加一条记录并刷到磁盘，然后更新内存中的未写入修改；修改全部写入时截断日志，日志过大时压缩
+     */
+    private void append(byte[] payload) throws IOException {
+        writeRecord(payload);
+        out.getFD().sync();
+        apply(payload);
+
+        if (pending.isEmpty()) {
+            out.getChannel().truncate(0);
+        } else if (out.getChannel().size() > COMPACT_BYTES) {
+            List<TableChanges> changes = new ArrayList<>(pending.values());
+            rewrite(() -> {
+                for (TableChanges table : changes) {
+                    for (byte[] record : changesRecords(table)) {
+                        writeRecord(record);
+                    }
+                }
+            });
+        }
+    }
+
+    private void writeRecord(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 12);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeInt(payload.length);
+        record.write(payload);
+        record.writeLong(crc.getValue());
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * 读取日志，返回完整记录的结束位置
+     */
+    private long read() throws IOException {
+        long valid = 0;
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            DataInputStream in = new DataInputStream(stream);
+            while (true) {
+                byte[] payload;
+                long checksum;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > file.length()) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    checksum = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                apply(payload);
+                valid += payload.length + 12;
+            }
+        }
+        return valid;
+    }
+
+    private void apply(byte[] data) throws IOException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(data));
+        byte type = payload.readByte();
+        if (type == DROP) {
+            String prefix = readString(payload).toLowerCase() + "/";
+            pending.keySet().removeIf(key -> key.startsWith(prefix));
+            return;
+        }
+        if (type == APPLIED) {
+            String dbName = readString(payload);
+            String tableName = readString(payload);
+            TableChanges table = pending.get(key(dbName, tableName));
+            List<Long> ids = readLongs(payload);
+            List<Integer> rows = readInts(payload);
+            if (table != null) {
+                table.inserts.keySet().removeAll(ids);
+                table.deletedRows.removeAll(rows);
+                table.rewrite = null;
+                table.batch = null;
+                if (table.isEmpty()) {
+                    pending.remove(key(dbName, tableName));
+                }
+            }
+            return;
+        }
+        if (type == REWRITE || type == INSERTING) {
+            String dbName = readString(payload);
+            String tableName = readString(payload);
+            TableChanges table = pending.get(key(dbName, tableName));
+            if (table == null) {
+                return;
+            }
+            if (type == REWRITE) {
+                int segment = payload.readInt();
+                int rowsAfter = payload.readInt();
+                table.rewrite = new Rewrite(segment, rowsAfter, readInts(payload));
+            } else {
+                int rowsBefore = payload.readInt();
+                table.batch = new InsertBatch(rowsBefore, readLongs(payload));
+            }
+            return;
+        }
+        if (type != COMMIT) {
+            throw new IOException("Unknown redo log record: " + type);
+        }
+        int tableCount = payload.readInt();
+        for (int t = 0; t < tableCount; t++) {
+            String dbName = readString(payload);
+            String tableName = readString(payload);
+            TableChanges table = pending.computeIfAbsent(key(dbName, tableName),
+                    key -> new TableChanges(dbName, tableName));
+            int insertCount = payload.readInt();
+            for (int i = 0; i < insertCount; i++) {
+                long id = payload.readLong();
+                List<String> columns = readStrings(payload);
+                List<String> literals = readStrings(payload);
+                table.inserts.put(id, new Insert(columns, literals));
+            }
+            table.inserts.keySet().removeAll(readLongs(payload));
+            table.deletedRows.addAll(readInts(payload));
+            if (table.isEmpty()) {
+                pending.remove(key(dbName, tableName));
+            }
+        }
+    }
+
+    private static String key(String dbName, String tableName) {
+        return (dbName + "/" + tableName).toLowerCase();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 字符串列表，null写为-1
+     */
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeLongs(DataOutputStream out, List<Long> values) throws IOException {
+        out.writeInt(values.size());
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static List<Long> readLongs(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Long> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readLong());
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream out, Collection<Integer> values) throws IOException {
+        out.writeInt(values.size());
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static List<Integer> readInts(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Integer> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readInt());
+        }
+        return values;
+    }
+}
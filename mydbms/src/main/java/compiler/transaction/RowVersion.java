@@ -0,0 +1,87 @@
+package compiler.transaction;
+
+import compiler.catalog.TableSchema;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行版本 - 插入的一行及其创建事务和删除事务的编号（未删除时为0）
+ * 同时保留INSERT的列名和原始字面量，检查点时原样交给存储引擎写入
+ */
+public class RowVersion {
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final long creator;
+    private final List<String> columns;
+    private final List<String> literals;
+    private final Map<String, String> values;
+    private long deleter;
+
+    public RowVersion(TableSchema schema, List<String> columns, List<String> literals, long creator) {
+        this.creator = creator;
+        this.columns = columns;
+        this.literals = literals;
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < literals.size(); i++) {
+            String column = columns != null && !columns.isEmpty()
+                    ? columns.get(i) : schema.getColumns().get(i).getName();
+            values.put(column.toUpperCase(), unquote(literals.get(i)));
+        }
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * 字符串字面量去掉引号后与段文件中保存的值相同
+     */
+    private static String unquote(String literal) {
+        if (literal.length() >= 2 && (literal.charAt(0) == '\'' || literal.charAt(0) == '"')
+                && literal.charAt(literal.length() - 1) == literal.charAt(0)) {
+            return literal.substring(1, literal.length() - 1);
+        }
+        return literal;
+    }
+
+    /**
+     * 进程内唯一的版本编号，用作行锁的标识
+     */
+    public long getId() {
+        return id;
+    }
+
+    public long getCreator() {
+        return creator;
+    }
+
+    /**
+     * 删除事务的编号，由所属的VersionStore加锁读写
+     */
+    long getDeleter() {
+        return deleter;
+    }
+
+    void setDeleter(long deleter) {
+        this.deleter = deleter;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<String> getLiterals() {
+        return literals;
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "RowVersion{creator=" + creator + ", deleter=" + deleter + ", values=" + values + "}";
+    }
+}
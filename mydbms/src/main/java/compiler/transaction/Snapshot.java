@@ -0,0 +1,52 @@
+package compiler.transaction;
+
+import java.util.Set;
+
+/**
+ * 事务快照 - 取快照时已结束的事务都可见：编号小于xmax且不在当时的活动事务集合中
+ * 回滚的事务在结束之前已撤销了自己的全部版本，因此已结束的事务都可以视为已提交
+ */
+public class Snapshot {
+    private final long owner;
+    private final long xmin;
+    private final long xmax;
+    private final Set<Long> active;
+
+    /**
+     * @param owner 所属事务的编号，自动提交的查询为0
+     * @param xmax 取快照时下一个将要分配的事务编号
+     * @param active 取快照时的活动事务（不含owner）
+     */
+    Snapshot(long owner, long xmax, Set<Long> active) {
+        this.owner = owner;
+        this.xmax = xmax;
+        this.active = active;
+        long min = xmax;
+        for (long id : active) {
+            min = Math.min(min, id);
+        }
+        this.xmin = owner != 0 ? Math.min(min, owner) : min;
+    }
+
+    /**
+     * 给定事务的修改在快照中是否可见；事务总能看到自己的修改
+     */
+    public boolean sees(long transactionId) {
+        if (transactionId == owner) {
+            return true;
+        }
+        return transactionId < xmax && !active.contains(transactionId);
+    }
+
+    /**
+     * 编号小于xmin的事务对这个快照都可见
+     */
+    long getXmin() {
+        return xmin;
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot{xmin=" + xmin + ", xmax=" + xmax + ", active=" + active + "}";
+    }
+}
@@ -0,0 +1,56 @@
+package compiler.transaction;
+
+import compiler.execution.Row;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 一个快照中看到的表：段文件中被可见事务删除的行号，以及段文件之外可见的行版本
+ * 版本行的行号为负数，不会与段文件中的行号冲突
+ */
+public class TableView {
+    public static final TableView EMPTY = new TableView(Collections.emptySet(), Collections.emptyList());
+
+    private final Set<Integer> hiddenRows;
+    private final List<RowVersion> versions;
+    private List<Row> rows;
+
+    TableView(Set<Integer> hiddenRows, List<RowVersion> versions) {
+        this.hiddenRows = hiddenRows;
+        this.versions = versions;
+    }
+
+    /**
+     * 段文件中的行在快照中是否已被删除
+     */
+    public boolean isHidden(int rowId) {
+        return !hiddenRows.isEmpty() && hiddenRows.contains(rowId);
+    }
+
+    /**
+     * 快照看到的表与段文件完全一致
+     */
+    public boolean isEmpty() {
+        return hiddenRows.isEmpty() && versions.isEmpty();
+    }
+
+    public List<RowVersion> getVersions() {
+        return versions;
+    }
+
+    /**
+     * 可见的版本行，按插入顺序排列在段文件的行之后
+     */
+    public synchronized List<Row> getRows() {
+        if (rows == null) {
+            rows = new ArrayList<>(versions.size());
+            for (int i = 0; i < versions.size(); i++) {
+                rows.add(new Row(-(i + 1), versions.get(i).getValues()));
+            }
+        }
+        return rows;
+    }
+}
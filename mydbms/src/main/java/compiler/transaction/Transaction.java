@@ -0,0 +1,59 @@
+package compiler.transaction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 事务 - 编号、开始时的快照、修改过的表的版本存储和持有的锁
+ * 显式事务由BEGIN开始并保存在会话中；不在显式事务中的INSERT和DELETE各自在一个隐式事务中执行
+ */
+public class Transaction {
+    private final long id;
+    private final Snapshot snapshot;
+    private final Set<VersionStore> stores = new LinkedHashSet<>();
+    private final List<LockManager.Key> locks = new ArrayList<>();
+
+    Transaction(long id, Snapshot snapshot) {
+        this.id = id;
+        this.snapshot = snapshot;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 记录事务修改过的表，回滚时撤销这些表中的版本
+     */
+    public synchronized void touch(VersionStore store) {
+        stores.add(store);
+    }
+
+    synchronized Set<VersionStore> getStores() {
+        return new LinkedHashSet<>(stores);
+    }
+
+    synchronized void addLock(LockManager.Key key) {
+        locks.add(key);
+    }
+
+    /**
+     * 取出持有的锁，事务结束时由锁管理器释放
+     */
+    synchronized List<LockManager.Key> takeLocks() {
+        List<LockManager.Key> taken = new ArrayList<>(locks);
+        locks.clear();
+        return taken;
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction#" + id;
+    }
+}
@@ -0,0 +1,244 @@
+package compiler.transaction;
+
+import compiler.catalog.Catalog;
+import compiler.catalog.TableSchema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事务管理器 - 分配事务编号、维护活动事务并生成快照，保存各表的版本存储
+ * 读者只按快照过滤版本、写者只在版本存储中追加版本和标记删除，互不等待；
+ * 写者之间通过锁管理器的行锁排队，持锁的事务提交后，等待者要删除的行已被删除时出错（先修改者获胜）
+ */
+public class TransactionManager {
+    private final Map<Long, Transaction> active = new LinkedHashMap<>();
+    private final Map<String, VersionStore> stores = new ConcurrentHashMap<>();
+    private final LockManager locks = new LockManager();
+    // 已提交修改的重做日志，为null时已提交的修改在检查点之前只保存在内存中
+    private final RedoLog log;
+    private long nextId = 1;
+
+    public TransactionManager() {
+        this(null);
+    }
+
+    public TransactionManager(RedoLog log) {
+        this.log = log;
+    }
+
+    public synchronized Transaction begin() {
+        long id = nextId++;
+        Transaction transaction = new Transaction(id, new Snapshot(id, nextId, new HashSet<>(active.keySet())));
+        active.put(id, transaction);
+        return transaction;
+    }
+
+    /**
+     * 不属于任何事务的快照，供自动提交的查询使用
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(0, nextId, new HashSet<>(active.keySet()));
+    }
+
+    /**
+     * 提交：先把修改写入重做日志，事务离开活动集合后，之后取得的快照就能看到它的修改；最后释放锁
+     * 写日志失败时事务回滚，抛出异常
+     */
+    public void commit(Transaction transaction) throws IOException {
+        if (log != null) {
+            try {
+                log.commit(transaction.getId(), transaction.getStores());
+            } catch (IOException e) {
+                rollback(transaction);
+                throw e;
+            }
+        }
+        synchronized (this) {
+            active.remove(transaction.getId());
+        }
+        locks.releaseAll(transaction);
+    }
+
+    /**
+     * 回滚：先撤销全部版本，再离开活动集合，最后释放锁
+     */
+    public void rollback(Transaction transaction) {
+        for (VersionStore store : transaction.getStores()) {
+            store.rollback(transaction.getId());
+        }
+        synchronized (this) {
+            active.remove(transaction.getId());
+        }
+        locks.releaseAll(transaction);
+    }
+
+    public LockManager getLockManager() {
+        return locks;
+    }
+
+    public synchronized int getActiveCount() {
+        return active.size();
+    }
+
+    /**
+     * 表的版本存储，不存在时创建
+     */
+    public VersionStore store(String dbName, String tableName) {
+        return stores.computeIfAbsent(key(dbName, tableName), key -> new VersionStore(dbName, tableName));
+    }
+
+    /**
+     * 快照中看到的表；没有版本存储的表与段文件一致
+     */
+    public TableView view(String dbName, String tableName, Snapshot snapshot) {
+        VersionStore store = stores.get(key(dbName, tableName));
+        return store != null ? store.view(snapshot) : TableView.EMPTY;
+    }
+
+    /**
+     * 是否有尚未写入存储引擎的修改
+     */
+    public boolean hasPendingChanges() {
+        for (VersionStore store : stores.values()) {
+            if (!store.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 可以写入存储引擎的版本存储：修改它们的事务都已结束，且所有活动事务的快照都能看到这些修改
+     */
+    public List<VersionStore> checkpointable() {
+        long horizon;
+        synchronized (this) {
+            horizon = nextId;
+            for (Transaction transaction : active.values()) {
+                horizon = Math.min(horizon, transaction.getSnapshot().getXmin());
+            }
+        }
+        List<VersionStore> result = new ArrayList<>();
+        for (VersionStore store : stores.values()) {
+            if (store.isCheckpointable(horizon)) {
+                result.add(store);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 恢复时读取段文件当前的行数，判断崩溃时进行到一半的检查点已经写入了多少
+     */
+    public interface StoredRows {
+        int segmentRows(String dbName, String tableName, int segment) throws IOException;
+
+        int tableRows(String dbName, String tableName) throws IOException;
+    }
+
+    /**
+     * 检查点替换段文件之前记入重做日志：段号、删除后的行数和要删除的行号
+     */
+    public void rewriting(VersionStore store, int segment, int rowsAfter, Collection<Integer> rowIds)
+            throws IOException {
+        if (log != null) {
+            log.rewriting(store.getDatabaseName(), store.getTableName(), segment, rowsAfter, rowIds);
+        }
+    }
+
+    /**
+     * 检查点按顺序写入行版本之前记入重做日志：写入前表的行数和这些版本
+     */
+    public void inserting(VersionStore store, int rowsBefore, Collection<RowVersion> versions) throws IOException {
+        if (log != null) {
+            log.inserting(store.getDatabaseName(), store.getTableName(), rowsBefore, versions);
+        }
+    }
+
+    /**
+     * 检查点已从段文件中删除的行和已写入存储引擎的行版本，先从版本存储中移除，再记入重做日志
+     */
+    public void applied(VersionStore store, Collection<Integer> rowIds, Collection<RowVersion> written)
+            throws IOException {
+        store.removeDeletedRows(rowIds);
+        store.removeVersions(written);
+        if (log != null) {
+            log.applied(store.getDatabaseName(), store.getTableName(), rowIds, written);
+        }
+    }
+
+    /**
+     * 删除数据库时丢弃其中各表的版本
+     */
+    public void dropDatabase(String dbName) throws IOException {
+        stores.keySet().removeIf(key -> key.startsWith(dbName.toLowerCase() + "/"));
+        if (log != null) {
+            log.dropDatabase(dbName);
+        }
+    }
+
+    /**
+     * 启动时把重做日志中没有写入存储引擎的修改恢复到版本存储，作为一个已提交的事务；
+     * 表已不存在的修改丢弃。崩溃时正在替换的段文件已经是删除后的行数时，其中的行不再删除；
+     * 正在写入的一批行版本中，表多出几行就有几个版本已经写入。恢复后日志改写为只含这个事务的修改
+     * @return 恢复的表数
+     */
+    public int recover(Catalog catalog, StoredRows stored) throws IOException {
+        if (log == null) {
+            return 0;
+        }
+        Transaction transaction = begin();
+        int tables = 0;
+        for (RedoLog.TableChanges changes : log.getPending()) {
+            TableSchema schema = catalog.getTableSchema(changes.getDatabaseName(), changes.getTableName());
+            if (schema == null) {
+                continue;
+            }
+            Set<Integer> deletedRows = new TreeSet<>(changes.getDeletedRows());
+            RedoLog.Rewrite rewrite = changes.getRewrite();
+            if (rewrite != null && stored.segmentRows(changes.getDatabaseName(), changes.getTableName(),
+                    rewrite.getSegment()) == rewrite.getRowsAfter()) {
+                deletedRows.removeAll(rewrite.getRows());
+            }
+            Map<Long, RedoLog.Insert> inserts = new LinkedHashMap<>(changes.getInsertsById());
+            RedoLog.InsertBatch batch = changes.getInsertBatch();
+            if (batch != null) {
+                int written = stored.tableRows(changes.getDatabaseName(), changes.getTableName()) - batch.getRowsBefore();
+                List<Long> ids = batch.getIds();
+                inserts.keySet().removeAll(ids.subList(0, Math.max(0, Math.min(written, ids.size()))));
+            }
+            VersionStore store = store(changes.getDatabaseName(), changes.getTableName());
+            transaction.touch(store);
+            for (RedoLog.Insert insert : inserts.values()) {
+                store.insert(new RowVersion(schema, insert.getColumns(), insert.getLiterals(), transaction.getId()));
+            }
+            for (int rowId : deletedRows) {
+                store.deleteRow(rowId, transaction.getId());
+            }
+            tables++;
+        }
+        try {
+            log.replace(transaction.getId(), transaction.getStores());
+        } catch (IOException e) {
+            rollback(transaction);
+            throw e;
+        }
+        synchronized (this) {
+            active.remove(transaction.getId());
+        }
+        return tables;
+    }
+
+    private static String key(String dbName, String tableName) {
+        return (dbName + "/" + tableName).toLowerCase();
+    }
+}
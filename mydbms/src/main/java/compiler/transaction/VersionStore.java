@@ -0,0 +1,222 @@
+package compiler.transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 一张表在上次检查点之后的多版本数据
+ * 段文件中的行视为所有事务可见的已提交版本，删除时按行号在deletedRows中记录删除事务；
+ * 新插入的行保存为RowVersion。检查点把已提交的修改写入存储引擎，写入成功的部分从这里移除。
+ * 所有方法都只在本对象上短暂加锁，读者取得视图后不再持有锁
+ */
+public class VersionStore {
+    private final String dbName;
+    private final String tableName;
+    private final List<RowVersion> versions = new ArrayList<>();
+    private final Map<Integer, Long> deletedRows = new HashMap<>();
+
+    VersionStore(String dbName, String tableName) {
+        this.dbName = dbName;
+        this.tableName = tableName;
+    }
+
+    public String getDatabaseName() {
+        return dbName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public synchronized void insert(RowVersion version) {
+        versions.add(version);
+    }
+
+    /**
+     * 快照中看到的表
+     */
+    public synchronized TableView view(Snapshot snapshot) {
+        if (versions.isEmpty() && deletedRows.isEmpty()) {
+            return TableView.EMPTY;
+        }
+        Set<Integer> hidden = new HashSet<>();
+        for (Map.Entry<Integer, Long> entry : deletedRows.entrySet()) {
+            if (snapshot.sees(entry.getValue())) {
+                hidden.add(entry.getKey());
+            }
+        }
+        List<RowVersion> visible = new ArrayList<>();
+        for (RowVersion version : versions) {
+            if (snapshot.sees(version.getCreator())
+                    && (version.getDeleter() == 0 || !snapshot.sees(version.getDeleter()))) {
+                visible.add(version);
+            }
+        }
+        return new TableView(hidden, visible);
+    }
+
+    /**
+     * 把段文件中的一行标记为被事务删除
+     * @return 该行已被其他事务删除（提交与否）时返回false：先修改的事务获胜
+     */
+    public synchronized boolean deleteRow(int rowId, long transactionId) {
+        Long deleter = deletedRows.putIfAbsent(rowId, transactionId);
+        return deleter == null || deleter == transactionId;
+    }
+
+    /**
+     * 把行版本标记为被事务删除，冲突规则同deleteRow
+     */
+    public synchronized boolean deleteVersion(RowVersion version, long transactionId) {
+        if (version.getDeleter() == 0) {
+            version.setDeleter(transactionId);
+            return true;
+        }
+        return version.getDeleter() == transactionId;
+    }
+
+    /**
+     * 事务在这张表中是否有修改（提交时写重做日志用）
+     */
+    synchronized boolean hasChangesOf(long transactionId) {
+        if (deletedRows.containsValue(transactionId)) {
+            return true;
+        }
+        for (RowVersion version : versions) {
+            if (version.getCreator() == transactionId || version.getDeleter() == transactionId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 事务插入、且没有被它自己删除的行版本
+     */
+    synchronized List<RowVersion> insertedBy(long transactionId) {
+        List<RowVersion> inserted = new ArrayList<>();
+        for (RowVersion version : versions) {
+            if (version.getCreator() == transactionId && version.getDeleter() != transactionId) {
+                inserted.add(version);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * 事务删除的其他事务插入的行版本的编号
+     */
+    synchronized List<Long> versionsDeletedBy(long transactionId) {
+        List<Long> deleted = new ArrayList<>();
+        for (RowVersion version : versions) {
+            if (version.getDeleter() == transactionId && version.getCreator() != transactionId) {
+                deleted.add(version.getId());
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 事务删除的段文件行号
+     */
+    synchronized List<Integer> rowsDeletedBy(long transactionId) {
+        List<Integer> rows = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : deletedRows.entrySet()) {
+            if (entry.getValue() == transactionId) {
+                rows.add(entry.getKey());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 撤销事务的全部修改
+     */
+    synchronized void rollback(long transactionId) {
+        versions.removeIf(version -> version.getCreator() == transactionId);
+        for (RowVersion version : versions) {
+            if (version.getDeleter() == transactionId) {
+                version.setDeleter(0);
+            }
+        }
+        deletedRows.values().removeIf(deleter -> deleter == transactionId);
+    }
+
+    public synchronized boolean isEmpty() {
+        return versions.isEmpty() && deletedRows.isEmpty();
+    }
+
+    /**
+     * 涉及的事务编号都小于horizon（都已结束，且对所有活动事务的快照可见）时可以写入存储引擎
+     */
+    synchronized boolean isCheckpointable(long horizon) {
+        if (isEmpty()) {
+            return false;
+        }
+        for (RowVersion version : versions) {
+            if (version.getCreator() >= horizon || version.getDeleter() >= horizon) {
+                return false;
+            }
+        }
+        for (long deleter : deletedRows.values()) {
+            if (deleter >= horizon) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 段文件中被删除的行号，检查点时按行号删除这些行
+     */
+    public synchronized NavigableSet<Integer> getDeletedRows() {
+        return new TreeSet<>(deletedRows.keySet());
+    }
+
+    /**
+     * 检查点之后仍然存在的行版本
+     */
+    public synchronized List<RowVersion> getLiveVersions() {
+        List<RowVersion> live = new ArrayList<>();
+        for (RowVersion version : versions) {
+            if (version.getDeleter() == 0) {
+                live.add(version);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * 检查点已从段文件中删除的行
+     */
+    synchronized void removeDeletedRows(Collection<Integer> rowIds) {
+        deletedRows.keySet().removeAll(rowIds);
+    }
+
+    /**
+     * 丢弃已被删除的行版本（检查点时删除它们的事务都已提交）
+     */
+    public synchronized void removeDeadVersions() {
+        versions.removeIf(version -> version.getDeleter() != 0);
+    }
+
+    /**
+     * 检查点已写入存储引擎的行版本
+     */
+    synchronized void removeVersions(Collection<RowVersion> written) {
+        versions.removeAll(written);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "VersionStore{" + dbName + "." + tableName + ", versions=" + versions.size()
+                + ", deletedRows=" + deletedRows.size() + "}";
+    }
+}
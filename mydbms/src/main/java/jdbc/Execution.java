@@ -0,0 +1,243 @@
+package jdbc;
+
+import compiler.CompilationResult;
+import compiler.SQLCompiler;
+import compiler.Session;
+import compiler.codegen.InsertPlan;
+import compiler.execution.ResultSink;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一条语句的执行 - 作为会话的结果接收者，把结果行按批放入队列，由结果集取出
+ * fetchSize为0时在调用线程中执行完毕，全部结果行缓存在内存中；
+ * fetchSize大于0时在生产者线程中执行，队列中最多缓存两批（每批fetchSize行），结果集读取后才继续执行，
+ * 因此结果集读完或关闭之前语句一直持有执行器的读锁
+ * 设置了查询超时时，执行期间会话的statement_timeout不超过该值，超时的语句由执行器取消
+ */
+final class Execution implements ResultSink, Runnable {
+    // 队列中表示语句执行结束的标记
+    private static final List<List<String>> END = Collections.emptyList();
+
+    private final SQLCompiler compiler;
+    private final Session session;
+    private final String sql;
+    private final int batchSize;
+    private final BlockingQueue<List<List<String>>> queue;
+    private final CountDownLatch header = new CountDownLatch(1);
+    private List<List<String>> batch = new ArrayList<>();
+    private Future<?> task;
+    private long timeoutMillis;
+    private volatile List<String> columns;
+    private volatile String error;
+    private volatile CompilationResult result;
+    private volatile boolean closed;
+    private boolean finished;
+
+    Execution(SQLCompiler compiler, Session session, String sql, int fetchSize) {
+        this.compiler = compiler;
+        this.session = session;
+        this.sql = sql;
+        this.batchSize = fetchSize > 0 ? fetchSize : 256;
+        this.queue = fetchSize > 0 ? new ArrayBlockingQueue<>(2) : new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * 查询超时（毫秒），0表示只受会话的statement_timeout限制
+     */
+    Execution timeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * 开始执行：流式执行时提交到生产者线程，等到结果列或执行结束后返回
+     */
+    void start(boolean streaming) throws SQLException {
+        if (streaming) {
+            task = MyDbmsDriver.STREAMS.submit(this);
+        } else {
+            run();
+        }
+        try {
+            header.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new SQLException("Interrupted while executing statement", e);
+        }
+        checkCompiled();
+    }
+
+    @Override
+    public void run() {
+        session.setResultSink(this);
+        long sessionTimeout = session.getStatementTimeout();
+        boolean limited = timeoutMillis > 0 && (sessionTimeout == 0 || timeoutMillis < sessionTimeout);
+        if (limited) {
+            session.setStatementTimeout(timeoutMillis);
+        }
+        try {
+            result = compiler.compile(sql, session);
+        } catch (RuntimeException e) {
+            error(String.valueOf(e.getMessage()));
+        } finally {
+            // 语句本身是SET statement_timeout时保留它设置的值
+            if (limited && session.getStatementTimeout() == timeoutMillis) {
+                session.setStatementTimeout(sessionTimeout);
+            }
+            session.setResultSink(null);
+            if (!batch.isEmpty()) {
+                put(batch);
+            }
+            header.countDown();
+            put(END);
+        }
+    }
+
+    @Override
+    public void columns(List<String> columns) {
+        this.columns = new ArrayList<>(columns);
+        header.countDown();
+    }
+
+    @Override
+    public void row(List<String> values) {
+        if (closed) {
+            return;
+        }
+        batch.add(values);
+        if (batch.size() >= batchSize) {
+            put(batch);
+            batch = new ArrayList<>();
+        }
+    }
+
+    @Override
+    public void error(String message) {
+        if (error == null) {
+            error = message;
+        }
+    }
+
+    /**
+     * 放入一批结果；结果集关闭后丢弃，不再等待队列空间
+     */
+    private void put(List<List<String>> rows) {
+        try {
+            while (!closed) {
+                if (queue.offer(rows, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    boolean isQuery() {
+        return columns != null;
+    }
+
+    List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * INSERT影响1行；存储引擎不报告其他语句影响的行数，返回0
+     */
+    int getUpdateCount() {
+        return result != null && result.getExecutionPlan() instanceof InsertPlan ? 1 : 0;
+    }
+
+    /**
+     * 下一批结果行，语句执行结束后返回null；执行中出错时抛出异常
+     */
+    List<List<String>> nextBatch() throws SQLException {
+        if (finished) {
+            return null;
+        }
+        List<List<String>> rows = null;
+        try {
+            while (rows == null) {
+                if (closed) {
+                    throw new SQLException("Result set was closed by a later statement on the same connection");
+                }
+                rows = queue.poll(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while fetching rows", e);
+        }
+        if (rows == END) {
+            finished = true;
+            checkExecuted();
+            return null;
+        }
+        return rows;
+    }
+
+    private void checkCompiled() throws SQLException {
+        if (result != null && !result.isSuccess()) {
+            throw new SQLException(result.toString().trim());
+        }
+        if (!isQuery()) {
+            checkExecuted();
+        }
+    }
+
+    /**
+     * 语句已执行完毕时，检查执行中报告的错误
+     */
+    void checkExecuted() throws SQLException {
+        if (result == null && error == null) {
+            return;
+        }
+        if (result != null && !result.isSuccess()) {
+            throw new SQLException(result.toString().trim());
+        }
+        if (error != null) {
+            throw new SQLException(error);
+        }
+    }
+
+    /**
+     * 放弃尚未读取的结果，并等待生产者线程结束（会话同一时刻只能执行一条语句）
+     */
+    void close() {
+        closed = true;
+        queue.clear();
+        if (task == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                task.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package jdbc;
+
+import compiler.CompilationResult;
+import compiler.SQLCompiler;
+import compiler.Session;
+import compiler.catalog.Catalog;
+import compiler.codegen.InsertPlan;
+import compiler.execution.ResultSink;
+
+import java.sql.Array;
+import java.sql.BatchUpdateException;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * JDBC连接 - 对应一个会话；语句在会话中依次执行，开始执行新语句时关闭上一条语句未读完的结果集
+ * 关闭自动提交后，第一条语句执行前开始事务（BEGIN），commit/rollback结束事务；事务读取开始时的快照
+ */
+public class MyDbmsConnection implements Connection {
+    private final SQLCompiler compiler;
+    private final String url;
+    private final Session session = new Session();
+    private Execution current;
+    private boolean autoCommit = true;
+    private volatile boolean closed;
+
+    MyDbmsConnection(SQLCompiler compiler, String url, String database) throws SQLException {
+        this.compiler = compiler;
+        this.url = url;
+        if (database != null) {
+            setCatalog(database);
+        }
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    /**
+     * 执行一条语句；streaming为true时结果集按fetchSize分批读取
+     */
+    synchronized Execution execute(String sql, int fetchSize, boolean streaming, int timeoutSeconds)
+            throws SQLException {
+        checkOpen();
+        closeCurrent();
+        beginIfNeeded();
+        Execution execution = new Execution(compiler, session, sql, fetchSize).timeout(timeoutSeconds * 1000L);
+        current = execution;
+        execution.start(streaming && fetchSize > 0);
+        return execution;
+    }
+
+    /**
+     * 批量执行，整批在执行器中只加一次锁；返回每条语句的更新行数
+     */
+    synchronized int[] executeBatch(List<String> sqls) throws SQLException {
+        checkOpen();
+        closeCurrent();
+        beginIfNeeded();
+        String[] error = new String[1];
+        session.setResultSink(new ResultSink() {
+            @Override
+            public void columns(List<String> columns) {
+            }
+
+            @Override
+            public void row(List<String> values) {
+            }
+
+            @Override
+            public void error(String message) {
+                if (error[0] == null) {
+                    error[0] = message;
+                }
+            }
+        });
+        List<CompilationResult> results;
+        try {
+            results = compiler.compileBatch(sqls, session);
+        } finally {
+            session.setResultSink(null);
+        }
+
+        int executed = results.size();
+        CompilationResult last = results.isEmpty() ? null : results.get(results.size() - 1);
+        String message = null;
+        if (last != null && !last.isSuccess()) {
+            // 编译失败时整批都没有执行
+            executed = 0;
+            message = last.toString().trim();
+        } else if (error[0] != null) {
+            executed--;
+            message = error[0];
+        }
+        int[] counts = new int[executed];
+        for (int i = 0; i < executed; i++) {
+            counts[i] = results.get(i).getExecutionPlan() instanceof InsertPlan ? 1 : Statement.SUCCESS_NO_INFO;
+        }
+        if (message != null) {
+            throw new BatchUpdateException(message, counts);
+        }
+        return counts;
+    }
+
+    /**
+     * 请求取消连接上正在执行的语句；不加连接的锁，可以在执行语句的线程之外调用
+     */
+    void cancel() {
+        compiler.cancel(session, "Statement cancelled by Statement.cancel()");
+    }
+
+    /**
+     * 非自动提交模式下，会话不在事务中时开始新事务
+     */
+    private void beginIfNeeded() throws SQLException {
+        if (!autoCommit && session.getTransaction() == null) {
+            control("BEGIN");
+        }
+    }
+
+    /**
+     * 执行事务控制语句
+     */
+    private void control(String sql) throws SQLException {
+        new Execution(compiler, session, sql, 0).start(false);
+    }
+
+    private void closeCurrent() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        checkOpen();
+        return new MyDbmsStatement(this);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        checkOpen();
+        return new MyDbmsPreparedStatement(this, sql);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        checkResultSetType(resultSetType, resultSetConcurrency);
+        return createStatement();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        checkResultSetType(resultSetType, resultSetConcurrency);
+        return prepareStatement(sql);
+    }
+
+    private static void checkResultSetType(int type, int concurrency) throws SQLException {
+        if (type != ResultSet.TYPE_FORWARD_ONLY || concurrency != ResultSet.CONCUR_READ_ONLY) {
+            throw MyDbmsDriver.unsupported("scrollable or updatable result sets");
+        }
+    }
+
+    @Override
+    public String nativeSQL(String sql) {
+        return sql;
+    }
+
+    /**
+     * 在事务中切换为自动提交时提交当前事务
+     */
+    @Override
+    public synchronized void setAutoCommit(boolean autoCommit) throws SQLException {
+        checkOpen();
+        if (autoCommit && !this.autoCommit) {
+            commit();
+        }
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public synchronized boolean getAutoCommit() throws SQLException {
+        checkOpen();
+        return autoCommit;
+    }
+
+    @Override
+    public synchronized void commit() throws SQLException {
+        checkOpen();
+        if (autoCommit) {
+            throw new SQLException("Connection is in auto-commit mode");
+        }
+        closeCurrent();
+        if (session.getTransaction() != null) {
+            control("COMMIT");
+        }
+    }
+
+    @Override
+    public synchronized void rollback() throws SQLException {
+        checkOpen();
+        if (autoCommit) {
+            throw new SQLException("Connection is in auto-commit mode");
+        }
+        closeCurrent();
+        if (session.getTransaction() != null) {
+            control("ROLLBACK");
+        }
+    }
+
+    /**
+     * 关闭时回滚未提交的事务
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeCurrent();
+        compiler.closeSession(session);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        checkOpen();
+        return false;
+    }
+
+    /**
+     * 目录即数据库，相当于USE DATABASE
+     */
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        checkOpen();
+        if (!Catalog.databaseExists(catalog)) {
+            throw new SQLException("Database does not exist: " + catalog);
+        }
+        session.setDatabase(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        checkOpen();
+        return session.getDatabase();
+    }
+
+    /**
+     * 事务总是在快照隔离下执行，不高于REPEATABLE_READ的级别都接受
+     */
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        checkOpen();
+        if (level == TRANSACTION_NONE || level == TRANSACTION_SERIALIZABLE) {
+            throw MyDbmsDriver.unsupported("transaction isolation level " + level);
+        }
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        checkOpen();
+        return TRANSACTION_REPEATABLE_READ;
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        if (timeout < 0) {
+            throw new SQLException("Timeout must not be negative: " + timeout);
+        }
+        return !closed;
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        checkOpen();
+        if (holdability != ResultSet.CLOSE_CURSORS_AT_COMMIT) {
+            throw MyDbmsDriver.unsupported("holdability " + holdability);
+        }
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        checkOpen();
+        return ResultSet.CLOSE_CURSORS_AT_COMMIT;
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        checkOpen();
+        return new HashMap<>();
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) {
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) {
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        checkOpen();
+        return new Properties();
+    }
+
+    /**
+     * 连接在进程内，没有网络超时
+     */
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        checkOpen();
+        return 0;
+    }
+
+    @Override
+    public void abort(Executor executor) {
+        close();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        throw MyDbmsDriver.unsupported("createStatement");
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        throw MyDbmsDriver.unsupported("prepareStatement");
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        throw MyDbmsDriver.unsupported("prepareStatement");
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        throw MyDbmsDriver.unsupported("prepareStatement");
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        throw MyDbmsDriver.unsupported("prepareStatement");
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        throw MyDbmsDriver.unsupported("rollback");
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        throw MyDbmsDriver.unsupported("prepareCall");
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        throw MyDbmsDriver.unsupported("prepareCall");
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        throw MyDbmsDriver.unsupported("prepareCall");
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        throw MyDbmsDriver.unsupported("getMetaData");
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        throw MyDbmsDriver.unsupported("setTypeMap");
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        throw MyDbmsDriver.unsupported("setSavepoint");
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        throw MyDbmsDriver.unsupported("setSavepoint");
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        throw MyDbmsDriver.unsupported("releaseSavepoint");
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        throw MyDbmsDriver.unsupported("createClob");
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        throw MyDbmsDriver.unsupported("createBlob");
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        throw MyDbmsDriver.unsupported("createNClob");
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        throw MyDbmsDriver.unsupported("createSQLXML");
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        throw MyDbmsDriver.unsupported("createArrayOf");
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] elements) throws SQLException {
+        throw MyDbmsDriver.unsupported("createStruct");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,135 @@
+package jdbc;
+
+import compiler.SQLCompiler;
+import compiler.catalog.Catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * 嵌入式JDBC驱动 - 在当前进程中运行数据库，URL格式：
+ *   jdbc:mydbms:                      不选择数据库
+ *   jdbc:mydbms:testdb                使用数据库testdb
+ *   jdbc:mydbms:./mydatabase/testdb   同上，路径的上级目录必须是数据库根目录 ./mydatabase
+ * 进程中的所有连接共享一个SQLCompiler（目录和执行器），每个连接一个会话
+ * 驱动创建的编译器不输出编译阶段和执行计划，需要时用 -Dverbose=true 开启
+ */
+public class MyDbmsDriver implements Driver {
+    public static final String URL_PREFIX = "jdbc:mydbms:";
+
+    // 流式结果集的生产者线程
+    static final ExecutorService STREAMS;
+
+    private static volatile SQLCompiler engine;
+
+    static {
+        AtomicInteger threadId = new AtomicInteger();
+        STREAMS = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "mydbms-jdbc-stream-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            DriverManager.registerDriver(new MyDbmsDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 进程内共享的编译器，第一次建立连接时创建
+     */
+    static SQLCompiler engine() {
+        SQLCompiler result = engine;
+        if (result == null) {
+            synchronized (MyDbmsDriver.class) {
+                result = engine;
+                if (result == null) {
+                    result = new SQLCompiler();
+                    result.setVerbose(Boolean.getBoolean("verbose"));
+                    engine = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        return new MyDbmsConnection(engine(), url, databaseOf(url));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    /**
+     * 从URL中取出数据库名，没有指定时返回null
+     */
+    static String databaseOf(String url) throws SQLException {
+        String path = url.substring(URL_PREFIX.length());
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.isEmpty()) {
+            return null;
+        }
+        File file = new File(path);
+        if (file.getParentFile() != null) {
+            try {
+                File root = new File(Catalog.DATABASE_ROOT).getCanonicalFile();
+                if (!file.getParentFile().getCanonicalFile().equals(root)) {
+                    throw new SQLException("Database must be located under " + Catalog.DATABASE_ROOT + ": " + url);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Invalid database path: " + url, e);
+            }
+        }
+        return file.getName();
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw unsupported("getParentLogger");
+    }
+
+    static SQLFeatureNotSupportedException unsupported(String feature) {
+        return new SQLFeatureNotSupportedException("Not supported: " + feature);
+    }
+}
@@ -0,0 +1,377 @@
+package jdbc;
+
+import server.ParameterBinder;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * 预编译语句 - 执行时把参数按字面量代入SQL中的 ?（见ParameterBinder），addBatch时代入一组参数
+ */
+public class MyDbmsPreparedStatement extends MyDbmsStatement implements PreparedStatement {
+    // 参数尚未设置的标记，与SQL NULL区分
+    private static final Object UNSET = new Object();
+
+    private final String sql;
+    private final List<String> batch = new ArrayList<>();
+    private Object[] parameters = new Object[0];
+
+    MyDbmsPreparedStatement(MyDbmsConnection connection, String sql) {
+        super(connection);
+        this.sql = sql;
+    }
+
+    private void set(int index, Object value) throws SQLException {
+        checkOpen();
+        if (index < 1) {
+            throw new SQLException("Parameter index out of range: " + index);
+        }
+        if (index > parameters.length) {
+            int length = parameters.length;
+            parameters = Arrays.copyOf(parameters, index);
+            Arrays.fill(parameters, length, index, UNSET);
+        }
+        parameters[index - 1] = value;
+    }
+
+    private String bind() throws SQLException {
+        List<Object> values = new ArrayList<>(parameters.length);
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] == UNSET) {
+                throw new SQLException("Parameter " + (i + 1) + " is not set");
+            }
+            values.add(parameters[i]);
+        }
+        try {
+            return ParameterBinder.bind(sql, values);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        return query(bind());
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        return update(bind());
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        return run(bind(), true);
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        checkOpen();
+        batch.add(bind());
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        checkOpen();
+        batch.clear();
+    }
+
+    /**
+     * 整批参数组对应的语句在一次加锁中依次执行
+     */
+    @Override
+    public int[] executeBatch() throws SQLException {
+        checkOpen();
+        List<String> sqls = new ArrayList<>(batch);
+        batch.clear();
+        if (sqls.isEmpty()) {
+            return new int[0];
+        }
+        return connection.executeBatch(sqls);
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        checkOpen();
+        parameters = new Object[0];
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        set(parameterIndex, null);
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        if (x != null && !(x instanceof Number) && !(x instanceof String) && !(x instanceof Boolean)) {
+            throw MyDbmsDriver.unsupported("parameter type " + x.getClass().getName());
+        }
+        set(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        setObject(parameterIndex, x);
+    }
+
+    /**
+     * 执行之前无法得到结果列，返回null
+     */
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        throw MyDbmsDriver.unsupported("getParameterMetaData");
+    }
+
+    @Override
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setURL");
+    }
+
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setArray");
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("setTime");
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setTime");
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("setDate");
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setDate");
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        setObject(parameterIndex, x);
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        setNull(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setBytes");
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setTimestamp");
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("setTimestamp");
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("setAsciiStream");
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setAsciiStream");
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream stream, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setAsciiStream");
+    }
+
+    @Deprecated
+    @Override
+    public void setUnicodeStream(int parameterIndex, InputStream stream, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setUnicodeStream");
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("setBinaryStream");
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setBinaryStream");
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream stream, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setBinaryStream");
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("setCharacterStream");
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setCharacterStream");
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setCharacterStream");
+    }
+
+    @Override
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setRef");
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setBlob");
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setBlob");
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("setBlob");
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("setClob");
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setClob");
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setClob");
+    }
+
+    @Override
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setRowId");
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setNString");
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("setNCharacterStream");
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setNCharacterStream");
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("setNClob");
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("setNClob");
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, NClob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setNClob");
+    }
+
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML x) throws SQLException {
+        throw MyDbmsDriver.unsupported("setSQLXML");
+    }
+}
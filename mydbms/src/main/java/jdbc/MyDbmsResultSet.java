@@ -0,0 +1,1128 @@
+package jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 只能向前、只读的结果集；语句设置了fetchSize时按批从执行中取行，否则行已全部在内存中
+ * 执行器交付的值都是字符串，按请求的类型转换
+ */
+public class MyDbmsResultSet implements ResultSet {
+    private final MyDbmsStatement statement;
+    private final Execution execution;
+    private final List<String> columns;
+    private final int maxRows;
+    private Iterator<List<String>> batch = Collections.emptyIterator();
+    private List<String> row;
+    private int rowNumber;
+    private boolean wasNull;
+    private boolean closed;
+
+    MyDbmsResultSet(MyDbmsStatement statement, Execution execution, int maxRows) {
+        this.statement = statement;
+        this.execution = execution;
+        this.columns = execution.getColumns();
+        this.maxRows = maxRows;
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Result set is closed");
+        }
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        checkOpen();
+        if (execution.isClosed()) {
+            throw new SQLException("Result set was closed by a later statement on the same connection");
+        }
+        if (maxRows > 0 && rowNumber >= maxRows) {
+            row = null;
+            return false;
+        }
+        while (!batch.hasNext()) {
+            List<List<String>> rows = execution.nextBatch();
+            if (rows == null) {
+                row = null;
+                return false;
+            }
+            batch = rows.iterator();
+        }
+        row = batch.next();
+        rowNumber++;
+        return true;
+    }
+
+    /**
+     * 关闭时放弃尚未读取的行，并等待语句执行结束
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        row = null;
+        execution.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private String value(int columnIndex) throws SQLException {
+        checkOpen();
+        if (row == null) {
+            throw new SQLException("No current row");
+        }
+        if (columnIndex < 1 || columnIndex > columns.size()) {
+            throw new SQLException("Column index out of range: " + columnIndex);
+        }
+        String value = row.get(columnIndex - 1);
+        wasNull = value == null;
+        return value;
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        checkOpen();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(columnLabel)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("Column not found: " + columnLabel);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        checkOpen();
+        return wasNull;
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        return value(columnIndex);
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        String value = value(columnIndex);
+        if (value == null) {
+            return false;
+        }
+        String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase("true") || trimmed.equals("1")) {
+            return true;
+        }
+        if (trimmed.equalsIgnoreCase("false") || trimmed.equals("0")) {
+            return false;
+        }
+        throw conversionError(value, "boolean");
+    }
+
+    @Override
+    public byte getByte(int columnIndex) throws SQLException {
+        return (byte) getLong(columnIndex, Byte.MIN_VALUE, Byte.MAX_VALUE, "byte");
+    }
+
+    @Override
+    public short getShort(int columnIndex) throws SQLException {
+        return (short) getLong(columnIndex, Short.MIN_VALUE, Short.MAX_VALUE, "short");
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return (int) getLong(columnIndex, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        return getLong(columnIndex, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+    }
+
+    private long getLong(int columnIndex, long min, long max, String type) throws SQLException {
+        BigDecimal decimal = getBigDecimal(columnIndex);
+        if (decimal == null) {
+            return 0;
+        }
+        try {
+            long result = decimal.longValueExact();
+            if (result < min || result > max) {
+                throw conversionError(decimal.toPlainString(), type);
+            }
+            return result;
+        } catch (ArithmeticException e) {
+            throw conversionError(decimal.toPlainString(), type);
+        }
+    }
+
+    @Override
+    public float getFloat(int columnIndex) throws SQLException {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        String value = value(columnIndex);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw conversionError(value, "double");
+        }
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        String value = value(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw conversionError(value, "number");
+        }
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return value(columnIndex);
+    }
+
+    @Override
+    public String getString(String columnLabel) throws SQLException {
+        return getString(findColumn(columnLabel));
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        return getBoolean(findColumn(columnLabel));
+    }
+
+    @Override
+    public byte getByte(String columnLabel) throws SQLException {
+        return getByte(findColumn(columnLabel));
+    }
+
+    @Override
+    public short getShort(String columnLabel) throws SQLException {
+        return getShort(findColumn(columnLabel));
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws SQLException {
+        return getInt(findColumn(columnLabel));
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws SQLException {
+        return getLong(findColumn(columnLabel));
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws SQLException {
+        return getFloat(findColumn(columnLabel));
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws SQLException {
+        return getDouble(findColumn(columnLabel));
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel));
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        return getObject(findColumn(columnLabel));
+    }
+
+    private static SQLException conversionError(String value, String type) {
+        return new SQLException("Cannot convert '" + value + "' to " + type);
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        checkOpen();
+        return new MyDbmsResultSetMetaData(columns);
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        checkOpen();
+        return row != null ? rowNumber : 0;
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        checkOpen();
+        if (direction != FETCH_FORWARD) {
+            throw MyDbmsDriver.unsupported("fetch direction " + direction);
+        }
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        checkOpen();
+        return FETCH_FORWARD;
+    }
+
+    /**
+     * 批大小在语句执行时确定，这里的设置不生效
+     */
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        checkOpen();
+        if (rows < 0) {
+            throw new SQLException("Fetch size must not be negative: " + rows);
+        }
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        checkOpen();
+        return statement.getFetchSize();
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        checkOpen();
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public int getConcurrency() throws SQLException {
+        checkOpen();
+        return CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        checkOpen();
+        return CLOSE_CURSORS_AT_COMMIT;
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        checkOpen();
+        return statement;
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        checkOpen();
+    }
+
+@Override
+    public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBytes");
+    }
+
+    @Override
+    public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBytes");
+    }
+
+    @Override
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBytes");
+    }
+
+    @Override
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBytes");
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        throw MyDbmsDriver.unsupported("last");
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        throw MyDbmsDriver.unsupported("first");
+    }
+
+    @Override
+    public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+        throw MyDbmsDriver.unsupported("getObject");
+    }
+
+    @Override
+    public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+        throw MyDbmsDriver.unsupported("getObject");
+    }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        throw MyDbmsDriver.unsupported("getObject");
+    }
+
+    @Override
+    public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        throw MyDbmsDriver.unsupported("getObject");
+    }
+
+    @Override
+    public Ref getRef(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getRef");
+    }
+
+    @Override
+    public Ref getRef(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getRef");
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        throw MyDbmsDriver.unsupported("previous");
+    }
+
+    @Override
+    public Array getArray(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getArray");
+    }
+
+    @Override
+    public Array getArray(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getArray");
+    }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        throw MyDbmsDriver.unsupported("absolute");
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTimestamp");
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTimestamp");
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTimestamp");
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTimestamp");
+    }
+
+    @Deprecated
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBigDecimal");
+    }
+
+    @Deprecated
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBigDecimal");
+    }
+
+    @Override
+    public Time getTime(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTime");
+    }
+
+    @Override
+    public Time getTime(int columnIndex, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTime");
+    }
+
+    @Override
+    public Time getTime(String columnLabel, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTime");
+    }
+
+    @Override
+    public Time getTime(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getTime");
+    }
+
+    @Override
+    public void updateTime(int columnIndex, Time x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateTime");
+    }
+
+    @Override
+    public void updateTime(String columnLabel, Time x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateTime");
+    }
+
+    @Override
+    public Date getDate(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getDate");
+    }
+
+    @Override
+    public Date getDate(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getDate");
+    }
+
+    @Override
+    public Date getDate(int columnIndex, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("getDate");
+    }
+
+    @Override
+    public Date getDate(String columnLabel, Calendar calendar) throws SQLException {
+        throw MyDbmsDriver.unsupported("getDate");
+    }
+
+    @Override
+    public URL getURL(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getURL");
+    }
+
+    @Override
+    public URL getURL(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getURL");
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        throw MyDbmsDriver.unsupported("relative");
+    }
+
+    @Override
+    public InputStream getAsciiStream(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getAsciiStream");
+    }
+
+    @Override
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getAsciiStream");
+    }
+
+    @Deprecated
+    @Override
+    public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getUnicodeStream");
+    }
+
+    @Deprecated
+    @Override
+    public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getUnicodeStream");
+    }
+
+    @Override
+    public InputStream getBinaryStream(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBinaryStream");
+    }
+
+    @Override
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBinaryStream");
+    }
+
+    @Override
+    public String getCursorName() throws SQLException {
+        throw MyDbmsDriver.unsupported("getCursorName");
+    }
+
+    @Override
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getCharacterStream");
+    }
+
+    @Override
+    public Reader getCharacterStream(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getCharacterStream");
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        throw MyDbmsDriver.unsupported("isBeforeFirst");
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        throw MyDbmsDriver.unsupported("isAfterLast");
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        throw MyDbmsDriver.unsupported("isFirst");
+    }
+
+    @Override
+    public boolean isLast() throws SQLException {
+        throw MyDbmsDriver.unsupported("isLast");
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        throw MyDbmsDriver.unsupported("beforeFirst");
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        throw MyDbmsDriver.unsupported("afterLast");
+    }
+
+    @Override
+    public boolean rowUpdated() throws SQLException {
+        throw MyDbmsDriver.unsupported("rowUpdated");
+    }
+
+    @Override
+    public boolean rowInserted() throws SQLException {
+        throw MyDbmsDriver.unsupported("rowInserted");
+    }
+
+    @Override
+    public boolean rowDeleted() throws SQLException {
+        throw MyDbmsDriver.unsupported("rowDeleted");
+    }
+
+    @Override
+    public void updateNull(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNull");
+    }
+
+    @Override
+    public void updateNull(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNull");
+    }
+
+    @Override
+    public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBoolean");
+    }
+
+    @Override
+    public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBoolean");
+    }
+
+    @Override
+    public void updateByte(int columnIndex, byte x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateByte");
+    }
+
+    @Override
+    public void updateByte(String columnLabel, byte x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateByte");
+    }
+
+    @Override
+    public void updateShort(String columnLabel, short x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateShort");
+    }
+
+    @Override
+    public void updateShort(int columnIndex, short x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateShort");
+    }
+
+    @Override
+    public void updateInt(int columnIndex, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateInt");
+    }
+
+    @Override
+    public void updateInt(String columnLabel, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateInt");
+    }
+
+    @Override
+    public void updateLong(String columnLabel, long x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateLong");
+    }
+
+    @Override
+    public void updateLong(int columnIndex, long x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateLong");
+    }
+
+    @Override
+    public void updateFloat(int columnIndex, float x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateFloat");
+    }
+
+    @Override
+    public void updateFloat(String columnLabel, float x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateFloat");
+    }
+
+    @Override
+    public void updateDouble(int columnIndex, double x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateDouble");
+    }
+
+    @Override
+    public void updateDouble(String columnLabel, double x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateDouble");
+    }
+
+    @Override
+    public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBigDecimal");
+    }
+
+    @Override
+    public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBigDecimal");
+    }
+
+    @Override
+    public void updateString(int columnIndex, String x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateString");
+    }
+
+    @Override
+    public void updateString(String columnLabel, String x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateString");
+    }
+
+    @Override
+    public void updateDate(String columnLabel, Date x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateDate");
+    }
+
+    @Override
+    public void updateDate(int columnIndex, Date x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateDate");
+    }
+
+    @Override
+    public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateTimestamp");
+    }
+
+    @Override
+    public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateTimestamp");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream stream, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream stream, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateAsciiStream");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream stream, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream stream, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBinaryStream");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader reader, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader reader, int length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateCharacterStream");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateObject");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateObject");
+    }
+
+    @Override
+    public void insertRow() throws SQLException {
+        throw MyDbmsDriver.unsupported("insertRow");
+    }
+
+    @Override
+    public void updateRow() throws SQLException {
+        throw MyDbmsDriver.unsupported("updateRow");
+    }
+
+    @Override
+    public void deleteRow() throws SQLException {
+        throw MyDbmsDriver.unsupported("deleteRow");
+    }
+
+    @Override
+    public void refreshRow() throws SQLException {
+        throw MyDbmsDriver.unsupported("refreshRow");
+    }
+
+    @Override
+    public void cancelRowUpdates() throws SQLException {
+        throw MyDbmsDriver.unsupported("cancelRowUpdates");
+    }
+
+    @Override
+    public void moveToInsertRow() throws SQLException {
+        throw MyDbmsDriver.unsupported("moveToInsertRow");
+    }
+
+    @Override
+    public void moveToCurrentRow() throws SQLException {
+        throw MyDbmsDriver.unsupported("moveToCurrentRow");
+    }
+
+    @Override
+    public Blob getBlob(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBlob");
+    }
+
+    @Override
+    public Blob getBlob(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getBlob");
+    }
+
+    @Override
+    public Clob getClob(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getClob");
+    }
+
+    @Override
+    public Clob getClob(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getClob");
+    }
+
+    @Override
+    public void updateRef(String columnLabel, Ref x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateRef");
+    }
+
+    @Override
+    public void updateRef(int columnIndex, Ref x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateRef");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, Blob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, InputStream stream) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, InputStream stream, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, Blob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateBlob");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Clob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateClob");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Clob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateClob");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateClob");
+    }
+
+    @Override
+    public void updateArray(String columnLabel, Array x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateArray");
+    }
+
+    @Override
+    public void updateArray(int columnIndex, Array x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateArray");
+    }
+
+    @Override
+    public RowId getRowId(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getRowId");
+    }
+
+    @Override
+    public RowId getRowId(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getRowId");
+    }
+
+    @Override
+    public void updateRowId(int columnIndex, RowId x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateRowId");
+    }
+
+    @Override
+    public void updateRowId(String columnLabel, RowId x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateRowId");
+    }
+
+    @Override
+    public void updateNString(String columnLabel, String x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNString");
+    }
+
+    @Override
+    public void updateNString(int columnIndex, String x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNString");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, NClob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, NClob x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNClob");
+    }
+
+    @Override
+    public NClob getNClob(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getNClob");
+    }
+
+    @Override
+    public NClob getNClob(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getNClob");
+    }
+
+    @Override
+    public SQLXML getSQLXML(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getSQLXML");
+    }
+
+    @Override
+    public SQLXML getSQLXML(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getSQLXML");
+    }
+
+    @Override
+    public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateSQLXML");
+    }
+
+    @Override
+    public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateSQLXML");
+    }
+
+    @Override
+    public String getNString(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getNString");
+    }
+
+    @Override
+    public String getNString(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getNString");
+    }
+
+    @Override
+    public Reader getNCharacterStream(int columnIndex) throws SQLException {
+        throw MyDbmsDriver.unsupported("getNCharacterStream");
+    }
+
+    @Override
+    public Reader getNCharacterStream(String columnLabel) throws SQLException {
+        throw MyDbmsDriver.unsupported("getNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, Reader reader) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, Reader reader, long length) throws SQLException {
+        throw MyDbmsDriver.unsupported("updateNCharacterStream");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,160 @@
+package jdbc;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * 结果集元数据 - 执行器只交付列名和字符串值，所有列都报告为VARCHAR
+ */
+public class MyDbmsResultSetMetaData implements ResultSetMetaData {
+    private final List<String> columns;
+
+    MyDbmsResultSetMetaData(List<String> columns) {
+        this.columns = columns;
+    }
+
+    private String column(int column) throws SQLException {
+        if (column < 1 || column > columns.size()) {
+            throw new SQLException("Column index out of range: " + column);
+        }
+        return columns.get(column - 1);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        return column(column);
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        return column(column);
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        column(column);
+        return Types.VARCHAR;
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        column(column);
+        return "VARCHAR";
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        column(column);
+        return String.class.getName();
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+        column(column);
+        return columnNullableUnknown;
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+        column(column);
+        return true;
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+        column(column);
+        return true;
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+        column(column);
+        return 0;
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+        column(column);
+        return "";
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+        column(column);
+        return 0;
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+        column(column);
+        return 0;
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+        column(column);
+        return "";
+    }
+
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+        column(column);
+        return "";
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+        column(column);
+        return true;
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,353 @@
+package jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC语句 - 每次执行都在连接的会话中编译并执行SQL
+ * fetchSize为0（默认）时结果全部读入内存；大于0时结果集按批流式读取
+ */
+public class MyDbmsStatement implements Statement {
+    protected final MyDbmsConnection connection;
+    private final List<String> batch = new ArrayList<>();
+    private MyDbmsResultSet resultSet;
+    private int updateCount = -1;
+    private int fetchSize;
+    private int maxRows;
+    private int queryTimeout;
+    private volatile boolean closed;
+
+    MyDbmsStatement(MyDbmsConnection connection) {
+        this.connection = connection;
+    }
+
+    void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Statement is closed");
+        }
+        connection.checkOpen();
+    }
+
+    /**
+     * 执行一条语句，返回是否产生了结果集
+     */
+    boolean run(String sql, boolean streaming) throws SQLException {
+        checkOpen();
+        closeResultSet();
+        updateCount = -1;
+        Execution execution = connection.execute(sql, fetchSize, streaming, queryTimeout);
+        if (execution.isQuery()) {
+            resultSet = new MyDbmsResultSet(this, execution, maxRows);
+            return true;
+        }
+        updateCount = execution.getUpdateCount();
+        return false;
+    }
+
+    ResultSet query(String sql) throws SQLException {
+        if (!run(sql, true)) {
+            throw new SQLException("Statement did not return a result set: " + sql);
+        }
+        return resultSet;
+    }
+
+    int update(String sql) throws SQLException {
+        if (run(sql, false)) {
+            closeResultSet();
+            throw new SQLException("Statement returned a result set: " + sql);
+        }
+        return updateCount;
+    }
+
+    private void closeResultSet() throws SQLException {
+        if (resultSet != null) {
+            resultSet.close();
+            resultSet = null;
+        }
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return query(sql);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return update(sql);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return run(sql, true);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closeResultSet();
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        checkOpen();
+        return resultSet;
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        checkOpen();
+        return updateCount;
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        checkOpen();
+        closeResultSet();
+        updateCount = -1;
+        return false;
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        checkOpen();
+        batch.add(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        checkOpen();
+        batch.clear();
+    }
+
+    /**
+     * 整批在一次加锁中依次执行；INSERT的更新行数为1，其他语句为SUCCESS_NO_INFO
+     */
+    @Override
+    public int[] executeBatch() throws SQLException {
+        checkOpen();
+        closeResultSet();
+        List<String> sqls = new ArrayList<>(batch);
+        batch.clear();
+        if (sqls.isEmpty()) {
+            return new int[0];
+        }
+        return connection.executeBatch(sqls);
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        checkOpen();
+        if (rows < 0) {
+            throw new SQLException("Fetch size must not be negative: " + rows);
+        }
+        fetchSize = rows;
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        checkOpen();
+        return fetchSize;
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        checkOpen();
+        if (max < 0) {
+            throw new SQLException("Max rows must not be negative: " + max);
+        }
+        maxRows = max;
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        checkOpen();
+        return maxRows;
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        checkOpen();
+        if (direction != ResultSet.FETCH_FORWARD) {
+            throw MyDbmsDriver.unsupported("fetch direction " + direction);
+        }
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        checkOpen();
+        return ResultSet.FETCH_FORWARD;
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        checkOpen();
+        return ResultSet.CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        checkOpen();
+        return ResultSet.TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        checkOpen();
+        return ResultSet.CLOSE_CURSORS_AT_COMMIT;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        checkOpen();
+        return connection;
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return getMoreResults();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        checkOpen();
+        return 0;
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        checkOpen();
+    }
+
+    /**
+     * 超时的语句由执行器取消（与会话的statement_timeout相同），执行以SQLException结束；批量执行不受此限制
+     */
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        checkOpen();
+        if (seconds < 0) {
+            throw new SQLException("Query timeout must not be negative: " + seconds);
+        }
+        queryTimeout = seconds;
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        checkOpen();
+        return queryTimeout;
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        checkOpen();
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        checkOpen();
+        return false;
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        throw MyDbmsDriver.unsupported("closeOnCompletion");
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        checkOpen();
+        return false;
+    }
+
+@Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        throw MyDbmsDriver.unsupported("execute");
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        throw MyDbmsDriver.unsupported("execute");
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        throw MyDbmsDriver.unsupported("execute");
+    }
+
+    /**
+     * 请求取消连接上正在执行的语句（与KILL相同），语句在执行器下一次检查时以SQLException结束
+     */
+    @Override
+    public void cancel() throws SQLException {
+        if (closed) {
+            throw new SQLException("Statement is closed");
+        }
+        connection.cancel();
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        throw MyDbmsDriver.unsupported("executeUpdate");
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        throw MyDbmsDriver.unsupported("executeUpdate");
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        throw MyDbmsDriver.unsupported("executeUpdate");
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        throw MyDbmsDriver.unsupported("setCursorName");
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        throw MyDbmsDriver.unsupported("getGeneratedKeys");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
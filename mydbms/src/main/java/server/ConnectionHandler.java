@@ -0,0 +1,253 @@
+package server;
+
+import compiler.CompilationResult;
+import compiler.SQLCompiler;
+import compiler.Session;
+import compiler.execution.ResultSink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 连接处理 - 一个连接对应一个会话，按顺序执行客户端发来的语句，结果行在执行过程中分批写回
+ * （没有聚合和排序的查询边扫描边发送，客户端读取慢时扫描随之等待，不在服务器端缓存整个结果）
+ * 客户端流水线发送语句时，已经到达的连续INSERT合并成一批执行（整批只加一次语句锁），
+ * 每条语句仍然各自回复OK或ERROR，出错的语句不影响它前后的语句
+ */
+public class ConnectionHandler implements Runnable {
+    // 一批合并执行的INSERT条数上限
+    static final int MAX_INSERT_BATCH = 1024;
+
+    private final SQLCompiler compiler;
+    private final Socket socket;
+    private final Session session = new Session();
+
+    public ConnectionHandler(SQLCompiler compiler, Socket socket) {
+        this.compiler = compiler;
+        this.socket = socket;
+    }
+
+    @Override
+    public void run() {
+        System.out.println("[Server] 连接建立：" + socket.getRemoteSocketAddress() + " " + session);
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            Request request = readRequest(in);
+            while (request != null && !request.close) {
+                Request next = null;
+                boolean peeked = false;
+                if (request.isInsert()) {
+                    List<String> inserts = new ArrayList<>();
+                    inserts.add(request.sql);
+                    // 只合并已经到达的帧，不为凑批等待客户端
+                    while (inserts.size() < MAX_INSERT_BATCH && in.available() > 0) {
+                        next = readRequest(in);
+                        peeked = true;
+                        if (next == null || !next.isInsert()) {
+                            break;
+                        }
+                        inserts.add(next.sql);
+                        next = null;
+                        peeked = false;
+                    }
+                    handleInserts(out, inserts);
+                } else if (request.error != null) {
+                    writeError(out, request.error);
+                } else {
+                    handleQuery(out, request.sql);
+                }
+                request = peeked ? next : readRequest(in);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("[Server] 连接异常断开：" + e.getMessage());
+        } finally {
+            session.setResultSink(null);
+            compiler.closeSession(session);
+            System.out.println("[Server] 连接关闭：" + session);
+        }
+    }
+
+    /**
+     * 读取一帧并绑定参数，连接在帧边界上关闭时返回null
+     */
+    private static Request readRequest(DataInputStream in) throws IOException {
+        Protocol.Frame frame = Protocol.readFrame(in);
+        if (frame == null) {
+            return null;
+        }
+        if (frame.getType() == Protocol.CLOSE) {
+            return new Request(true, null, null);
+        }
+        if (frame.getType() != Protocol.QUERY) {
+            return new Request(false, null, "Unknown frame type: " + (char) frame.getType());
+        }
+        String sql = Protocol.readString(frame.getPayload());
+        List<Object> parameters = Protocol.readParameters(frame.getPayload());
+        try {
+            return new Request(false, ParameterBinder.bind(sql, parameters), null);
+        } catch (IllegalArgumentException e) {
+            return new Request(false, null, e.getMessage());
+        }
+    }
+
+    private void handleQuery(DataOutputStream out, String sql) throws IOException {
+        FrameSink sink = new FrameSink(out);
+        session.setResultSink(sink);
+        CompilationResult result;
+        try {
+            result = compiler.compile(sql, session);
+        } finally {
+            session.setResultSink(null);
+        }
+        sink.flush();
+
+        if (!result.isSuccess()) {
+            writeError(out, result.toString().trim());
+        } else if (sink.error != null) {
+            writeError(out, sink.error);
+        } else {
+            writeOk(out, sink.rowCount);
+            out.flush();
+        }
+    }
+
+    /**
+     * 合并执行连续的INSERT，回复全部写完后统一刷新；
+     * 某条语句编译或执行失败时，先提交它前面的语句，回复它的错误，再从它后面的语句继续
+     */
+    private void handleInserts(DataOutputStream out, List<String> sqls) throws IOException {
+        if (sqls.size() == 1) {
+            handleQuery(out, sqls.get(0));
+            return;
+        }
+        int start = 0;
+        while (start < sqls.size()) {
+            List<String> batch = sqls.subList(start, sqls.size());
+            FrameSink sink = new FrameSink(out);
+            session.setResultSink(sink);
+            List<CompilationResult> results;
+            try {
+                results = compiler.compileBatch(batch, session);
+            } finally {
+                session.setResultSink(null);
+            }
+
+            CompilationResult last = results.get(results.size() - 1);
+            if (!last.isSuccess()) {
+                // 编译失败时整批都没有执行，它前面的语句都能编译，单独再执行一次
+                if (results.size() > 1) {
+                    handleInserts(out, new ArrayList<>(batch.subList(0, results.size() - 1)));
+                }
+                writeError(out, last.toString().trim());
+            } else {
+                boolean complete = results.size() == batch.size() && sink.error == null;
+                int succeeded = complete ? results.size() : results.size() - 1;
+                for (int i = 0; i < succeeded; i++) {
+                    writeOk(out, 0);
+                }
+                if (!complete) {
+                    writeError(out, sink.error != null ? sink.error : "Statement was not executed");
+                }
+            }
+            start += results.size();
+        }
+        out.flush();
+    }
+
+    private static void writeOk(DataOutputStream out, long rowCount) throws IOException {
+        Protocol.FrameWriter ok = new Protocol.FrameWriter(Protocol.OK);
+        ok.payload().writeLong(rowCount);
+        ok.write(out);
+    }
+
+    private static void writeError(DataOutputStream out, String message) throws IOException {
+        Protocol.FrameWriter error = new Protocol.FrameWriter(Protocol.ERROR);
+        Protocol.writeString(error.payload(), message);
+        error.writeTo(out);
+    }
+
+    /**
+     * 客户端发来的一帧：绑定参数后的SQL，或者要回复给客户端的错误
+     */
+    private static final class Request {
+        private final boolean close;
+        private final String sql;
+        private final String error;
+
+        Request(boolean close, String sql, String error) {
+            this.close = close;
+            this.sql = sql;
+            this.error = error;
+        }
+
+        boolean isInsert() {
+            return sql != null && sql.trim().regionMatches(true, 0, "INSERT", 0, 6);
+        }
+    }
+
+    /**
+     * 把执行器交来的结果行攒成批写回客户端，每满一批立即发送一个ROWS帧；错误只记录第一条，在语句结束时发送
+     */
+    private static final class FrameSink implements ResultSink {
+        private final DataOutputStream out;
+        private final List<List<String>> batch = new ArrayList<>();
+        private int columnCount;
+        private long rowCount;
+        private String error;
+
+        FrameSink(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void columns(List<String> columns) {
+            try {
+                Protocol.FrameWriter frame = new Protocol.FrameWriter(Protocol.COLUMNS);
+                frame.payload().writeInt(columns.size());
+                for (String column : columns) {
+                    Protocol.writeString(frame.payload(), column);
+                }
+                frame.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            columnCount = columns.size();
+        }
+
+        @Override
+        public void row(List<String> values) {
+            batch.add(new ArrayList<>(values));
+            rowCount++;
+            if (batch.size() >= Protocol.ROW_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void error(String message) {
+            if (error == null) {
+                error = message;
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                Protocol.writeRows(out, columnCount, batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            batch.clear();
+        }
+    }
+}
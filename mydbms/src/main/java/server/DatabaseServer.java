@@ -0,0 +1,166 @@
+package server;
+
+import compiler.SQLCompiler;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地TCP服务器 - 每个连接一个会话，由一个线程（平台线程池中的线程或虚拟线程）处理
+ * 同时处理的连接数不超过maxConnections，超出的连接在accept之前等待；所有连接共享一个SQLCompiler
+ *
+ * 系统属性：
+ *   -Dserver.port=9527              监听端口（命令行参数优先）
+ *   -Dserver.maxConnections=64      同时处理的连接数上限
+ *   -Dserver.virtualThreads=true    每个连接使用一个虚拟线程（需要JDK 21，否则退回平台线程池）
+ *   -Dverbose=true                  输出每条语句的编译阶段和执行计划（默认关闭）
+ */
+public class DatabaseServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 9527;
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    private final SQLCompiler compiler;
+    private final int port;
+    private final int maxConnections;
+    private final boolean virtualThreads;
+    private final Semaphore permits;
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public DatabaseServer(SQLCompiler compiler, int port) {
+        this(compiler, port, Integer.getInteger("server.maxConnections", DEFAULT_MAX_CONNECTIONS),
+                Boolean.getBoolean("server.virtualThreads"));
+    }
+
+    public DatabaseServer(SQLCompiler compiler, int port, int maxConnections, boolean virtualThreads) {
+        this.compiler = compiler;
+        this.port = port;
+        this.maxConnections = Math.max(maxConnections, 1);
+        this.virtualThreads = virtualThreads;
+        this.permits = new Semaphore(this.maxConnections);
+    }
+
+    /**
+     * 绑定端口并在后台线程中开始接受连接
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket(port);
+        executor = createExecutor();
+        running = true;
+        acceptor = new Thread(this::acceptLoop, "mydbms-acceptor");
+        acceptor.start();
+        System.out.println("[Server] 监听端口 " + getPort() + "，最大连接数 " + maxConnections);
+    }
+
+    /**
+     * 实际监听的端口（构造时端口为0则由系统分配）
+     */
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                permits.release();
+                if (running && !(e instanceof SocketException)) {
+                    System.out.println("[Server] 接受连接失败：" + e.getMessage());
+                    continue;
+                }
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        new ConnectionHandler(compiler, socket).run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * 默认使用固定大小的平台线程池；要求虚拟线程时通过反射创建（编译目标为Java 11）
+     */
+    private ExecutorService createExecutor() {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.out.println("[Server] 当前JDK不支持虚拟线程，使用平台线程池");
+            }
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        return Executors.newFixedThreadPool(maxConnections, task -> {
+            Thread thread = new Thread(task, "mydbms-conn-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 停止接受新连接并关闭线程池；正在执行的语句执行完毕后连接关闭
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverSocket);
+        acceptor.interrupt();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("[Server] 已停止");
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * 用法：DatabaseServer [port]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("server.port", DEFAULT_PORT);
+        SQLCompiler compiler = new SQLCompiler();
+        compiler.setVerbose(Boolean.getBoolean("verbose"));
+        DatabaseServer server = new DatabaseServer(compiler, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+    }
+}
@@ -0,0 +1,89 @@
+package server;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 绑定参数 - 把SQL中引号外的 ? 依次替换为参数的字面量
+ * 语法中没有占位符，因此在词法分析之前按字面量代入；字面量的写法受词法规则限制：
+ * 字符串不支持转义，选用值中没有出现的引号；不支持负数和NULL字面量；小数总是带小数点
+ */
+public final class ParameterBinder {
+
+    private ParameterBinder() {
+    }
+
+    public static String bind(String sql, List<Object> parameters) {
+        if (parameters.isEmpty() && sql.indexOf('?') < 0) {
+            return sql;
+        }
+        StringBuilder sb = new StringBuilder(sql.length() + parameters.size() * 8);
+        char quote = 0;
+        int used = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                sb.append(c);
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+                sb.append(c);
+            } else if (c == '?') {
+                if (used >= parameters.size()) {
+                    throw new IllegalArgumentException("Not enough parameters: got " + parameters.size());
+                }
+                sb.append(literal(parameters.get(used++)));
+            } else {
+                sb.append(c);
+            }
+        }
+        if (used != parameters.size()) {
+            throw new IllegalArgumentException("Expected " + used + " parameters but got " + parameters.size());
+        }
+        return sb.toString();
+    }
+
+    static String literal(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("NULL parameters are not supported");
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "TRUE" : "FALSE";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw new IllegalArgumentException("Unsupported parameter value: " + d);
+            }
+            checkNonNegative(d < 0, value);
+            String plain = new BigDecimal(Double.toString(d)).toPlainString();
+            return plain.indexOf('.') >= 0 ? plain : plain + ".0";
+        }
+        if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            checkNonNegative(decimal.signum() < 0, value);
+            return decimal.toPlainString();
+        }
+        if (value instanceof Number) {
+            long l = ((Number) value).longValue();
+            checkNonNegative(l < 0, value);
+            return Long.toString(l);
+        }
+        String s = value.toString();
+        if (s.indexOf('\'') < 0) {
+            return "'" + s + "'";
+        }
+        if (s.indexOf('"') < 0) {
+            return "\"" + s + "\"";
+        }
+        throw new IllegalArgumentException("String parameter cannot contain both ' and \": " + s);
+    }
+
+    private static void checkNonNegative(boolean negative, Object value) {
+        if (negative) {
+            throw new IllegalArgumentException("Negative parameter values are not supported: " + value);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端/服务器协议 - 长度前缀的二进制帧：int 长度（类型和载荷的字节数） + byte 类型 + 载荷
+ * 字符串编码为 int 字节数 + UTF-8 字节；一个连接上同一时刻只有一条语句在执行
+ * 客户端可以连续发送多个QUERY而不等待回复（流水线），服务器按发送顺序执行并按同样的顺序回复
+ *
+ * 客户端发送：
+ *   QUERY  - 字符串 SQL，int 参数个数，每个参数为 byte 标签 + 值（见 writeParameter）
+ *   CLOSE  - 无载荷，服务器关闭连接
+ * 服务器对每个 QUERY 依次回复：
+ *   COLUMNS - int 列数 + 列名（仅查询语句）
+ *   ROWS    - int 行数 + int 列数 + 每个值的 boolean 非空标志和字符串，一批最多 ROW_BATCH_SIZE 行，可有多批
+ *   OK      - long 返回的行数，语句结束
+ *   ERROR   - 字符串错误信息，语句结束
+ * 结果行在执行过程中边产生边发送：查询执行到一半出错时，ERROR可能跟在COLUMNS和ROWS之后，已收到的行应丢弃
+ */
+public final class Protocol {
+    public static final byte QUERY = 'Q';
+    public static final byte CLOSE = 'X';
+    public static final byte COLUMNS = 'C';
+    public static final byte ROWS = 'R';
+    public static final byte OK = 'K';
+    public static final byte ERROR = 'E';
+
+    public static final int ROW_BATCH_SIZE = 256;
+    // 单帧上限，防止错误或恶意的长度字段导致分配过大的缓冲区
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private static final byte NULL_PARAMETER = 0;
+    private static final byte LONG_PARAMETER = 1;
+    private static final byte DOUBLE_PARAMETER = 2;
+    private static final byte STRING_PARAMETER = 3;
+    private static final byte BOOLEAN_PARAMETER = 4;
+
+    private Protocol() {
+    }
+
+    /**
+     * 读到的一帧：类型和载荷
+     */
+    public static final class Frame {
+        private final byte type;
+        private final DataInputStream payload;
+
+        Frame(byte type, byte[] payload) {
+            this.type = type;
+            this.payload = new DataInputStream(new ByteArrayInputStream(payload));
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public DataInputStream getPayload() {
+            return payload;
+        }
+    }
+
+    /**
+     * 构造一帧的载荷
+     */
+    public static final class FrameWriter {
+        private final byte type;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream payload = new DataOutputStream(bytes);
+
+        public FrameWriter(byte type) {
+            this.type = type;
+        }
+
+        public DataOutputStream payload() {
+            return payload;
+        }
+
+        /**
+         * 把帧写入输出流并刷新
+         */
+        public void writeTo(DataOutputStream out) throws IOException {
+            write(out);
+            out.flush();
+        }
+
+        /**
+         * 把帧写入输出流但不刷新，连续写多帧时由调用者最后统一刷新
+         */
+        public void write(DataOutputStream out) throws IOException {
+            payload.flush();
+            if (bytes.size() + 1 > MAX_FRAME_BYTES) {
+                throw new IOException("Frame too large: " + (bytes.size() + 1) + " bytes");
+            }
+            out.writeInt(bytes.size() + 1);
+            out.writeByte(type);
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * 读取一帧，连接在帧边界上关闭时返回null
+     */
+    public static Frame readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte type = in.readByte();
+        byte[] payload = new byte[length - 1];
+        in.readFully(payload);
+        return new Frame(type, payload);
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 写入一个绑定参数：null、Long/Integer/Short/Byte、Double/Float、String、Boolean
+     */
+    public static void writeParameter(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_PARAMETER);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG_PARAMETER);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE_PARAMETER);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof String) {
+            out.writeByte(STRING_PARAMETER);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_PARAMETER);
+            out.writeBoolean((Boolean) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported parameter type: " + value.getClass().getName());
+        }
+    }
+
+    public static Object readParameter(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL_PARAMETER:
+                return null;
+            case LONG_PARAMETER:
+                return in.readLong();
+            case DOUBLE_PARAMETER:
+                return in.readDouble();
+            case STRING_PARAMETER:
+                return readString(in);
+            case BOOLEAN_PARAMETER:
+                return in.readBoolean();
+            default:
+                throw new IOException("Unknown parameter tag: " + tag);
+        }
+    }
+
+    /**
+     * 写入一条QUERY帧
+     */
+    public static void writeQuery(DataOutputStream out, String sql, List<?> parameters) throws IOException {
+        FrameWriter frame = new FrameWriter(QUERY);
+        writeString(frame.payload(), sql);
+        frame.payload().writeInt(parameters.size());
+        for (Object parameter : parameters) {
+            writeParameter(frame.payload(), parameter);
+        }
+        frame.writeTo(out);
+    }
+
+    /**
+     * 读取QUERY帧的参数部分（SQL之后）
+     */
+    public static List<Object> readParameters(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        // 每个参数至少有一个字节的标签
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Invalid parameter count: " + count);
+        }
+        List<Object> parameters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parameters.add(readParameter(in));
+        }
+        return parameters;
+    }
+
+    /**
+     * 写入一批结果行，null表示SQL NULL
+     */
+    public static void writeRows(DataOutputStream out, int columnCount, List<List<String>> rows) throws IOException {
+        FrameWriter frame = new FrameWriter(ROWS);
+        DataOutputStream payload = frame.payload();
+        payload.writeInt(rows.size());
+        payload.writeInt(columnCount);
+        for (List<String> row : rows) {
+            for (int i = 0; i < columnCount; i++) {
+                String value = i < row.size() ? row.get(i) : null;
+                payload.writeBoolean(value != null);
+                if (value != null) {
+                    writeString(payload, value);
+                }
+            }
+        }
+        frame.writeTo(out);
+    }
+
+    public static List<List<String>> readRows(DataInputStream in) throws IOException {
+        int rowCount = in.readInt();
+        int columnCount = in.readInt();
+        // 每个值至少有一个字节的非空标志，载荷装不下的行数和列数不可能是合法的，不按它们分配
+        if (rowCount < 0 || columnCount < 0 || rowCount > ROW_BATCH_SIZE
+                || (long) rowCount * columnCount > in.available()) {
+            throw new IOException("Invalid row batch: " + rowCount + " x " + columnCount);
+        }
+        List<List<String>> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            List<String> row = new ArrayList<>(columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                row.add(in.readBoolean() ? readString(in) : null);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
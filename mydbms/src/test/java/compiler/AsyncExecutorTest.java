@@ -0,0 +1,173 @@
+package compiler;
+
+import compiler.catalog.Catalog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncExecutorTest {
+    private static final File REDO_LOG = new File(Catalog.DATABASE_ROOT, "redo.log");
+
+    private final boolean hadRedoLog = REDO_LOG.exists();
+    private final ScriptedCompiler compiler = new ScriptedCompiler();
+
+    @After
+    public void deleteRedoLog() {
+        compiler.gate.countDown();
+        if (!hadRedoLog) {
+            REDO_LOG.delete();
+            new File(Catalog.DATABASE_ROOT).delete();
+        }
+    }
+
+    @Test
+    public void statementsOfOneSessionRunInSubmissionOrder() throws Exception {
+        Session a = new Session();
+        Session b = new Session();
+        List<CompletableFuture<QueryResult>> futures = new ArrayList<>();
+        try (AsyncExecutor async = new AsyncExecutor(compiler, 4, 100, AsyncExecutor.OverflowPolicy.REJECT)) {
+            for (int i = 0; i < 20; i++) {
+                futures.add(async.submit("A" + i, a));
+                futures.add(async.submit("B" + i, b));
+            }
+            for (CompletableFuture<QueryResult> future : futures) {
+                Assert.assertTrue(future.get(5, TimeUnit.SECONDS).isSuccess());
+            }
+            Assert.assertEquals(0, async.getPending());
+        }
+        List<String> expectedA = new ArrayList<>();
+        List<String> expectedB = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expectedA.add("A" + i);
+            expectedB.add("B" + i);
+        }
+        Assert.assertEquals(expectedA, compiler.executed.get(a));
+        Assert.assertEquals(expectedB, compiler.executed.get(b));
+        Assert.assertEquals(1, compiler.maxConcurrency.get());
+    }
+
+    @Test
+    public void otherSessionsAreNotHeldUpByABlockedSession() throws Exception {
+        try (AsyncExecutor async = new AsyncExecutor(compiler, 2, 10, AsyncExecutor.OverflowPolicy.REJECT)) {
+            Session blocked = new Session();
+            CompletableFuture<QueryResult> waiting = async.submit("WAIT", blocked);
+            CompletableFuture<QueryResult> queued = async.submit("after", blocked);
+            // 另一个会话的语句在第一个会话阻塞时完成
+            Assert.assertEquals("other", async.submit("other", new Session()).get(5, TimeUnit.SECONDS).getSql());
+            Assert.assertFalse(waiting.isDone());
+            Assert.assertFalse(queued.isDone());
+
+            compiler.gate.countDown();
+            Assert.assertEquals("WAIT", waiting.get(5, TimeUnit.SECONDS).getSql());
+            Assert.assertEquals("after", queued.get(5, TimeUnit.SECONDS).getSql());
+        }
+    }
+
+    @Test
+    public void rejectPolicyFailsSubmissionsBeyondCapacity() throws Exception {
+        try (AsyncExecutor async = new AsyncExecutor(compiler, 2, 2, AsyncExecutor.OverflowPolicy.REJECT)) {
+            CompletableFuture<QueryResult> first = async.submit("WAIT", new Session());
+            CompletableFuture<QueryResult> second = async.submit("WAIT", new Session());
+            Assert.assertEquals(2, async.getPending());
+            assertRejected(async.submit("third", new Session()));
+
+            compiler.gate.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            // 名额在语句结束时释放
+            Assert.assertTrue(async.submit("fourth", new Session()).get(5, TimeUnit.SECONDS).isSuccess());
+        }
+    }
+
+    @Test
+    public void blockPolicyWaitsForAFreeSlot() throws Exception {
+        try (AsyncExecutor async = new AsyncExecutor(compiler, 1, 1, AsyncExecutor.OverflowPolicy.BLOCK)) {
+            CompletableFuture<QueryResult> first = async.submit("WAIT", new Session());
+            CountDownLatch submitted = new CountDownLatch(1);
+            List<CompletableFuture<QueryResult>> second = Collections.synchronizedList(new ArrayList<>());
+            Thread submitter = new Thread(() -> {
+                second.add(async.submit("second", new Session()));
+                submitted.countDown();
+            });
+            submitter.start();
+            Assert.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+
+            compiler.gate.countDown();
+            Assert.assertTrue(submitted.await(5, TimeUnit.SECONDS));
+            first.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals("second", second.get(0).get(5, TimeUnit.SECONDS).getSql());
+            submitter.join();
+        }
+    }
+
+    @Test
+    public void closeRejectsNewAndQueuedStatements() throws Exception {
+        AsyncExecutor async = new AsyncExecutor(compiler, 1, 10, AsyncExecutor.OverflowPolicy.REJECT);
+        Session session = new Session();
+        CompletableFuture<QueryResult> running = async.submit("WAIT", session);
+        CompletableFuture<QueryResult> queued = async.submit("queued", session);
+        async.close();
+        assertRejected(async.submit("late", new Session()));
+
+        // 已交给线程池的语句执行完毕，同一会话中排队的语句无法再交给已关闭的线程池
+        compiler.gate.countDown();
+        Assert.assertTrue(running.get(5, TimeUnit.SECONDS).isSuccess());
+        assertRejected(queued);
+        Assert.assertEquals(0, async.getPending());
+    }
+
+    private static void assertRejected(CompletableFuture<QueryResult> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("submission should be rejected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * 不编译语句：记录每个会话执行过的语句和同一会话的最大并发数，WAIT语句等到gate打开才结束
+     */
+    private static final class ScriptedCompiler extends SQLCompiler {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final Map<Session, List<String>> executed = new ConcurrentHashMap<>();
+        final Map<Session, AtomicInteger> active = new ConcurrentHashMap<>();
+        final AtomicInteger maxConcurrency = new AtomicInteger();
+
+        @Override
+        public QueryResult execute(String sql, Session session) {
+            AtomicInteger count = active.computeIfAbsent(session, s -> new AtomicInteger());
+            maxConcurrency.accumulateAndGet(count.incrementAndGet(), Math::max);
+            try {
+                executed.computeIfAbsent(session, s -> Collections.synchronizedList(new ArrayList<>())).add(sql);
+                if (sql.equals("WAIT")) {
+                    gate.await(5, TimeUnit.SECONDS);
+                } else {
+                    // 让同一会话的语句有机会重叠，如果执行器没有按会话串行
+                    Thread.yield();
+                }
+                CompilationResult compilation = new CompilationResult();
+                compilation.setSuccess(true);
+                return new QueryResult(sql, compilation, null, Collections.emptyList(), null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                count.decrementAndGet();
+            }
+        }
+    }
+}
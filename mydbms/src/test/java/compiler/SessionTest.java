@@ -0,0 +1,141 @@
+package compiler;
+
+import compiler.ast.statements.CreateTableStatement;
+import compiler.catalog.Catalog;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+public class SessionTest {
+    private static final File REDO_LOG = new File(Catalog.DATABASE_ROOT, "redo.log");
+
+    private final String first = "session_a_" + System.nanoTime();
+    private final String second = "session_b_" + System.nanoTime();
+    private final boolean hadRedoLog = REDO_LOG.exists();
+    private final SQLCompiler compiler = new SQLCompiler();
+
+    @Before
+    public void createDatabases() throws Exception {
+        compiler.setVerbose(false);
+        // 两个数据库中有同名的表，内容不同
+        createTable(first, "a1", "a2");
+        createTable(second, "b1");
+    }
+
+    @After
+    public void deleteDatabases() throws Exception {
+        for (String dbName : Arrays.asList(first, second)) {
+            try (Stream<Path> paths = Files.walk(new File(Catalog.DATABASE_ROOT, dbName).toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        if (!hadRedoLog) {
+            REDO_LOG.delete();
+            new File(Catalog.DATABASE_ROOT).delete();
+        }
+    }
+
+    @Test
+    public void eachSessionResolvesTablesInItsOwnDatabase() {
+        Session a = new Session();
+        Session b = new Session();
+        Assert.assertTrue(compiler.execute("USE DATABASE " + first, a).isSuccess());
+        Assert.assertTrue(compiler.execute("USE DATABASE " + second, b).isSuccess());
+        Assert.assertEquals(first, a.getDatabase());
+        Assert.assertEquals(second, b.getDatabase());
+
+        Assert.assertEquals(Arrays.asList("a1", "a2"), names(a));
+        Assert.assertEquals(Collections.singletonList("b1"), names(b));
+        // 没有选择数据库的会话不受其他会话影响
+        Session none = new Session();
+        Assert.assertNull(none.getDatabase());
+        Assert.assertFalse(compiler.execute("SELECT * FROM t", none).isSuccess());
+        Assert.assertNull(compiler.getSession().getDatabase());
+    }
+
+    @Test
+    public void failedUseKeepsOtherSessionsUnchanged() {
+        Session a = new Session();
+        Session b = new Session();
+        compiler.execute("USE DATABASE " + first, a);
+        compiler.execute("USE DATABASE " + first, b);
+        Assert.assertFalse(compiler.execute("USE DATABASE missing_" + System.nanoTime(), b).isSuccess());
+        Assert.assertNull(b.getDatabase());
+        Assert.assertEquals(Arrays.asList("a1", "a2"), names(a));
+    }
+
+    @Test
+    public void concurrentSessionsSeeTheirOwnTables() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String dbName = i % 2 == 0 ? first : second;
+                List<String> expected = i % 2 == 0 ? Arrays.asList("a1", "a2") : Collections.singletonList("b1");
+                results.add(threads.submit(() -> {
+                    Session session = new Session();
+                    compiler.execute("USE DATABASE " + dbName, session);
+                    for (int round = 0; round < 10; round++) {
+                        if (!expected.equals(names(session))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    private List<String> names(Session session) {
+        QueryResult result = compiler.execute("SELECT name FROM t", session);
+        Assert.assertTrue(result.getError(), result.isSuccess());
+        List<String> names = new ArrayList<>();
+        for (List<String> row : result.getRows()) {
+            names.add(row.get(0));
+        }
+        return names;
+    }
+
+    private void createTable(String dbName, String... names) throws Exception {
+        compiler.getCatalog().createTable(dbName, (CreateTableStatement) new Parser(new LexicalAnalyzer(
+                "CREATE TABLE t (id INT, name VARCHAR(10))").analyze()).parse());
+        Catalog.tableDirectory(dbName, "t").mkdirs();
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("ts");
+        for (int i = 0; i < names.length; i++) {
+            root.addElement("t").addAttribute("id", String.valueOf(i)).addAttribute("name", names[i]);
+        }
+        try (FileOutputStream out = new FileOutputStream(new File(Catalog.tableDirectory(dbName, "t"), "t0.xml"))) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        }
+    }
+}
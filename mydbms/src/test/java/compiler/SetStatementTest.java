@@ -0,0 +1,49 @@
+package compiler;
+
+import compiler.catalog.Catalog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+
+public class SetStatementTest {
+    private static final File REDO_LOG = new File(Catalog.DATABASE_ROOT, "redo.log");
+
+    // 编译器构造时打开重做日志，测试结束时删除它新建的日志
+    private final boolean hadRedoLog = REDO_LOG.exists();
+    private final SQLCompiler compiler = new SQLCompiler();
+
+    @After
+    public void deleteRedoLog() {
+        if (!hadRedoLog) {
+            REDO_LOG.delete();
+            new File(Catalog.DATABASE_ROOT).delete();
+        }
+    }
+
+    @Test
+    public void settingsApplyOnlyToTheirSession() {
+        compiler.setVerbose(false);
+        Session session = new Session();
+        Session other = new Session();
+        int parallelism = other.getParallelism();
+
+        Assert.assertTrue(compiler.compile("SET parallelism = 3", session).isSuccess());
+        Assert.assertTrue(compiler.compile("SET STATEMENT_TIMEOUT = 500;", session).isSuccess());
+        Assert.assertEquals(3, session.getParallelism());
+        Assert.assertEquals(500, session.getStatementTimeout());
+        Assert.assertEquals(parallelism, other.getParallelism());
+        Assert.assertEquals(0, other.getStatementTimeout());
+    }
+
+    @Test
+    public void invalidSettingsAreRejected() {
+        compiler.setVerbose(false);
+        Session session = new Session();
+        for (String sql : new String[] {"SET parallelism = 0", "SET parallelism = 4294967296", "SET threads = 2"}) {
+            Assert.assertFalse(sql, compiler.compile(sql, session).isSuccess());
+        }
+        Assert.assertEquals(new Session().getParallelism(), session.getParallelism());
+    }
+}
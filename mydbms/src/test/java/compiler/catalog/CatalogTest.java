@@ -0,0 +1,96 @@
+package compiler.catalog;
+
+import compiler.ast.statements.CreateTableStatement;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class CatalogTest {
+
+    @Test
+    public void snapshotDoesNotSeeLaterDdl() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.createTable("db", create("a"));
+        Catalog.Snapshot before = catalog.snapshot();
+        catalog.createTable("db", create("b"));
+        catalog.dropTable("db", "a");
+
+        Assert.assertNotNull(before.getTableSchema("db", "a"));
+        Assert.assertNull(before.getTableSchema("db", "b"));
+        Catalog.Snapshot after = catalog.snapshot();
+        Assert.assertNull(after.getTableSchema("db", "a"));
+        Assert.assertNotNull(after.getTableSchema("DB", "B"));
+        Assert.assertEquals(before.getVersion() + 2, after.getVersion());
+    }
+
+    @Test
+    public void failedDdlPublishesNothing() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.createTable("db", create("a"));
+        Catalog.Snapshot before = catalog.snapshot();
+        try {
+            catalog.createTable("db", create("a"));
+            Assert.fail("duplicate table");
+        } catch (CatalogException expected) {
+        }
+        try {
+            catalog.dropTable("db", "missing");
+            Assert.fail("missing table");
+        } catch (CatalogException expected) {
+        }
+        Assert.assertSame(before, catalog.snapshot());
+    }
+
+    @Test
+    public void concurrentCreatesAreAllPublished() throws Exception {
+        Catalog catalog = new Catalog();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> creates = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String table = "t" + i;
+                creates.add(threads.submit(() -> {
+                    catalog.createTable("db", create(table));
+                    return null;
+                }));
+            }
+            for (Future<?> create : creates) {
+                create.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        Catalog.Snapshot snapshot = catalog.snapshot();
+        for (int i = 0; i < 200; i++) {
+            Assert.assertNotNull("t" + i, snapshot.getTableSchema("db", "t" + i));
+        }
+        Assert.assertEquals(200, snapshot.getVersion());
+    }
+
+    @Test
+    public void dropDatabaseKeepsOtherDatabases() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.createTable("db", create("a"));
+        catalog.createTable("db2", create("a"));
+        // 前缀相同的数据库不受影响
+        catalog.createTable("dbx", create("a"));
+        catalog.dropDatabase("db");
+
+        Catalog.Snapshot snapshot = catalog.snapshot();
+        Assert.assertNull(snapshot.getTableSchema("db", "a"));
+        Assert.assertNotNull(snapshot.getTableSchema("db2", "a"));
+        Assert.assertNotNull(snapshot.getTableSchema("dbx", "a"));
+    }
+
+    private static CreateTableStatement create(String table) throws Exception {
+        return (CreateTableStatement) new Parser(new LexicalAnalyzer(
+                "CREATE TABLE " + table + " (id INT PRIMARY KEY, name VARCHAR(10))").analyze()).parse();
+    }
+}
@@ -0,0 +1,73 @@
+package compiler.catalog;
+
+import compiler.lexer.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ColumnStatisticsTest {
+
+    @Test
+    public void uniformValuesGiveProportionalRanges() {
+        List<Object> values = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            values.add(i);
+        }
+        // 另有1/10的行为空值
+        ColumnStatistics statistics = statistics(values, 0.1);
+        Assert.assertEquals(0.9 * 0.25, statistics.selectivity(TokenType.LESS_THAN, 250), 0.01);
+        Assert.assertEquals(0.9 * 0.1, statistics.selectivity(TokenType.GREATER_THAN, 900), 0.01);
+        Assert.assertEquals(0.9 / 1000, statistics.selectivity(TokenType.EQUALS, 42), 1e-9);
+        Assert.assertEquals(0.0, statistics.selectivity(TokenType.EQUALS, 5000), 0.0);
+        Assert.assertEquals(0.0, statistics.selectivity(TokenType.LESS_THAN, 0), 0.0);
+        Assert.assertEquals(0.9, statistics.selectivity(TokenType.LESS_EQUAL, 2000), 1e-9);
+        Assert.assertEquals(0.0, statistics.selectivity(TokenType.EQUALS, null), 0.0);
+    }
+
+    @Test
+    public void histogramFollowsSkewedData() {
+        // 九成的值在1..900之间，其余分散到100000
+        List<Object> values = new ArrayList<>();
+        for (int i = 1; i <= 900; i++) {
+            values.add(i);
+        }
+        for (int i = 1; i <= 100; i++) {
+            values.add(900 + i * 991);
+        }
+        ColumnStatistics statistics = statistics(values, 0);
+        // 误差不超过一个桶
+        Assert.assertEquals(0.9, statistics.selectivity(TokenType.LESS_EQUAL, 900), 1.0 / 16);
+        Assert.assertEquals(0.1, statistics.selectivity(TokenType.GREATER_THAN, 900), 1.0 / 16);
+        // 只有最小/最大值时，范围条件用默认选择率
+        ColumnStatistics withoutHistogram = new ColumnStatistics("c", 1000, 0, 1, 100000, null);
+        Assert.assertEquals(ColumnStatistics.DEFAULT_RANGE_SELECTIVITY,
+                withoutHistogram.selectivity(TokenType.LESS_EQUAL, 900), 1e-9);
+    }
+
+    @Test
+    public void stringColumnsUseHalfBuckets() {
+        List<Object> values = new ArrayList<>();
+        for (char c = 'a'; c <= 'p'; c++) {
+            values.add(String.valueOf(c));
+        }
+        ColumnStatistics statistics = statistics(values, 0);
+        // 'c' 之前有两个完整的桶，'c' 所在的桶按一半计
+        Assert.assertEquals(2.5 / 16, statistics.selectivity(TokenType.LESS_THAN, "c"), 1e-9);
+        Assert.assertEquals(1.0 / 16, statistics.selectivity(TokenType.EQUALS, "c"), 1e-9);
+    }
+
+    /**
+     * 按ANALYZE TABLE的方式构造统计信息：values已按升序排列且互不相同，直方图最多16个桶
+     */
+    static ColumnStatistics statistics(List<Object> values, double nullFraction) {
+        List<Object> histogram = new ArrayList<>();
+        int buckets = Math.min(16, values.size());
+        for (int b = 1; b <= buckets; b++) {
+            histogram.add(values.get(b * values.size() / buckets - 1));
+        }
+        return new ColumnStatistics("c", values.size(), nullFraction, values.get(0), values.get(values.size() - 1),
+                histogram);
+    }
+}
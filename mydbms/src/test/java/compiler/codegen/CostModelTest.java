@@ -0,0 +1,120 @@
+package compiler.codegen;
+
+import compiler.ast.ASTNode;
+import compiler.ast.expressions.Expression;
+import compiler.ast.statements.CreateTableStatement;
+import compiler.ast.statements.SelectStatement;
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnStatistics;
+import compiler.catalog.TableStatistics;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class CostModelTest {
+    private final String dbName = "cost_test_" + System.nanoTime();
+    private final Catalog catalog = new Catalog();
+
+    @Before
+    public void createTable() throws Exception {
+        catalog.createTable(dbName, (CreateTableStatement) parse("CREATE TABLE t (id INT, name VARCHAR(10))"));
+        catalog.createIndex(dbName, "idx_id", "t", Collections.singletonList("id"));
+    }
+
+    @After
+    public void deleteDatabase() throws Exception {
+        File root = new File(Catalog.DATABASE_ROOT, dbName);
+        if (!root.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void unanalyzedTablesAlwaysUseTheIndex() throws Exception {
+        Assert.assertTrue(usesIndex("SELECT * FROM t WHERE id > 100"));
+        Assert.assertTrue(usesIndex("SELECT * FROM t WHERE id = 42"));
+    }
+
+    @Test
+    public void selectiveConditionsUseTheIndexAndBroadOnesScan() throws Exception {
+        analyze();
+        Assert.assertTrue(usesIndex("SELECT * FROM t WHERE id = 42"));
+        Assert.assertTrue(usesIndex("SELECT * FROM t WHERE id < 50"));
+        Assert.assertFalse(usesIndex("SELECT * FROM t WHERE id > 100"));
+        // 全表扫描时条件全部留在过滤节点中
+        SelectPlan plan = plan("SELECT * FROM t WHERE id > 100 AND name = 'x'");
+        Assert.assertEquals(1, plan.getChildren().size());
+        Assert.assertTrue(plan.getChildren().get(0) instanceof FilterPlan);
+    }
+
+    @Test
+    public void estimatesFollowTheStatistics() throws Exception {
+        analyze();
+        CostModel model = new CostModel();
+        TableStatistics statistics = catalog.getTableSchema(dbName, "t").getStatistics();
+        Assert.assertEquals(100 * CostModel.SEQ_PAGE_COST + 10000 * CostModel.CPU_ROW_COST,
+                model.fullScanCost(statistics), 1e-9);
+        // 选择率越高，按行号回表涉及的段越多
+        Assert.assertTrue(model.indexAccessCost(statistics, 0.001) < model.indexAccessCost(statistics, 0.01));
+        Assert.assertTrue(model.indexAccessCost(statistics, 0.5) > model.fullScanCost(statistics));
+
+        Assert.assertEquals(1000, plan("SELECT * FROM t WHERE id <= 1000").getEstimatedRows(), 100);
+        // AND按独立性相乘，OR按容斥相加；name没有统计信息时用默认选择率
+        double and = model.selectivity(catalog.getTableSchema(dbName, "t"),
+                where("SELECT * FROM t WHERE id <= 1000 AND name = 'x'"));
+        double or = model.selectivity(catalog.getTableSchema(dbName, "t"),
+                where("SELECT * FROM t WHERE id <= 1000 OR id > 9000"));
+        Assert.assertEquals(0.1 * CostModel.DEFAULT_SELECTIVITY, and, 0.01);
+        Assert.assertEquals(0.1 + 0.1 - 0.1 * 0.1, or, 0.02);
+    }
+
+    /**
+     * 一万行、一百个段，id为1到10000
+     */
+    private void analyze() throws Exception {
+        Catalog.tableDirectory(dbName, "t").mkdirs();
+        List<Object> histogram = new ArrayList<>();
+        for (int b = 1; b <= 16; b++) {
+            histogram.add(b * 10000 / 16);
+        }
+        TableStatistics statistics = new TableStatistics(10000, 100);
+        statistics.addColumn(new ColumnStatistics("id", 10000, 0, 1, 10000, histogram));
+        catalog.saveStatistics(dbName, "t", statistics);
+    }
+
+    private boolean usesIndex(String sql) throws Exception {
+        for (ExecutionPlan child : plan(sql).getChildren()) {
+            if (child instanceof IndexScanPlan) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SelectPlan plan(String sql) throws Exception {
+        return (SelectPlan) new CodeGenerator(catalog, dbName).generatePlan(parse(sql));
+    }
+
+    private static Expression where(String sql) throws Exception {
+        return ((SelectStatement) parse(sql)).getWhereClause().getCondition();
+    }
+
+    private static ASTNode parse(String sql) throws Exception {
+        return new Parser(new LexicalAnalyzer(sql).analyze()).parse();
+    }
+}
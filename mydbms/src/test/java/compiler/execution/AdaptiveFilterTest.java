@@ -0,0 +1,81 @@
+package compiler.execution;
+
+import compiler.ast.expressions.Expression;
+import compiler.ast.statements.CreateTableStatement;
+import compiler.ast.statements.SelectStatement;
+import compiler.catalog.Catalog;
+import compiler.catalog.TableSchema;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveFilterTest {
+    private TableSchema schema;
+
+    @Before
+    public void createTable() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.createTable("db", (CreateTableStatement) new Parser(new LexicalAnalyzer(
+                "CREATE TABLE t (id INT, score DOUBLE, name VARCHAR(10))").analyze()).parse());
+        schema = catalog.getTableSchema("db", "t");
+    }
+
+    @Test
+    public void cheaperComparisonsAreEvaluatedFirst() throws Exception {
+        AdaptiveFilter filter = AdaptiveFilter.compile(schema, where("name = 'x' AND score > 1.5 AND id > 5"));
+        Assert.assertTrue(filter.isReorderable());
+        Assert.assertEquals("(id > 5 AND score > 1.5 AND name = 'x')", filter.toString());
+        Assert.assertNull(AdaptiveFilter.compile(schema, null));
+        Assert.assertFalse(AdaptiveFilter.compile(schema, where("id > 5")).isReorderable());
+    }
+
+    @Test
+    public void selectiveConditionMovesToTheFront() throws Exception {
+        AdaptiveFilter and = AdaptiveFilter.compile(schema, where("id >= 0 AND id < 10"));
+        AdaptiveFilter or = AdaptiveFilter.compile(schema, where("id < 10 OR id >= 0"));
+        for (int i = 0; i < AdaptiveFilter.REORDER_INTERVAL * 2; i++) {
+            Row row = row(i, 1.0, "a");
+            Assert.assertEquals(i < 10, and.test(row));
+            Assert.assertTrue(or.test(row));
+        }
+        // AND中几乎总不通过的条件提前，OR中几乎总通过的条件提前
+        Assert.assertEquals("(id < 10 AND id >= 0)", and.toString());
+        Assert.assertEquals("(id >= 0 OR id < 10)", or.toString());
+        Assert.assertEquals(1, and.getReorders());
+        Assert.assertEquals(1, or.getReorders());
+    }
+
+    @Test
+    public void reorderingDoesNotChangeResults() throws Exception {
+        // 从左到右结合：((id > 3 OR name = 'b') AND score < 2.5 AND name = 'a') OR id < 7 OR score > 2
+        Expression condition = where("id > 3 OR name = 'b' AND score < 2.5 AND name = 'a' OR id < 7 OR score > 2");
+        AdaptiveFilter filter = AdaptiveFilter.compile(schema, condition);
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(schema);
+        for (int i = 0; i < AdaptiveFilter.REORDER_INTERVAL * 8; i++) {
+            // 数据分布每隔一段改变一次，空值参与比较
+            int phase = i / (AdaptiveFilter.REORDER_INTERVAL * 2);
+            Row row = new Row(i);
+            row.put("id", i % 5 == 0 ? null : String.valueOf((i * 7 + phase * 3) % 10));
+            row.put("score", String.valueOf((i % 4) * (phase + 1) * 0.75));
+            row.put("name", phase % 2 == 0 ? "a" : (i % 3 == 0 ? "b" : "c"));
+            Assert.assertEquals(row.toString(), evaluator.matches(condition, row), filter.test(row));
+        }
+        Assert.assertTrue(filter.getReorders() > 0);
+    }
+
+    private static Row row(int id, double score, String name) {
+        Row row = new Row(id);
+        row.put("id", String.valueOf(id));
+        row.put("score", String.valueOf(score));
+        row.put("name", name);
+        return row;
+    }
+
+    private static Expression where(String condition) throws Exception {
+        SelectStatement select = (SelectStatement) new Parser(new LexicalAnalyzer(
+                "SELECT * FROM t WHERE " + condition).analyze()).parse();
+        return select.getWhereClause().getCondition();
+    }
+}
@@ -0,0 +1,115 @@
+package compiler.execution;
+
+import compiler.QueryResult;
+import compiler.SQLCompiler;
+import compiler.Session;
+import compiler.ast.statements.CreateTableStatement;
+import compiler.catalog.Catalog;
+import compiler.codegen.ExecutionPlan;
+import compiler.codegen.ExplainPlan;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class ExplainAnalyzeTest {
+    private static final File REDO_LOG = new File(Catalog.DATABASE_ROOT, "redo.log");
+
+    private final String dbName = "explain_test_" + System.nanoTime();
+    private final boolean hadRedoLog = REDO_LOG.exists();
+    private final SQLCompiler compiler = new SQLCompiler();
+    private final Session session = new Session();
+
+    @Before
+    public void createTable() throws Exception {
+        compiler.setVerbose(false);
+        compiler.getCatalog().createTable(dbName, (CreateTableStatement) new Parser(new LexicalAnalyzer(
+                "CREATE TABLE t (id INT, name VARCHAR(10))").analyze()).parse());
+        Catalog.tableDirectory(dbName, "t").mkdirs();
+        writeSegment(0, 1, 5);
+        writeSegment(1, 6, 10);
+        session.setDatabase(dbName);
+    }
+
+    @After
+    public void deleteDatabase() throws Exception {
+        try (Stream<Path> paths = Files.walk(new File(Catalog.DATABASE_ROOT, dbName).toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        if (!hadRedoLog) {
+            REDO_LOG.delete();
+            new File(Catalog.DATABASE_ROOT).delete();
+        }
+    }
+
+    @Test
+    public void explainAnalyzeRecordsRowsPerOperator() {
+        QueryResult result = compiler.execute("EXPLAIN ANALYZE SELECT * FROM t WHERE id > 3", session);
+        Assert.assertTrue(result.getError(), result.isSuccess());
+        // 语句执行了，但结果行不输出
+        Assert.assertTrue(result.getRows().isEmpty());
+        ExecutionPlan select = ((ExplainPlan) result.getCompilation().getExecutionPlan()).getTarget();
+        ExecutionPlan filter = select.getChildren().get(0);
+        Assert.assertEquals("FILTER", filter.getPlanType());
+        Assert.assertEquals(1, select.getStatistics().getLoops());
+        Assert.assertEquals(7, select.getStatistics().getRows());
+        Assert.assertEquals(1, filter.getStatistics().getLoops());
+        Assert.assertEquals(7, filter.getStatistics().getRows());
+        Assert.assertTrue(select.getStatistics().getNanos() > 0);
+        Assert.assertTrue(select.toExplainString(), select.toExplainString().contains("[actual rows=7 loops=1 "));
+    }
+
+    @Test
+    public void aggregateCountsItsOutputRows() {
+        QueryResult result = compiler.execute("EXPLAIN ANALYZE SELECT COUNT(*) FROM t WHERE id <= 8", session);
+        Assert.assertTrue(result.getError(), result.isSuccess());
+        ExecutionPlan select = ((ExplainPlan) result.getCompilation().getExecutionPlan()).getTarget();
+        ExecutionPlan aggregate = null;
+        for (ExecutionPlan child : select.getChildren()) {
+            if (child.getPlanType().equals("AGGREGATE")) {
+                aggregate = child;
+            }
+        }
+        Assert.assertNotNull(select.toExplainString(), aggregate);
+        Assert.assertEquals(8, select.getChildren().get(0).getStatistics().getRows());
+        Assert.assertEquals(1, aggregate.getStatistics().getRows());
+    }
+
+    @Test
+    public void plainExplainDoesNotExecute() {
+        QueryResult result = compiler.execute("EXPLAIN SELECT * FROM t WHERE id > 3", session);
+        Assert.assertTrue(result.getError(), result.isSuccess());
+        ExecutionPlan select = ((ExplainPlan) result.getCompilation().getExecutionPlan()).getTarget();
+        Assert.assertEquals(0, select.getStatistics().getLoops());
+        Assert.assertEquals(0, select.getChildren().get(0).getStatistics().getRows());
+        Assert.assertFalse(select.toExplainString().contains("actual"));
+    }
+
+    private void writeSegment(int number, int first, int last) throws Exception {
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("ts");
+        for (int id = first; id <= last; id++) {
+            root.addElement("t").addAttribute("id", String.valueOf(id)).addAttribute("name", "n" + id);
+        }
+        File file = new File(Catalog.tableDirectory(dbName, "t"), "t" + number + ".xml");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package compiler.execution;
+
+import compiler.ast.expressions.AggregateExpression;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.AggregatePlan;
+import compiler.lexer.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class HashAggregatorTest {
+    private static final int ROWS = 5000;
+    private static final int GROUPS = 700;
+
+    @Test
+    public void spilledPartitionsMatchInMemoryAggregation() throws Exception {
+        List<Row> input = rows(1);
+        try (HashAggregator aggregator = new HashAggregator(schema(), plan(), 50)) {
+            for (Row row : input) {
+                aggregator.add(row);
+            }
+            Map<String, String> actual = results(aggregator.finish());
+            Assert.assertTrue(aggregator.getSpilledPartitions() > 0);
+            Assert.assertEquals(expected(input), actual);
+        }
+    }
+
+    @Test
+    public void exhaustedMemoryBudgetSpills() throws Exception {
+        List<Row> input = rows(2);
+        MemoryBudget memory = new MemoryBudget(null, 16 * 1024);
+        try (HashAggregator aggregator = new HashAggregator(schema(), plan(), HashAggregator.DEFAULT_MAX_GROUPS, memory)) {
+            for (Row row : input) {
+                aggregator.add(row);
+            }
+            Map<String, String> actual = results(aggregator.finish());
+            Assert.assertTrue(aggregator.getSpilledPartitions() > 0);
+            Assert.assertTrue("peak " + memory.getPeak(), memory.getPeak() <= memory.getLimit());
+            Assert.assertEquals(expected(input), actual);
+        }
+    }
+
+    @Test
+    public void mergedPartialAggregatorsMatchSingleAggregator() throws Exception {
+        List<Row> input = rows(3);
+        try (HashAggregator merged = new HashAggregator(schema(), plan(), 100)) {
+            for (int worker = 0; worker < 3; worker++) {
+                // 部分聚合器也只保留少量分组，写出的分区在合并时并入
+                HashAggregator partial = new HashAggregator(schema(), plan(), 40);
+                try {
+                    for (int i = worker; i < input.size(); i += 3) {
+                        partial.add(input.get(i));
+                    }
+                    merged.merge(partial);
+                } finally {
+                    partial.close();
+                }
+            }
+            Assert.assertEquals(expected(input), results(merged.finish()));
+        }
+    }
+
+    @Test
+    public void emptyInputWithoutGroupByYieldsOneRow() throws Exception {
+        AggregatePlan plan = new AggregatePlan(Collections.emptyList());
+        plan.addAggregate(AggregateExpression.Function.COUNT, null, "COUNT(*)");
+        plan.addAggregate(AggregateExpression.Function.SUM, "v", "SUM(v)");
+        try (HashAggregator aggregator = new HashAggregator(schema(), plan, 10)) {
+            List<Row> rows = aggregator.finish();
+            Assert.assertEquals(1, rows.size());
+            Assert.assertEquals("0", rows.get(0).get("COUNT(*)"));
+            Assert.assertNull(rows.get(0).get("SUM(v)"));
+        }
+    }
+
+    private static TableSchema schema() {
+        TableSchema schema = new TableSchema("t");
+        schema.addColumn(new ColumnInfo("g", TokenType.INT));
+        schema.addColumn(new ColumnInfo("v", TokenType.INT));
+        return schema;
+    }
+
+    private static AggregatePlan plan() {
+        AggregatePlan plan = new AggregatePlan(Collections.singletonList("g"));
+        plan.addAggregate(AggregateExpression.Function.COUNT, null, "COUNT(*)");
+        plan.addAggregate(AggregateExpression.Function.SUM, "v", "SUM(v)");
+        plan.addAggregate(AggregateExpression.Function.MIN, "v", "MIN(v)");
+        plan.addAggregate(AggregateExpression.Function.MAX, "v", "MAX(v)");
+        return plan;
+    }
+
+    private static List<Row> rows(long seed) {
+        Random random = new Random(seed);
+        List<Row> rows = new ArrayList<>();
+        for (int rowId = 0; rowId < ROWS; rowId++) {
+            Row row = new Row(rowId);
+            row.put("g", String.valueOf(random.nextInt(GROUPS)));
+            row.put("v", String.valueOf(random.nextInt(1000) - 500));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * 分组键 -> "COUNT SUM MIN MAX"，每组只能输出一次
+     */
+    private static Map<String, String> results(List<Row> rows) {
+        Map<String, String> results = new TreeMap<>();
+        for (Row row : rows) {
+            String previous = results.put(row.get("g"), row.get("COUNT(*)") + " " + row.get("SUM(v)") + " "
+                    + row.get("MIN(v)") + " " + row.get("MAX(v)"));
+            Assert.assertNull("group " + row.get("g") + " output twice", previous);
+        }
+        return results;
+    }
+
+    private static Map<String, String> expected(List<Row> rows) {
+        Map<String, long[]> groups = new TreeMap<>();
+        for (Row row : rows) {
+            long v = Long.parseLong(row.get("v"));
+            long[] state = groups.computeIfAbsent(row.get("g"), g -> new long[] {0, 0, Long.MAX_VALUE, Long.MIN_VALUE});
+            state[0]++;
+            state[1] += v;
+            state[2] = Math.min(state[2], v);
+            state[3] = Math.max(state[3], v);
+        }
+        Map<String, String> expected = new TreeMap<>();
+        for (Map.Entry<String, long[]> group : groups.entrySet()) {
+            long[] state = group.getValue();
+            expected.put(group.getKey(), state[0] + " " + state[1] + " " + state[2] + " " + state[3]);
+        }
+        return expected;
+    }
+}
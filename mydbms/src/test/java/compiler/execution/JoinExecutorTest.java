@@ -0,0 +1,198 @@
+package compiler.execution;
+
+import compiler.ast.statements.CreateTableStatement;
+import compiler.catalog.Catalog;
+import compiler.codegen.JoinPlan;
+import compiler.codegen.TableScanPlan;
+import compiler.index.IndexManager;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import compiler.transaction.TableView;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class JoinExecutorTest {
+    private final String dbName = "join_test_" + System.nanoTime();
+    private final Catalog catalog = new Catalog();
+    private final XmlTableReader reader = new XmlTableReader();
+
+    @Before
+    public void createTables() throws Exception {
+        create("CREATE TABLE a (id INT, name VARCHAR(10))");
+        create("CREATE TABLE b (id INT, aid INT)");
+        create("CREATE TABLE c (val DOUBLE)");
+        // a比b小，哈希连接在a上建表；id为空的行不参与连接
+        writeSegment("a", 0, new String[][] {{"id", "3", "name", "x"}, {"id", "1", "name", "y"},
+                {"name", "null-key"}});
+        writeSegment("b", 0, new String[][] {{"id", "10", "aid", "1"}, {"id", "11", "aid", "3"},
+                {"id", "12", "aid", "1"}, {"id", "13"}});
+        writeSegment("b", 1, new String[][] {{"id", "14", "aid", "2"}, {"id", "15", "aid", "3"},
+                {"id", "16", "aid", "1"}, {"id", "17", "aid", "1"}});
+        writeSegment("c", 0, new String[][] {{"val", "1.0"}, {"val", "3.5"}, {"val", "3"}});
+        // 没有匹配的填充行，使构建侧比几行数据的内存估计大
+        String[][] filler = new String[10][];
+        for (int i = 0; i < filler.length; i++) {
+            filler[i] = new String[] {"id", String.valueOf(100 + i), "aid", String.valueOf(200 + i)};
+        }
+        writeSegment("a", 1, filler);
+        writeSegment("b", 2, filler);
+        writeSegment("b", 3, filler);
+    }
+
+    @After
+    public void deleteDatabase() throws Exception {
+        try (Stream<Path> paths = Files.walk(new File(Catalog.DATABASE_ROOT, dbName).toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void hashJoinBuildsOnTheSmallerInput() throws Exception {
+        // 在左侧建表时按右侧（探测侧）的扫描顺序输出
+        Assert.assertEquals(Arrays.asList("1/10", "3/11", "1/12", "3/15", "1/16", "1/17"),
+                pairs(join(scan("a"), scan("b"), JoinPlan.Algorithm.HASH), "A.ID", "B.ID"));
+        // 交换两侧后仍在a上建表，输出按左侧b的顺序，列仍是左侧在前
+        Assert.assertEquals(Arrays.asList("10/1", "11/3", "12/1", "15/3", "16/1", "17/1"),
+                pairs(join(scan("b"), scan("a"), JoinPlan.Algorithm.HASH), "B.ID", "A.ID"));
+    }
+
+    @Test
+    public void mergeJoinReturnsTheSameRowsInKeyOrder() throws Exception {
+        Assert.assertEquals(Arrays.asList("1/10", "1/12", "1/16", "1/17", "3/11", "3/15"),
+                pairs(join(scan("a"), scan("b"), JoinPlan.Algorithm.MERGE), "A.ID", "B.ID"));
+    }
+
+    @Test
+    public void hashJoinFallsBackToMergeWhenTheBudgetIsExhausted() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        JoinPlan plan = join(scan("a"), scan("b"), JoinPlan.Algorithm.HASH);
+        long buildBytes = 0;
+        for (XmlTableReader.Segment segment : reader.listSegments(dbName, "a")) {
+            buildBytes += segment.getFile().length();
+        }
+        MemoryBudget memory = new MemoryBudget(null, buildBytes - 1);
+        Assert.assertTrue(executor(JoinExecutor.DEFAULT_HASH_MEMORY_BYTES, 1, memory).produce(plan, rows::add));
+        // 排序归并的输出按连接键有序（同键的行之间无序）；每行都写出到有序段，预算只需容纳一行
+        List<String> pairs = pairs(rows, "A.ID", "B.ID");
+        Assert.assertEquals(Arrays.asList("1", "1", "1", "1", "3", "3"), column(rows, "A.ID"));
+        pairs.sort(null);
+        Assert.assertEquals(Arrays.asList("1/10", "1/12", "1/16", "1/17", "3/11", "3/15"), pairs);
+        Assert.assertEquals(0, memory.getUsed());
+    }
+
+    @Test
+    public void hashJoinFallsBackToMergeAboveTheHashMemoryLimit() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        JoinPlan plan = join(scan("a"), scan("b"), JoinPlan.Algorithm.HASH);
+        Assert.assertTrue(executor(1, 100, MemoryBudget.unlimited()).produce(plan, rows::add));
+        Assert.assertEquals(Arrays.asList("1/10", "1/12", "1/16", "1/17", "3/11", "3/15"), pairs(rows, "A.ID", "B.ID"));
+    }
+
+    @Test
+    public void intAndDoubleKeysWithEqualValuesMatch() throws Exception {
+        for (JoinPlan.Algorithm algorithm : JoinPlan.Algorithm.values()) {
+            JoinPlan plan = new JoinPlan(scan("a"), scan("c"), Collections.singletonList("a.id"),
+                    Collections.singletonList("c.val"), null, algorithm);
+            List<String> pairs = pairs(plan, "A.ID", "C.VAL");
+            pairs.sort(null);
+            Assert.assertEquals(algorithm.name(), Arrays.asList("1/1.0", "3/3"), pairs);
+        }
+    }
+
+    @Test
+    public void earlyStopEndsTheJoin() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        JoinPlan plan = join(scan("a"), scan("b"), JoinPlan.Algorithm.HASH);
+        Assert.assertFalse(executor(JoinExecutor.DEFAULT_HASH_MEMORY_BYTES, 100, MemoryBudget.unlimited())
+                .produce(plan, row -> rows.add(row) && rows.size() < 2));
+        Assert.assertEquals(2, rows.size());
+    }
+
+    private static JoinPlan join(TableScanPlan left, TableScanPlan right, JoinPlan.Algorithm algorithm) {
+        return new JoinPlan(left, right, Collections.singletonList(key(left)), Collections.singletonList(key(right)),
+                null, algorithm);
+    }
+
+    /**
+     * a按id、b按aid连接
+     */
+    private static String key(TableScanPlan scan) {
+        return scan.getTableName().equals("a") ? "a.id" : "b.aid";
+    }
+
+    private static TableScanPlan scan(String table) {
+        return new TableScanPlan(table);
+    }
+
+    private JoinExecutor executor(long hashMemoryBytes, int sortMemoryRows, MemoryBudget memory) {
+        return new JoinExecutor(catalog, reader, new IndexManager(reader), dbName, hashMemoryBytes, sortMemoryRows,
+                table -> TableView.EMPTY, memory, new RunningStatement(1, "SELECT", 0));
+    }
+
+    private List<String> pairs(JoinPlan plan, String left, String right) throws Exception {
+        List<Row> rows = new ArrayList<>();
+        Assert.assertTrue(executor(JoinExecutor.DEFAULT_HASH_MEMORY_BYTES, 100, MemoryBudget.unlimited())
+                .produce(plan, rows::add));
+        return pairs(rows, left, right);
+    }
+
+    private static List<String> pairs(List<Row> rows, String left, String right) {
+        List<String> pairs = new ArrayList<>();
+        for (Row row : rows) {
+            pairs.add(row.get(left) + "/" + row.get(right));
+        }
+        return pairs;
+    }
+
+    private static List<String> column(List<Row> rows, String column) {
+        List<String> values = new ArrayList<>();
+        for (Row row : rows) {
+            values.add(row.get(column));
+        }
+        return values;
+    }
+
+    private void create(String sql) throws Exception {
+        CreateTableStatement statement = (CreateTableStatement) new Parser(new LexicalAnalyzer(sql).analyze()).parse();
+        catalog.createTable(dbName, statement);
+        Catalog.tableDirectory(dbName, statement.getTableName().getName()).mkdirs();
+    }
+
+    /**
+     * 写入一个段文件，每行为 列名, 值, 列名, 值 ...，没有写出的列为空值
+     */
+    private void writeSegment(String table, int number, String[][] rows) throws Exception {
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement(table + "s");
+        for (String[] values : rows) {
+            Element row = root.addElement(table);
+            for (int i = 0; i < values.length; i += 2) {
+                row.addAttribute(values[i], values[i + 1]);
+            }
+        }
+        File file = new File(Catalog.tableDirectory(dbName, table), table + number + ".xml");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package compiler.execution;
+
+import compiler.QueryResult;
+import compiler.SQLCompiler;
+import compiler.Session;
+import compiler.ast.statements.CreateTableStatement;
+import compiler.catalog.Catalog;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class LimitTest {
+    private static final File REDO_LOG = new File(Catalog.DATABASE_ROOT, "redo.log");
+
+    private final String dbName = "limit_test_" + System.nanoTime();
+    private final boolean hadRedoLog = REDO_LOG.exists();
+    private final SQLCompiler compiler = new SQLCompiler();
+    private final Session session = new Session();
+
+    @Before
+    public void createTable() throws Exception {
+        compiler.setVerbose(false);
+        compiler.getCatalog().createTable(dbName, (CreateTableStatement) new Parser(new LexicalAnalyzer(
+                "CREATE TABLE t (id INT, name VARCHAR(10))").analyze()).parse());
+        Catalog.tableDirectory(dbName, "t").mkdirs();
+        writeSegment(0, 1, 5);
+        writeSegment(1, 6, 10);
+        session.setDatabase(dbName);
+    }
+
+    @After
+    public void deleteDatabase() throws Exception {
+        try (Stream<Path> paths = Files.walk(new File(Catalog.DATABASE_ROOT, dbName).toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        if (!hadRedoLog) {
+            REDO_LOG.delete();
+            new File(Catalog.DATABASE_ROOT).delete();
+        }
+    }
+
+    @Test
+    public void limitAndOffsetSelectRowsInScanOrder() {
+        Assert.assertEquals(Arrays.asList("2", "3"), ids("SELECT * FROM t LIMIT 2 OFFSET 1"));
+        Assert.assertEquals(Arrays.asList("5", "6", "7"), ids("SELECT * FROM t WHERE id > 2 LIMIT 3 OFFSET 2"));
+        Assert.assertEquals(Collections.emptyList(), ids("SELECT * FROM t LIMIT 0"));
+        Assert.assertEquals(Collections.emptyList(), ids("SELECT * FROM t LIMIT 5 OFFSET 10"));
+        // 有ORDER BY时先排序再跳过OFFSET行
+        Assert.assertEquals(Arrays.asList("9", "8"), ids("SELECT * FROM t ORDER BY id DESC LIMIT 2 OFFSET 1"));
+    }
+
+    @Test
+    public void scanStopsBeforeTheNextSegment() throws Exception {
+        // 第二个段文件无法解析，只有读到它的查询才会出错（带WHERE的查询建立区域映射时要读全部段，这里不用）
+        Files.write(new File(Catalog.tableDirectory(dbName, "t"), "t1.xml").toPath(),
+                "<ts><t id=".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(Arrays.asList("1", "2", "3"), ids("SELECT * FROM t LIMIT 3"));
+        Assert.assertEquals(Arrays.asList("4", "5"), ids("SELECT * FROM t LIMIT 2 OFFSET 3"));
+        Assert.assertFalse(compiler.execute("SELECT * FROM t LIMIT 6", session).isSuccess());
+    }
+
+    private List<String> ids(String sql) {
+        QueryResult result = compiler.execute(sql, session);
+        Assert.assertTrue(result.getError(), result.isSuccess());
+        List<String> ids = new ArrayList<>();
+        for (List<String> row : result.getRows()) {
+            ids.add(row.get(0));
+        }
+        return ids;
+    }
+
+    private void writeSegment(int number, int first, int last) throws Exception {
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("ts");
+        for (int id = first; id <= last; id++) {
+            root.addElement("t").addAttribute("id", String.valueOf(id)).addAttribute("name", "n" + id);
+        }
+        File file = new File(Catalog.tableDirectory(dbName, "t"), "t" + number + ".xml");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        }
+    }
+}
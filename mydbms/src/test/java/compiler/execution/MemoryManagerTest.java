@@ -0,0 +1,102 @@
+package compiler.execution;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MemoryManagerTest {
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void admissionIsNotLimitedToAFixedNumberOfQueries() {
+        MemoryManager manager = new MemoryManager(1000, 250, 100);
+        List<MemoryBudget> budgets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            budgets.add(manager.admit());
+        }
+        Assert.assertEquals(20, manager.getRunning());
+        Assert.assertEquals(0, manager.getReserved());
+        for (MemoryBudget budget : budgets) {
+            budget.close();
+        }
+        Assert.assertEquals(0, manager.getRunning());
+    }
+
+    @Test
+    public void reservationsAreCappedPerQueryAndInTotal() {
+        MemoryManager manager = new MemoryManager(1000, 400, 100);
+        MemoryBudget first = manager.admit();
+        MemoryBudget second = manager.admit();
+        MemoryBudget third = manager.admit();
+        Assert.assertTrue(first.tryReserve(400));
+        Assert.assertFalse(first.tryReserve(1));
+        Assert.assertTrue(second.tryReserve(400));
+        // 本查询的预算还够300，但总量只剩200
+        Assert.assertFalse(third.tryReserve(300));
+        Assert.assertEquals(0, third.getUsed());
+        Assert.assertTrue(third.tryReserve(200));
+        Assert.assertEquals(1000, manager.getReserved());
+        try {
+            third.reserve(1, "test");
+            Assert.fail("total is exhausted");
+        } catch (MemoryLimitException expected) {
+        }
+        first.close();
+        second.close();
+        third.close();
+        Assert.assertEquals(0, manager.getReserved());
+    }
+
+    @Test
+    public void admissionWaitsUntilReservedMemoryIsReleased() throws Exception {
+        MemoryManager manager = new MemoryManager(1000, 400, 5000);
+        MemoryBudget first = manager.admit();
+        MemoryBudget second = manager.admit();
+        MemoryBudget third = manager.admit();
+        first.reserve(400, "test");
+        second.reserve(400, "test");
+        third.reserve(150, "test");
+
+        // 空闲50字节，少于perQuery的1/4，新查询排队
+        Future<MemoryBudget> waiting = threads.submit(manager::admit);
+        Thread.sleep(100);
+        Assert.assertFalse(waiting.isDone());
+        Assert.assertEquals(1, manager.getWaiting());
+
+        first.release(400);
+        MemoryBudget admitted = waiting.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(4, manager.getRunning());
+        admitted.close();
+        first.close();
+        second.close();
+        third.close();
+    }
+
+    @Test
+    public void admissionTimesOut() {
+        MemoryManager manager = new MemoryManager(1000, 1000, 100);
+        MemoryBudget budget = manager.admit();
+        budget.reserve(1000, "test");
+        try {
+            manager.admit();
+            Assert.fail("admission should time out");
+        } catch (MemoryLimitException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Timed out"));
+        }
+        Assert.assertEquals(0, manager.getWaiting());
+        budget.close();
+        manager.admit().close();
+    }
+}
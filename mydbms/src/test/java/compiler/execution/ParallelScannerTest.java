@@ -0,0 +1,211 @@
+package compiler.execution;
+
+import compiler.ast.expressions.AggregateExpression;
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.AggregatePlan;
+import compiler.lexer.TokenType;
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+public class ParallelScannerTest {
+    private static final int SEGMENTS = 8;
+    private static final int SEGMENT_ROWS = 5;
+
+    private final String dbName = "parallel_test_" + System.nanoTime();
+    private final XmlTableReader reader = new XmlTableReader();
+
+    @Before
+    public void createSegments() throws Exception {
+        Catalog.tableDirectory(dbName, "t").mkdirs();
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            writeSegment(segment);
+        }
+    }
+
+    @After
+    public void deleteDatabase() throws Exception {
+        try (Stream<Path> paths = Files.walk(new File(Catalog.DATABASE_ROOT, dbName).toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void orderedScanKeepsSerialRowIds() throws Exception {
+        List<Row> serial = new ArrayList<>();
+        reader.scan(dbName, "t", (Row row) -> serial.add(row));
+
+        List<Row> rows = new ArrayList<>();
+        ParallelScanner scanner = new ParallelScanner(reader, 4);
+        scanner.scan(segments(), null, null, true, rows::add);
+        Assert.assertEquals(ids(serial), ids(rows));
+        for (Row row : rows) {
+            Assert.assertEquals(row.getRowId(), Integer.parseInt(row.get("id")));
+        }
+        Assert.assertEquals(SEGMENTS, scanner.getSegmentsRead());
+    }
+
+    @Test
+    public void skippedSegmentsAndFilteredRowsKeepRowIds() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        Predicate<Row> even = row -> Integer.parseInt(row.get("id")) % 2 == 0;
+        // 跳过段2和段5
+        XmlTableReader.SegmentFilter filter = segment -> segment.getNumber() % 3 == 2 ? SEGMENT_ROWS : -1;
+        ParallelScanner scanner = new ParallelScanner(reader, 3);
+        scanner.scan(segments(), filter, even, true, rows::add);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 0; id < SEGMENTS * SEGMENT_ROWS; id += 2) {
+            if ((id / SEGMENT_ROWS) % 3 != 2) {
+                expected.add(id);
+            }
+        }
+        Assert.assertEquals(expected, ids(rows));
+        for (Row row : rows) {
+            Assert.assertEquals(row.getRowId(), Integer.parseInt(row.get("id")));
+        }
+        Assert.assertEquals(SEGMENTS - 2, scanner.getSegmentsRead());
+        Assert.assertEquals(expected.size(), scanner.getMatchedRows());
+    }
+
+    @Test
+    public void unorderedScanDeliversEveryRowOnce() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        new ParallelScanner(reader, 4).scan(segments(), null, null, false, rows::add);
+        List<Integer> ids = ids(rows);
+        Collections.sort(ids);
+        Assert.assertEquals(SEGMENTS * SEGMENT_ROWS, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Assert.assertEquals(i, (int) ids.get(i));
+        }
+    }
+
+    @Test
+    public void visitorCanStopTheScan() throws Exception {
+        for (boolean ordered : new boolean[] {true, false}) {
+            List<Row> rows = new ArrayList<>();
+            new ParallelScanner(reader, 2).scan(segments(), null, null, ordered, row -> rows.add(row) && rows.size() < 3);
+            Assert.assertEquals(3, rows.size());
+            if (ordered) {
+                Assert.assertEquals(Arrays.asList(0, 1, 2), ids(rows));
+            }
+        }
+    }
+
+    @Test
+    public void workerErrorsReachTheCaller() throws Exception {
+        Files.write(new File(Catalog.tableDirectory(dbName, "t"), "t3.xml").toPath(),
+                "<ts><t".getBytes(StandardCharsets.UTF_8));
+        for (boolean ordered : new boolean[] {true, false}) {
+            try {
+                new ParallelScanner(reader, 4).scan(segments(), null, null, ordered, row -> true);
+                Assert.fail("corrupt segment should fail the scan");
+            } catch (DocumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void partialAggregatesMergeToTheSerialResult() throws Exception {
+        AggregatePlan plan = new AggregatePlan(Collections.singletonList("grp"));
+        plan.addAggregate(AggregateExpression.Function.COUNT, null, "COUNT(*)");
+        plan.addAggregate(AggregateExpression.Function.SUM, "id", "SUM(id)");
+        plan.addAggregate(AggregateExpression.Function.MAX, "id", "MAX(id)");
+        Predicate<Row> filter = row -> Integer.parseInt(row.get("id")) >= 3;
+
+        Map<String, String> expected = new TreeMap<>();
+        for (int grp = 0; grp < 3; grp++) {
+            long count = 0;
+            long sum = 0;
+            int max = 0;
+            for (int id = 3; id < SEGMENTS * SEGMENT_ROWS; id++) {
+                if (id % 3 == grp) {
+                    count++;
+                    sum += id;
+                    max = id;
+                }
+            }
+            expected.put(String.valueOf(grp), count + " " + sum + " " + max);
+        }
+
+        List<HashAggregator> partials = new ParallelScanner(reader, 4).aggregate(segments(), null, filter,
+                () -> new HashAggregator(schema(), plan, HashAggregator.DEFAULT_MAX_GROUPS));
+        Assert.assertFalse(partials.isEmpty());
+        try (HashAggregator merged = new HashAggregator(schema(), plan, HashAggregator.DEFAULT_MAX_GROUPS)) {
+            for (HashAggregator partial : partials) {
+                try {
+                    merged.merge(partial);
+                } finally {
+                    partial.close();
+                }
+            }
+            Map<String, String> actual = new TreeMap<>();
+            for (Row row : merged.finish()) {
+                Assert.assertNull(actual.put(row.get("grp"),
+                        row.get("COUNT(*)") + " " + row.get("SUM(id)") + " " + row.get("MAX(id)")));
+            }
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    private static TableSchema schema() {
+        TableSchema schema = new TableSchema("t");
+        schema.addColumn(new ColumnInfo("id", TokenType.INT));
+        schema.addColumn(new ColumnInfo("grp", TokenType.INT));
+        return schema;
+    }
+
+    private List<XmlTableReader.Segment> segments() {
+        return reader.listSegments(dbName, "t");
+    }
+
+    private static List<Integer> ids(List<Row> rows) {
+        List<Integer> ids = new ArrayList<>();
+        for (Row row : rows) {
+            ids.add(Integer.parseInt(row.get("id")));
+        }
+        return ids;
+    }
+
+    /**
+     * 段n中是id为 n*SEGMENT_ROWS 起的连续几行，grp为id除以3的余数
+     */
+    private void writeSegment(int number) throws Exception {
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("ts");
+        for (int i = 0; i < SEGMENT_ROWS; i++) {
+            int id = number * SEGMENT_ROWS + i;
+            root.addElement("t").addAttribute("id", String.valueOf(id)).addAttribute("grp", String.valueOf(id % 3));
+        }
+        File file = new File(Catalog.tableDirectory(dbName, "t"), "t" + number + ".xml");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        }
+    }
+}
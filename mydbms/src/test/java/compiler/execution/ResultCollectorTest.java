@@ -0,0 +1,134 @@
+package compiler.execution;
+
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.LimitPlan;
+import compiler.codegen.SelectPlan;
+import compiler.codegen.SortPlan;
+import compiler.lexer.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ResultCollectorTest {
+    private final TableSchema schema = schema();
+    private final RecordingSink sink = new RecordingSink();
+    private final RunningStatement statement = new RunningStatement(1, "SELECT", 0);
+
+    @Test
+    public void plainRowsReachTheSinkWhileScanning() throws Exception {
+        SelectPlan plan = new SelectPlan("t", Collections.emptyList(), true);
+        MemoryBudget memory = new MemoryBudget(null, 1);
+        try (ResultCollector output = collector(plan, memory, false)) {
+            Assert.assertTrue(output.add(row(1)));
+            Assert.assertTrue(output.add(row(2)));
+            // 列名和行在结束之前已经交给接收者，不占用查询的内存预算
+            Assert.assertEquals(Arrays.asList("id", "name"), sink.columns);
+            Assert.assertEquals(2, sink.rows.size());
+            Assert.assertEquals(0, memory.getPeak());
+            output.finish();
+        }
+        Assert.assertEquals(Arrays.asList(Arrays.asList("1", "n1"), Arrays.asList("2", "n2")), sink.rows);
+    }
+
+    @Test
+    public void limitStopsTheScanOnceEnoughRowsArrived() throws Exception {
+        SelectPlan plan = new SelectPlan("t", Collections.singletonList("id"), false);
+        plan.addChild(new LimitPlan(2, 1));
+        try (ResultCollector output = collector(plan, MemoryBudget.unlimited(), false)) {
+            Assert.assertTrue(output.add(row(1)));
+            Assert.assertTrue(output.add(row(2)));
+            Assert.assertFalse(output.add(row(3)));
+            output.finish();
+        }
+        Assert.assertEquals(Arrays.asList(Collections.singletonList("2"), Collections.singletonList("3")), sink.rows);
+    }
+
+    @Test
+    public void sortedRowsAreEmittedAtFinish() throws Exception {
+        SelectPlan plan = new SelectPlan("t", Collections.singletonList("id"), false);
+        SortPlan sort = new SortPlan(SortPlan.NO_LIMIT, 0);
+        sort.addKey("id", true);
+        plan.addChild(sort);
+        try (ResultCollector output = collector(plan, MemoryBudget.unlimited(), false)) {
+            for (int id = 1; id <= 3; id++) {
+                output.add(row(id));
+            }
+            Assert.assertNull(sink.columns);
+            output.finish();
+        }
+        Assert.assertEquals(Arrays.asList(Collections.singletonList("3"), Collections.singletonList("2"),
+                Collections.singletonList("1")), sink.rows);
+    }
+
+    @Test
+    public void explainAnalyzeOnlyCountsRows() throws Exception {
+        SelectPlan plan = new SelectPlan("t", Collections.emptyList(), true);
+        try (ResultCollector output = collector(plan, MemoryBudget.unlimited(), true)) {
+            output.add(row(1));
+            output.finish();
+        }
+        Assert.assertNull(sink.columns);
+        Assert.assertTrue(sink.rows.isEmpty());
+    }
+
+    @Test
+    public void cancelledStatementStopsTheOutput() throws Exception {
+        SelectPlan plan = new SelectPlan("t", Collections.emptyList(), true);
+        try (ResultCollector output = collector(plan, MemoryBudget.unlimited(), false)) {
+            statement.cancel("killed");
+            try {
+                for (int id = 0; id < RunningStatement.CHECK_INTERVAL; id++) {
+                    output.add(row(id));
+                }
+                Assert.fail("output should notice the cancellation");
+            } catch (QueryCancelledException e) {
+                Assert.assertEquals("killed", e.getMessage());
+            }
+        }
+        Assert.assertEquals(RunningStatement.CHECK_INTERVAL, sink.rows.size() + 1);
+    }
+
+    private ResultCollector collector(SelectPlan plan, MemoryBudget memory, boolean analyzing) {
+        ResultPrinter printer = new ResultPrinter(schema, plan, sink, statement, analyzing);
+        return new ResultCollector(schema, plan, 100, 100, memory, printer);
+    }
+
+    private static TableSchema schema() {
+        TableSchema schema = new TableSchema("t");
+        schema.addColumn(new ColumnInfo("id", TokenType.INT));
+        schema.addColumn(new ColumnInfo("name", TokenType.VARCHAR, 10));
+        return schema;
+    }
+
+    private static Row row(int id) {
+        Row row = new Row(id);
+        row.put("id", String.valueOf(id));
+        row.put("name", "n" + id);
+        return row;
+    }
+
+    private static final class RecordingSink implements ResultSink {
+        private List<String> columns;
+        private final List<List<String>> rows = new ArrayList<>();
+
+        @Override
+        public void columns(List<String> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(List<String> values) {
+            rows.add(values);
+        }
+
+        @Override
+        public void error(String message) {
+            Assert.fail(message);
+        }
+    }
+}
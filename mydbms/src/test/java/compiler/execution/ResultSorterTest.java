@@ -0,0 +1,116 @@
+package compiler.execution;
+
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.codegen.SortPlan;
+import compiler.lexer.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class ResultSorterTest {
+
+    @Test
+    public void externalSortSpillsAndMergesInOrder() throws Exception {
+        List<Integer> keys = randomKeys(3000, 1);
+        try (ResultSorter sorter = new ResultSorter(schema(), plan(SortPlan.NO_LIMIT, 0, false), 100)) {
+            add(sorter, keys);
+            List<Integer> actual = keys(sorter.sortedIterator());
+            Assert.assertFalse(sorter.isTopN());
+            Assert.assertTrue(sorter.getSpilledRuns() > 1);
+            keys.sort(null);
+            Assert.assertEquals(keys, actual);
+        }
+    }
+
+    @Test
+    public void topNKeepsOnlyLimitPlusOffsetRows() throws Exception {
+        List<Integer> keys = randomKeys(5000, 2);
+        MemoryBudget memory = new MemoryBudget(null, Long.MAX_VALUE);
+        try (ResultSorter sorter = new ResultSorter(schema(), plan(10, 5, true), 100, memory)) {
+            add(sorter, keys);
+            List<Integer> actual = keys(sorter.sortedIterator());
+            Assert.assertTrue(sorter.isTopN());
+            Assert.assertEquals(0, sorter.getSpilledRuns());
+            Assert.assertEquals(10, sorter.getOutputRows());
+            keys.sort(Comparator.reverseOrder());
+            Assert.assertEquals(keys.subList(5, 15), actual);
+            // 堆中最多同时保存limit + offset + 1行
+            Assert.assertTrue("peak " + memory.getPeak(), memory.getPeak() <= 16 * row(0).estimateSize());
+        }
+        Assert.assertEquals(0, memory.getUsed());
+    }
+
+    @Test
+    public void limitLargerThanMemoryUsesExternalSort() throws Exception {
+        List<Integer> keys = randomKeys(2000, 3);
+        try (ResultSorter sorter = new ResultSorter(schema(), plan(500, 20, false), 100)) {
+            add(sorter, keys);
+            List<Integer> actual = keys(sorter.sortedIterator());
+            Assert.assertFalse(sorter.isTopN());
+            keys.sort(null);
+            Assert.assertEquals(keys.subList(20, 520), actual);
+        }
+    }
+
+    @Test
+    public void nullsSortFirstAndLastWhenDescending() throws Exception {
+        try (ResultSorter ascending = new ResultSorter(schema(), plan(SortPlan.NO_LIMIT, 0, false), 100);
+             ResultSorter descending = new ResultSorter(schema(), plan(SortPlan.NO_LIMIT, 0, true), 100)) {
+            for (Integer key : Arrays.asList(3, null, 10, 2)) {
+                ascending.add(row(key));
+                descending.add(row(key));
+            }
+            Assert.assertEquals(Arrays.asList(null, 2, 3, 10), keys(ascending.sortedIterator()));
+            Assert.assertEquals(Arrays.asList(10, 3, 2, null), keys(descending.sortedIterator()));
+        }
+    }
+
+    private static TableSchema schema() {
+        TableSchema schema = new TableSchema("t");
+        schema.addColumn(new ColumnInfo("k", TokenType.INT));
+        return schema;
+    }
+
+    private static SortPlan plan(int limit, int offset, boolean desc) {
+        SortPlan plan = new SortPlan(limit, offset);
+        plan.addKey("k", desc);
+        return plan;
+    }
+
+    private static Row row(Integer key) {
+        Row row = new Row(0);
+        row.put("k", key != null ? key.toString() : null);
+        return row;
+    }
+
+    private static List<Integer> randomKeys(int count, long seed) {
+        Random random = new Random(seed);
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(random.nextInt(100000) - 50000);
+        }
+        return keys;
+    }
+
+    private static void add(ResultSorter sorter, List<Integer> keys) throws Exception {
+        for (Integer key : keys) {
+            sorter.add(row(key));
+        }
+    }
+
+    private static List<Integer> keys(Iterator<Row> rows) {
+        List<Integer> keys = new ArrayList<>();
+        while (rows.hasNext()) {
+            String key = rows.next().get("k");
+            keys.add(key != null ? Integer.valueOf(key) : null);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,67 @@
+package compiler.execution;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RunningStatementTest {
+
+    @Test
+    public void killIsNoticedAtTheNextCheckInterval() {
+        RunningStatement statement = new RunningStatement(1, "SELECT * FROM t", 0);
+        statement.onRows(RunningStatement.CHECK_INTERVAL - 2);
+        statement.cancel("Query was killed");
+        statement.cancel("second reason is ignored");
+        Assert.assertTrue(statement.isCancelled());
+        statement.onRow();
+        try {
+            statement.onRow();
+            Assert.fail("cancellation should be noticed when the interval is crossed");
+        } catch (QueryCancelledException e) {
+            Assert.assertEquals("Query was killed", e.getMessage());
+        }
+        Assert.assertEquals(RunningStatement.CHECK_INTERVAL, statement.getRows());
+    }
+
+    @Test
+    public void batchOfRowsCrossingTheIntervalIsChecked() {
+        RunningStatement statement = new RunningStatement(1, "SELECT * FROM t", 0);
+        statement.onRows(10);
+        statement.cancel("Query was killed");
+        try {
+            // 并行扫描一次计入一个段的行数
+            statement.onRows(3 * RunningStatement.CHECK_INTERVAL);
+            Assert.fail("cancellation should be noticed");
+        } catch (QueryCancelledException expected) {
+        }
+    }
+
+    @Test
+    public void statementTimesOut() throws Exception {
+        RunningStatement statement = new RunningStatement(1, "SELECT * FROM t", 50);
+        statement.check();
+        Thread.sleep(80);
+        try {
+            statement.check();
+            Assert.fail("statement should time out");
+        } catch (QueryCancelledException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("statement_timeout of 50 ms"));
+        }
+        Assert.assertTrue(statement.isCancelled());
+    }
+
+    @Test
+    public void processListTracksTheCurrentStatementOfEachSession() {
+        ProcessList processes = new ProcessList();
+        RunningStatement first = processes.register(2, "SELECT 1", 0);
+        processes.register(1, "SELECT 2", 0);
+        Assert.assertEquals(2, processes.list().size());
+        Assert.assertEquals(1, processes.list().get(0).getId());
+
+        // 批中的下一条语句替换同一会话的登记，结束较早的语句不会移除它
+        RunningStatement next = processes.register(2, "SELECT 3", 0);
+        processes.unregister(first);
+        Assert.assertSame(next, processes.get(2));
+        processes.unregister(next);
+        Assert.assertNull(processes.get(2));
+    }
+}
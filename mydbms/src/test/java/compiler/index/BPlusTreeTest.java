@@ -0,0 +1,113 @@
+package compiler.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class BPlusTreeTest {
+
+    @Test
+    public void rangeScanMatchesBruteForce() {
+        BPlusTree tree = new BPlusTree(4);
+        Random random = new Random(42);
+        long[][] rows = new long[500][];
+        for (int rowId = 0; rowId < rows.length; rowId++) {
+            rows[rowId] = new long[] {random.nextInt(5), random.nextInt(100)};
+            tree.insert(KeyEncoder.encode(Arrays.asList(rows[rowId][0], rows[rowId][1])), rowId);
+        }
+
+        // tenant = 3 AND ts >= 40 AND ts < 70
+        KeyRange range = new KeyRange(
+                KeyEncoder.encode(Arrays.asList(3L, 40L)), true,
+                KeyEncoder.encode(Arrays.asList(3L, 70L)), false);
+        List<Integer> actual = new ArrayList<>();
+        tree.rangeScan(range, actual::add);
+        actual.sort(null);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int rowId = 0; rowId < rows.length; rowId++) {
+            if (rows[rowId][0] == 3 && rows[rowId][1] >= 40 && rows[rowId][1] < 70) {
+                expected.add(rowId);
+            }
+        }
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(rows.length, tree.size());
+    }
+
+    @Test
+    public void equalityPrefixTouchesFewLeafPages() {
+        BPlusTree tree = new BPlusTree(8);
+        for (int rowId = 0; rowId < 1000; rowId++) {
+            tree.insert(KeyEncoder.encode(Arrays.asList((long) (rowId % 10), (long) rowId)), rowId);
+        }
+
+        KeyRange range = new KeyRange(
+                KeyEncoder.encode(Arrays.asList(7L)), true,
+                KeyEncoder.encode(Arrays.asList(7L)), true);
+        List<Integer> actual = new ArrayList<>();
+        int pages = tree.rangeScan(range, actual::add);
+
+        Assert.assertEquals(100, actual.size());
+        Assert.assertTrue("visited " + pages + " leaf pages", pages <= 100 / 4 + 2);
+    }
+
+    @Test
+    public void stringKeysOrderLikeStrings() {
+        List<String> values = new ArrayList<>(Arrays.asList("b", "a", "ab", "", "a\u0000", "abc"));
+        Random random = new Random(7);
+        char[] alphabet = {'\u0000', '\u0001', 'a', 'b', 'z'};
+        for (int i = 0; i < 200; i++) {
+            StringBuilder value = new StringBuilder();
+            for (int length = random.nextInt(5); length > 0; length--) {
+                value.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            values.add(value.toString());
+        }
+        Collections.shuffle(values, random);
+        List<String> sorted = new ArrayList<>(values);
+        sorted.sort((x, y) -> KeyEncoder.compare(
+                KeyEncoder.encode(Arrays.asList(x)), KeyEncoder.encode(Arrays.asList(y))));
+        List<String> expected = new ArrayList<>(values);
+        expected.sort(null);
+        Assert.assertEquals(expected, sorted);
+    }
+
+    @Test
+    public void prefixCompressedStringKeysScanLikeUncompressed() {
+        Random random = new Random(11);
+        BPlusTree compressed = new BPlusTree(BPlusTree.DEFAULT_PAGE_CAPACITY, 512);
+        List<String> emails = new ArrayList<>();
+        long rawBytes = 0;
+        for (int rowId = 0; rowId < 3000; rowId++) {
+            String email = "user" + random.nextInt(100000) + "@mail.example.com";
+            emails.add(email);
+            byte[] key = KeyEncoder.encode(Arrays.asList(email));
+            // 不压缩时每个条目保存完整键，外加行号和槽位6字节
+            rawBytes += key.length + 6;
+            compressed.insert(key, rowId);
+        }
+
+        // user1 <= email < user2
+        KeyRange range = new KeyRange(
+                KeyEncoder.encode(Arrays.asList("user1")), true,
+                KeyEncoder.encode(Arrays.asList("user2")), false);
+        List<Integer> actual = new ArrayList<>();
+        compressed.rangeScan(range, actual::add);
+        actual.sort(null);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int rowId = 0; rowId < emails.size(); rowId++) {
+            if (emails.get(rowId).compareTo("user1") >= 0 && emails.get(rowId).compareTo("user2") < 0) {
+                expected.add(rowId);
+            }
+        }
+        Assert.assertEquals(expected, actual);
+        Assert.assertTrue("compressed " + compressed.getTotalBytes() + " of " + rawBytes,
+                compressed.getTotalBytes() < rawBytes);
+    }
+}
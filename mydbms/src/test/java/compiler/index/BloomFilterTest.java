@@ -0,0 +1,62 @@
+package compiler.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class BloomFilterTest {
+
+    @Test
+    public void addedKeysAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(key(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(String.valueOf(i), filter.mightContain(key(i)));
+        }
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = new BloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(key(i));
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain(key(i))) {
+                falsePositives++;
+            }
+        }
+        // 目标误判率1%，留出余量
+        Assert.assertTrue("false positives: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void base64RoundTripKeepsEveryKey() {
+        BloomFilter filter = new BloomFilter(BloomFilter.DEFAULT_EXPECTED_ENTRIES);
+        for (int i = 0; i < 3000; i++) {
+            filter.add(key(i * 7));
+        }
+        BloomFilter copy = BloomFilter.fromBase64(filter.toBase64(), filter.getNumHashes());
+        Assert.assertEquals(filter.toBase64(), copy.toBase64());
+        // 超出预期键数时误判率上升，但不会漏掉已加入的键
+        for (int i = 0; i < 3000; i++) {
+            Assert.assertTrue(copy.mightContain(key(i * 7)));
+        }
+    }
+
+    @Test
+    public void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.fromBase64(new BloomFilter(10).toBase64(), 3);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(filter.mightContain(key(i)));
+        }
+    }
+
+    private static byte[] key(int value) {
+        return KeyEncoder.encode(Collections.singletonList(value));
+    }
+}
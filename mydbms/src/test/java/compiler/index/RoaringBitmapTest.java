@@ -0,0 +1,51 @@
+package compiler.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class RoaringBitmapTest {
+
+    @Test
+    public void andOrMatchBitSetAcrossContainerKinds() {
+        Random random = new Random(7);
+        RoaringBitmap dense = new RoaringBitmap();
+        RoaringBitmap sparse = new RoaringBitmap();
+        BitSet denseExpected = new BitSet();
+        BitSet sparseExpected = new BitSet();
+        // 稠密集合会转为位图容器，稀疏集合保持数组容器，且跨越多个高16位分桶
+        for (int i = 0; i < 200000; i++) {
+            int value = random.nextInt(150000);
+            if (i % 2 == 0) {
+                dense.add(value);
+                denseExpected.set(value);
+            } else if (i % 50 == 1) {
+                sparse.add(value);
+                sparseExpected.set(value);
+            }
+        }
+
+        BitSet and = (BitSet) denseExpected.clone();
+        and.and(sparseExpected);
+        BitSet or = (BitSet) denseExpected.clone();
+        or.or(sparseExpected);
+
+        assertSame(and, dense.and(sparse));
+        assertSame(and, sparse.and(dense));
+        assertSame(or, dense.or(sparse));
+        assertSame(denseExpected, dense);
+    }
+
+    private static void assertSame(BitSet expected, RoaringBitmap actual) {
+        Assert.assertEquals(expected.cardinality(), actual.getCardinality());
+        List<Integer> values = actual.toList();
+        int i = 0;
+        for (int value = expected.nextSetBit(0); value >= 0; value = expected.nextSetBit(value + 1)) {
+            Assert.assertEquals(value, (int) values.get(i++));
+            Assert.assertTrue(actual.contains(value));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package compiler.index;
+
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.execution.Row;
+import compiler.execution.XmlTableReader;
+import compiler.lexer.TokenType;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ZoneMapManagerTest {
+    private final String dbName = "zonemap_test_" + System.nanoTime();
+    private final TableSchema schema = schema();
+    private final XmlTableReader reader = new XmlTableReader();
+
+    @Before
+    public void createSegments() throws Exception {
+        Catalog.tableDirectory(dbName, "t").mkdirs();
+        writeSegment(0, 1, 2, 3);
+        writeSegment(1, 10, 11, 12);
+    }
+
+    @After
+    public void deleteDatabase() throws Exception {
+        try (Stream<Path> paths = Files.walk(new File(Catalog.DATABASE_ROOT, dbName).toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void segmentsOutsideTheRangeOrBloomFilterArePruned() throws Exception {
+        ZoneMap zoneMap = new ZoneMapManager(reader).getZoneMap(dbName, schema);
+        Assert.assertFalse(zoneMap.mayMatch(0, "id", TokenType.EQUALS, 11));
+        Assert.assertTrue(zoneMap.mayMatch(1, "id", TokenType.EQUALS, 11));
+        Assert.assertFalse(zoneMap.mayMatch(0, "score", TokenType.GREATER_THAN, 5));
+        Assert.assertTrue(zoneMap.mayMatch(1, "score", TokenType.GREATER_THAN, 5));
+        // 在取值范围内但不在段中的主键由布隆过滤器排除
+        Assert.assertFalse(zoneMap.mayMatch(1, "id", TokenType.EQUALS, 13));
+        Assert.assertEquals(3, zoneMap.getRowCount(0));
+    }
+
+    @Test
+    public void skippedSegmentsKeepLaterRowIdsContinuous() throws Exception {
+        ZoneMap zoneMap = new ZoneMapManager(reader).getZoneMap(dbName, schema);
+        Assert.assertEquals(Arrays.asList(3, 4, 5), scanIds(zoneMap, 11));
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), rowIds());
+    }
+
+    @Test
+    public void insertsAreMergedIntoTheLastSegment() throws Exception {
+        ZoneMapManager manager = new ZoneMapManager(reader);
+        manager.getZoneMap(dbName, schema);
+        writeSegment(1, 10, 11, 12, 50);
+        manager.onInsert(dbName, schema, Arrays.asList("id", "score"), Arrays.asList("50", "50"));
+
+        // 新的实例从文件加载，段文件的长度与摘要一致
+        ZoneMap zoneMap = new ZoneMapManager(new XmlTableReader()).getZoneMap(dbName, schema);
+        Assert.assertEquals(4, zoneMap.getRowCount(1));
+        Assert.assertTrue(zoneMap.mayMatch(1, "id", TokenType.EQUALS, 50));
+    }
+
+    @Test
+    public void staleSummaryIsRebuilt() throws Exception {
+        new ZoneMapManager(reader).getZoneMap(dbName, schema);
+        // 段文件写入后、摘要保存前崩溃
+        writeSegment(1, 10, 11, 12, 50);
+
+        ZoneMap zoneMap = new ZoneMapManager(new XmlTableReader()).getZoneMap(dbName, schema);
+        Assert.assertEquals(4, zoneMap.getRowCount(1));
+        Assert.assertTrue(zoneMap.mayMatch(1, "id", TokenType.EQUALS, 50));
+        Assert.assertTrue(zoneMap.mayMatch(1, "score", TokenType.GREATER_THAN, 40));
+    }
+
+    @Test
+    public void unreadableSummaryIsRebuilt() throws Exception {
+        new ZoneMapManager(reader).getZoneMap(dbName, schema);
+        File file = new File(Catalog.tableDirectory(dbName, "t"), "t-zonemap.xml");
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), new String(content, 0, content.length / 2, StandardCharsets.UTF_8)
+                .getBytes(StandardCharsets.UTF_8));
+
+        ZoneMap zoneMap = new ZoneMapManager(new XmlTableReader()).getZoneMap(dbName, schema);
+        Assert.assertEquals(3, zoneMap.getRowCount(1));
+        Assert.assertFalse(zoneMap.mayMatch(0, "id", TokenType.EQUALS, 11));
+    }
+
+    private List<Integer> scanIds(ZoneMap zoneMap, int id) throws Exception {
+        List<Integer> rowIds = new ArrayList<>();
+        reader.scan(dbName, "t", segment -> zoneMap.mayMatch(segment.getNumber(), "id", TokenType.EQUALS, id)
+                ? -1 : zoneMap.getRowCount(segment.getNumber()), row -> rowIds.add(row.getRowId()));
+        return rowIds;
+    }
+
+    private List<Integer> rowIds() throws Exception {
+        List<Integer> rowIds = new ArrayList<>();
+        reader.scan(dbName, "t", (Row row) -> rowIds.add(row.getRowId()));
+        return rowIds;
+    }
+
+    private void writeSegment(int number, int... ids) throws Exception {
+        Document document = DocumentHelper.createDocument();
+        Element root = document.addElement("ts");
+        for (int id : ids) {
+            Element row = root.addElement("t");
+            row.addAttribute("id", String.valueOf(id));
+            row.addAttribute("score", String.valueOf(id));
+        }
+        File file = new File(Catalog.tableDirectory(dbName, "t"), "t" + number + ".xml");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            XMLWriter writer = new XMLWriter(out, OutputFormat.createPrettyPrint());
+            writer.write(document);
+            writer.flush();
+        }
+    }
+
+    private static TableSchema schema() {
+        TableSchema schema = new TableSchema("t");
+        schema.addColumn(new ColumnInfo("id", TokenType.INT));
+        schema.addColumn(new ColumnInfo("score", TokenType.INT));
+        schema.setPrimaryKey("id");
+        return schema;
+    }
+}
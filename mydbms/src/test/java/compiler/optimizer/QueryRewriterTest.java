@@ -0,0 +1,65 @@
+package compiler.optimizer;
+
+import compiler.ast.ASTNode;
+import compiler.ast.statements.CreateTableStatement;
+import compiler.catalog.Catalog;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.parser.Parser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryRewriterTest {
+    private Catalog catalog;
+
+    @Before
+    public void createTable() throws Exception {
+        catalog = new Catalog();
+        catalog.createTable("db", (CreateTableStatement) parse(
+                "CREATE TABLE t (id INT NOT NULL, age INT, name VARCHAR(10))"));
+    }
+
+    @Test
+    public void foldsConstantComparisons() throws Exception {
+        Assert.assertEquals("SELECT * FROM t", rewrite("SELECT * FROM t WHERE 1 = 1"));
+        Assert.assertEquals("SELECT * FROM t WHERE false", rewrite("SELECT * FROM t WHERE 1 = 2 AND age > 3"));
+        Assert.assertEquals("DELETE FROM t", rewrite("DELETE FROM t WHERE 2 > 1"));
+    }
+
+    @Test
+    public void movesLiteralToTheRight() throws Exception {
+        Assert.assertEquals("SELECT * FROM t WHERE age > 5", rewrite("SELECT * FROM t WHERE 5 < age"));
+    }
+
+    @Test
+    public void selfComparisonDependsOnNullability() throws Exception {
+        // id非空，id = id恒真；age可为NULL，age = age不能删除
+        Assert.assertEquals("SELECT * FROM t", rewrite("SELECT * FROM t WHERE id = id"));
+        Assert.assertEquals("SELECT * FROM t WHERE age = age", rewrite("SELECT * FROM t WHERE age = age"));
+        Assert.assertEquals("SELECT * FROM t WHERE name = 'x'",
+                rewrite("SELECT * FROM t WHERE age < age OR name = 'x'"));
+    }
+
+    @Test
+    public void mergesRangesOnTheSameColumn() throws Exception {
+        Assert.assertEquals("SELECT * FROM t WHERE age > 5 AND age < 10",
+                rewrite("SELECT * FROM t WHERE age > 3 AND age > 5 AND age < 10"));
+        Assert.assertEquals("SELECT * FROM t WHERE false", rewrite("SELECT * FROM t WHERE age > 10 AND age < 5"));
+    }
+
+    @Test
+    public void leavesUnchangedStatementsAlone() throws Exception {
+        ASTNode ast = parse("SELECT * FROM t WHERE age > 5 AND name = 'a'");
+        QueryRewriter rewriter = new QueryRewriter(catalog, "db");
+        Assert.assertSame(ast, rewriter.rewrite(ast));
+        Assert.assertEquals(0, rewriter.getRewriteCount());
+    }
+
+    private String rewrite(String sql) throws Exception {
+        return new QueryRewriter(catalog, "db").rewrite(parse(sql)).toString();
+    }
+
+    private static ASTNode parse(String sql) throws Exception {
+        return new Parser(new LexicalAnalyzer(sql).analyze()).parse();
+    }
+}
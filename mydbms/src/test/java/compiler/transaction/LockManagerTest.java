@@ -0,0 +1,121 @@
+package compiler.transaction;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LockManagerTest {
+    private static final LockManager.Key TABLE = LockManager.table("db", "t");
+    private static final LockManager.Key ROW_A = LockManager.row("db", "t", 1);
+    private static final LockManager.Key ROW_B = LockManager.row("db", "t", 2);
+
+    private final TransactionManager transactions = new TransactionManager();
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void intentionLocksShareTheTable() {
+        LockManager locks = new LockManager(4, 10, 1000);
+        Transaction first = transactions.begin();
+        Transaction second = transactions.begin();
+        locks.lock(first, TABLE, LockManager.Mode.IX);
+        locks.lock(second, TABLE, LockManager.Mode.IX);
+        locks.lock(second, TABLE, LockManager.Mode.IS);
+        locks.lock(first, ROW_A, LockManager.Mode.X);
+        locks.lock(second, ROW_B, LockManager.Mode.X);
+    }
+
+    @Test
+    public void conflictingLockWaitsForRelease() throws Exception {
+        LockManager locks = new LockManager(4, 10, 5000);
+        Transaction holder = transactions.begin();
+        Transaction waiter = transactions.begin();
+        locks.lock(holder, ROW_A, LockManager.Mode.S);
+        Future<?> waiting = threads.submit(() -> locks.lock(waiter, ROW_A, LockManager.Mode.X));
+        Thread.sleep(100);
+        Assert.assertFalse(waiting.isDone());
+
+        locks.releaseAll(holder);
+        waiting.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(0, locks.getDeadlocks());
+    }
+
+    @Test
+    public void waitTimesOut() {
+        LockManager locks = new LockManager(4, 10, 100);
+        Transaction holder = transactions.begin();
+        Transaction waiter = transactions.begin();
+        locks.lock(holder, ROW_A, LockManager.Mode.X);
+        try {
+            locks.lock(waiter, ROW_A, LockManager.Mode.S);
+            Assert.fail("lock should time out");
+        } catch (LockException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("timeout"));
+        }
+        // 超时的等待不留下等待图中的边，之后可以正常加锁
+        locks.releaseAll(holder);
+        locks.lock(waiter, ROW_A, LockManager.Mode.S);
+    }
+
+    @Test
+    public void deadlockRollsBackTheYoungestTransaction() throws Exception {
+        LockManager locks = new LockManager(4, 10, 5000);
+        Transaction older = transactions.begin();
+        Transaction younger = transactions.begin();
+        locks.lock(older, ROW_A, LockManager.Mode.X);
+        locks.lock(younger, ROW_B, LockManager.Mode.X);
+
+        Future<?> olderWaits = threads.submit(() -> locks.lock(older, ROW_B, LockManager.Mode.X));
+        Thread.sleep(50);
+        try {
+            locks.lock(younger, ROW_A, LockManager.Mode.X);
+            Assert.fail("younger transaction should be the victim");
+        } catch (LockException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Deadlock"));
+        }
+        Assert.assertFalse(olderWaits.isDone());
+
+        // 牺牲者回滚释放锁，另一个事务继续
+        locks.releaseAll(younger);
+        olderWaits.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, locks.getDeadlocks());
+    }
+
+    @Test
+    public void survivorOfADeadlockCanWaitAgain() throws Exception {
+        LockManager locks = new LockManager(4, 10, 5000);
+        Transaction older = transactions.begin();
+        Transaction younger = transactions.begin();
+        Transaction other = transactions.begin();
+        locks.lock(older, ROW_A, LockManager.Mode.X);
+        locks.lock(younger, ROW_B, LockManager.Mode.X);
+        Future<?> olderWaits = threads.submit(() -> locks.lock(older, ROW_B, LockManager.Mode.X));
+        Thread.sleep(50);
+        try {
+            locks.lock(younger, ROW_A, LockManager.Mode.X);
+            Assert.fail("younger transaction should be the victim");
+        } catch (LockException expected) {
+            locks.releaseAll(younger);
+        }
+        olderWaits.get(5, TimeUnit.SECONDS);
+
+        // 没有环路的等待不会被当作死锁
+        LockManager.Key rowC = LockManager.row("db", "t", 3);
+        locks.lock(other, rowC, LockManager.Mode.X);
+        Future<?> waitsAgain = threads.submit(() -> locks.lock(older, rowC, LockManager.Mode.S));
+        Thread.sleep(100);
+        Assert.assertFalse(waitsAgain.isDone());
+        locks.releaseAll(other);
+        waitsAgain.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, locks.getDeadlocks());
+    }
+}
@@ -0,0 +1,244 @@
+package compiler.transaction;
+
+import compiler.ast.statements.CreateTableStatement;
+import compiler.catalog.Catalog;
+import compiler.catalog.ColumnInfo;
+import compiler.catalog.TableSchema;
+import compiler.lexer.LexicalAnalyzer;
+import compiler.lexer.TokenType;
+import compiler.parser.Parser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+public class VersionStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final TableSchema schema = schema();
+
+    @Test
+    public void uncommittedInsertIsVisibleOnlyToItsTransaction() throws Exception {
+        TransactionManager transactions = new TransactionManager();
+        VersionStore store = transactions.store("db", "t");
+        Transaction writer = transactions.begin();
+        Transaction reader = transactions.begin();
+        store.insert(version(1, "a", writer));
+        writer.touch(store);
+
+        Assert.assertEquals(Arrays.asList("1"), ids(store.view(writer.getSnapshot())));
+        Assert.assertEquals(Collections.emptyList(), ids(store.view(reader.getSnapshot())));
+        Assert.assertEquals(Collections.emptyList(), ids(store.view(transactions.snapshot())));
+
+        transactions.commit(writer);
+        // 提交之前取得的快照仍然看不到，之后取得的快照能看到
+        Assert.assertEquals(Collections.emptyList(), ids(store.view(reader.getSnapshot())));
+        Assert.assertEquals(Arrays.asList("1"), ids(store.view(transactions.snapshot())));
+    }
+
+    @Test
+    public void firstDeleterWinsAndRollbackRestoresTheRow() throws Exception {
+        TransactionManager transactions = new TransactionManager();
+        VersionStore store = transactions.store("db", "t");
+        Transaction first = transactions.begin();
+        Transaction second = transactions.begin();
+
+        Assert.assertTrue(store.deleteRow(7, first.getId()));
+        first.touch(store);
+        Assert.assertTrue(store.deleteRow(7, first.getId()));
+        Assert.assertFalse(store.deleteRow(7, second.getId()));
+        Assert.assertTrue(store.view(first.getSnapshot()).isHidden(7));
+        Assert.assertFalse(store.view(second.getSnapshot()).isHidden(7));
+
+        transactions.rollback(first);
+        Assert.assertTrue(store.isEmpty());
+        Assert.assertTrue(store.deleteRow(7, second.getId()));
+    }
+
+    @Test
+    public void deletedVersionStaysVisibleToOlderSnapshots() throws Exception {
+        TransactionManager transactions = new TransactionManager();
+        VersionStore store = transactions.store("db", "t");
+        Transaction inserter = transactions.begin();
+        RowVersion version = version(1, "a", inserter);
+        store.insert(version);
+        inserter.touch(store);
+        transactions.commit(inserter);
+
+        Transaction reader = transactions.begin();
+        Transaction deleter = transactions.begin();
+        Assert.assertTrue(store.deleteVersion(version, deleter.getId()));
+        deleter.touch(store);
+        transactions.commit(deleter);
+
+        Assert.assertEquals(Arrays.asList("1"), ids(store.view(reader.getSnapshot())));
+        Assert.assertEquals(Collections.emptyList(), ids(store.view(transactions.snapshot())));
+    }
+
+    @Test
+    public void changesAreCheckpointableOnlyWhenEveryActiveSnapshotSeesThem() throws Exception {
+        TransactionManager transactions = new TransactionManager();
+        VersionStore store = transactions.store("db", "t");
+        Transaction reader = transactions.begin();
+        Transaction writer = transactions.begin();
+        store.insert(version(1, "a", writer));
+        writer.touch(store);
+        Assert.assertTrue(transactions.checkpointable().isEmpty());
+
+        transactions.commit(writer);
+        // reader的快照看不到writer的修改，写入段文件后它会看到
+        Assert.assertTrue(transactions.checkpointable().isEmpty());
+
+        transactions.commit(reader);
+        Assert.assertEquals(Collections.singletonList(store), transactions.checkpointable());
+    }
+
+    @Test
+    public void committedChangesAreRecoveredFromTheRedoLog() throws Exception {
+        File file = new File(folder.getRoot(), "redo.log");
+        TransactionManager transactions = new TransactionManager(new RedoLog(file));
+        VersionStore store = transactions.store("db", "t");
+        Transaction committed = transactions.begin();
+        store.insert(version(1, "a", committed));
+        Assert.assertTrue(store.deleteRow(3, committed.getId()));
+        committed.touch(store);
+        transactions.commit(committed);
+        Transaction open = transactions.begin();
+        store.insert(version(2, "b", open));
+        open.touch(store);
+
+        // 模拟崩溃：未提交的事务不在日志中
+        TransactionManager recovered = new TransactionManager(new RedoLog(file));
+        Assert.assertEquals(1, recovered.recover(catalog(), stored(0, 0)));
+        VersionStore restored = recovered.store("db", "t");
+        Assert.assertEquals(Arrays.asList("1"), ids(restored.view(recovered.snapshot())));
+        Assert.assertEquals(Collections.singleton(3), restored.getDeletedRows());
+
+        // 写入存储引擎之后日志中不再有待恢复的修改
+        recovered.applied(restored, restored.getDeletedRows(), restored.getLiveVersions());
+        Assert.assertTrue(new RedoLog(file).getPending().isEmpty());
+    }
+
+    @Test
+    public void crashAfterASegmentRewriteDoesNotDeleteShiftedRows() throws Exception {
+        File file = new File(folder.getRoot(), "redo.log");
+        TransactionManager transactions = new TransactionManager(new RedoLog(file));
+        VersionStore store = transactions.store("db", "t");
+        Transaction committed = transactions.begin();
+        // 段0是行0-3，段1是行4-7
+        Assert.assertTrue(store.deleteRow(1, committed.getId()));
+        Assert.assertTrue(store.deleteRow(5, committed.getId()));
+        committed.touch(store);
+        transactions.commit(committed);
+
+        // 检查点从后往前处理：替换段1之前记入日志，替换完成后、记录APPLIED之前崩溃
+        transactions.rewriting(store, 1, 3, Collections.singletonList(5));
+        File copy = new File(folder.getRoot(), "copy.log");
+        Files.copy(file.toPath(), copy.toPath());
+        TransactionManager replaced = new TransactionManager(new RedoLog(file));
+        Assert.assertEquals(1, replaced.recover(catalog(), stored(3, 7)));
+        Assert.assertEquals(Collections.singleton(1), replaced.store("db", "t").getDeletedRows());
+
+        // 替换之前崩溃：段1仍然是4行，两行都要删除
+        TransactionManager notReplaced = new TransactionManager(new RedoLog(copy));
+        Assert.assertEquals(1, notReplaced.recover(catalog(), stored(4, 8)));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(1, 5)), notReplaced.store("db", "t").getDeletedRows());
+    }
+
+    @Test
+    public void crashWhileInsertingDoesNotDuplicateWrittenVersions() throws Exception {
+        File file = new File(folder.getRoot(), "redo.log");
+        TransactionManager transactions = new TransactionManager(new RedoLog(file));
+        VersionStore store = transactions.store("db", "t");
+        Transaction committed = transactions.begin();
+        for (int id = 1; id <= 3; id++) {
+            store.insert(version(id, "v" + id, committed));
+        }
+        committed.touch(store);
+        transactions.commit(committed);
+
+        // 写入前表中有8行，写入两个版本后崩溃
+        transactions.inserting(store, 8, store.getLiveVersions());
+        TransactionManager recovered = new TransactionManager(new RedoLog(file));
+        Assert.assertEquals(1, recovered.recover(catalog(), stored(0, 10)));
+        VersionStore restored = recovered.store("db", "t");
+        Assert.assertEquals(Arrays.asList("3"), ids(restored.view(recovered.snapshot())));
+
+        // 恢复后的日志不再带有进行到一半的写入，再次恢复结果相同
+        TransactionManager again = new TransactionManager(new RedoLog(file));
+        Assert.assertEquals(1, again.recover(catalog(), stored(0, 10)));
+        Assert.assertEquals(Arrays.asList("3"), ids(again.store("db", "t").view(again.snapshot())));
+    }
+
+    @Test
+    public void appliedRecordEndsTheCheckpointInProgress() throws Exception {
+        File file = new File(folder.getRoot(), "redo.log");
+        TransactionManager transactions = new TransactionManager(new RedoLog(file));
+        VersionStore store = transactions.store("db", "t");
+        Transaction committed = transactions.begin();
+        store.insert(version(1, "a", committed));
+        store.insert(version(2, "b", committed));
+        committed.touch(store);
+        transactions.commit(committed);
+
+        // 第一个版本写入后存储引擎出错，检查点记下已写入的部分
+        List<RowVersion> live = store.getLiveVersions();
+        transactions.inserting(store, 0, live);
+        transactions.applied(store, Collections.emptyList(), live.subList(0, 1));
+        RedoLog log = new RedoLog(file);
+        Assert.assertNull(log.getPending().get(0).getInsertBatch());
+        TransactionManager recovered = new TransactionManager(log);
+        Assert.assertEquals(1, recovered.recover(catalog(), stored(0, 1)));
+        Assert.assertEquals(Arrays.asList("2"), ids(recovered.store("db", "t").view(recovered.snapshot())));
+    }
+
+    private static TransactionManager.StoredRows stored(int segmentRows, int tableRows) {
+        return new TransactionManager.StoredRows() {
+            @Override
+            public int segmentRows(String dbName, String tableName, int segment) {
+                return segmentRows;
+            }
+
+            @Override
+            public int tableRows(String dbName, String tableName) {
+                return tableRows;
+            }
+        };
+    }
+
+    private static Catalog catalog() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.createTable("db", (CreateTableStatement) new Parser(new LexicalAnalyzer(
+                "CREATE TABLE t (id INT, name VARCHAR(10))").analyze()).parse());
+        return catalog;
+    }
+
+    private RowVersion version(int id, String name, Transaction transaction) {
+        return new RowVersion(schema, Arrays.asList("id", "name"), Arrays.asList(String.valueOf(id), "'" + name + "'"),
+                transaction.getId());
+    }
+
+    private static List<String> ids(TableView view) {
+        List<String> ids = new ArrayList<>();
+        for (RowVersion version : view.getVersions()) {
+            ids.add(version.getValues().get("ID"));
+        }
+        return ids;
+    }
+
+    private static TableSchema schema() {
+        TableSchema schema = new TableSchema("t");
+        schema.addColumn(new ColumnInfo("id", TokenType.INT));
+        schema.addColumn(new ColumnInfo("name", TokenType.VARCHAR, 10));
+        return schema;
+    }
+}
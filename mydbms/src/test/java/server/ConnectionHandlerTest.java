@@ -0,0 +1,203 @@
+package server;
+
+import compiler.CompilationResult;
+import compiler.SQLCompiler;
+import compiler.Session;
+import compiler.catalog.Catalog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ConnectionHandlerTest {
+    private static final File REDO_LOG = new File(Catalog.DATABASE_ROOT, "redo.log");
+
+    // 编译器构造时打开重做日志，测试结束时删除它新建的日志
+    private final boolean hadRedoLog = REDO_LOG.exists();
+    private final ScriptedCompiler compiler = new ScriptedCompiler();
+
+    @After
+    public void deleteRedoLog() {
+        if (!hadRedoLog) {
+            REDO_LOG.delete();
+            new File(Catalog.DATABASE_ROOT).delete();
+        }
+    }
+
+    @Test
+    public void pipelinedStatementsAreAnsweredInOrder() throws Exception {
+        List<String> replies = run("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)", "SELECT * FROM t",
+                "INSERT INTO t VALUES (FAIL)", "INSERT INTO t VALUES (4)", "SELECT BAD", "INSERT INTO t VALUES (5)");
+        Assert.assertEquals(Arrays.asList("OK 0", "OK 0", "COLUMNS", "ROWS 2", "OK 2", "ERROR duplicate key",
+                "OK 0", "ERROR", "OK 0"), replies);
+        // 连续的INSERT合并执行，SELECT和编译失败的语句打断合并
+        Assert.assertEquals(Arrays.asList(
+                Arrays.asList("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)"),
+                Collections.singletonList("SELECT * FROM t"),
+                Collections.singletonList("INSERT INTO t VALUES (FAIL)"),
+                Collections.singletonList("INSERT INTO t VALUES (4)"),
+                Collections.singletonList("INSERT INTO t VALUES (5)")), compiler.executed);
+        Assert.assertTrue(compiler.closed);
+    }
+
+    @Test
+    public void compileFailureRunsThePrecedingInsertsAgain() throws Exception {
+        List<String> replies = run("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)",
+                "INSERT INTO t VALUES (BAD)", "INSERT INTO t VALUES (3)");
+        Assert.assertEquals(Arrays.asList("OK 0", "OK 0", "ERROR", "OK 0"), replies);
+        // 编译失败的那一批没有执行任何语句，它前面的语句单独成批执行
+        Assert.assertEquals(Arrays.asList(
+                Arrays.asList("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)"),
+                Collections.singletonList("INSERT INTO t VALUES (3)")), compiler.executed);
+    }
+
+    @Test
+    public void executionFailureAnswersOkThenError() throws Exception {
+        List<String> replies = run("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (FAIL)",
+                "INSERT INTO t VALUES (3)", "INSERT INTO t VALUES (4)");
+        Assert.assertEquals(Arrays.asList("OK 0", "ERROR duplicate key", "OK 0", "OK 0"), replies);
+        Assert.assertEquals(Arrays.asList(
+                Arrays.asList("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (FAIL)"),
+                Arrays.asList("INSERT INTO t VALUES (3)", "INSERT INTO t VALUES (4)")), compiler.executed);
+    }
+
+    @Test
+    public void invalidParametersAreAnsweredWithoutBreakingTheBatch() throws Exception {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(requests);
+        Protocol.writeQuery(out, "INSERT INTO t VALUES (?)", Collections.singletonList(1L));
+        Protocol.writeQuery(out, "INSERT INTO t VALUES (?)", Collections.emptyList());
+        Protocol.writeQuery(out, "INSERT INTO t VALUES (?)", Collections.singletonList(3L));
+        Assert.assertEquals(Arrays.asList("OK 0", "ERROR", "OK 0"), replies(requests));
+        Assert.assertEquals(Arrays.asList(
+                Collections.singletonList("INSERT INTO t VALUES (1)"),
+                Collections.singletonList("INSERT INTO t VALUES (3)")), compiler.executed);
+    }
+
+    private List<String> run(String... sqls) throws IOException {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(requests);
+        for (String sql : sqls) {
+            Protocol.writeQuery(out, sql, Collections.emptyList());
+        }
+        return replies(requests);
+    }
+
+    /**
+     * 一次性交给处理器全部请求（相当于客户端流水线发送，帧都已经到达），再以CLOSE结束；
+     * 回复记为 OK 行数、ERROR 错误信息（编译错误只记ERROR）、COLUMNS、ROWS 行数
+     */
+    private List<String> replies(ByteArrayOutputStream requests) throws IOException {
+        new Protocol.FrameWriter(Protocol.CLOSE).writeTo(new DataOutputStream(requests));
+        ByteArrayOutputStream responses = new ByteArrayOutputStream();
+        new ConnectionHandler(compiler, new StreamSocket(new ByteArrayInputStream(requests.toByteArray()),
+                responses)).run();
+
+        List<String> replies = new ArrayList<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(responses.toByteArray()));
+        for (Protocol.Frame frame = Protocol.readFrame(in); frame != null; frame = Protocol.readFrame(in)) {
+            switch (frame.getType()) {
+                case Protocol.OK:
+                    replies.add("OK " + frame.getPayload().readLong());
+                    break;
+                case Protocol.ERROR:
+                    String message = Protocol.readString(frame.getPayload());
+                    replies.add(message.equals(ScriptedCompiler.EXECUTION_ERROR) ? "ERROR " + message : "ERROR");
+                    break;
+                case Protocol.COLUMNS:
+                    replies.add("COLUMNS");
+                    break;
+                case Protocol.ROWS:
+                    replies.add("ROWS " + Protocol.readRows(frame.getPayload()).size());
+                    break;
+                default:
+                    Assert.fail("unexpected frame " + (char) frame.getType());
+            }
+        }
+        return replies;
+    }
+
+    /**
+     * 按语句文本给出结果：含BAD的语句编译失败，含FAIL的语句执行出错，SELECT返回两行；
+     * 记录每次实际执行的语句
+     */
+    private static final class ScriptedCompiler extends SQLCompiler {
+        static final String EXECUTION_ERROR = "duplicate key";
+
+        final List<List<String>> executed = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public CompilationResult compile(String sql, Session session) {
+            return compileBatch(Collections.singletonList(sql), session).get(0);
+        }
+
+        @Override
+        public List<CompilationResult> compileBatch(List<String> sqls, Session session) {
+            List<CompilationResult> results = new ArrayList<>();
+            for (String sql : sqls) {
+                CompilationResult result = new CompilationResult();
+                results.add(result);
+                if (sql.contains("BAD")) {
+                    result.addError("语法错误", 1, 1, "unexpected BAD");
+                    return results;
+                }
+                result.setSuccess(true);
+            }
+            List<String> batch = new ArrayList<>();
+            executed.add(batch);
+            for (int i = 0; i < sqls.size(); i++) {
+                String sql = sqls.get(i);
+                batch.add(sql);
+                if (sql.contains("FAIL")) {
+                    session.getResultSink().error(EXECUTION_ERROR);
+                    return new ArrayList<>(results.subList(0, i + 1));
+                }
+                if (sql.startsWith("SELECT")) {
+                    session.getResultSink().columns(Collections.singletonList("ID"));
+                    session.getResultSink().row(Collections.singletonList("1"));
+                    session.getResultSink().row(Collections.singletonList("2"));
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public void closeSession(Session session) {
+            closed = true;
+        }
+    }
+
+    private static final class StreamSocket extends Socket {
+        private final InputStream in;
+        private final OutputStream out;
+
+        StreamSocket(InputStream in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ProtocolTest {
+
+    @Test
+    public void pipelinedQueriesAreReadBackInOrder() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Protocol.writeQuery(out, "SELECT * FROM t WHERE id = ?", Arrays.asList(42L, "名字", 1.5, true, null));
+        Protocol.writeQuery(out, "DELETE FROM t", Collections.emptyList());
+        new Protocol.FrameWriter(Protocol.CLOSE).writeTo(out);
+
+        DataInputStream in = input(bytes);
+        Protocol.Frame first = Protocol.readFrame(in);
+        Assert.assertEquals(Protocol.QUERY, first.getType());
+        Assert.assertEquals("SELECT * FROM t WHERE id = ?", Protocol.readString(first.getPayload()));
+        Assert.assertEquals(Arrays.asList(42L, "名字", 1.5, true, null), Protocol.readParameters(first.getPayload()));
+
+        Protocol.Frame second = Protocol.readFrame(in);
+        Assert.assertEquals("DELETE FROM t", Protocol.readString(second.getPayload()));
+        Assert.assertTrue(Protocol.readParameters(second.getPayload()).isEmpty());
+
+        Assert.assertEquals(Protocol.CLOSE, Protocol.readFrame(in).getType());
+        // 在帧边界上结束的流表示连接关闭
+        Assert.assertNull(Protocol.readFrame(in));
+    }
+
+    @Test
+    public void rowsKeepNullsAndPadShortRows() throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        rows.add(Arrays.asList("1", null, ""));
+        rows.add(Collections.singletonList("2"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Protocol.writeRows(new DataOutputStream(bytes), 3, rows);
+
+        Protocol.Frame frame = Protocol.readFrame(input(bytes));
+        Assert.assertEquals(Protocol.ROWS, frame.getType());
+        Assert.assertEquals(Arrays.asList(Arrays.asList("1", null, ""), Arrays.asList("2", null, null)),
+                Protocol.readRows(frame.getPayload()));
+    }
+
+    @Test
+    public void invalidFrameLengthIsRejected() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(Protocol.MAX_FRAME_BYTES + 1);
+        out.writeByte(Protocol.QUERY);
+        try {
+            Protocol.readFrame(input(bytes));
+            Assert.fail("oversized frame should be rejected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid frame length"));
+        }
+    }
+
+    @Test
+    public void countsThatDoNotFitThePayloadAreRejected() throws Exception {
+        // 行数、列数字段声称的值比载荷能装下的多
+        int[][] batches = {{1, Integer.MAX_VALUE}, {Integer.MAX_VALUE, 1}, {2, 2}, {Protocol.ROW_BATCH_SIZE + 1, 0}};
+        for (int[] batch : batches) {
+            Protocol.FrameWriter frame = new Protocol.FrameWriter(Protocol.ROWS);
+            frame.payload().writeInt(batch[0]);
+            frame.payload().writeInt(batch[1]);
+            frame.payload().writeBoolean(false);
+            try {
+                Protocol.readRows(payload(frame));
+                Assert.fail("should reject " + batch[0] + " x " + batch[1]);
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid row batch"));
+            }
+        }
+
+        Protocol.FrameWriter query = new Protocol.FrameWriter(Protocol.QUERY);
+        Protocol.writeString(query.payload(), "SELECT ?");
+        query.payload().writeInt(Integer.MAX_VALUE);
+        DataInputStream in = payload(query);
+        Protocol.readString(in);
+        try {
+            Protocol.readParameters(in);
+            Assert.fail("should reject the parameter count");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid parameter count"));
+        }
+    }
+
+    @Test
+    public void unsupportedParameterTypeIsRejected() throws Exception {
+        try {
+            Protocol.writeParameter(new DataOutputStream(new ByteArrayOutputStream()), new Object());
+            Assert.fail("unsupported parameter type");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void parametersAreBoundOutsideQuotes() {
+        Assert.assertEquals("SELECT * FROM t WHERE name = '?' AND id = 7 AND ok = TRUE AND s = \"it's\"",
+                ParameterBinder.bind("SELECT * FROM t WHERE name = '?' AND id = ? AND ok = ? AND s = ?",
+                        Arrays.asList(7, true, "it's")));
+        Assert.assertEquals("INSERT INTO t VALUES (2.0, 0.25)",
+                ParameterBinder.bind("INSERT INTO t VALUES (?, ?)", Arrays.asList(2.0, 0.25)));
+    }
+
+    @Test
+    public void parameterCountAndValuesAreChecked() {
+        for (List<Object> parameters : Arrays.<List<Object>>asList(Collections.emptyList(), Arrays.asList(1, 2),
+                Collections.singletonList(-1), Collections.singletonList(null),
+                Collections.singletonList("both ' and \""))) {
+            try {
+                ParameterBinder.bind("SELECT * FROM t WHERE id = ?", parameters);
+                Assert.fail("should reject " + parameters);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    private static DataInputStream payload(Protocol.FrameWriter frame) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        frame.writeTo(new DataOutputStream(bytes));
+        return Protocol.readFrame(input(bytes)).getPayload();
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}